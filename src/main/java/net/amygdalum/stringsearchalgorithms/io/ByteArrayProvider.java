@@ -0,0 +1,171 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import net.amygdalum.util.text.ByteString;
+
+/**
+ * a ByteProvider over a byte array (or a region of a byte array), giving direct access to the array (as a ByteBuffer) for bulk scans.
+ */
+public class ByteArrayProvider implements DirectByteProvider {
+
+	private static final long NO_MARK = Long.MIN_VALUE;
+
+	private byte[] input;
+	private int offset;
+	private int length;
+	private ByteBuffer buffer;
+	private Charset charset;
+	private int pos;
+	private long mark;
+
+	public ByteArrayProvider(byte[] input, int start) {
+		this(input, start, UTF_16LE);
+	}
+
+	public ByteArrayProvider(byte[] input, int start, Charset charset) {
+		this(input, 0, input.length, charset);
+		this.pos = start;
+	}
+
+	/**
+	 * creates a provider for the region [from, to) of the given array (without copying it). Positions of this provider are relative to from.
+	 * @param input the array
+	 * @param from the start of the region
+	 * @param to the end of the region
+	 * @param charset the charset for slices of the array
+	 */
+	public ByteArrayProvider(byte[] input, int from, int to, Charset charset) {
+		this.input = input;
+		this.offset = from;
+		this.length = to - from;
+		this.buffer = ByteBuffer.wrap(input, from, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.charset = charset;
+		this.mark = NO_MARK;
+	}
+
+	@Override
+	public long size() {
+		return length;
+	}
+
+	@Override
+	public ByteBuffer buffer(long i) {
+		return buffer;
+	}
+
+	@Override
+	public long bufferStart(long i) {
+		return 0;
+	}
+
+	@Override
+	public byte next() {
+		return input[offset + pos++];
+	}
+
+	@Override
+	public byte lookahead() {
+		return input[offset + pos];
+	}
+
+	@Override
+	public byte lookahead(int i) {
+		return input[offset + pos + i];
+	}
+
+	@Override
+	public byte prev() {
+		return input[offset + --pos];
+	}
+
+	@Override
+	public byte lookbehind() {
+		return input[offset + pos - 1];
+	}
+
+	@Override
+	public byte lookbehind(int i) {
+		return input[offset + pos - i - 1];
+	}
+
+	@Override
+	public long current() {
+		return pos;
+	}
+
+	@Override
+	public void move(long i) {
+		pos = (int) i;
+	}
+
+	@Override
+	public void forward(int i) {
+		pos += i;
+	}
+
+	@Override
+	public void finish() {
+		pos = length;
+	}
+
+	@Override
+	public boolean finished() {
+		return pos >= length;
+	}
+
+	@Override
+	public boolean finished(int i) {
+		return length - pos <= i;
+	}
+
+	@Override
+	public byte at(long i) {
+		return input[offset + (int) i];
+	}
+
+	@Override
+	public byte[] between(long start, long end) {
+		byte[] between = new byte[(int) (end - start)];
+		System.arraycopy(input, offset + (int) start, between, 0, between.length);
+		return between;
+	}
+
+	@Override
+	public ByteString slice(long start, long end) {
+		return new ByteString(between(start, end), charset);
+	}
+
+	@Override
+	public void mark() {
+		mark = pos;
+	}
+
+	@Override
+	public boolean changed() {
+		boolean changed = mark != NO_MARK && mark != pos;
+		mark = NO_MARK;
+		return changed;
+	}
+
+	@Override
+	public String toString() {
+		int split = Math.max(0, Math.min(pos, length));
+		ByteString prefix = slice(0, split);
+		ByteString suffix = slice(split, length);
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(prefix.getMappablePrefix());
+		if (!prefix.isMappable()) {
+			buffer.append("~|~");
+		} else {
+			buffer.append('|');
+		}
+		buffer.append(suffix.getMappableSuffix());
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,32 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import java.nio.ByteBuffer;
+
+import net.amygdalum.util.io.ByteProvider;
+
+/**
+ * a ByteProvider of known size giving direct access to the buffers holding its bytes.
+ *
+ * Algorithms may scan these buffers in bulk (e.g. reading 8 bytes at once) instead of calling the provider for each
+ * byte. The buffers are shared with the provider and must not be modified.
+ */
+public interface DirectByteProvider extends ByteProvider {
+
+	/**
+	 * @return the number of bytes of this provider
+	 */
+	long size();
+
+	/**
+	 * @param i a position of this provider
+	 * @return the buffer containing position i (in little endian order), index 0 of the buffer corresponds to bufferStart(i)
+	 */
+	ByteBuffer buffer(long i);
+
+	/**
+	 * @param i a position of this provider
+	 * @return the position of index 0 of the buffer containing position i
+	 */
+	long bufferStart(long i);
+
+}
@@ -0,0 +1,296 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.amygdalum.util.io.IORuntimeException;
+import net.amygdalum.util.text.ByteString;
+
+/**
+ * a ByteProvider reading a file through memory mapped segments (without copying the file content to the heap).
+ *
+ * Files larger than a single mapping (2 GB) are split into segments which are mapped on first access. All positions are
+ * file positions (relative to the region start if only a region of the file is mapped), reads crossing a segment border
+ * (lookahead, between, slice) are handled transparently.
+ */
+public class MappedByteProvider implements DirectByteProvider, Closeable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+	private static final long NO_MARK = Long.MIN_VALUE;
+	private static final int TO_STRING_CONTEXT = 32;
+
+	private FileChannel channel;
+	private boolean ownsChannel;
+	private Charset charset;
+	private long base;
+	private long size;
+	private int segmentSize;
+	private MappedByteBuffer[] segments;
+
+	private MappedByteBuffer segment;
+	private long segmentStart;
+	private long segmentEnd;
+
+	private long pos;
+	private long mark;
+
+	public MappedByteProvider(Path file) {
+		this(file, UTF_16LE);
+	}
+
+	public MappedByteProvider(Path file, Charset charset) {
+		this(open(file), 0, charset, DEFAULT_SEGMENT_SIZE);
+		this.ownsChannel = true;
+	}
+
+	public MappedByteProvider(FileChannel channel, long start, Charset charset) {
+		this(channel, start, charset, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public MappedByteProvider(FileChannel channel, long start, Charset charset, int segmentSize) {
+		this(channel, 0, size(channel), charset, segmentSize);
+		this.pos = start;
+	}
+
+	/**
+	 * creates a provider for the region [from, to) of the given file. Positions of this provider are relative to from.
+	 * @param channel the file
+	 * @param from the start of the region
+	 * @param to the end of the region
+	 * @param charset the charset for slices of the file
+	 * @param segmentSize the size of each mapped segment
+	 */
+	public MappedByteProvider(FileChannel channel, long from, long to, Charset charset, int segmentSize) {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("segment size must be positive, but was " + segmentSize);
+		}
+		this.channel = channel;
+		this.charset = charset;
+		this.base = from;
+		this.size = to - from;
+		this.segmentSize = segmentSize;
+		this.segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+		this.segmentStart = 0;
+		this.segmentEnd = 0;
+		this.mark = NO_MARK;
+	}
+
+	private static FileChannel open(Path file) {
+		try {
+			return FileChannel.open(file, StandardOpenOption.READ);
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private static long size(FileChannel channel) {
+		try {
+			return channel.size();
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the number of bytes of the mapped file (or region)
+	 */
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public ByteBuffer buffer(long i) {
+		if (i < segmentStart || i >= segmentEnd) {
+			select(i);
+		}
+		return segment;
+	}
+
+	@Override
+	public long bufferStart(long i) {
+		if (i < segmentStart || i >= segmentEnd) {
+			select(i);
+		}
+		return segmentStart;
+	}
+
+	@Override
+	public byte next() {
+		byte b = at(pos);
+		pos++;
+		return b;
+	}
+
+	@Override
+	public byte lookahead() {
+		return at(pos);
+	}
+
+	@Override
+	public byte lookahead(int i) {
+		return at(pos + i);
+	}
+
+	@Override
+	public byte prev() {
+		pos--;
+		return at(pos);
+	}
+
+	@Override
+	public byte lookbehind() {
+		return at(pos - 1);
+	}
+
+	@Override
+	public byte lookbehind(int i) {
+		return at(pos - i - 1);
+	}
+
+	@Override
+	public long current() {
+		return pos;
+	}
+
+	@Override
+	public void move(long i) {
+		pos = i;
+	}
+
+	@Override
+	public void forward(int i) {
+		pos += i;
+	}
+
+	@Override
+	public void finish() {
+		pos = size;
+	}
+
+	@Override
+	public boolean finished() {
+		return pos >= size;
+	}
+
+	@Override
+	public boolean finished(int i) {
+		return size - pos <= i;
+	}
+
+	@Override
+	public byte at(long i) {
+		if (i < segmentStart || i >= segmentEnd) {
+			select(i);
+		}
+		return segment.get((int) (i - segmentStart));
+	}
+
+	@Override
+	public byte[] between(long start, long end) {
+		byte[] between = new byte[(int) (end - start)];
+		long i = start;
+		int to = 0;
+		while (i < end) {
+			select(i);
+			int from = (int) (i - segmentStart);
+			int until = (int) (Math.min(end, segmentEnd) - segmentStart);
+			for (int j = from; j < until; j++) {
+				between[to] = segment.get(j);
+				to++;
+			}
+			i += until - from;
+		}
+		return between;
+	}
+
+	@Override
+	public ByteString slice(long start, long end) {
+		return new ByteString(between(start, end), charset);
+	}
+
+	@Override
+	public void mark() {
+		mark = pos;
+	}
+
+	@Override
+	public boolean changed() {
+		boolean changed = mark != NO_MARK && mark != pos;
+		mark = NO_MARK;
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		segments = new MappedByteBuffer[segments.length];
+		segment = null;
+		segmentStart = 0;
+		segmentEnd = 0;
+		if (ownsChannel) {
+			channel.close();
+		}
+	}
+
+	private void select(long i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException(String.valueOf(i));
+		}
+		int index = (int) (i / segmentSize);
+		MappedByteBuffer mapped = segments[index];
+		long start = (long) index * segmentSize;
+		long end = Math.min(size, start + segmentSize);
+		if (mapped == null) {
+			mapped = map(start, end - start);
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			segments[index] = mapped;
+		}
+		segment = mapped;
+		segmentStart = start;
+		segmentEnd = end;
+	}
+
+	private MappedByteBuffer map(long start, long length) {
+		try {
+			return channel.map(MapMode.READ_ONLY, base + start, length);
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		long split = Math.max(0, Math.min(pos, size));
+		long start = Math.max(0, split - TO_STRING_CONTEXT);
+		long end = Math.min(size, split + TO_STRING_CONTEXT);
+		ByteString prefix = slice(start, split);
+		ByteString suffix = slice(split, end);
+		StringBuilder buffer = new StringBuilder();
+		if (start > 0) {
+			buffer.append("...");
+		}
+		buffer.append(prefix.getMappablePrefix());
+		if (!prefix.isMappable()) {
+			buffer.append("~|~");
+		} else {
+			buffer.append('|');
+		}
+		buffer.append(suffix.getMappableSuffix());
+		if (end < size) {
+			buffer.append("...");
+		}
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,248 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+import net.amygdalum.util.io.ByteProvider;
+import net.amygdalum.util.io.IORuntimeException;
+import net.amygdalum.util.io.OutOfBufferException;
+import net.amygdalum.util.text.ByteString;
+
+/**
+ * a ByteProvider reading a stream of unknown length with constant memory.
+ *
+ * Only a bounded window of the stream is kept: window bytes before the current position (for lookbehind and for
+ * matches that are reported after the finder moved on) and at least window bytes after it (for lookahead). The window
+ * must be at least the maximum pattern length (in bytes). Finders that buffer matches until the longest of overlapping
+ * matches is known (LONGEST_MATCH with multiple patterns) shift over at most one pattern length behind the start of the
+ * buffered match, so they need twice the maximum pattern length (regex finders: twice the maximum match length).
+ * Consumed data is discarded by compacting the single buffer in place, so scanning does not allocate. Accessing
+ * discarded data throws an OutOfBufferException.
+ */
+public class StreamingByteProvider implements ByteProvider, Closeable {
+
+	public static final int DEFAULT_CHUNK = 8192;
+
+	private static final long NO_MARK = Long.MIN_VALUE;
+
+	private ReadableByteChannel input;
+	private Charset charset;
+	private int window;
+	private byte[] buffer;
+	private ByteBuffer wrapper;
+	private long offset;
+	private int fill;
+	private boolean eof;
+
+	private long pos;
+	private long mark;
+
+	public StreamingByteProvider(InputStream input, int window) {
+		this(Channels.newChannel(input), UTF_16LE, window, DEFAULT_CHUNK);
+	}
+
+	public StreamingByteProvider(InputStream input, Charset charset, int window) {
+		this(Channels.newChannel(input), charset, window, DEFAULT_CHUNK);
+	}
+
+	public StreamingByteProvider(ReadableByteChannel input, Charset charset, int window) {
+		this(input, charset, window, DEFAULT_CHUNK);
+	}
+
+	public StreamingByteProvider(ReadableByteChannel input, Charset charset, int window, int chunk) {
+		if (window < 0 || chunk <= 0) {
+			throw new IllegalArgumentException("window must not be negative and chunk must be positive, but were " + window + " and " + chunk);
+		}
+		this.input = input;
+		this.charset = charset;
+		this.window = window;
+		this.buffer = new byte[2 * window + chunk];
+		this.wrapper = ByteBuffer.wrap(buffer);
+		this.mark = NO_MARK;
+	}
+
+	@Override
+	public byte next() {
+		byte b = at(pos);
+		pos++;
+		return b;
+	}
+
+	@Override
+	public byte lookahead() {
+		return at(pos);
+	}
+
+	@Override
+	public byte lookahead(int i) {
+		return at(pos + i);
+	}
+
+	@Override
+	public byte prev() {
+		pos--;
+		return at(pos);
+	}
+
+	@Override
+	public byte lookbehind() {
+		return at(pos - 1);
+	}
+
+	@Override
+	public byte lookbehind(int i) {
+		return at(pos - i - 1);
+	}
+
+	@Override
+	public long current() {
+		return pos;
+	}
+
+	@Override
+	public void move(long i) {
+		pos = i;
+	}
+
+	@Override
+	public void forward(int i) {
+		pos += i;
+	}
+
+	@Override
+	public void finish() {
+		while (!eof) {
+			pos = offset + fill;
+			read();
+		}
+		pos = offset + fill;
+	}
+
+	@Override
+	public boolean finished() {
+		return !available(pos);
+	}
+
+	@Override
+	public boolean finished(int i) {
+		return !available(pos + i);
+	}
+
+	@Override
+	public byte at(long i) {
+		if (!available(i)) {
+			throw new IndexOutOfBoundsException(String.valueOf(i));
+		}
+		if (i < offset) {
+			throw new OutOfBufferException();
+		}
+		return buffer[(int) (i - offset)];
+	}
+
+	@Override
+	public byte[] between(long start, long end) {
+		byte[] between = new byte[(int) (end - start)];
+		if (start == end) {
+			return between;
+		}
+		if (!available(end - 1)) {
+			throw new IndexOutOfBoundsException(String.valueOf(end));
+		}
+		if (start < offset) {
+			throw new OutOfBufferException();
+		}
+		System.arraycopy(buffer, (int) (start - offset), between, 0, between.length);
+		return between;
+	}
+
+	@Override
+	public ByteString slice(long start, long end) {
+		return new ByteString(between(start, end), charset);
+	}
+
+	@Override
+	public void mark() {
+		mark = pos;
+	}
+
+	@Override
+	public boolean changed() {
+		boolean changed = mark != NO_MARK && mark != pos;
+		mark = NO_MARK;
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	private boolean available(long i) {
+		while (i >= offset + fill) {
+			if (eof) {
+				return false;
+			}
+			read();
+		}
+		return true;
+	}
+
+	private void read() {
+		if (fill == buffer.length) {
+			compact();
+		}
+		try {
+			((Buffer) wrapper).limit(buffer.length).position(fill);
+			int read = input.read(wrapper);
+			if (read < 0) {
+				eof = true;
+			} else {
+				fill += read;
+			}
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private void compact() {
+		long keep = Math.min(pos, offset + fill) - window;
+		int discard = (int) Math.min(fill, keep - offset);
+		if (discard <= 0) {
+			throw new OutOfBufferException();
+		}
+		System.arraycopy(buffer, discard, buffer, 0, fill - discard);
+		offset += discard;
+		fill -= discard;
+	}
+
+	@Override
+	public String toString() {
+		long split = Math.max(offset, Math.min(pos, offset + fill));
+		ByteString prefix = slice(offset, split);
+		ByteString suffix = slice(split, offset + fill);
+		StringBuilder buffer = new StringBuilder();
+		if (offset > 0) {
+			buffer.append("...");
+		}
+		buffer.append(prefix.getMappablePrefix());
+		if (!prefix.isMappable()) {
+			buffer.append("~|~");
+		} else {
+			buffer.append('|');
+		}
+		buffer.append(suffix.getMappableSuffix());
+		if (!eof) {
+			buffer.append("...");
+		}
+		return buffer.toString();
+	}
+
+}
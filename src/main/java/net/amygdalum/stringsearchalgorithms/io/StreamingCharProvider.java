@@ -0,0 +1,221 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.io.IORuntimeException;
+import net.amygdalum.util.io.OutOfBufferException;
+
+/**
+ * a CharProvider reading a Reader of unknown length with constant memory.
+ *
+ * Only a bounded window of the input is kept: window chars before the current position (for lookbehind and for
+ * matches that are reported after the finder moved on) and at least window chars after it (for lookahead). The window
+ * must be at least the maximum pattern length. Finders that buffer matches until the longest of overlapping matches is
+ * known (LONGEST_MATCH with multiple patterns) shift over at most one pattern length behind the start of the buffered
+ * match, so they need twice the maximum pattern length (regex finders: twice the maximum match length). Consumed data
+ * is discarded by compacting the single buffer in place, so scanning does not allocate. Accessing discarded data throws
+ * an OutOfBufferException.
+ */
+public class StreamingCharProvider implements CharProvider, Closeable {
+
+	public static final int DEFAULT_CHUNK = 8192;
+
+	private static final long NO_MARK = Long.MIN_VALUE;
+
+	private Reader input;
+	private int window;
+	private char[] buffer;
+	private long offset;
+	private int fill;
+	private boolean eof;
+
+	private long pos;
+	private long mark;
+
+	public StreamingCharProvider(Reader input, int window) {
+		this(input, window, DEFAULT_CHUNK);
+	}
+
+	public StreamingCharProvider(Reader input, int window, int chunk) {
+		if (window < 0 || chunk <= 0) {
+			throw new IllegalArgumentException("window must not be negative and chunk must be positive, but were " + window + " and " + chunk);
+		}
+		this.input = input;
+		this.window = window;
+		this.buffer = new char[2 * window + chunk];
+		this.mark = NO_MARK;
+	}
+
+	@Override
+	public char next() {
+		char c = at(pos);
+		pos++;
+		return c;
+	}
+
+	@Override
+	public char lookahead() {
+		return at(pos);
+	}
+
+	@Override
+	public char lookahead(int i) {
+		return at(pos + i);
+	}
+
+	@Override
+	public char prev() {
+		pos--;
+		return at(pos);
+	}
+
+	@Override
+	public char lookbehind() {
+		return at(pos - 1);
+	}
+
+	@Override
+	public char lookbehind(int i) {
+		return at(pos - i - 1);
+	}
+
+	@Override
+	public long current() {
+		return pos;
+	}
+
+	@Override
+	public void move(long i) {
+		pos = i;
+	}
+
+	@Override
+	public void forward(int i) {
+		pos += i;
+	}
+
+	@Override
+	public void finish() {
+		while (!eof) {
+			pos = offset + fill;
+			read();
+		}
+		pos = offset + fill;
+	}
+
+	@Override
+	public boolean finished() {
+		return !available(pos);
+	}
+
+	@Override
+	public boolean finished(int i) {
+		return !available(pos + i);
+	}
+
+	@Override
+	public char at(long i) {
+		if (!available(i)) {
+			throw new IndexOutOfBoundsException(String.valueOf(i));
+		}
+		if (i < offset) {
+			throw new OutOfBufferException();
+		}
+		return buffer[(int) (i - offset)];
+	}
+
+	@Override
+	public char[] between(long start, long end) {
+		char[] between = new char[(int) (end - start)];
+		if (start == end) {
+			return between;
+		}
+		if (!available(end - 1)) {
+			throw new IndexOutOfBoundsException(String.valueOf(end));
+		}
+		if (start < offset) {
+			throw new OutOfBufferException();
+		}
+		System.arraycopy(buffer, (int) (start - offset), between, 0, between.length);
+		return between;
+	}
+
+	@Override
+	public String slice(long start, long end) {
+		return new String(between(start, end));
+	}
+
+	@Override
+	public void mark() {
+		mark = pos;
+	}
+
+	@Override
+	public boolean changed() {
+		boolean changed = mark != NO_MARK && mark != pos;
+		mark = NO_MARK;
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	private boolean available(long i) {
+		while (i >= offset + fill) {
+			if (eof) {
+				return false;
+			}
+			read();
+		}
+		return true;
+	}
+
+	private void read() {
+		if (fill == buffer.length) {
+			compact();
+		}
+		try {
+			int read = input.read(buffer, fill, buffer.length - fill);
+			if (read < 0) {
+				eof = true;
+			} else {
+				fill += read;
+			}
+		} catch (IOException e) {
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private void compact() {
+		long keep = Math.min(pos, offset + fill) - window;
+		int discard = (int) Math.min(fill, keep - offset);
+		if (discard <= 0) {
+			throw new OutOfBufferException();
+		}
+		System.arraycopy(buffer, discard, buffer, 0, fill - discard);
+		offset += discard;
+		fill -= discard;
+	}
+
+	@Override
+	public String toString() {
+		long split = Math.max(offset, Math.min(pos, offset + fill));
+		StringBuilder buffer = new StringBuilder();
+		if (offset > 0) {
+			buffer.append("...");
+		}
+		buffer.append(slice(offset, split));
+		buffer.append('|');
+		buffer.append(slice(split, offset + fill));
+		if (!eof) {
+			buffer.append("...");
+		}
+		return buffer.toString();
+	}
+
+}
@@ -1,21 +1,22 @@
 package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
 
-import static java.util.Collections.emptyList;
 import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.GlushkovAnalyzerOption.SELF_LOOP;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import net.amygdalum.regexparser.RegexNode;
 import net.amygdalum.regexparser.RegexParser;
 import net.amygdalum.regexparser.RegexParserOption;
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.LazyStringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.MultiStringSearchAlgorithmFactory;
 import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithm;
 import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithmFactory;
 import net.amygdalum.util.bits.BitSet;
@@ -31,27 +32,68 @@ import net.amygdalum.util.io.ReverseCharProvider;
  * The efficiency of this algorithm depends on the pattern to process:
  * - works fine for complex patterns (many regex operators)
  * - works better for short patterns (few chars (excluding regex operators))
+ * 
+ * Each finder determinizes the automata lazily (see LazyDFA), so scanning costs one table lookup per char once the
+ * states exercised by the text are cached.
+ *
+ * Optionally a multi string search algorithm may be used to prefilter the text: it searches the factors each match
+ * must contain (see BestFactorAnalyzer) and the automaton only scans the neighborhood (bounded by the max length of
+ * the pattern) of each factor. Patterns with empty or unbounded matches or without required factors are always scanned
+ * completely.
 */
 public class BPGlushkov implements StringSearchAlgorithm {
 
-	private GlushkovAutomaton search;
-	private DualGlushkovAutomaton back;
+	private BitParallelAutomaton search;
+	private BitParallelAutomaton back;
 	private CharClassMapper mapper;
 	private int minLength;
+	private int maxLength;
+	private StringSearchAlgorithm prefilter;
 
 	public BPGlushkov(String pattern, RegexParserOption... options) {
-		GlushkovAnalyzer analyzer = parseAndNormalizeRegex(pattern, options);
+		this(null, pattern, options);
+	}
+
+	/**
+	 * @param factorSearcher the algorithm searching the required factors of the pattern (null if the text should be scanned completely)
+	 * @param pattern the pattern to search
+	 * @param options the options of the regex parser
+	 */
+	public BPGlushkov(MultiStringSearchAlgorithmFactory factorSearcher, String pattern, RegexParserOption... options) {
+		RegexNode root = parseAndNormalizeRegex(pattern, options);
+		GlushkovAnalyzer analyzer = new GlushkovAnalyzer(root).analyze();
 		search = analyzer.buildAutomaton(SELF_LOOP);
 		back = analyzer.buildReverseAutomaton();
 		mapper = analyzer.mapper();
 		minLength = analyzer.minLength();
+		maxLength = analyzer.maxLength();
+		prefilter = factorSearcher == null ? null : computePrefilter(factorSearcher, root, analyzer);
 	}
 
-	private static GlushkovAnalyzer parseAndNormalizeRegex(String pattern, RegexParserOption... options) {
+	private static RegexNode parseAndNormalizeRegex(String pattern, RegexParserOption... options) {
 		RegexParser parser = new RegexParser(pattern, options);
 		RegexNode root = parser.parse();
-		root = root.accept(new GlushkovNormalizer());
-		return new GlushkovAnalyzer(root).analyze();
+		return root.accept(new GlushkovNormalizer());
+	}
+
+	private static StringSearchAlgorithm computePrefilter(MultiStringSearchAlgorithmFactory factorSearcher, RegexNode root, GlushkovAnalyzer analyzer) {
+		if (analyzer.minLength() == 0 || analyzer.maxLength() == Integer.MAX_VALUE) {
+			return null;
+		}
+		BestFactorAnalyzer bestFactorAnalyzer = new BestFactorAnalyzer(root).analyze();
+		Set<String> factors = bestFactorAnalyzer.getBestFactors(asStrings(analyzer.firstChars()), asStrings(analyzer.lastChars()));
+		if (factors == null || factors.isEmpty() || factors.contains("")) {
+			return null;
+		}
+		return factorSearcher.of(factors);
+	}
+
+	private static Set<String> asStrings(Set<Character> chars) {
+		Set<String> strings = new LinkedHashSet<>();
+		for (Character c : chars) {
+			strings.add(c.toString());
+		}
+		return strings;
 	}
 
 	@Override
@@ -66,7 +108,10 @@ public class BPGlushkov implements StringSearchAlgorithm {
 
 	@Override
 	public String toString() {
-		return getClass().getSimpleName();
+		if (prefilter == null) {
+			return getClass().getSimpleName();
+		}
+		return getClass().getSimpleName() + "<" + prefilter.toString() + ">";
 	}
 
 	private class Finder extends BufferedStringFinder {
@@ -76,7 +121,12 @@ public class BPGlushkov implements StringSearchAlgorithm {
 		private CharProvider chars;
 		private CharProvider reverse;
 		private long border;
-		private BitSet state;
+		private LazyDFA searchDFA;
+		private LazyDFA backDFA;
+		private int state;
+		private StringFinder factors;
+		private long scanned;
+		private long skipped;
 
 		public Finder(CharProvider chars, StringFinderOption... options) {
 			super(options);
@@ -85,104 +135,168 @@ public class BPGlushkov implements StringSearchAlgorithm {
 			this.chars = chars;
 			this.reverse = new ReverseCharProvider(chars);
 			this.border = -1;
-			this.state = search.getInitial();
+			this.skipped = -1;
+			this.searchDFA = new LazyDFA(search, mapper);
+			this.backDFA = new LazyDFA(back, mapper);
+			this.state = searchDFA.getInitial();
+			if (prefilter != null) {
+				this.factors = prefilter.createFinder(chars);
+				this.scanned = chars.current();
+			}
 		}
 
 		@Override
 		public void skipTo(long pos) {
 			long last = removeMatchesBefore(pos);
 			border = last;
-			if (last > chars.current()) {
+			if (factors != null) {
+				skipped = pos;
+			} else if (last > chars.current()) {
 				chars.move(last);
 			}
 		}
 
 		@Override
-		public StringMatch findNext() {
-			if (chars.finished() && border >= chars.current() && isBufferEmpty()) {
-				return null;
+		protected boolean takeNext() {
+			if (factors != null) {
+				return findNextInFactorNeighborhoods();
 			}
 			if (isBufferEmpty()) {
-				while (!chars.finished()) {
-					if (search.isFinal(state)) {
-						push(createMatches(chars.current(), state));
-					}
-					char c = mapper.representative(chars.next());
-					state = search.next(state, c);
-					if (search.isInitial(state) && !isBufferEmpty()) {
-						break;
-					}
+				findCandidates();
+			}
+			return nextFromBuffer();
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (longestMatch || factors != null) {
+				super.findAll(sink);
+				return;
+			}
+			if (!flush(sink)) {
+				return;
+			}
+			while (findCandidates()) {
+				if (!flush(sink)) {
+					return;
+				}
+			}
+		}
+
+		private boolean findCandidates() {
+			if (chars.finished() && border >= chars.current()) {
+				return false;
+			}
+			while (!chars.finished()) {
+				if (searchDFA.isFinal(state)) {
+					pushMatches(chars.current(), searchDFA.getState(state));
+				}
+				state = searchDFA.next(state, chars.next());
+				if (searchDFA.isInitial(state) && !isBufferEmpty()) {
+					break;
 				}
-				if (chars.finished() && search.isFinal(state)) {
-					push(createMatches(chars.current(), state));
-					border = chars.current();
+			}
+			if (chars.finished() && searchDFA.isFinal(state)) {
+				pushMatches(chars.current(), searchDFA.getState(state));
+				border = chars.current();
+			}
+			return !isBufferEmpty();
+		}
+
+		private boolean findNextInFactorNeighborhoods() {
+			while (isBufferEmpty() || lastStartFromBuffer() > scanned - maxLength) {
+				StringMatch factor = factors.findNext();
+				if (factor == null) {
+					break;
+				}
+				long pos = chars.current();
+				scan(factor.end() - maxLength, factor.start() + maxLength);
+				chars.move(pos);
+			}
+			return nextFromBuffer();
+		}
+
+		private void scan(long from, long to) {
+			if (from > scanned) {
+				state = searchDFA.getInitial();
+				scanned = from;
+			}
+			chars.move(scanned);
+			while (!chars.finished() && chars.current() < to) {
+				state = searchDFA.next(state, chars.next());
+				if (searchDFA.isFinal(state)) {
+					pushMatches(chars.current(), searchDFA.getState(state));
 				}
 			}
+			scanned = chars.current();
+		}
+
+		private boolean nextFromBuffer() {
 			if (isBufferEmpty()) {
-				return null;
+				return false;
 			} else if (!longestMatch) {
-				return leftMost();
+				return takeLeftMost();
 			} else {
-				return longestLeftMost();
+				return takeLongestLeftMost();
 			}
 		}
 
-		private List<StringMatch> createMatches(long end, BitSet state) {
+		private void pushMatches(long end, BitSet state) {
 			if (end <= border) {
-				return emptyList();
+				return;
 			}
-			state = state.and(back.getInitial());
-
-			List<StringMatch> matches = new ArrayList<>();
+			int backState = backDFA.state(state.and(back.getInitial()));
 
 			long backup = reverse.current();
 			reverse.move(end);
-			while (!reverse.finished() && !state.isEmpty()) {
-				if (back.isFinal(state)) {
+			while (!reverse.finished() && !backDFA.getState(backState).isEmpty()) {
+				if (backDFA.isFinal(backState)) {
 					long start = reverse.current();
-					matches.add(createMatch(start, end));
+					pushMatch(start, end);
 				}
-				char c = mapper.representative(reverse.next());
-				state = back.next(state, c);
+				backState = backDFA.next(backState, reverse.next());
 			}
-			if (reverse.finished() && back.isFinal(state)) {
+			if (reverse.finished() && backDFA.isFinal(backState)) {
 				long start = reverse.current();
-				matches.add(createMatch(start, end));
+				pushMatch(start, end);
 			}
 			reverse.move(backup);
-			if (nonEmpty) {
-				removeEmpty(matches);
-			}
-			return matches;
 		}
 
-		public StringMatch createMatch(long start, long end) {
-			String s = chars.slice(start, end);
-			return new StringMatch(start, end, s);
+		private void pushMatch(long start, long end) {
+			if (nonEmpty && start == end || start < skipped) {
+				return;
+			}
+			push(start, end, 0);
 		}
 
-		private void removeEmpty(List<StringMatch> matches) {
-			Iterator<StringMatch> matchIterator = matches.iterator();
-			while (matchIterator.hasNext()) {
-				StringMatch match = matchIterator.next();
-				if (match.isEmpty()) {
-					matchIterator.remove();
-				}
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
 			}
+			String s = chars.slice(start, end);
+			return new StringMatch(start, end, s, pattern);
 		}
 	}
 
 	public static class Factory implements StringSearchAlgorithmFactory {
 
+		private MultiStringSearchAlgorithmFactory factorSearcher;
 		private RegexParserOption[] options;
 
 		public Factory(RegexParserOption... options) {
+			this(null, options);
+		}
+
+		public Factory(MultiStringSearchAlgorithmFactory factorSearcher, RegexParserOption... options) {
+			this.factorSearcher = factorSearcher;
 			this.options = options;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new BPGlushkov(pattern, options);
+			return new BPGlushkov(factorSearcher, pattern, options);
 		}
 
 	}
@@ -30,6 +30,7 @@ import net.amygdalum.stringsearchalgorithms.patternsearch.chars.BestFactorAnalyz
 public class BestFactorAnalyzer implements RegexNodeVisitor<Factors> {
 
 	private static final int DEFAULT_MAX_RANGE = 32;
+	private static final int MAX_FACTORS = 1024;
 
 	private RegexNode root;
 	private Factors factors;
@@ -207,6 +208,9 @@ public class BestFactorAnalyzer implements RegexNodeVisitor<Factors> {
 			if (prefixes == null || suffixes == null) {
 				return null;
 			}
+			if ((long) prefixes.size() * suffixes.size() > MAX_FACTORS) {
+				return null;
+			}
 			Set<String> concat = new LinkedHashSet<>();
 			for (String prefix : prefixes) {
 				for (String suffix : suffixes) {
@@ -237,11 +241,12 @@ public class BestFactorAnalyzer implements RegexNodeVisitor<Factors> {
 				while (factorsIterator.hasNext()) {
 					factorsConcat = factorsIterator.next();
 
+					Set<String> newAll = concat(builder.all, factorsConcat.all);
 					Set<String> newPrefix = concat(builder.all, factorsConcat.prefix);
 					Set<String> newSuffix = concat(builder.suffix, factorsConcat.all);
 					Set<String> newFactor = concat(builder.suffix, factorsConcat.prefix);
 
-					builder.addAll(factorsConcat.all);
+					builder.updateAll(newAll);
 					builder.updatePrefix(builder.prefix, newPrefix);
 					builder.updateSuffix(newSuffix, factorsConcat.suffix);
 					builder.updateFactor(builder.factor, factorsConcat.factor, newFactor);
@@ -320,6 +325,10 @@ public class BestFactorAnalyzer implements RegexNodeVisitor<Factors> {
 				}
 			}
 
+			public void updateAll(Set<String> factors) {
+				all = factors;
+			}
+
 			public void addPrefix(Set<String> factors) {
 				if (prefix == null) {
 					return;
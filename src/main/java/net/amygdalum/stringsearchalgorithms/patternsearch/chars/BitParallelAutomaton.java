@@ -16,4 +16,6 @@ public interface BitParallelAutomaton {
 
 	int minLength();
 
+	BitParallelCursor cursor();
+
 }
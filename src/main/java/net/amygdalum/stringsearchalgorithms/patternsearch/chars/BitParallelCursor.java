@@ -0,0 +1,37 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import net.amygdalum.util.bits.BitSet;
+
+/**
+ * a mutable cursor on the states of a bit parallel automaton. Implementations with primitive states do not allocate on
+ * transitions.
+ */
+public interface BitParallelCursor {
+
+	/**
+	 * resets the cursor to the initial state of the automaton
+	 */
+	void reset();
+
+	/**
+	 * resets the cursor to the given state
+	 * @param state the state
+	 */
+	void reset(BitSet state);
+
+	/**
+	 * @param c the next char
+	 * @return true if the state after the transition is not empty
+	 */
+	boolean accept(char c);
+
+	boolean isFinal();
+
+	boolean isEmpty();
+
+	/**
+	 * @return the current state (must not be modified)
+	 */
+	BitSet getState();
+
+}
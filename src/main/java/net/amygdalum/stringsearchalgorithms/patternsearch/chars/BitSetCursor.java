@@ -0,0 +1,49 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import net.amygdalum.util.bits.BitSet;
+
+/**
+ * a cursor for automata with BitSet states, each transition delegates to the automaton.
+ */
+public class BitSetCursor implements BitParallelCursor {
+
+	private BitParallelAutomaton automaton;
+	private BitSet state;
+
+	public BitSetCursor(BitParallelAutomaton automaton) {
+		this.automaton = automaton;
+		this.state = automaton.getInitial();
+	}
+
+	@Override
+	public void reset() {
+		state = automaton.getInitial();
+	}
+
+	@Override
+	public void reset(BitSet state) {
+		this.state = state;
+	}
+
+	@Override
+	public boolean accept(char c) {
+		state = automaton.next(state, c);
+		return !state.isEmpty();
+	}
+
+	@Override
+	public boolean isFinal() {
+		return automaton.isFinal(state);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return state.isEmpty();
+	}
+
+	@Override
+	public BitSet getState() {
+		return state;
+	}
+
+}
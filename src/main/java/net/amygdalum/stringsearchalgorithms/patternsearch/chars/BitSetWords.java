@@ -0,0 +1,45 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import net.amygdalum.util.bits.BitSet;
+
+/**
+ * converts between BitSets and their long words (for automata with primitive states).
+ */
+final class BitSetWords {
+
+	private BitSetWords() {
+	}
+
+	/**
+	 * @param bits the BitSet
+	 * @param word the index of the word
+	 * @return the bits 64 * word to 64 * word + 63 of bits
+	 */
+	public static long word(BitSet bits, int word) {
+		int from = word * 64;
+		long value = 0L;
+		for (int i = bits.nextSetBit(from); i >= 0 && i < from + 64; i = bits.nextSetBit(i + 1)) {
+			value |= 1L << (i - from);
+		}
+		return value;
+	}
+
+	/**
+	 * @param size the size of the BitSet
+	 * @param words the words of the BitSet
+	 * @return a new BitSet of the given size with the bits of words
+	 */
+	public static BitSet bits(int size, long... words) {
+		BitSet bits = BitSet.empty(size);
+		for (int word = 0; word < words.length; word++) {
+			long value = words[word];
+			while (value != 0L) {
+				int i = Long.numberOfTrailingZeros(value);
+				bits.set(word * 64 + i);
+				value &= value - 1;
+			}
+		}
+		return bits;
+	}
+
+}
@@ -6,7 +6,6 @@ import java.util.Queue;
 import java.util.Set;
 
 import net.amygdalum.util.bits.BitSet;
-import net.amygdalum.util.map.BitSetObjectMap;
 import net.amygdalum.util.map.CharObjectMap;
 
 public class DualGlushkovAutomaton implements BitParallelAutomaton {
@@ -14,9 +13,9 @@ public class DualGlushkovAutomaton implements BitParallelAutomaton {
 	private BitSet initial;
 	private BitSet finals;
 	private CharObjectMap<BitSet> emittingChar;
-	private BitSetObjectMap<BitSet> reachableByState;
+	private FollowSets reachableByState;
 
-	public DualGlushkovAutomaton(BitSet initial, BitSet finals, CharObjectMap<BitSet> emittingChar, BitSetObjectMap<BitSet> reachableByState) {
+	public DualGlushkovAutomaton(BitSet initial, BitSet finals, CharObjectMap<BitSet> emittingChar, FollowSets reachableByState) {
 		this.initial = initial;
 		this.finals = finals;
 		this.emittingChar = emittingChar;
@@ -77,4 +76,9 @@ public class DualGlushkovAutomaton implements BitParallelAutomaton {
 		return Integer.MAX_VALUE;
 	}
 
+	@Override
+	public BitParallelCursor cursor() {
+		return new BitSetCursor(this);
+	}
+
 }
@@ -0,0 +1,63 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.amygdalum.util.bits.BitSet;
+
+/**
+ * maps states (sets of positions) of a Glushkov automaton to the union of the follow sets of their positions.
+ *
+ * The union of a state is computed on its first visit and memoized (instead of enumerating all reachable states up front),
+ * so the cost is proportional to the states actually exercised by a text. The number of memoized states is bounded
+ * by a budget, if the budget is exceeded the memo is cleared.
+ */
+public class FollowSets {
+
+	public static final int DEFAULT_BUDGET = 1 << 12;
+
+	private BitSet[] follow;
+	private BitSet defaultValue;
+	private int budget;
+	private Map<BitSet, BitSet> memo;
+
+	/**
+	 * @param follow the follow set of each position
+	 * @param defaultValue the positions contained in each union (e.g. the initial position for self looping automata)
+	 * @param budget the maximum number of memoized states
+	 */
+	public FollowSets(BitSet[] follow, BitSet defaultValue, int budget) {
+		this.follow = follow;
+		this.defaultValue = defaultValue;
+		this.budget = budget;
+		this.memo = new ConcurrentHashMap<>();
+	}
+
+	public BitSet get(BitSet state) {
+		BitSet union = memo.get(state);
+		if (union == null) {
+			union = union(state);
+			if (memo.size() >= budget) {
+				memo.clear();
+			}
+			memo.put(state, union);
+		}
+		return union;
+	}
+
+	private BitSet union(BitSet state) {
+		BitSet union = defaultValue.clone();
+		for (int i = state.nextSetBit(0); i >= 0; i = state.nextSetBit(i + 1)) {
+			union = union.or(follow[i]);
+		}
+		return union;
+	}
+
+	/**
+	 * @return the number of currently memoized states
+	 */
+	public int size() {
+		return memo.size();
+	}
+
+}
@@ -0,0 +1,223 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.BitSetWords.word;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Set;
+
+import net.amygdalum.util.bits.BitSet;
+import net.amygdalum.util.io.CharClassMapper;
+import net.amygdalum.util.map.CharObjectMap;
+
+/**
+ * a Glushkov automaton for patterns with at most 128 positions, each state is a pair of longs (low and high positions).
+ *
+ * The tables are organized as in Glushkov64Automaton (a mask table per char class, a follow table per byte of a
+ * state). The cursor of this automaton keeps its state in two longs and does not allocate on transitions.
+ */
+public class Glushkov128Automaton implements BitParallelAutomaton {
+
+	public static final int MAX_POSITIONS = 128;
+
+	private static final int CHUNK = 8;
+	private static final int CHUNK_MASK = (1 << CHUNK) - 1;
+	private static final int HIGH_CHUNK = 64 / CHUNK;
+
+	private int len;
+	private boolean reverse;
+	private CharClassMapper mapper;
+	private char[] supportedChars;
+	private long initialLow;
+	private long initialHigh;
+	private long finalsLow;
+	private long finalsHigh;
+	private long defaultFollowLow;
+	private long defaultFollowHigh;
+	private long[] masksLow;
+	private long[] masksHigh;
+	private long[][] followLow;
+	private long[][] followHigh;
+
+	/**
+	 * @param len the number of positions (at most 128)
+	 * @param initial the initial state
+	 * @param finals the final positions
+	 * @param mapper the mapper of chars to char classes (must map chars with different positions to different classes)
+	 * @param reachableByChar the positions of each char
+	 * @param follow the follow set (for reverse automata: the precede set) of each position
+	 * @param defaultFollow the positions contained in each follow set (e.g. the initial position for self looping automata)
+	 * @param reverse true for reverse automata (masking before following)
+	 */
+	public Glushkov128Automaton(int len, BitSet initial, BitSet finals, CharClassMapper mapper, CharObjectMap<BitSet> reachableByChar, BitSet[] follow, BitSet defaultFollow, boolean reverse) {
+		if (len > MAX_POSITIONS) {
+			throw new IllegalArgumentException("automaton with " + len + " positions cannot have double long states");
+		}
+		this.len = len;
+		this.reverse = reverse;
+		this.mapper = mapper;
+		this.supportedChars = reachableByChar.keys();
+		this.initialLow = word(initial, 0);
+		this.initialHigh = word(initial, 1);
+		this.finalsLow = word(finals, 0);
+		this.finalsHigh = word(finals, 1);
+		this.defaultFollowLow = word(defaultFollow, 0);
+		this.defaultFollowHigh = word(defaultFollow, 1);
+		this.masksLow = computeMasks(mapper, reachableByChar, 0);
+		this.masksHigh = computeMasks(mapper, reachableByChar, 1);
+		this.followLow = computeFollow(follow, 0);
+		this.followHigh = computeFollow(follow, 1);
+	}
+
+	private static long[] computeMasks(CharClassMapper mapper, CharObjectMap<BitSet> reachableByChar, int word) {
+		long[] masks = new long[mapper.indexCount()];
+		for (int i = 0; i < masks.length; i++) {
+			masks[i] = word(reachableByChar.get(mapper.representative(i)), word);
+		}
+		return masks;
+	}
+
+	private static long[][] computeFollow(BitSet[] follow, int word) {
+		int chunks = (follow.length + CHUNK - 1) / CHUNK;
+		long[][] table = new long[chunks][1 << CHUNK];
+		for (int k = 0; k < chunks; k++) {
+			for (int b = 1; b <= CHUNK_MASK; b++) {
+				int position = k * CHUNK + Integer.numberOfTrailingZeros(b);
+				long positionFollow = position < follow.length ? word(follow[position], word) : 0L;
+				table[k][b] = table[k][b & (b - 1)] | positionFollow;
+			}
+		}
+		return table;
+	}
+
+	@Override
+	public char[] supportedChars() {
+		return supportedChars;
+	}
+
+	@Override
+	public BitSet getInitial() {
+		return BitSetWords.bits(len, initialLow, initialHigh);
+	}
+
+	@Override
+	public boolean isInitial(BitSet state) {
+		return getInitial().equals(state);
+	}
+
+	@Override
+	public BitSet next(BitSet state, char c) {
+		Cursor cursor = new Cursor();
+		cursor.reset(state);
+		cursor.accept(c);
+		return cursor.getState();
+	}
+
+	@Override
+	public boolean isFinal(BitSet state) {
+		return (word(state, 0) & finalsLow) != 0L || (word(state, 1) & finalsHigh) != 0L;
+	}
+
+	@Override
+	public int minLength() {
+		int length = 0;
+		Set<BitSet> done = new HashSet<>();
+		Queue<BitSet> next = new LinkedList<>();
+		next.add(getInitial());
+		while (!next.isEmpty()) {
+			Queue<BitSet> states = next;
+			next = new LinkedList<>();
+			while (!states.isEmpty()) {
+				BitSet current = states.remove();
+				if (isFinal(current)) {
+					return length;
+				}
+				if (done.add(current)) {
+					for (char c : supportedChars) {
+						next.add(next(current, c));
+					}
+				}
+			}
+			length++;
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public BitParallelCursor cursor() {
+		return new Cursor();
+	}
+
+	private class Cursor implements BitParallelCursor {
+
+		private long low;
+		private long high;
+
+		public Cursor() {
+			this.low = initialLow;
+			this.high = initialHigh;
+		}
+
+		@Override
+		public void reset() {
+			low = initialLow;
+			high = initialHigh;
+		}
+
+		@Override
+		public void reset(BitSet state) {
+			low = word(state, 0);
+			high = word(state, 1);
+		}
+
+		@Override
+		public boolean accept(char c) {
+			int charClass = mapper.getIndex(c);
+			long low = this.low;
+			long high = this.high;
+			if (reverse) {
+				low &= masksLow[charClass];
+				high &= masksHigh[charClass];
+			}
+			long nextLow = defaultFollowLow;
+			long nextHigh = defaultFollowHigh;
+			for (int k = 0; low != 0L; k++) {
+				int b = (int) low & CHUNK_MASK;
+				nextLow |= followLow[k][b];
+				nextHigh |= followHigh[k][b];
+				low >>>= CHUNK;
+			}
+			for (int k = HIGH_CHUNK; high != 0L; k++) {
+				int b = (int) high & CHUNK_MASK;
+				nextLow |= followLow[k][b];
+				nextHigh |= followHigh[k][b];
+				high >>>= CHUNK;
+			}
+			if (!reverse) {
+				nextLow &= masksLow[charClass];
+				nextHigh &= masksHigh[charClass];
+			}
+			this.low = nextLow;
+			this.high = nextHigh;
+			return (nextLow | nextHigh) != 0L;
+		}
+
+		@Override
+		public boolean isFinal() {
+			return (low & finalsLow) != 0L || (high & finalsHigh) != 0L;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return (low | high) == 0L;
+		}
+
+		@Override
+		public BitSet getState() {
+			return BitSetWords.bits(len, low, high);
+		}
+
+	}
+
+}
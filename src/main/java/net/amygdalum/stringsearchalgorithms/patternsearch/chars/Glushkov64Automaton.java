@@ -0,0 +1,209 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.BitSetWords.word;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Set;
+
+import net.amygdalum.util.bits.BitSet;
+import net.amygdalum.util.io.CharClassMapper;
+import net.amygdalum.util.map.CharObjectMap;
+
+/**
+ * a Glushkov automaton for patterns with at most 64 positions, each state is a single long.
+ *
+ * The transitions use a mask table (the positions of each char class) and a follow table (the union of the follow sets
+ * for each byte of a state, computed by position), so a transition costs at most 8 lookups in the follow table and
+ * one lookup in the mask table, without allocation.
+ *
+ * A forward automaton follows the state and masks the result with the positions of the next char, a reverse automaton
+ * masks the state with the positions of the next char and follows (the precede sets of) the result.
+ */
+public class Glushkov64Automaton implements BitParallelAutomaton {
+
+	public static final int MAX_POSITIONS = 64;
+
+	private static final int CHUNK = 8;
+	private static final int CHUNK_MASK = (1 << CHUNK) - 1;
+
+	private int len;
+	private boolean reverse;
+	private CharClassMapper mapper;
+	private char[] supportedChars;
+	private long initial;
+	private long finals;
+	private long defaultFollow;
+	private long[] masks;
+	private long[][] follow;
+
+	/**
+	 * @param len the number of positions (at most 64)
+	 * @param initial the initial state
+	 * @param finals the final positions
+	 * @param mapper the mapper of chars to char classes (must map chars with different positions to different classes)
+	 * @param reachableByChar the positions of each char
+	 * @param follow the follow set (for reverse automata: the precede set) of each position
+	 * @param defaultFollow the positions contained in each follow set (e.g. the initial position for self looping automata)
+	 * @param reverse true for reverse automata (masking before following)
+	 */
+	public Glushkov64Automaton(int len, BitSet initial, BitSet finals, CharClassMapper mapper, CharObjectMap<BitSet> reachableByChar, BitSet[] follow, BitSet defaultFollow, boolean reverse) {
+		if (len > MAX_POSITIONS) {
+			throw new IllegalArgumentException("automaton with " + len + " positions cannot have single long states");
+		}
+		this.len = len;
+		this.reverse = reverse;
+		this.mapper = mapper;
+		this.supportedChars = reachableByChar.keys();
+		this.initial = word(initial, 0);
+		this.finals = word(finals, 0);
+		this.defaultFollow = word(defaultFollow, 0);
+		this.masks = computeMasks(mapper, reachableByChar);
+		this.follow = computeFollow(follow);
+	}
+
+	private static long[] computeMasks(CharClassMapper mapper, CharObjectMap<BitSet> reachableByChar) {
+		long[] masks = new long[mapper.indexCount()];
+		for (int i = 0; i < masks.length; i++) {
+			masks[i] = word(reachableByChar.get(mapper.representative(i)), 0);
+		}
+		return masks;
+	}
+
+	private static long[][] computeFollow(BitSet[] follow) {
+		int chunks = (follow.length + CHUNK - 1) / CHUNK;
+		long[][] table = new long[chunks][1 << CHUNK];
+		for (int k = 0; k < chunks; k++) {
+			for (int b = 1; b <= CHUNK_MASK; b++) {
+				int position = k * CHUNK + Integer.numberOfTrailingZeros(b);
+				long positionFollow = position < follow.length ? word(follow[position], 0) : 0L;
+				table[k][b] = table[k][b & (b - 1)] | positionFollow;
+			}
+		}
+		return table;
+	}
+
+	public long getInitialState() {
+		return initial;
+	}
+
+	public long next(long state, char c) {
+		long mask = masks[mapper.getIndex(c)];
+		if (reverse) {
+			return follow(state & mask);
+		} else {
+			return follow(state) & mask;
+		}
+	}
+
+	private long follow(long state) {
+		long result = defaultFollow;
+		for (int k = 0; state != 0L; k++) {
+			result |= follow[k][(int) state & CHUNK_MASK];
+			state >>>= CHUNK;
+		}
+		return result;
+	}
+
+	public boolean isFinal(long state) {
+		return (state & finals) != 0L;
+	}
+
+	@Override
+	public char[] supportedChars() {
+		return supportedChars;
+	}
+
+	@Override
+	public BitSet getInitial() {
+		return BitSetWords.bits(len, initial);
+	}
+
+	@Override
+	public boolean isInitial(BitSet state) {
+		return getInitial().equals(state);
+	}
+
+	@Override
+	public BitSet next(BitSet state, char c) {
+		return BitSetWords.bits(len, next(word(state, 0), c));
+	}
+
+	@Override
+	public boolean isFinal(BitSet state) {
+		return isFinal(word(state, 0));
+	}
+
+	@Override
+	public int minLength() {
+		int length = 0;
+		Set<Long> done = new HashSet<>();
+		Queue<Long> next = new LinkedList<>();
+		next.add(initial);
+		while (!next.isEmpty()) {
+			Queue<Long> states = next;
+			next = new LinkedList<>();
+			while (!states.isEmpty()) {
+				long current = states.remove();
+				if (isFinal(current)) {
+					return length;
+				}
+				if (done.add(current)) {
+					for (char c : supportedChars) {
+						next.add(next(current, c));
+					}
+				}
+			}
+			length++;
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public BitParallelCursor cursor() {
+		return new Cursor();
+	}
+
+	private class Cursor implements BitParallelCursor {
+
+		private long state;
+
+		public Cursor() {
+			this.state = initial;
+		}
+
+		@Override
+		public void reset() {
+			state = initial;
+		}
+
+		@Override
+		public void reset(BitSet state) {
+			this.state = word(state, 0);
+		}
+
+		@Override
+		public boolean accept(char c) {
+			state = next(state, c);
+			return state != 0L;
+		}
+
+		@Override
+		public boolean isFinal() {
+			return (state & finals) != 0L;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return state == 0L;
+		}
+
+		@Override
+		public BitSet getState() {
+			return BitSetWords.bits(len, state);
+		}
+
+	}
+
+}
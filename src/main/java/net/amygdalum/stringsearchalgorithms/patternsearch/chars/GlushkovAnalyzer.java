@@ -12,7 +12,6 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 
 import net.amygdalum.regexparser.AlternativesNode;
@@ -37,11 +36,9 @@ import net.amygdalum.util.io.BitMaskCharClassMapper;
 import net.amygdalum.util.io.CharClassMapper;
 import net.amygdalum.util.io.LowByteCharClassMapper;
 import net.amygdalum.util.io.SmallRangeCharClassMapper;
-import net.amygdalum.util.map.BitSetObjectMap;
 import net.amygdalum.util.map.CharObjectMap;
 import net.amygdalum.util.text.CharRange;
 import net.amygdalum.util.text.CharRangeAccumulator;
-import net.amygdalum.util.worklist.WorkSet;
 
 public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
@@ -52,10 +49,12 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 	private Map<Integer, Set<Integer>> follow;
 	private Map<Integer, Set<Integer>> precede;
 	private Map<RegexNode, Integer> minLength;
+	private Map<RegexNode, Integer> maxLength;
 	private DefinedCharNode[] chars;
 	private int len;
 	private CharClassMapper mapper;
-	private char[] alphabet;
+	private CharClassMapper exactMapper;
+	private int stateBudget;
 
 	public GlushkovAnalyzer(RegexNode root) {
 		this.root = root;
@@ -64,8 +63,19 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 		this.follow = new LinkedHashMap<>();
 		this.precede = new LinkedHashMap<>();
 		this.minLength = new LinkedHashMap<>();
+		this.maxLength = new LinkedHashMap<>();
 		this.charCollector = new ArrayList<>();
 		this.charCollector.add(null);
+		this.stateBudget = FollowSets.DEFAULT_BUDGET;
+	}
+
+	/**
+	 * @param stateBudget the maximum number of states of each built automaton memoizing its follow sets (states are expanded on first visit)
+	 * @return this analyzer
+	 */
+	public GlushkovAnalyzer withStateBudget(int stateBudget) {
+		this.stateBudget = stateBudget;
+		return this;
 	}
 
 	public CharClassMapper mapper() {
@@ -179,6 +189,22 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 		return minLength.get(node);
 	}
 
+	private void maxLength(RegexNode node, Integer value) {
+		maxLength.put(node, value);
+	}
+
+	private List<Integer> maxLength(List<RegexNode> nodes) {
+		List<Integer> result = new ArrayList<>(nodes.size());
+		for (RegexNode node : nodes) {
+			result.add(maxLength(node));
+		}
+		return result;
+	}
+
+	private Integer maxLength(RegexNode node) {
+		return maxLength.get(node);
+	}
+
 	public GlushkovAnalyzer analyze() {
 		root.accept(this);
 		appendFollow(0, first(root));
@@ -187,12 +213,13 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 		}
 		chars = characters();
 		len = chars.length;
-		mapper = computeMapper(chars);
-		alphabet = mapper.representatives();
+		List<CharRange> liveRanges = computeLiveRanges(chars);
+		mapper = computeMapper(liveRanges);
+		exactMapper = mapper instanceof LowByteCharClassMapper ? new BitMaskCharClassMapper(liveRanges) : mapper;
 		return this;
 	}
 
-	private CharClassMapper computeMapper(DefinedCharNode[] nodes) {
+	private List<CharRange> computeLiveRanges(DefinedCharNode[] nodes) {
 		CharRangeAccumulator acc = new CharRangeAccumulator();
 
 		for (DefinedCharNode node : nodes) {
@@ -201,8 +228,10 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 			}
 		}
 
-		List<CharRange> liveRanges = acc.getRanges();
+		return acc.getRanges();
+	}
 
+	private CharClassMapper computeMapper(List<CharRange> liveRanges) {
 		boolean lowByte = computeLowByte(liveRanges);
 		boolean smallRange = computeSmallRange(liveRanges, lowByte);
 		if (smallRange) {
@@ -237,34 +266,64 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 		}
 	}
 
-	public GlushkovAutomaton buildAutomaton(GlushkovAnalyzerOption... options) {
+	/**
+	 * builds the automaton with the smallest state representation: a single long (at most 64 positions), two longs (at most 128 positions)
+	 * or a bit set (any number of positions).
+	 */
+	public BitParallelAutomaton buildAutomaton(GlushkovAnalyzerOption... options) {
 		BitSet initial = FACTORS.in(options) ? all() : initial();
 
 		BitSet finals = finals();
 
 		CharObjectMap<BitSet> reachableByChar = reachableByChar(options);
 
-		BitSetObjectMap<BitSet> reachableByState = reachableByState(reachableByChar, options);
+		BitSet defaultFollow = SELF_LOOP.in(options) ? initial() : BitSet.empty(len);
+
+		if (len <= Glushkov64Automaton.MAX_POSITIONS) {
+			return new Glushkov64Automaton(len, initial, finals, exactMapper, reachableByChar, positionSets(follow), defaultFollow, false);
+		} else if (len <= Glushkov128Automaton.MAX_POSITIONS) {
+			return new Glushkov128Automaton(len, initial, finals, exactMapper, reachableByChar, positionSets(follow), defaultFollow, false);
+		}
+
+		FollowSets reachableByState = new FollowSets(positionSets(follow), defaultFollow, stateBudget);
 
 		return new GlushkovAutomaton(initial, finals, reachableByChar, reachableByState);
 	}
 
-	public DualGlushkovAutomaton buildReverseAutomaton(GlushkovAnalyzerOption... options) {
+	/**
+	 * builds the reverse automaton with the smallest state representation (see {@link #buildAutomaton(GlushkovAnalyzerOption...)}).
+	 */
+	public BitParallelAutomaton buildReverseAutomaton(GlushkovAnalyzerOption... options) {
 		BitSet initial = FACTORS.in(options) ? all() : finals();
 
 		BitSet finals = initial();
 
 		CharObjectMap<BitSet> reachableByChar = reachableByChar(options);
 
-		BitSetObjectMap<BitSet> reachableByState = sourceableByState(reachableByChar, options);
+		BitSet defaultPrecede = SELF_LOOP.in(options) ? finals() : BitSet.empty(len);
 
-		return new DualGlushkovAutomaton(initial, finals, reachableByChar, reachableByState);
+		if (len <= Glushkov64Automaton.MAX_POSITIONS) {
+			return new Glushkov64Automaton(len, initial, finals, exactMapper, reachableByChar, positionSets(precede), defaultPrecede, true);
+		} else if (len <= Glushkov128Automaton.MAX_POSITIONS) {
+			return new Glushkov128Automaton(len, initial, finals, exactMapper, reachableByChar, positionSets(precede), defaultPrecede, true);
+		}
+
+		FollowSets sourceableByState = new FollowSets(positionSets(precede), defaultPrecede, stateBudget);
+
+		return new DualGlushkovAutomaton(initial, finals, reachableByChar, sourceableByState);
 	}
 
 	public int minLength() {
 		return minLength(root);
 	}
 
+	/**
+	 * @return the maximum length of a match (Integer.MAX_VALUE if matches are unbounded)
+	 */
+	public int maxLength() {
+		return maxLength(root);
+	}
+
 	private BitSet initial() {
 		return BitSet.bits(len, 0);
 	}
@@ -286,80 +345,13 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 		return reachable;
 	}
 
-	private BitSetObjectMap<BitSet> reachableByState(CharObjectMap<BitSet> reachableByChar, GlushkovAnalyzerOption... options) {
-		BitSet defaultValue = SELF_LOOP.in(options) ? initial() : BitSet.empty(len);
-		BitSet start = FACTORS.in(options) ? all() : initial();
-
-		return new Collector(len, alphabet, follow, reachableByChar, defaultValue)
-			.collect(start);
-	}
-
-	private BitSetObjectMap<BitSet> sourceableByState(CharObjectMap<BitSet> reachableByChar, GlushkovAnalyzerOption... options) {
-		BitSet defaultValue = SELF_LOOP.in(options) ? finals() : BitSet.empty(len);
-		BitSet start = FACTORS.in(options) ? all() : finals();
-
-		return new Collector(len, alphabet, precede, reachableByChar, defaultValue)
-			.collect(allFinals(start, reachableByChar, options));
-	}
-
-	private List<BitSet> allFinals(BitSet initial, CharObjectMap<BitSet> reachableByChar, GlushkovAnalyzerOption... options) {
-		BitSet start = FACTORS.in(options) ? all() : initial();
-		BitSet defaultValue = SELF_LOOP.in(options) ? initial() : BitSet.empty(len);
-
-		Collection<BitSet> possible = possibleStartsByState(start, reachableByChar, defaultValue);
-
-		return filterPossiblesStartsByChar(initial, reachableByChar, possible);
-	}
-
-	private Collection<BitSet> possibleStartsByState(BitSet next, CharObjectMap<BitSet> reachableByChar, BitSet defaultValue) {
-		Map<BitSet, BitSet> possible = new LinkedHashMap<>();
-		possibleStartsByState(possible, next, reachableByChar, defaultValue);
-		return possible.values();
-	}
-
-	private void possibleStartsByState(Map<BitSet, BitSet> possible, BitSet start, CharObjectMap<BitSet> reachableByChar, BitSet defaultValue) {
-		Queue<BitSet> nexts = new WorkSet<>();
-		nexts.add(start);
-		nexts.add(start.or(initial()));
-		while (!nexts.isEmpty()) {
-			BitSet next = nexts.remove();
-			BitSet td = possible.get(next);
-			if (td == null) {
-				td = (BitSet) defaultValue.clone();
-				for (int i = 0; i < len; i++) {
-					if (next.get(i)) {
-						td = td.or(bits(len, follow(i)));
-					}
-				}
-				possible.put(next, td);
-				BitSet n = (BitSet) td.clone();
-				for (char c : alphabet) {
-					BitSet cand = n.and(reachableByChar.get(c));
-					if (!nexts.contains(cand)) {
-						nexts.add(cand);
-					}
-					cand = cand.or(initial());
-					if (!nexts.contains(cand)) {
-						nexts.add(cand);
-					}
-				}
-			}
-		}
-	}
-
-	private List<BitSet> filterPossiblesStartsByChar(BitSet initial, CharObjectMap<BitSet> reachableByChar, Collection<BitSet> possible) {
-		Set<BitSet> filteredPossible = new LinkedHashSet<>();
-		for (BitSet value : possible) {
-			BitSet finalValue = (BitSet) initial.and(value);
-			for (char c : alphabet) {
-				BitSet charFilter = reachableByChar.get(c);
-				BitSet state = finalValue.and(charFilter);
-				if (!state.isEmpty()) {
-					filteredPossible.add(state);
-				}
-			}
+	private BitSet[] positionSets(Map<Integer, Set<Integer>> positions) {
+		BitSet[] sets = new BitSet[len];
+		for (int i = 0; i < len; i++) {
+			Set<Integer> set = positions.get(i);
+			sets[i] = bits(len, set == null ? Collections.<Integer> emptySet() : set);
 		}
-		return new ArrayList<>(filteredPossible);
+		return sets;
 	}
 
 	private static BitSet bits(int len, Set<Integer> ints) {
@@ -371,11 +363,19 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 	}
 
 	private BitSet finals() {
+		return finals(root);
+	}
+
+	/**
+	 * @param node the analyzed regex or one of its sub nodes (e.g. one alternative of a union of patterns)
+	 * @return the final positions of the node (including the initial position if the node matches the empty string)
+	 */
+	public BitSet finals(RegexNode node) {
 		BitSet finals = BitSet.empty(len);
-		for (int x : last(root)) {
+		for (int x : last(node)) {
 			finals.set(x);
 		}
-		if (minLength.get(root) == 0) {
+		if (minLength.get(node) == 0) {
 			finals.set(0);
 		}
 		return finals;
@@ -398,6 +398,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, minimum(minLength(subNodes)));
 
+		maxLength(node, maximum(maxLength(subNodes)));
+
 		return null;
 	}
 
@@ -429,6 +431,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, sum(minLength(subNodes)));
 
+		maxLength(node, saturatedSum(maxLength(subNodes)));
+
 		for (int i = 0; i < subNodes.size() - 1; i++) {
 			RegexNode current = subNodes.get(i);
 			for (int j = i + 1; j < subNodes.size(); j++) {
@@ -492,6 +496,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, 0);
 
+		maxLength(node, 0);
+
 		return null;
 	}
 
@@ -506,6 +512,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, minLength(subNode));
 
+		maxLength(node, maxLength(subNode));
+
 		return null;
 	}
 
@@ -528,6 +536,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, 0);
 
+		maxLength(node, Integer.MAX_VALUE);
+
 		RegexNode current = subNode;
 		RegexNode next = subNode;
 		for (int x : last(current)) {
@@ -550,6 +560,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, 0);
 
+		maxLength(node, maxLength(subNode));
+
 		return null;
 	}
 
@@ -564,6 +576,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, 1);
 
+		maxLength(node, 1);
+
 		return null;
 	}
 
@@ -578,6 +592,8 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 
 		minLength(node, 1);
 
+		maxLength(node, 1);
+
 		return null;
 	}
 
@@ -609,80 +625,30 @@ public class GlushkovAnalyzer implements RegexNodeVisitor<Void> {
 		return min;
 	}
 
-	private Integer sum(List<Integer> values) {
-		int sum = 0;
+	private Integer maximum(List<Integer> values) {
+		int max = 0;
 		for (Integer value : values) {
-			sum += value;
-		}
-		return sum;
-	}
-
-	private static class Collector {
-
-		private int len;
-		private char[] alphabet;
-		private Map<Integer, Set<Integer>> next;
-		private BitSetObjectMap<BitSet> accumulator;
-		private CharObjectMap<BitSet> reachableByChar;
-		private BitSet defaultValue;
-		private WorkSet<BitSet> todo;
-
-		public Collector(int len, char[] alphabet, Map<Integer, Set<Integer>> next, CharObjectMap<BitSet> reachableByChar, BitSet defaultValue) {
-			this.len = len;
-			this.alphabet = alphabet;
-			this.next = next;
-			this.accumulator = new BitSetObjectMap<BitSet>(defaultValue);
-			this.reachableByChar = reachableByChar;
-			this.defaultValue = defaultValue;
-			this.todo = new WorkSet<>();
-		}
-
-		public BitSetObjectMap<BitSet> collect(BitSet... start) {
-			return collect(asList(start));
-		}
-
-		public BitSetObjectMap<BitSet> collect(Collection<BitSet> start) {
-			todo.addAll(start);
-
-			while (!todo.isEmpty()) {
-				BitSet current = todo.remove();
-				computeReachables(current);
+			if (value > max) {
+				max = value;
 			}
-
-			return accumulator;
 		}
+		return max;
+	}
 
-		private void computeReachables(BitSet d) {
-			BitSet td = accumulator.get(d);
-			if (td == defaultValue) {
-				td = (BitSet) defaultValue.clone();
-			}
-			for (int i = 0; i < len; i++) {
-				if (d.get(i)) {
-					td = td.or(bits(len, next(i)));
-				}
-			}
-			accumulator.put(d, td);
-
-			BitSet n = (BitSet) td.clone();
-			for (char c : alphabet) {
-				BitSet next = n.and(reachableByChar.get(c));
-				if (accumulator.get(next) == defaultValue) {
-					todo.add(next);
-				}
-			}
-
+	private Integer saturatedSum(List<Integer> values) {
+		long sum = 0;
+		for (Integer value : values) {
+			sum += value;
 		}
+		return (int) Math.min(sum, Integer.MAX_VALUE);
+	}
 
-		private Set<Integer> next(Integer i) {
-			Set<Integer> set = next.get(i);
-			if (set == null) {
-				return Collections.emptySet();
-			} else {
-				return set;
-			}
+	private Integer sum(List<Integer> values) {
+		int sum = 0;
+		for (Integer value : values) {
+			sum += value;
 		}
-
+		return sum;
 	}
 
 }
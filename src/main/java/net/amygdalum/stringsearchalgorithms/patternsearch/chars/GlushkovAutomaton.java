@@ -6,7 +6,6 @@ import java.util.Queue;
 import java.util.Set;
 
 import net.amygdalum.util.bits.BitSet;
-import net.amygdalum.util.map.BitSetObjectMap;
 import net.amygdalum.util.map.CharObjectMap;
 
 public class GlushkovAutomaton implements BitParallelAutomaton {
@@ -14,9 +13,9 @@ public class GlushkovAutomaton implements BitParallelAutomaton {
 	private BitSet initial;
 	private BitSet finals;
 	private CharObjectMap<BitSet> reachableByChar;
-	private BitSetObjectMap<BitSet> reachableByState;
+	private FollowSets reachableByState;
 
-	public GlushkovAutomaton(BitSet initial, BitSet finals, CharObjectMap<BitSet> reachableByChar, BitSetObjectMap<BitSet> reachableByState) {
+	public GlushkovAutomaton(BitSet initial, BitSet finals, CharObjectMap<BitSet> reachableByChar, FollowSets reachableByState) {
 		this.initial = initial;
 		this.finals = finals;
 		this.reachableByChar = reachableByChar;
@@ -76,4 +75,9 @@ public class GlushkovAutomaton implements BitParallelAutomaton {
 		return length;
 	}
 
+	@Override
+	public BitParallelCursor cursor() {
+		return new BitSetCursor(this);
+	}
+
 }
@@ -22,8 +22,8 @@ public class GlushkovFactorExtender implements FactorExtender {
 
 	private String pattern;
 	private Set<String> bestFactors;
-	private DualGlushkovAutomaton factors;
-	private GlushkovAutomaton automaton;
+	private BitParallelAutomaton factors;
+	private BitParallelAutomaton automaton;
 	private int minLength;
 
 	private int factorLength;
@@ -40,7 +40,7 @@ public class GlushkovFactorExtender implements FactorExtender {
 		this.minLength = analyzer.minLength();
 	}
 
-	private GlushkovFactorExtender(String pattern, DualGlushkovAutomaton factors, GlushkovAutomaton automaton, int minLength, int factorLength, BitSet factorInitial) {
+	private GlushkovFactorExtender(String pattern, BitParallelAutomaton factors, BitParallelAutomaton automaton, int minLength, int factorLength, BitSet factorInitial) {
 		this.pattern = pattern;
 		this.factors = factors;
 		this.automaton = automaton;
@@ -120,16 +120,17 @@ public class GlushkovFactorExtender implements FactorExtender {
 		long factorStart = chars.current() - factorLength;
 		chars.move(factorStart);
 		List<Long> starts = new LinkedList<>();
-		BitSet state = factorInitial;
+		BitParallelCursor cursor = factors.cursor();
+		cursor.reset(factorInitial);
 		CharProvider reverse = new ReverseCharProvider(chars);
-		while (!reverse.finished() && !state.isEmpty()) {
-			if (factors.isFinal(state)) {
+		while (!reverse.finished() && !cursor.isEmpty()) {
+			if (cursor.isFinal()) {
 				starts.add(0, chars.current());
 			}
 			char c = reverse.next();
-			state = factors.next(state, c);
+			cursor.accept(c);
 		}
-		if (reverse.finished() && factors.isFinal(state)) {
+		if (reverse.finished() && cursor.isFinal()) {
 			starts.add(0, chars.current());
 		}
 		return starts;
@@ -137,20 +138,21 @@ public class GlushkovFactorExtender implements FactorExtender {
 
 	private void match(List<Long> starts, CharProvider chars, MatchListener... listeners) {
 		boolean notify = listeners != null && listeners.length > 0;
+		BitParallelCursor cursor = automaton.cursor();
 		for (long start : starts) {
 			chars.move(start);
-			BitSet state = automaton.getInitial();
-			while (!chars.finished() && !state.isEmpty()) {
-				if (notify && automaton.isFinal(state)) {
+			cursor.reset();
+			while (!chars.finished() && !cursor.isEmpty()) {
+				if (notify && cursor.isFinal()) {
 					long end = chars.current();
 					for (MatchListener listener : listeners) {
 						listener.notify(start, end, chars);
 					}
 				}
 				char c = chars.next();
-				state = automaton.next(state, c);
+				cursor.accept(c);
 			}
-			if (notify && chars.finished() && automaton.isFinal(state)) {
+			if (notify && chars.finished() && cursor.isFinal()) {
 				long end = chars.current();
 				for (MatchListener listener : listeners) {
 					listener.notify(start, end, chars);
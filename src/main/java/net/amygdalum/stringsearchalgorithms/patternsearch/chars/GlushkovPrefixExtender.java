@@ -21,7 +21,7 @@ import net.amygdalum.util.io.StringCharProvider;
 public class GlushkovPrefixExtender implements FactorExtender {
 
 	private String pattern;
-	private GlushkovAutomaton automaton;
+	private BitParallelAutomaton automaton;
 	private int minLength;
 
 	private int prefixLength;
@@ -35,7 +35,7 @@ public class GlushkovPrefixExtender implements FactorExtender {
 		this.minLength = analyzer.minLength();
 	}
 
-	private GlushkovPrefixExtender(String pattern, GlushkovAutomaton automaton, int minLength, int prefixLength, BitSet prefixInitial) {
+	private GlushkovPrefixExtender(String pattern, BitParallelAutomaton automaton, int minLength, int prefixLength, BitSet prefixInitial) {
 		this.pattern = pattern;
 		this.automaton = automaton;
 		this.minLength = minLength;
@@ -135,24 +135,26 @@ public class GlushkovPrefixExtender implements FactorExtender {
 		boolean notify = listeners != null && listeners.length > 0;
 		long pos = chars.current();
 		long start = pos - this.prefixLength;
-		while (!chars.finished() && !state.isEmpty()) {
-			if (notify && automaton.isFinal(state)) {
+		BitParallelCursor cursor = automaton.cursor();
+		cursor.reset(state);
+		while (!chars.finished() && !cursor.isEmpty()) {
+			if (notify && cursor.isFinal()) {
 				long end = chars.current();
 				for (MatchListener listener : listeners) {
 					listener.notify(start, end, chars);
 				}
 			}
 			char c = chars.next();
-			state = automaton.next(state, c);
+			cursor.accept(c);
 		}
-		if (notify && chars.finished() && automaton.isFinal(state)) {
+		if (notify && chars.finished() && cursor.isFinal()) {
 			long end = chars.current();
 			for (MatchListener listener : listeners) {
 				listener.notify(start, end, chars);
 			}
 		}
 		chars.move(pos);
-		return state;
+		return cursor.getState();
 	}
 
 	@Override
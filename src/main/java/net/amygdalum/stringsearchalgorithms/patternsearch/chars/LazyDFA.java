@@ -0,0 +1,181 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static java.util.Arrays.fill;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.amygdalum.util.bits.BitSet;
+import net.amygdalum.util.io.CharClassMapper;
+
+/**
+ * a deterministic automaton built lazily from a bit parallel automaton.
+ *
+ * Each reached state (a BitSet) is interned to an int id, each computed transition is memoized in a dense table
+ * (one row per state, one column per char class of the mapper). So once the states and transitions exercised by a text
+ * are known, each char costs one table lookup and no allocation.
+ *
+ * The number of states is bounded by the capacity. If a new state would exceed the capacity, the cache is flushed
+ * (the initial state keeps its id, all other ids become invalid) and rebuilt on demand.
+ */
+public class LazyDFA {
+
+	public static final int DEFAULT_CAPACITY = 1 << 10;
+
+	private static final int INITIAL = 0;
+	private static final int UNKNOWN = -1;
+	private static final int INITIAL_STATES = 16;
+
+	private BitParallelAutomaton automaton;
+	private CharClassMapper mapper;
+	private int width;
+	private int capacity;
+	private Map<BitSet, Integer> ids;
+	private BitSet[] states;
+	private boolean[] finals;
+	private int[] transitions;
+	private int size;
+	private int flushes;
+
+	public LazyDFA(BitParallelAutomaton automaton, CharClassMapper mapper) {
+		this(automaton, mapper, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param automaton the automaton to compute the states and transitions from
+	 * @param mapper the mapper of chars to char classes (the automaton is only called with representatives)
+	 * @param capacity the maximum number of cached states (at least 3: the initial state, the source and the target of a transition)
+	 */
+	public LazyDFA(BitParallelAutomaton automaton, CharClassMapper mapper, int capacity) {
+		this.automaton = automaton;
+		this.mapper = mapper;
+		this.width = mapper.indexCount();
+		this.capacity = Math.max(3, capacity);
+		this.ids = new HashMap<>();
+		int initialStates = Math.min(INITIAL_STATES, this.capacity);
+		this.states = new BitSet[initialStates];
+		this.finals = new boolean[initialStates];
+		this.transitions = new int[initialStates * width];
+		fill(transitions, UNKNOWN);
+		add(automaton.getInitial());
+	}
+
+	public int getInitial() {
+		return INITIAL;
+	}
+
+	public boolean isInitial(int state) {
+		return state == INITIAL;
+	}
+
+	public boolean isFinal(int state) {
+		return finals[state];
+	}
+
+	/**
+	 * @param state the id of a state
+	 * @return the BitSet state of the automaton, the id stands for
+	 */
+	public BitSet getState(int state) {
+		return states[state];
+	}
+
+	/**
+	 * @param state a BitSet state of the automaton
+	 * @return the id of this state (valid until the next flush)
+	 */
+	public int state(BitSet state) {
+		Integer id = ids.get(state);
+		if (id != null) {
+			return id;
+		}
+		if (size >= capacity) {
+			flush();
+		}
+		return add(state);
+	}
+
+	/**
+	 * @param state the id of the current state
+	 * @param c the next char
+	 * @return the id of the next state (valid until the next flush, the ids of all other non-initial states may be invalidated)
+	 */
+	public int next(int state, char c) {
+		int charClass = mapper.getIndex(c);
+		int next = transitions[state * width + charClass];
+		if (next == UNKNOWN) {
+			next = computeNext(state, charClass);
+		}
+		return next;
+	}
+
+	private int computeNext(int state, int charClass) {
+		BitSet from = states[state];
+		BitSet to = automaton.next(from, mapper.representative(charClass));
+		Integer id = ids.get(to);
+		if (id == null) {
+			if (size >= capacity) {
+				flush();
+				state = add(from);
+			}
+			id = add(to);
+		}
+		transitions[state * width + charClass] = id;
+		return id;
+	}
+
+	private int add(BitSet state) {
+		Integer known = ids.get(state);
+		if (known != null) {
+			return known;
+		}
+		int id = size;
+		if (id >= states.length) {
+			grow();
+		}
+		states[id] = state;
+		finals[id] = automaton.isFinal(state);
+		ids.put(state, id);
+		size++;
+		return id;
+	}
+
+	private void grow() {
+		int length = Math.min(capacity, states.length * 2);
+		BitSet[] newStates = new BitSet[length];
+		System.arraycopy(states, 0, newStates, 0, size);
+		boolean[] newFinals = new boolean[length];
+		System.arraycopy(finals, 0, newFinals, 0, size);
+		int[] newTransitions = new int[length * width];
+		System.arraycopy(transitions, 0, newTransitions, 0, size * width);
+		fill(newTransitions, size * width, newTransitions.length, UNKNOWN);
+		states = newStates;
+		finals = newFinals;
+		transitions = newTransitions;
+	}
+
+	private void flush() {
+		BitSet initial = states[INITIAL];
+		ids.clear();
+		fill(states, null);
+		fill(transitions, UNKNOWN);
+		size = 0;
+		flushes++;
+		add(initial);
+	}
+
+	/**
+	 * @return the number of currently cached states
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of flushes of the cache (a high number compared to the text length indicates a too small capacity)
+	 */
+	public int flushes() {
+		return flushes;
+	}
+
+}
@@ -0,0 +1,255 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.GlushkovAnalyzerOption.SELF_LOOP;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.amygdalum.regexparser.AlternativesNode;
+import net.amygdalum.regexparser.GroupNode;
+import net.amygdalum.regexparser.RegexNode;
+import net.amygdalum.regexparser.RegexParser;
+import net.amygdalum.regexparser.RegexParserOption;
+import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.LazyStringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.MultiStringSearchAlgorithmFactory;
+import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithm;
+import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithmFactory;
+import net.amygdalum.util.bits.BitSet;
+import net.amygdalum.util.io.CharClassMapper;
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.io.ReverseCharProvider;
+
+/**
+ * An implementation of the multi regex pattern search algorithm Bit-Parallel Glushkov.
+ *
+ * This algorithm takes one or more regex patterns as input and generates a finder which can find these patterns in documents.
+ *
+ * All patterns are united into one position automaton (the union of the patterns), so the text is scanned only once
+ * (independent of the number of patterns). Each final position belongs to exactly one pattern, so each match is
+ * reported with the index of its pattern.
+ *
+ * The efficiency of this algorithm depends on the patterns to process:
+ * - works fine for complex patterns (many regex operators, including dont-care-loops)
+ * - works better for short patterns (few chars (excluding regex operators))
+ */
+public class MultiBPGlushkov implements StringSearchAlgorithm {
+
+	private BitParallelAutomaton search;
+	private BitParallelAutomaton back;
+	private CharClassMapper mapper;
+	private int minLength;
+	private BitSet finals;
+	private BitSet[] finalsByPattern;
+	private int[] patternByFinal;
+	private BitSet nullablePatterns;
+
+	public MultiBPGlushkov(Collection<String> patterns, RegexParserOption... options) {
+		List<RegexNode> roots = parseAndNormalizeRegexes(patterns, options);
+		GlushkovAnalyzer analyzer = new GlushkovAnalyzer(AlternativesNode.anyOf(roots)).analyze();
+		search = analyzer.buildAutomaton(SELF_LOOP);
+		back = analyzer.buildReverseAutomaton();
+		mapper = analyzer.mapper();
+		minLength = analyzer.minLength();
+		finals = back.getInitial();
+		finalsByPattern = computeFinalsByPattern(analyzer, roots);
+		patternByFinal = computePatternByFinal(finalsByPattern, finals.size());
+		nullablePatterns = computeNullablePatterns(finalsByPattern);
+	}
+
+	public MultiBPGlushkov(String[] patterns, RegexParserOption... options) {
+		this(asList(patterns), options);
+	}
+
+	private static List<RegexNode> parseAndNormalizeRegexes(Collection<String> patterns, RegexParserOption... options) {
+		List<RegexNode> roots = new ArrayList<>(patterns.size());
+		for (String pattern : patterns) {
+			RegexParser parser = new RegexParser(pattern, options);
+			RegexNode root = parser.parse();
+			roots.add(new GroupNode(root.accept(new GlushkovNormalizer())));
+		}
+		return roots;
+	}
+
+	private static BitSet[] computeFinalsByPattern(GlushkovAnalyzer analyzer, List<RegexNode> roots) {
+		BitSet[] finalsByPattern = new BitSet[roots.size()];
+		for (int i = 0; i < finalsByPattern.length; i++) {
+			finalsByPattern[i] = analyzer.finals(roots.get(i));
+		}
+		return finalsByPattern;
+	}
+
+	private static int[] computePatternByFinal(BitSet[] finalsByPattern, int len) {
+		int[] patternByFinal = new int[len];
+		for (int pattern = 0; pattern < finalsByPattern.length; pattern++) {
+			BitSet finals = finalsByPattern[pattern];
+			for (int i = finals.nextSetBit(1); i >= 0; i = finals.nextSetBit(i + 1)) {
+				patternByFinal[i] = pattern;
+			}
+		}
+		return patternByFinal;
+	}
+
+	private static BitSet computeNullablePatterns(BitSet[] finalsByPattern) {
+		BitSet nullablePatterns = BitSet.empty(finalsByPattern.length);
+		for (int pattern = 0; pattern < finalsByPattern.length; pattern++) {
+			if (finalsByPattern[pattern].get(0)) {
+				nullablePatterns.set(pattern);
+			}
+		}
+		return nullablePatterns;
+	}
+
+	@Override
+	public StringFinder createFinder(CharProvider chars, StringFinderOption... options) {
+		return new Finder(chars, options);
+	}
+
+	@Override
+	public int getPatternLength() {
+		return minLength;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private class Finder extends BufferedStringFinder {
+
+		private boolean longestMatch;
+		private boolean nonEmpty;
+		private CharProvider chars;
+		private CharProvider reverse;
+		private long border;
+		private LazyDFA searchDFA;
+		private LazyDFA backDFA;
+		private int state;
+
+		public Finder(CharProvider chars, StringFinderOption... options) {
+			super(options);
+			this.longestMatch = LONGEST_MATCH.in(options);
+			this.nonEmpty = MatchOption.NON_EMPTY.in(options);
+			this.chars = chars;
+			this.reverse = new ReverseCharProvider(chars);
+			this.border = -1;
+			this.searchDFA = new LazyDFA(search, mapper);
+			this.backDFA = new LazyDFA(back, mapper);
+			this.state = searchDFA.getInitial();
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			long last = removeMatchesBefore(pos);
+			border = last;
+			if (last > chars.current()) {
+				chars.move(last);
+			}
+		}
+
+		@Override
+		protected boolean takeNext() {
+			if (chars.finished() && border >= chars.current() && isBufferEmpty()) {
+				return false;
+			}
+			if (isBufferEmpty()) {
+				while (!chars.finished()) {
+					if (searchDFA.isFinal(state)) {
+						pushMatches(chars.current(), searchDFA.getState(state));
+					}
+					state = searchDFA.next(state, chars.next());
+					if (searchDFA.isInitial(state) && !isBufferEmpty()) {
+						break;
+					}
+				}
+				if (chars.finished() && searchDFA.isFinal(state)) {
+					pushMatches(chars.current(), searchDFA.getState(state));
+					border = chars.current();
+				}
+			}
+			if (isBufferEmpty()) {
+				return false;
+			} else if (!longestMatch) {
+				return takeLeftMost();
+			} else {
+				return takeLongestLeftMost();
+			}
+		}
+
+		private void pushMatches(long end, BitSet state) {
+			if (end <= border) {
+				return;
+			}
+			BitSet finalState = state.and(finals);
+			BitSet patterns = finalState.get(0) ? nullablePatterns.clone() : BitSet.empty(finalsByPattern.length);
+			for (int i = finalState.nextSetBit(1); i >= 0; i = finalState.nextSetBit(i + 1)) {
+				patterns.set(patternByFinal[i]);
+			}
+			for (int pattern = patterns.nextSetBit(0); pattern >= 0; pattern = patterns.nextSetBit(pattern + 1)) {
+				pushMatches(end, state.and(finalsByPattern[pattern]), pattern);
+			}
+		}
+
+		private void pushMatches(long end, BitSet state, int pattern) {
+			int backState = backDFA.state(state);
+
+			long backup = reverse.current();
+			reverse.move(end);
+			while (!reverse.finished() && !backDFA.getState(backState).isEmpty()) {
+				if (backDFA.isFinal(backState)) {
+					long start = reverse.current();
+					pushMatch(start, end, pattern);
+				}
+				backState = backDFA.next(backState, reverse.next());
+			}
+			if (reverse.finished() && backDFA.isFinal(backState)) {
+				long start = reverse.current();
+				pushMatch(start, end, pattern);
+			}
+			reverse.move(backup);
+		}
+
+		private void pushMatch(long start, long end, int pattern) {
+			if (nonEmpty && start == end) {
+				return;
+			}
+			push(start, end, pattern);
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
+			String s = chars.slice(start, end);
+			return new StringMatch(start, end, s, pattern);
+		}
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory, MultiStringSearchAlgorithmFactory {
+
+		private RegexParserOption[] options;
+
+		public Factory(RegexParserOption... options) {
+			this.options = options;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new MultiBPGlushkov(asList(pattern), options);
+		}
+
+		@Override
+		public StringSearchAlgorithm of(Collection<String> patterns) {
+			return new MultiBPGlushkov(patterns, options);
+		}
+
+	}
+}
@@ -17,6 +17,7 @@ import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.LazyStringMatch;
 import net.amygdalum.stringsearchalgorithms.search.chars.EmptyMatchFinder;
 import net.amygdalum.stringsearchalgorithms.search.chars.MultiStringSearchAlgorithmFactory;
 import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithm;
@@ -46,7 +47,7 @@ public class MultiFactorRE implements StringSearchAlgorithm {
 	private int minLength;
 	private StringSearchAlgorithm searchAlgorithm;
 	private Map<String, List<FactorExtender>> extenders;
-
+	private Map<String, Integer> patternIndexes;
 
 	public MultiFactorRE(MultiStringSearchAlgorithmFactory factorSearcher, FactorExtenderFactory factorExtender, String... patterns) {
 		this(factorSearcher, factorExtender, DEFAULT_MAX_LENGTH, asList(patterns));
@@ -62,6 +63,7 @@ public class MultiFactorRE implements StringSearchAlgorithm {
 
 	public MultiFactorRE(MultiStringSearchAlgorithmFactory factorSearcher, FactorExtenderFactory factorExtender, int maxLength, Collection<String> patterns) {
 		Map<String, FactorExtender> matchers = computeMatchers(patterns, factorExtender);
+		this.patternIndexes = computePatternIndexes(patterns);
 		this.maxLength = maxLength;
 		this.minLength = computeMinLength(matchers);
 		this.extenders = computeExtenders(matchers, maxLength);
@@ -76,6 +78,18 @@ public class MultiFactorRE implements StringSearchAlgorithm {
 		return matchers;
 	}
 
+	private static Map<String, Integer> computePatternIndexes(Collection<String> patterns) {
+		Map<String, Integer> patternIndexes = new LinkedHashMap<>();
+		int i = 0;
+		for (String pattern : patterns) {
+			if (!patternIndexes.containsKey(pattern)) {
+				patternIndexes.put(pattern, i);
+			}
+			i++;
+		}
+		return patternIndexes;
+	}
+
 	private static int computeMinLength(Map<String, FactorExtender> matchers) {
 		int minLength = Integer.MAX_VALUE;
 		for (FactorExtender matcher : matchers.values()) {
@@ -184,7 +198,7 @@ public class MultiFactorRE implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			long firstStart = lastStart;
 			long currentStart = lastStart;
 			while (!chars.finished() && (isBufferEmpty() || currentStart == firstStart)) {
@@ -209,21 +223,31 @@ public class MultiFactorRE implements StringSearchAlgorithm {
 			lastStart = currentStart;
 			if (!isBufferEmpty()) {
 				if (longest) {
-					StringMatch current = longestLeftMost();
-					lastEnd = current.end();
-					return current;
+					boolean found = takeLongestLeftMost();
+					lastEnd = lastMatchEnd();
+					return found;
 				} else {
-					StringMatch current = leftMost();
-					lastEnd = current.end();
-					return current;
+					boolean found = takeLeftMost();
+					lastEnd = lastMatchEnd();
+					return found;
 				}
 			}
-			return null;
+			return false;
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
+			String s = chars.slice(start, end);
+			return new StringMatch(start, end, s, pattern);
 		}
 
 		private void extend(StringMatch match) {
 			List<FactorExtender> matchers = extenders.get(match.text());
 			for (FactorExtender matcher : matchers) {
+				int pattern = patternIndexes.get(matcher.getPattern());
 				long pos = chars.current();
 				chars.move(match.end());
 				for (StringMatch extendedMatch : matcher.extendFactor(chars, longest)) {
@@ -231,7 +255,7 @@ public class MultiFactorRE implements StringSearchAlgorithm {
 						&& (extendedMatch.start() > lastStart || extendedMatch.end() > lastEnd) // do only reports matches different from the last match
 						&& (!longest || extendedMatch.end() > lastEnd) // if longest: do only report matches not being subsumed by last match
 						&& (!nonEmpty || !extendedMatch.isEmpty())) { // if non-empty: do only report matches that do not match the empty string
-						push(extendedMatch);
+						push(extendedMatch.start(), extendedMatch.end(), pattern);
 					}
 
 				}
@@ -0,0 +1,184 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.GlushkovAnalyzerOption.FACTORS;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+
+import net.amygdalum.regexparser.RegexNode;
+import net.amygdalum.regexparser.RegexParser;
+import net.amygdalum.regexparser.RegexParserOption;
+import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.LazyStringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithm;
+import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithmFactory;
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * An implementation of the regex pattern search algorithm RegBNDM (Backward Nondeterministic DAWG Matching for regexes).
+ *
+ * This algorithm takes a regex pattern as input and generates a finder which can find this pattern in documents.
+ *
+ * The text is processed in windows of the min length of the pattern. Each window is read from right to left with the
+ * reverse factor automaton of the pattern, reading stops as soon as the read suffix is no factor of the pattern, and
+ * the window is shifted to the last position where a prefix of the pattern was recognized. Only windows that are
+ * prefixes of the pattern are verified with the forward automaton.
+ *
+ * The efficiency of this algorithm depends on the pattern to process:
+ * - works better with large min length (e.g. structured ids with fixed format)
+ * - works better with large alphabets
+ * - degrades to forward matching at each position for patterns matching the empty string
+ */
+public class RegBNDM implements StringSearchAlgorithm {
+
+	private BitParallelAutomaton factors;
+	private BitParallelAutomaton automaton;
+	private int minLength;
+
+	public RegBNDM(String pattern, RegexParserOption... options) {
+		GlushkovAnalyzer analyzer = parseAndNormalizeRegex(pattern, options);
+		factors = analyzer.buildReverseAutomaton(FACTORS);
+		automaton = analyzer.buildAutomaton();
+		minLength = analyzer.minLength();
+	}
+
+	private static GlushkovAnalyzer parseAndNormalizeRegex(String pattern, RegexParserOption... options) {
+		RegexParser parser = new RegexParser(pattern, options);
+		RegexNode root = parser.parse();
+		root = root.accept(new GlushkovNormalizer());
+		return new GlushkovAnalyzer(root).analyze();
+	}
+
+	@Override
+	public StringFinder createFinder(CharProvider chars, StringFinderOption... options) {
+		return new Finder(chars, options);
+	}
+
+	@Override
+	public int getPatternLength() {
+		return minLength;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private class Finder extends BufferedStringFinder {
+
+		private boolean longestMatch;
+		private boolean nonEmpty;
+		private CharProvider chars;
+		private BitParallelCursor factor;
+		private BitParallelCursor match;
+		private boolean finished;
+		private long lastEnd;
+
+		public Finder(CharProvider chars, StringFinderOption... options) {
+			super(options);
+			this.longestMatch = LONGEST_MATCH.in(options);
+			this.nonEmpty = MatchOption.NON_EMPTY.in(options);
+			this.chars = chars;
+			this.factor = factors.cursor();
+			this.match = automaton.cursor();
+			this.lastEnd = -1;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			removeMatchesBefore(pos);
+			if (pos > chars.current()) {
+				chars.move(pos);
+			}
+		}
+
+		@Override
+		protected boolean takeNext() {
+			while (isBufferEmpty() && !finished) {
+				if (minLength == 0) {
+					verify(chars.current());
+					if (chars.finished()) {
+						finished = true;
+					} else {
+						chars.forward(1);
+					}
+				} else if (chars.finished(minLength - 1)) {
+					finished = true;
+				} else {
+					chars.forward(window());
+				}
+			}
+			if (isBufferEmpty()) {
+				return false;
+			} else if (!longestMatch) {
+				return takeLeftMost();
+			} else {
+				boolean found = takeLongestLeftMost();
+				lastEnd = lastMatchEnd();
+				return found;
+			}
+		}
+
+		private int window() {
+			long pos = chars.current();
+			int last = minLength;
+			factor.reset();
+			for (int j = minLength - 1; j >= 0 && factor.accept(chars.lookahead(j)); j--) {
+				if (factor.isFinal()) {
+					if (j > 0) {
+						last = j;
+					} else {
+						verify(pos);
+					}
+				}
+			}
+			return last;
+		}
+
+		private void verify(long start) {
+			match.reset();
+			if (match.isFinal()) {
+				pushMatch(start, start);
+			}
+			while (!chars.finished() && match.accept(chars.next())) {
+				if (match.isFinal()) {
+					pushMatch(start, chars.current());
+				}
+			}
+			chars.move(start);
+		}
+
+		private void pushMatch(long start, long end) {
+			if (nonEmpty && start == end || longestMatch && end <= lastEnd) {
+				return;
+			}
+			push(start, end, 0);
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
+			String s = chars.slice(start, end);
+			return new StringMatch(start, end, s, pattern);
+		}
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory {
+
+		private RegexParserOption[] options;
+
+		public Factory(RegexParserOption... options) {
+			this.options = options;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new RegBNDM(pattern, options);
+		}
+
+	}
+}
@@ -0,0 +1,359 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+import static java.util.Arrays.copyOf;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * a base class for searching one large document in parallel chunks.
+ *
+ * The document is split into chunks of chunkSize, each chunk is searched by its own finder on a ForkJoinPool and the
+ * results are merged in document order. A match is reported by the chunk containing its start, so chunks are extended
+ * by maxPatternLength - 1 to complete matches crossing the chunk end. Matches are reported with the same semantics as a
+ * sequential search:
+ * - overlapping searches (with or without LONGEST_MATCH) additionally search the maxPatternLength - 1 units preceding
+ * a chunk, such that matches subsuming matches of the chunk are known
+ * - NON_OVERLAP searches start each chunk speculatively at the chunk start. If a match of the preceding chunks ends
+ * behind the chunk start, the chunk is searched again from the end of this match, until a match of the speculative
+ * search is confirmed (from there on both searches agree)
+ * - NON_OVERLAP searches with LONGEST_MATCH are not split at all. Which of the overlapping longest matches is reported
+ * depends on the state of the finder (e.g. an automaton restarted at a chunk start prefers other matches than one
+ * continued from the preceding match), so the document is searched sequentially
+ *
+ * The search is only exact if no match is longer than maxPatternLength.
+ *
+ * The reported set of matches is the one of a sequential search, the order may differ for overlapping searches: the matches
+ * of each chunk are reported ordered by start and end, whereas a sequential finder reports them in the order it finds them
+ * (e.g. AhoCorasick reports matches ordered by end). NON_OVERLAP searches are reported in the order of the sequential search.
+ *
+ * @param <S> the type of the searched documents
+ */
+public abstract class AbstractParallelSearch<S> {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	private int overlap;
+	private int chunkSize;
+	private ForkJoinPool pool;
+
+	public AbstractParallelSearch(int maxPatternLength, int chunkSize, ForkJoinPool pool) {
+		if (maxPatternLength <= 0 || chunkSize <= 0) {
+			throw new IllegalArgumentException("max pattern length and chunk size must be positive, but were " + maxPatternLength + " and " + chunkSize);
+		}
+		this.overlap = maxPatternLength - 1;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	/**
+	 * @param source the document
+	 * @return the length of the document
+	 */
+	protected abstract long length(S source);
+
+	/**
+	 * @param source the document
+	 * @param start the start of the chunk (inclusive)
+	 * @param end the end of the chunk (exclusive)
+	 * @return a chunk of the document, the positions of this chunk are relative to start
+	 */
+	protected abstract Chunk createChunk(S source, long start, long end);
+
+	/**
+	 * searches the given document and reports each match (in document order) to the given sink.
+	 * @param source the document
+	 * @param sink the sink to report the matches to
+	 * @param options the configuration options for the string finders
+	 */
+	public void search(S source, final MatchSink sink, StringFinderOption... options) {
+		merge(source, new Output() {
+
+			@Override
+			public boolean add(Matches matches, int i) {
+				return sink.onMatch(matches.starts[i], matches.ends[i], matches.patterns[i]);
+			}
+		}, options);
+	}
+
+	/**
+	 * searches the given document and returns all matches in document order.
+	 * @param source the document
+	 * @param options the configuration options for the string finders
+	 * @return the list of matches
+	 */
+	public List<StringMatch> findAll(S source, StringFinderOption... options) {
+		final List<StringMatch> result = new ArrayList<>();
+		merge(source, new Output() {
+
+			@Override
+			public boolean add(Matches matches, int i) {
+				result.add(matches.createMatch(i));
+				return true;
+			}
+		}, options);
+		return result;
+	}
+
+	private void merge(S source, Output output, StringFinderOption... options) {
+		boolean nonOverlap = NON_OVERLAP.in(options);
+		if (nonOverlap && LONGEST_MATCH.in(options)) {
+			sequential(source, output, options);
+			return;
+		}
+		List<ChunkSearch> searches = submit(source, nonOverlap, options);
+		try {
+			long last = 0;
+			for (ChunkSearch search : searches) {
+				Matches matches = search.join();
+				if (!nonOverlap) {
+					if (!emit(output, matches, 0)) {
+						return;
+					}
+				} else if (last <= matches.from) {
+					if (!emit(output, matches, 0)) {
+						return;
+					}
+					last = Math.max(last, matches.lastEnd());
+				} else if (last < matches.to) {
+					Verification verification = verify(source, last, matches, options);
+					if (!emit(output, verification, 0)) {
+						return;
+					}
+					last = Math.max(last, verification.lastEnd());
+					if (verification.confirmed >= 0) {
+						if (!emit(output, matches, verification.confirmed)) {
+							return;
+						}
+						last = Math.max(last, matches.lastEnd());
+					}
+				}
+			}
+		} finally {
+			for (ChunkSearch search : searches) {
+				search.cancel(false);
+			}
+		}
+	}
+
+	private void sequential(S source, final Output output, StringFinderOption... options) {
+		Chunk chunk = createChunk(source, 0, length(source));
+		chunk.search(new Matches(chunk, 0, 0, Long.MAX_VALUE) {
+
+			@Override
+			public boolean onMatch(long start, long end, int pattern) {
+				size = 0;
+				add(start, end, pattern);
+				return output.add(this, 0);
+			}
+		}, options);
+	}
+
+	private List<ChunkSearch> submit(S source, boolean nonOverlap, StringFinderOption... options) {
+		long length = length(source);
+		List<ChunkSearch> searches = new ArrayList<>();
+		for (long from = 0; from < length; from += chunkSize) {
+			long to = Math.min(length, from + chunkSize);
+			long start = nonOverlap ? from : Math.max(0, from - overlap);
+			long end = Math.min(length, to + overlap);
+			ChunkSearch search = new ChunkSearch(source, start, end, from, to, nonOverlap, options);
+			pool.execute(search);
+			searches.add(search);
+		}
+		return searches;
+	}
+
+	private Verification verify(S source, long start, Matches speculative, StringFinderOption... options) {
+		long end = Math.min(length(source), speculative.to + overlap);
+		Chunk chunk = createChunk(source, start, end);
+		Verification verification = new Verification(chunk, start, speculative);
+		chunk.search(verification, options);
+		return verification;
+	}
+
+	private static boolean emit(Output output, Matches matches, int from) {
+		for (int i = from; i < matches.size; i++) {
+			if (!output.add(matches, i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * a contiguous part of a document
+	 */
+	protected interface Chunk {
+
+		/**
+		 * searches this chunk and reports the matches (relative to the chunk start) to the given sink
+		 * @param sink the sink to report the matches to
+		 * @param options the configuration options for the string finder
+		 */
+		void search(MatchSink sink, StringFinderOption... options);
+
+		/**
+		 * @param start the start of the text (relative to the chunk start)
+		 * @param end the end of the text (relative to the chunk start)
+		 * @return the text between start and end
+		 */
+		String text(long start, long end);
+
+	}
+
+	private interface Output {
+
+		boolean add(Matches matches, int i);
+
+	}
+
+	private class ChunkSearch extends RecursiveTask<Matches> {
+
+		private static final long serialVersionUID = 1L;
+
+		private S source;
+		private long start;
+		private long end;
+		private long from;
+		private long to;
+		private boolean nonOverlap;
+		private StringFinderOption[] options;
+
+		public ChunkSearch(S source, long start, long end, long from, long to, boolean nonOverlap, StringFinderOption... options) {
+			this.source = source;
+			this.start = start;
+			this.end = end;
+			this.from = from;
+			this.to = to;
+			this.nonOverlap = nonOverlap;
+			this.options = options;
+		}
+
+		@Override
+		protected Matches compute() {
+			Chunk chunk = createChunk(source, start, end);
+			Matches matches = new Matches(chunk, start, from, to);
+			chunk.search(matches, options);
+			if (!nonOverlap) {
+				matches.sort();
+			}
+			return matches;
+		}
+
+	}
+
+	/**
+	 * the matches starting in [from, to), stored with absolute positions
+	 */
+	private static class Matches implements MatchSink {
+
+		Chunk chunk;
+		long offset;
+		long from;
+		long to;
+		long[] starts;
+		long[] ends;
+		int[] patterns;
+		int size;
+
+		public Matches(Chunk chunk, long offset, long from, long to) {
+			this.chunk = chunk;
+			this.offset = offset;
+			this.from = from;
+			this.to = to;
+			this.starts = new long[16];
+			this.ends = new long[16];
+			this.patterns = new int[16];
+		}
+
+		@Override
+		public boolean onMatch(long start, long end, int pattern) {
+			start += offset;
+			end += offset;
+			if (start >= from && start < to) {
+				add(start, end, pattern);
+			}
+			return true;
+		}
+
+		protected void add(long start, long end, int pattern) {
+			if (size == starts.length) {
+				starts = copyOf(starts, size * 2);
+				ends = copyOf(ends, size * 2);
+				patterns = copyOf(patterns, size * 2);
+			}
+			starts[size] = start;
+			ends[size] = end;
+			patterns[size] = pattern;
+			size++;
+		}
+
+		public long lastEnd() {
+			return size == 0 ? 0 : ends[size - 1];
+		}
+
+		public StringMatch createMatch(int i) {
+			String text = chunk.text(starts[i] - offset, ends[i] - offset);
+			return new StringMatch(starts[i], ends[i], text, patterns[i]);
+		}
+
+		public void sort() {
+			for (int i = 1; i < size; i++) {
+				long start = starts[i];
+				long end = ends[i];
+				int pattern = patterns[i];
+				int j = i - 1;
+				while (j >= 0 && (starts[j] > start || starts[j] == start && ends[j] > end)) {
+					starts[j + 1] = starts[j];
+					ends[j + 1] = ends[j];
+					patterns[j + 1] = patterns[j];
+					j--;
+				}
+				starts[j + 1] = start;
+				ends[j + 1] = end;
+				patterns[j + 1] = pattern;
+			}
+		}
+
+	}
+
+	/**
+	 * the matches of a search restarted after the end of the last match, the search stops at the first match that was also found by the speculative search
+	 */
+	private static class Verification extends Matches {
+
+		private Matches speculative;
+		private int next;
+		private int confirmed;
+
+		public Verification(Chunk chunk, long start, Matches speculative) {
+			super(chunk, start, start, speculative.to);
+			this.speculative = speculative;
+			this.confirmed = -1;
+		}
+
+		@Override
+		public boolean onMatch(long start, long end, int pattern) {
+			start += offset;
+			end += offset;
+			if (start >= to) {
+				return false;
+			}
+			while (next < speculative.size && speculative.starts[next] < start) {
+				next++;
+			}
+			if (next < speculative.size && speculative.starts[next] == start && speculative.ends[next] == end) {
+				confirmed = next;
+				return false;
+			}
+			add(start, end, pattern);
+			return true;
+		}
+
+	}
+
+}
@@ -1,5 +1,6 @@
 package net.amygdalum.stringsearchalgorithms.search;
 
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LAZY_TEXT;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
 
 import java.util.ArrayList;
@@ -7,12 +8,14 @@ import java.util.List;
 
 public abstract class AbstractStringFinder implements StringFinder {
 
-	private boolean nonOverlap;
-	
+	protected boolean nonOverlap;
+	protected boolean lazyText;
+
 	public AbstractStringFinder(StringFinderOption... options) {
 		nonOverlap = NON_OVERLAP.in(options);
+		lazyText = LAZY_TEXT.in(options);
 	}
-	
+
 	public abstract StringMatch findNext();
 
 	public abstract void skipTo(long pos);
@@ -28,11 +31,27 @@ public abstract class AbstractStringFinder implements StringFinder {
 			} else {
 				matches.add(match);
 				if (nonOverlap && match.end() > last) {
-					last = match.end(); 
+					last = match.end();
 					skipTo(last);
 				}
 			}
 		}
 	}
-	
+
+	@Override
+	public void findAll(MatchSink sink) {
+		long last = -1;
+		while (true) {
+			StringMatch match = findNext();
+			if (match == null) {
+				return;
+			} else if (!sink.onMatch(match.start(), match.end(), match.pattern())) {
+				return;
+			} else if (nonOverlap && match.end() > last) {
+				last = match.end();
+				skipTo(last);
+			}
+		}
+	}
+
 }
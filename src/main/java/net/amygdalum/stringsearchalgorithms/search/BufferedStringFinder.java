@@ -1,98 +1,253 @@
 package net.amygdalum.stringsearchalgorithms.search;
 
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import static java.util.Arrays.copyOf;
 
+/**
+ * a base class for finders that have to buffer matches before reporting them (e.g. because they are found out of order).
+ *
+ * The buffer is a binary heap of primitive (start, end, pattern) entries ordered by start, end and pattern. Subclasses implement takeNext, which
+ * takes the next match from the buffer (by takeLeftMost or takeLongestLeftMost). Matches are only materialized (by createMatch) if they are
+ * requested by findNext/findAll, reporting to a MatchSink does not create any objects.
+ *
+ * Subclasses may override findAll(MatchSink) to fill the buffer in larger steps and flush it to the sink. Finders that keep the
+ * generic findAll(MatchSink) (reporting each match by takeNext) are the LONGEST_MATCH finders (whose reported match depends on the
+ * longest one of the buffered candidates), MultiBPGlushkov, RegBNDM, MultiFactorRE and BPGlushkov with a factor prefilter.
+ */
 public abstract class BufferedStringFinder extends AbstractStringFinder {
 
-	private Queue<StringMatch> buffer;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] starts;
+	private long[] ends;
+	private int[] patterns;
+	private int size;
+	private long maxEnd;
+	private boolean maxEndValid;
+
+	private long matchStart;
+	private long matchEnd;
+	private int matchPattern;
 
 	public BufferedStringFinder(StringFinderOption... options) {
 		super(options);
-		this.buffer = new PriorityQueue<>();
+		this.starts = new long[INITIAL_CAPACITY];
+		this.ends = new long[INITIAL_CAPACITY];
+		this.patterns = new int[INITIAL_CAPACITY];
 	}
 
-	protected void push(StringMatch match) {
-		buffer.add(match);
+	/**
+	 * creates the match object for a match taken from the buffer
+	 * @param start the start of the match
+	 * @param end the end of the match
+	 * @param pattern the index of the matched pattern
+	 * @return the match
+	 */
+	protected abstract StringMatch createMatch(long start, long end, int pattern);
+
+	/**
+	 * takes the next match (by takeLeftMost or takeLongestLeftMost), searching for new matches if the buffer does not yet contain it
+	 * @return true if a match was taken, false if there are no more matches
+	 */
+	protected abstract boolean takeNext();
+
+	@Override
+	public StringMatch findNext() {
+		if (!takeNext()) {
+			return null;
+		}
+		return createMatch(matchStart, matchEnd, matchPattern);
+	}
+
+	protected void push(long start, long end, int pattern) {
+		if (size == starts.length) {
+			int capacity = size * 2;
+			starts = copyOf(starts, capacity);
+			ends = copyOf(ends, capacity);
+			patterns = copyOf(patterns, capacity);
+		}
+		if (size == 0) {
+			maxEnd = end;
+			maxEndValid = true;
+		} else if (end > maxEnd) {
+			maxEnd = end;
+		}
+		int i = size;
+		size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!before(start, end, pattern, starts[parent], ends[parent], patterns[parent])) {
+				break;
+			}
+			move(parent, i);
+			i = parent;
+		}
+		set(i, start, end, pattern);
 	}
-	
-	protected void push(Collection<StringMatch> matches) {
-		buffer.addAll(matches);
+
+	protected void push(StringMatch match) {
+		push(match.start(), match.end(), match.pattern());
 	}
-	
+
 	protected void clear() {
-		buffer.clear();
+		size = 0;
 	}
 
 	protected boolean isBufferEmpty() {
-		return buffer.isEmpty();
+		return size == 0;
 	}
 
-	protected long removeMatchesBefore(long pos) {
-		long last = pos;
-		Iterator<StringMatch> bufferIterator = buffer.iterator();
-		while (bufferIterator.hasNext()) {
-			StringMatch next = bufferIterator.next();
-			if (next.start() < pos) {
-				bufferIterator.remove();
-			} else if (next.end() > last) {
-				last = next.end();
+	@Override
+	public void findAll(MatchSink sink) {
+		long last = -1;
+		while (takeNext()) {
+			if (!sink.onMatch(matchStart, matchEnd, matchPattern)) {
+				return;
+			}
+			if (nonOverlap && matchEnd > last) {
+				last = matchEnd;
+				skipTo(last);
 			}
 		}
-		return last;
 	}
 
-	protected StringMatch leftMost() {
-		if (buffer.isEmpty()) {
-			return null;
+	/**
+	 * reports all buffered matches (e.g. left over from a call to findNext) to the given sink
+	 * @param sink the sink to report to
+	 * @return false if the sink stopped the search, true otherwise
+	 */
+	protected boolean flush(MatchSink sink) {
+		while (takeLeftMost()) {
+			if (!sink.onMatch(matchStart, matchEnd, matchPattern)) {
+				return false;
+			}
+			if (nonOverlap) {
+				skipTo(matchEnd);
+			}
 		}
-		StringMatch match = buffer.remove();
-		while (!buffer.isEmpty()) {
-			StringMatch nextMatch = buffer.peek();
-			if (nextMatch.start() == match.start() && nextMatch.end() == match.end()) {
-				match = buffer.remove();
-			} else {
-				break;
+		return true;
+	}
+
+	protected long removeMatchesBefore(long pos) {
+		while (size > 0 && starts[0] < pos) {
+			removeFirst();
+		}
+		if (size == 0) {
+			return pos;
+		}
+		if (!maxEndValid) {
+			maxEnd = ends[0];
+			for (int i = 1; i < size; i++) {
+				if (ends[i] > maxEnd) {
+					maxEnd = ends[i];
+				}
 			}
+			maxEndValid = true;
 		}
-		return match;
+		return maxEnd > pos ? maxEnd : pos;
 	}
 
-	protected StringMatch longestLeftMost() {
-		if (buffer.isEmpty()) {
-			return null;
+	/**
+	 * takes the left most match from the buffer
+	 * @return true if a match was taken, false if the buffer is empty
+	 */
+	protected boolean takeLeftMost() {
+		if (size == 0) {
+			return false;
 		}
-		StringMatch match = buffer.remove();
-		while (!buffer.isEmpty()) {
-			StringMatch nextMatch = buffer.peek();
-			if (nextMatch.start() == match.start()) {
-				match = buffer.remove();
-			} else if (nextMatch.end() <= match.end()){
-				buffer.remove();
+		take();
+		while (size > 0 && starts[0] == matchStart && ends[0] == matchEnd && patterns[0] == matchPattern) {
+			take();
+		}
+		return true;
+	}
+
+	/**
+	 * takes the longest of the left most matches from the buffer and drops all buffered matches it covers
+	 * @return true if a match was taken, false if the buffer is empty
+	 */
+	protected boolean takeLongestLeftMost() {
+		if (size == 0) {
+			return false;
+		}
+		take();
+		while (size > 0) {
+			if (starts[0] == matchStart) {
+				take();
+			} else if (ends[0] <= matchEnd) {
+				removeFirst();
 			} else {
 				break;
 			}
 		}
-		return match;
+		return true;
+	}
+
+	/**
+	 * @return the end of the match last taken from the buffer (by takeLeftMost or takeLongestLeftMost)
+	 */
+	protected long lastMatchEnd() {
+		return matchEnd;
 	}
 
 	protected long lastStartFromBuffer() {
-		long start = Long.MAX_VALUE;
-		Iterator<StringMatch> bufferIterator = buffer.iterator();
-		while (bufferIterator.hasNext()) {
-			StringMatch next = bufferIterator.next();
-			if (next.start() < start) {
-				start = next.start();
-			}
-		}
-		if (start == Long.MAX_VALUE) {
+		if (size == 0) {
 			return -1;
 		} else {
-			return start;
+			return starts[0];
 		}
 	}
 
-}
+	private void take() {
+		matchStart = starts[0];
+		matchEnd = ends[0];
+		matchPattern = patterns[0];
+		removeFirst();
+	}
 
+	private void removeFirst() {
+		size--;
+		if (size == 0) {
+			return;
+		}
+		if (ends[0] == maxEnd) {
+			maxEndValid = false;
+		}
+		long start = starts[size];
+		long end = ends[size];
+		int pattern = patterns[size];
+		int i = 0;
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && before(starts[right], ends[right], patterns[right], starts[child], ends[child], patterns[child])) {
+				child = right;
+			}
+			if (!before(starts[child], ends[child], patterns[child], start, end, pattern)) {
+				break;
+			}
+			move(child, i);
+			i = child;
+		}
+		set(i, start, end, pattern);
+	}
+
+	private static boolean before(long start1, long end1, int pattern1, long start2, long end2, int pattern2) {
+		return start1 < start2
+			|| start1 == start2 && end1 < end2
+			|| start1 == start2 && end1 == end2 && pattern1 < pattern2;
+	}
+
+	private void move(int from, int to) {
+		starts[to] = starts[from];
+		ends[to] = ends[from];
+		patterns[to] = patterns[from];
+	}
+
+	private void set(int i, long start, long end, int pattern) {
+		starts[i] = start;
+		ends[i] = end;
+		patterns[i] = pattern;
+	}
+
+}
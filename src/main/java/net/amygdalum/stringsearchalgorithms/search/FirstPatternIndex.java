@@ -0,0 +1,19 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+import net.amygdalum.util.text.JoinStrategy;
+
+/**
+ * a join strategy for tries attaching pattern indexes. If a pattern occurs more than once in the input, the index of its first occurrence is kept.
+ */
+public class FirstPatternIndex implements JoinStrategy<Integer> {
+
+	@Override
+	public Integer join(Integer existing, Integer next) {
+		if (existing == null) {
+			return next;
+		} else {
+			return existing;
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+import static java.util.Arrays.copyOf;
+
+/**
+ * a model of the background frequencies of chars (or bytes) in documents. Algorithms use such a model to select the
+ * rarest positions of a pattern (e.g. as anchors to verify first).
+ *
+ * Frequencies are relative weights of the chars 0-255, chars beyond 255 are considered rare (weight 0).
+ */
+public class FrequencyModel {
+
+	private static final String ENGLISH_LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+	private static final int[] ENGLISH_LETTER_FREQUENCIES = { 1270, 906, 817, 751, 697, 675, 633, 609, 599, 425, 403, 278, 276, 241, 236, 223, 202, 197, 193, 149, 98, 77, 15, 15, 10, 7 };
+
+	/**
+	 * a mix of ASCII text and binary data (spaces, 0x00 and lower case letters are frequent)
+	 */
+	public static final FrequencyModel DEFAULT = new FrequencyModel(computeDefault());
+	/**
+	 * english text (letter frequencies of english, spaces and punctuation)
+	 */
+	public static final FrequencyModel ENGLISH = new FrequencyModel(computeEnglish());
+	/**
+	 * program source code (indentation, brackets and identifiers)
+	 */
+	public static final FrequencyModel SOURCE_CODE = new FrequencyModel(computeSourceCode());
+	/**
+	 * DNA sequences (the nucleotides ACGT in upper or lower case, N and line breaks)
+	 */
+	public static final FrequencyModel DNA = new FrequencyModel(computeDNA());
+	/**
+	 * binary data (0x00 and 0xff are frequent, all other bytes are nearly uniform)
+	 */
+	public static final FrequencyModel BINARY = new FrequencyModel(computeBinary());
+
+	private int[] frequencies;
+
+	/**
+	 * @param frequencies the relative frequencies of the chars 0-255
+	 */
+	public FrequencyModel(int[] frequencies) {
+		if (frequencies.length != 256) {
+			throw new IllegalArgumentException("expected frequencies for 256 chars, but was " + frequencies.length);
+		}
+		this.frequencies = copyOf(frequencies, 256);
+	}
+
+	/**
+	 * creates a model from the char frequencies of a sample document.
+	 * @param sample the sample document
+	 * @return the model
+	 */
+	public static FrequencyModel of(String sample) {
+		int[] frequencies = new int[256];
+		for (int i = 0; i < sample.length(); i++) {
+			char c = sample.charAt(i);
+			if (c < 256) {
+				frequencies[c]++;
+			}
+		}
+		return new FrequencyModel(frequencies);
+	}
+
+	private static int[] computeDefault() {
+		int[] frequencies = new int[256];
+		set(frequencies, 0x80, 0xff, 15);
+		set(frequencies, 0x00, 0x7f, 10);
+		set(frequencies, 'a', 'z', 50);
+		set(frequencies, 'A', 'Z', 30);
+		set(frequencies, '0', '9', 30);
+		set(frequencies, "etaoinshr", 80);
+		set(frequencies, ".,\t\r\n", 30);
+		frequencies[' '] = 100;
+		frequencies[0x00] = 100;
+		frequencies[0xff] = 60;
+		return frequencies;
+	}
+
+	private static int[] computeEnglish() {
+		int[] frequencies = new int[256];
+		set(frequencies, 0x80, 0xff, 1);
+		set(frequencies, 0x21, 0x7e, 2);
+		for (int i = 0; i < ENGLISH_LETTERS.length(); i++) {
+			char c = ENGLISH_LETTERS.charAt(i);
+			frequencies[c] = ENGLISH_LETTER_FREQUENCIES[i];
+			frequencies[Character.toUpperCase(c)] = ENGLISH_LETTER_FREQUENCIES[i] / 20 + 1;
+		}
+		set(frequencies, '0', '9', 10);
+		set(frequencies, ".,", 100);
+		set(frequencies, "'\"-;:?!()", 10);
+		frequencies['\n'] = 40;
+		frequencies[' '] = 1800;
+		return frequencies;
+	}
+
+	private static int[] computeSourceCode() {
+		int[] frequencies = new int[256];
+		set(frequencies, 0x80, 0xff, 1);
+		set(frequencies, 0x21, 0x7e, 20);
+		for (int i = 0; i < ENGLISH_LETTERS.length(); i++) {
+			char c = ENGLISH_LETTERS.charAt(i);
+			frequencies[c] = ENGLISH_LETTER_FREQUENCIES[i] / 2 + 20;
+			frequencies[Character.toUpperCase(c)] = ENGLISH_LETTER_FREQUENCIES[i] / 8 + 20;
+		}
+		set(frequencies, '0', '9', 60);
+		set(frequencies, "();.=,", 200);
+		set(frequencies, "{}\"_<>[]+-*/:", 80);
+		frequencies['\n'] = 400;
+		frequencies['\r'] = 100;
+		frequencies['\t'] = 400;
+		frequencies[' '] = 1800;
+		return frequencies;
+	}
+
+	private static int[] computeDNA() {
+		int[] frequencies = new int[256];
+		set(frequencies, 0x00, 0xff, 1);
+		set(frequencies, "ACGTacgt", 2500);
+		set(frequencies, "Nn", 50);
+		frequencies['\n'] = 30;
+		return frequencies;
+	}
+
+	private static int[] computeBinary() {
+		int[] frequencies = new int[256];
+		set(frequencies, 0x00, 0xff, 10);
+		frequencies[0x00] = 300;
+		frequencies[0xff] = 50;
+		frequencies[0x01] = 20;
+		return frequencies;
+	}
+
+	private static void set(int[] frequencies, int from, int to, int frequency) {
+		for (int i = from; i <= to; i++) {
+			frequencies[i] = frequency;
+		}
+	}
+
+	private static void set(int[] frequencies, String chars, int frequency) {
+		for (int i = 0; i < chars.length(); i++) {
+			frequencies[chars.charAt(i)] = frequency;
+		}
+	}
+
+	/**
+	 * @param c the char (or byte value)
+	 * @return the relative frequency of c
+	 */
+	public int frequency(int c) {
+		if (c < 0 || c >= 256) {
+			return 0;
+		}
+		return frequencies[c];
+	}
+
+	/**
+	 * @param pattern the pattern
+	 * @return the positions of the pattern ordered by ascending frequency of their chars (ties ordered from right to left)
+	 */
+	public int[] rarest(char[] pattern) {
+		int[] frequencies = new int[pattern.length];
+		for (int i = 0; i < pattern.length; i++) {
+			frequencies[i] = frequency(pattern[i]);
+		}
+		return order(frequencies);
+	}
+
+	/**
+	 * @param pattern the pattern
+	 * @return the positions of the pattern ordered by ascending frequency of their bytes (ties ordered from right to left)
+	 */
+	public int[] rarest(byte[] pattern) {
+		int[] frequencies = new int[pattern.length];
+		for (int i = 0; i < pattern.length; i++) {
+			frequencies[i] = frequency(pattern[i] & 0xff);
+		}
+		return order(frequencies);
+	}
+
+	private static int[] order(int[] frequencies) {
+		int[] positions = new int[frequencies.length];
+		for (int i = 0; i < positions.length; i++) {
+			int position = positions.length - 1 - i;
+			int j = i - 1;
+			while (j >= 0 && frequencies[positions[j]] > frequencies[position]) {
+				positions[j + 1] = positions[j];
+				j--;
+			}
+			positions[j + 1] = position;
+		}
+		return positions;
+	}
+
+}
@@ -0,0 +1,53 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+/**
+ * a MatchSink counting the reported matches (optionally per pattern), no match objects are created.
+ */
+public class MatchCounter implements MatchSink {
+
+	private long limit;
+	private int[] histogram;
+	private long count;
+
+	/**
+	 * counts all matches
+	 */
+	public MatchCounter() {
+		this(Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * counts matches until the given limit is reached, the search is stopped then
+	 * @param limit the maximum number of matches to count
+	 */
+	public MatchCounter(long limit) {
+		this(limit, null);
+	}
+
+	/**
+	 * counts all matches, each match is also counted in the histogram slot of its pattern
+	 * @param histogram the histogram to update, it must provide a slot for each pattern index
+	 */
+	public MatchCounter(int[] histogram) {
+		this(Long.MAX_VALUE, histogram);
+	}
+
+	private MatchCounter(long limit, int[] histogram) {
+		this.limit = limit;
+		this.histogram = histogram;
+	}
+
+	@Override
+	public boolean onMatch(long start, long end, int pattern) {
+		count++;
+		if (histogram != null) {
+			histogram[pattern]++;
+		}
+		return count < limit;
+	}
+
+	public long count() {
+		return count;
+	}
+
+}
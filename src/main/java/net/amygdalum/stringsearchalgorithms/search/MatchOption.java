@@ -1,9 +1,10 @@
 package net.amygdalum.stringsearchalgorithms.search;
 
+import java.util.Arrays;
 
 public enum MatchOption implements StringFinderOption {
 
-	LONGEST_MATCH, NON_OVERLAP, NON_EMPTY;
+	LONGEST_MATCH, NON_OVERLAP, NON_EMPTY, LAZY_TEXT;
 
 	public boolean in(StringFinderOption... options) {
 		for (int i = 0; i < options.length; i++) {
@@ -13,5 +14,24 @@ public enum MatchOption implements StringFinderOption {
 		}
 		return false;
 	}
-	
+
+	/**
+	 * @param options the options to filter
+	 * @param removed the options to remove
+	 * @return the given options without the removed options
+	 */
+	public static StringFinderOption[] without(StringFinderOption[] options, MatchOption... removed) {
+		StringFinderOption[] remaining = new StringFinderOption[options.length];
+		int size = 0;
+		next: for (StringFinderOption option : options) {
+			for (MatchOption remove : removed) {
+				if (option == remove) {
+					continue next;
+				}
+			}
+			remaining[size++] = option;
+		}
+		return size == options.length ? options : Arrays.copyOf(remaining, size);
+	}
+
 }
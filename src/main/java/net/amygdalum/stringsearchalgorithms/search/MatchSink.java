@@ -0,0 +1,19 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+/**
+ * a callback for matches found by a StringFinder.
+ *
+ * In contrast to findNext/findAll a sink does not need StringMatch objects (or the matched text), matches are reported by their positions only.
+ */
+public interface MatchSink {
+
+	/**
+	 * is called for each match in the order findNext would return it.
+	 * @param start the start of the match
+	 * @param end the end of the match
+	 * @param pattern the index of the matched pattern (the position of the pattern in the collection passed to a multi string algorithm, 0 for single pattern algorithms)
+	 * @return true if the search should continue, false if the search should stop after this match
+	 */
+	boolean onMatch(long start, long end, int pattern);
+
+}
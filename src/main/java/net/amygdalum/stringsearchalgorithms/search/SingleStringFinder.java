@@ -0,0 +1,50 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+/**
+ * a base class for finders of single pattern algorithms. Such finders locate the start of the next match, all matches have the length of the pattern.
+ *
+ * Matches are only materialized as StringMatch if requested by findNext/findAll, reporting to a MatchSink does not create any objects.
+ */
+public abstract class SingleStringFinder extends AbstractStringFinder {
+
+	private int patternLength;
+
+	public SingleStringFinder(int patternLength, StringFinderOption... options) {
+		super(options);
+		this.patternLength = patternLength;
+	}
+
+	/**
+	 * @return the start of the next match or -1 if there is no further match
+	 */
+	protected abstract long findNextStart();
+
+	protected abstract StringMatch createMatch(long start, long end);
+
+	@Override
+	public StringMatch findNext() {
+		long start = findNextStart();
+		if (start < 0) {
+			return null;
+		}
+		return createMatch(start, start + patternLength);
+	}
+
+	@Override
+	public void findAll(MatchSink sink) {
+		while (true) {
+			long start = findNextStart();
+			if (start < 0) {
+				return;
+			}
+			long end = start + patternLength;
+			if (!sink.onMatch(start, end, 0)) {
+				return;
+			}
+			if (nonOverlap) {
+				skipTo(end);
+			}
+		}
+	}
+
+}
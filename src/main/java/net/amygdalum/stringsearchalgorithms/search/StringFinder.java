@@ -16,6 +16,11 @@ public interface StringFinder {
 	 * @return all matches in the given document, dependent on the specific implementation some matches may be skipped
 	 */
 	List<StringMatch> findAll();
+	/**
+	 * reports all matches in the given document to the given sink (the same matches as findAll, but without creating StringMatch objects)
+	 * @param sink the sink to report to, the search stops as soon as the sink rejects a match
+	 */
+	void findAll(MatchSink sink);
 	/**
 	 * skips the document to a specific position (ignoring any match before this position)
 	 * @param pos the new position to start with
@@ -9,6 +9,7 @@ public class StringMatch implements Comparable<StringMatch> {
 	private long start;
 	private long end;
 	private String text;
+	private int pattern;
 
 	/**
 	 * @param start the start of the match
@@ -16,9 +17,32 @@ public class StringMatch implements Comparable<StringMatch> {
 	 * @param match the matched string
 	 */
 	public StringMatch(long start, long end, String match) {
+		this(start, end, match, 0);
+	}
+
+	/**
+	 * @param start the start of the match
+	 * @param end the end of the match
+	 * @param match the matched string
+	 * @param pattern the index of the matched pattern
+	 */
+	public StringMatch(long start, long end, String match, int pattern) {
 		this.start = start;
 		this.end = end;
 		this.text = match;
+		this.pattern = pattern;
+	}
+
+	/**
+	 * creates a match without text, subclasses providing the text on demand have to override {@link #text()}
+	 * @param start the start of the match
+	 * @param end the end of the match
+	 * @param pattern the index of the matched pattern
+	 */
+	protected StringMatch(long start, long end, int pattern) {
+		this.start = start;
+		this.end = end;
+		this.pattern = pattern;
 	}
 
 	public long start() {
@@ -33,12 +57,19 @@ public class StringMatch implements Comparable<StringMatch> {
 		return text;
 	}
 
+	/**
+	 * @return the index of the matched pattern (the position of the pattern in the collection passed to a multi string algorithm, 0 for single pattern algorithms)
+	 */
+	public int pattern() {
+		return pattern;
+	}
+
 	public boolean isEmpty() {
 		return start == end;
 	}
 
 	public int length() {
-		return text.length();
+		return text().length();
 	}
 
 	@Override
@@ -56,12 +87,12 @@ public class StringMatch implements Comparable<StringMatch> {
 
 	@Override
 	public String toString() {
-		return start + ":" + end + "(" + text + ")";
+		return start + ":" + end + "(" + text() + ")";
 	}
 
 	@Override
 	public int hashCode() {
-		return 31 + (int) end * 13 + (int) start * 7 + text.hashCode() * 3;
+		return 31 + (int) end * 13 + (int) start * 7 + text().hashCode() * 3;
 	}
 
 	@Override
@@ -72,13 +103,13 @@ public class StringMatch implements Comparable<StringMatch> {
 		if (obj == null) {
 			return false;
 		}
-		if (getClass() != obj.getClass()) {
+		if (!(obj instanceof StringMatch)) {
 			return false;
 		}
 		StringMatch that = (StringMatch) obj;
 		return this.start == that.start
 			&& this.end == that.end
-			&& this.text.equals(that.text);
+			&& this.text().equals(that.text());
 	}
 
 }
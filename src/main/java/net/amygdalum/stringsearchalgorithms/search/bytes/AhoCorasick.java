@@ -15,6 +15,8 @@ import java.util.Collection;
 import java.util.List;
 
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -32,23 +34,49 @@ import net.amygdalum.util.text.doublearraytrie.DoubleArrayByteFallbackTrieCompil
  * An implementation of the Aho-Corasick Algorithm.
  * 
  * This algorithm takes a multiple string patterns as input and generates a finder which can find any of these patterns in documents. 
+ * 
+ * Given a memory budget (in bytes) the patterns are compiled to a complete automaton with a dense transition table (one
+ * lookup per byte, no fallback links to follow). If this automaton would exceed the budget, the fallback trie is used.
+ * 
+ * Byte classes (e.g. case insensitive bytes) are merged into the classes of the dense automaton. The fallback trie
+ * normalizes each byte instead.
  */
 public class AhoCorasick implements StringSearchAlgorithm {
 
-	private ByteWordSet<ByteString> trie;
+	public static final long NO_DFA = 0;
+
+	private ByteWordSet<Integer> trie;
+	private int[] lengths;
 	private int minLength;
 
 	public AhoCorasick(Collection<String> patterns, Charset charset) {
-		List<byte[]> bytepatterns = toByteArray(patterns, charset);
-		this.trie = computeTrie(bytepatterns, charset);
+		this(patterns, charset, NO_DFA);
+	}
+
+	public AhoCorasick(Collection<String> patterns, Charset charset, long dfaBudget) {
+		this(patterns, charset, dfaBudget, ByteMapping.IDENTITY);
+	}
+
+	public AhoCorasick(Collection<String> patterns, Charset charset, long dfaBudget, ByteMapping mapping) {
+		List<byte[]> bytepatterns = mapping.normalized(toByteArray(patterns, charset));
+		this.trie = computeAutomaton(bytepatterns, dfaBudget, mapping);
+		this.lengths = computeLengths(bytepatterns);
 		this.minLength = minLength(bytepatterns);
 	}
 
-	private static ByteWordSet<ByteString> computeTrie(List<byte[]> bytepatterns, Charset charset) {
-		ByteWordSetBuilder<ByteString, ByteTrie<ByteString>> builder = new ByteWordSetBuilder<>(new DoubleArrayByteFallbackTrieCompiler<ByteString>());
+	private static ByteWordSet<Integer> computeAutomaton(List<byte[]> bytepatterns, long dfaBudget, ByteMapping mapping) {
+		ByteDFA dfa = ByteDFA.compile(bytepatterns, dfaBudget, mapping);
+		if (dfa != null) {
+			return dfa;
+		}
+		return NormalizingByteWordSet.of(computeTrie(bytepatterns), mapping);
+	}
+
+	private static ByteWordSet<Integer> computeTrie(List<byte[]> bytepatterns) {
+		ByteWordSetBuilder<Integer, ByteTrie<Integer>> builder = new ByteWordSetBuilder<>(new DoubleArrayByteFallbackTrieCompiler<Integer>(), new FirstPatternIndex());
 
-		for (byte[] pattern : bytepatterns) {
-			builder.extend(pattern, new ByteString(pattern, charset));
+		for (int i = 0; i < bytepatterns.size(); i++) {
+			builder.extend(bytepatterns.get(i), i);
 		}
 
 		return builder
@@ -57,12 +85,20 @@ public class AhoCorasick implements StringSearchAlgorithm {
 
 	}
 
+	private static int[] computeLengths(List<byte[]> bytepatterns) {
+		int[] lengths = new int[bytepatterns.size()];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = bytepatterns.get(i).length;
+		}
+		return lengths;
+	}
+
 	@Override
 	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
 		if (LONGEST_MATCH.in(options)) {
-			return new LongestMatchFinder(trie, bytes, options);
+			return new LongestMatchFinder(trie, lengths, bytes, options);
 		} else {
-			return new NextMatchFinder(trie, bytes, options);
+			return new NextMatchFinder(trie, lengths, bytes, options);
 		}
 	}
 
@@ -76,29 +112,29 @@ public class AhoCorasick implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private static class FallbackLinks implements ByteTask<ByteString> {
+	private static class FallbackLinks implements ByteTask<Integer> {
 
-		private ByteNode<ByteString> root;
+		private ByteNode<Integer> root;
 
 		@Override
-		public List<ByteNode<ByteString>> init(ByteNode<ByteString> root) {
+		public List<ByteNode<Integer>> init(ByteNode<Integer> root) {
 			this.root = root;
 			setFallback(root, null);
 			return asList(root);
 		}
 
 		@Override
-		public List<ByteNode<ByteString>> process(ByteNode<ByteString> node) {
-			List<ByteNode<ByteString>> nexts = new ArrayList<>();
+		public List<ByteNode<Integer>> process(ByteNode<Integer> node) {
+			List<ByteNode<Integer>> nexts = new ArrayList<>();
 			for (byte b : node.getAlternatives()) {
-				ByteNode<ByteString> next = node.nextNode(b);
-				ByteNode<ByteString> down = getFallback(node);
+				ByteNode<Integer> next = node.nextNode(b);
+				ByteNode<Integer> down = getFallback(node);
 				nextdown: while (down != null) {
-					ByteNode<ByteString> nextNode = down.nextNode(b);
+					ByteNode<Integer> nextNode = down.nextNode(b);
 					if (nextNode != null) {
 						setFallback(next, nextNode);
 						if (next.getAttached() == null) {
-							ByteString attachment = nextNode.getAttached();
+							Integer attachment = nextNode.getAttached();
 							if (attachment != null) {
 								attach(next, attachment);
 							}
@@ -119,11 +155,13 @@ public class AhoCorasick implements StringSearchAlgorithm {
 
 	private static abstract class Finder extends BufferedStringFinder {
 
+		protected int[] lengths;
 		protected ByteProvider bytes;
-		protected ByteAutomaton<ByteString> cursor;
+		protected ByteAutomaton<Integer> cursor;
 
-		public Finder(ByteWordSet<ByteString> trie, ByteProvider bytes, StringFinderOption... options) {
+		public Finder(ByteWordSet<Integer> trie, int[] lengths, ByteProvider bytes, StringFinderOption... options) {
 			super(options);
+			this.lengths = lengths;
 			this.bytes = bytes;
 			this.cursor = trie.cursor();
 		}
@@ -137,35 +175,52 @@ public class AhoCorasick implements StringSearchAlgorithm {
 			clear();
 		}
 
-		protected List<StringMatch> createMatches(long end) {
-			List<StringMatch> matches = new ArrayList<>();
-			for (ByteString currentMatch : cursor) {
-				long start = end - currentMatch.length();
-				StringMatch nextMatch = createMatch(start, end);
-				if (!matches.contains(nextMatch)) {
-					matches.add(nextMatch);
-				}
+		protected void pushMatches(long end) {
+			for (Integer pattern : cursor) {
+				push(end - lengths[pattern], end, pattern);
 			}
-			return matches;
 		}
 
-		private StringMatch createMatch(long start, long end) {
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, pattern);
+			}
 			ByteString s = bytes.slice(start, end);
-			return new StringMatch(start, end, s.getString());
+			return new StringMatch(start, end, s.getString(), pattern);
 		}
 
 	}
 
 	private static class NextMatchFinder extends Finder {
 
-		public NextMatchFinder(ByteWordSet<ByteString> trie, ByteProvider bytes, StringFinderOption... options) {
-			super(trie, bytes, options);
+		public NextMatchFinder(ByteWordSet<Integer> trie, int[] lengths, ByteProvider bytes, StringFinderOption... options) {
+			super(trie, lengths, bytes, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
+			}
+			while (!bytes.finished()) {
+				byte b = bytes.next();
+				boolean success = cursor.accept(b);
+				if (!success) {
+					cursor.reset();
+				}
+				if (cursor.hasAttachments()) {
+					pushMatches(bytes.current());
+					return takeLeftMost();
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
 			}
 			while (!bytes.finished()) {
 				byte b = bytes.next();
@@ -174,22 +229,37 @@ public class AhoCorasick implements StringSearchAlgorithm {
 					cursor.reset();
 				}
 				if (cursor.hasAttachments()) {
-					push(createMatches(bytes.current()));
-					return leftMost();
+					long end = bytes.current();
+					for (Integer pattern : cursor) {
+						long start = end - lengths[pattern];
+						if (!sink.onMatch(start, end, pattern)) {
+							return;
+						}
+						if (nonOverlap) {
+							cursor.reset();
+							break;
+						}
+					}
 				}
 			}
-			return null;
 		}
 	}
 
 	private static class LongestMatchFinder extends Finder {
 
-		public LongestMatchFinder(ByteWordSet<ByteString> trie, ByteProvider bytes, StringFinderOption... options) {
-			super(trie, bytes, options);
+		public LongestMatchFinder(ByteWordSet<Integer> trie, int[] lengths, ByteProvider bytes, StringFinderOption... options) {
+			super(trie, lengths, bytes, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		public void skipTo(long pos) {
+			bytes.move(pos);
+			cursor.reset();
+			clear();
+		}
+
+		@Override
+		protected boolean takeNext() {
 			while (!bytes.finished()) {
 				byte b = bytes.next();
 				boolean success = cursor.lookahead(b);
@@ -202,29 +272,47 @@ public class AhoCorasick implements StringSearchAlgorithm {
 					cursor.reset();
 				}
 				if (cursor.hasAttachments()) {
-					push(createMatches(bytes.current()));
+					pushMatches(bytes.current());
 				}
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 	}
 
-	public static class Factory implements MultiStringSearchAlgorithmFactory {
+	public static class Factory implements MultiStringSearchAlgorithmFactory, SupportsByteClasses {
 
 		private Charset charset;
+		private long dfaBudget;
+		private ByteMapping mapping;
 
 		public Factory() {
 			this(UTF_16LE);
 		}
 
 		public Factory(Charset charset) {
+			this(charset, NO_DFA);
+		}
+
+		public Factory(Charset charset, long dfaBudget) {
 			this.charset = charset;
+			this.dfaBudget = dfaBudget;
+			this.mapping = ByteMapping.IDENTITY;
+		}
+
+		@Override
+		public void enableByteClasses(ByteMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		@Override
+		public ByteMapping getByteClasses() {
+			return mapping;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
-			return new AhoCorasick(patterns, charset);
+			return new AhoCorasick(patterns, charset, dfaBudget, mapping);
 		}
 
 	}
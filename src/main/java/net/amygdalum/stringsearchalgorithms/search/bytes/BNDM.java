@@ -7,7 +7,7 @@ import static net.amygdalum.util.text.ByteEncoding.encode;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -25,16 +25,20 @@ public class BNDM implements StringSearchAlgorithm {
 	private BitMapStates states;
 
 	public BNDM(String pattern, Charset charset) {
+		this(pattern, charset, ByteMapping.IDENTITY);
+	}
+
+	public BNDM(String pattern, Charset charset, ByteMapping mapping) {
 		byte[] encoded = encode(pattern, charset);
 		this.patternLength = encoded.length;
-		this.states = computeStates(encoded);
+		this.states = computeStates(encoded, mapping);
 	}
 
-	private static BitMapStates computeStates(byte[] pattern) {
+	private static BitMapStates computeStates(byte[] pattern, ByteMapping mapping) {
 		if (pattern.length > 64) {
-			return new QuickMultiLongStates(pattern);
+			return new QuickMultiLongStates(pattern, mapping);
 		} else {
-			return new QuickSingleLongStates(pattern);
+			return new QuickSingleLongStates(pattern, mapping);
 		}
 	}
 
@@ -57,7 +61,7 @@ public class BNDM implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private abstract class Finder extends AbstractStringFinder {
+	private abstract class Finder extends SingleStringFinder {
 
 		protected final long finalstate;
 		protected final long activeStates;
@@ -65,15 +69,17 @@ public class BNDM implements StringSearchAlgorithm {
 		protected ByteProvider bytes;
 
 		public Finder(ByteProvider bytes, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.finalstate = 1l << ((patternLength - 1) % 64);
 			this.activeStates = (finalstate - 1) | finalstate;
 			this.bytes = bytes;
 		}
 
-		protected StringMatch createMatch() {
-			long start = bytes.current();
-			long end = start + patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
 			ByteString s = bytes.slice(start, end);
 			return new StringMatch(start, end, s.getString());
 		}
@@ -98,7 +104,7 @@ public class BNDM implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished(patternLength - 1)) {
 				state = activeStates;
 				int j = patternLength - 1;
@@ -111,9 +117,9 @@ public class BNDM implements StringSearchAlgorithm {
 						if (j > 0) {
 							last = j;
 						} else {
-							StringMatch createMatch = createMatch();
+							long start = bytes.current();
 							bytes.forward(last);
-							return createMatch;
+							return start;
 						}
 					}
 					j--;
@@ -121,7 +127,7 @@ public class BNDM implements StringSearchAlgorithm {
 				}
 				bytes.forward(last);
 			}
-			return null;
+			return -1;
 		}
 
 	}
@@ -179,7 +185,7 @@ public class BNDM implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished(patternLength - 1)) {
 				segment = 0;
 				state = activeStates[segment];
@@ -194,9 +200,9 @@ public class BNDM implements StringSearchAlgorithm {
 						if (j > 0) {
 							last[segment] = j;
 						} else if (segment == patternLengths.length - 1) {
-							StringMatch createMatch = createMatch();
+							long start = bytes.current();
 							bytes.forward(max(last, segment));
-							return createMatch;
+							return start;
 						} else {
 							segment++;
 							state = activeStates[segment];
@@ -209,7 +215,7 @@ public class BNDM implements StringSearchAlgorithm {
 				}
 				bytes.forward(max(last, segment));
 			}
-			return null;
+			return -1;
 		}
 
 		private int max(int[] values, int last) {
@@ -225,9 +231,10 @@ public class BNDM implements StringSearchAlgorithm {
 
 	}
 	
-	public static class Factory implements StringSearchAlgorithmFactory {
+	public static class Factory implements StringSearchAlgorithmFactory, SupportsByteClasses {
 
 		private Charset charset;
+		private ByteMapping mapping;
 
 		public Factory() {
 			this(UTF_16LE);
@@ -235,11 +242,22 @@ public class BNDM implements StringSearchAlgorithm {
 
 		public Factory(Charset charset) {
 			this.charset = charset;
+			this.mapping = ByteMapping.IDENTITY;
+		}
+
+		@Override
+		public void enableByteClasses(ByteMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		@Override
+		public ByteMapping getByteClasses() {
+			return mapping;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new BNDM(pattern, charset);
+			return new BNDM(pattern, charset, mapping);
 		}
 
 	}
@@ -275,16 +293,17 @@ public class BNDM implements StringSearchAlgorithm {
 
 		private long[] bytes;
 
-		public QuickSingleLongStates(byte[] pattern) {
-			this.bytes = computeStates(pattern);
+		public QuickSingleLongStates(byte[] pattern, ByteMapping mapping) {
+			this.bytes = computeStates(pattern, mapping);
 		}
 
-		private static long[] computeStates(byte[] pattern) {
+		private static long[] computeStates(byte[] pattern, ByteMapping mapping) {
 			long[] characters = new long[256];
 			for (int i = 0; i < pattern.length; i++) {
 				int j = pattern.length - i - 1;
-				byte b = pattern[i];
+				for (byte b : mapping.map(pattern[i])) {
 					characters[b & 0xff] |= 1l << j;
+				}
 			}
 			return characters;
 		}
@@ -314,28 +333,29 @@ public class BNDM implements StringSearchAlgorithm {
 
 		private long[][] bytes;
 
-		public QuickMultiLongStates(byte[] pattern) {
-			this.bytes = computeStates(pattern);
+		public QuickMultiLongStates(byte[] pattern, ByteMapping mapping) {
+			this.bytes = computeStates(pattern, mapping);
 		}
 
-		private static long[][] computeStates(byte[] pattern) {
+		private static long[][] computeStates(byte[] pattern, ByteMapping mapping) {
 			int numberOfSubpatterns = ((pattern.length - 1) / 64) + 1;
 			long[][] bytes = new long[numberOfSubpatterns][];
 			for (int i = 0; i < bytes.length; i++) {
 				int start = i * 64;
 				int end = i == bytes.length - 1 ? pattern.length : (i + 1) * 64;
 				byte[] subpattern = Arrays.copyOfRange(pattern, start, end);
-				bytes[i] = computeSubStates(subpattern);
+				bytes[i] = computeSubStates(subpattern, mapping);
 			}
 			return bytes;
 		}
 
-		private static long[] computeSubStates(byte[] pattern) {
+		private static long[] computeSubStates(byte[] pattern, ByteMapping mapping) {
 			long[] characters = new long[256];
 			for (int i = 0; i < pattern.length; i++) {
 				int j = pattern.length - i - 1;
-				byte b = pattern[i];
-				characters[b & 0xff] |= 1l << j;
+				for (byte b : mapping.map(pattern[i])) {
+					characters[b & 0xff] |= 1l << j;
+				}
 			}
 			return characters;
 		}
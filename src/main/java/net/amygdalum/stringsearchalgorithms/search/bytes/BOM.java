@@ -11,7 +11,7 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -114,14 +114,14 @@ public class BOM implements StringSearchAlgorithm {
 
 	}
 
-	private static class Finder extends AbstractStringFinder {
+	private static class Finder extends SingleStringFinder {
 
 		private final int lookahead;
 		private ByteProvider bytes;
 		private ByteAutomaton<byte[]> cursor;
 
 		public Finder(ByteWordSet<byte[]> trie, int patternLength, ByteProvider bytes, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.lookahead = patternLength - 1;
 			this.bytes = bytes;
 			this.cursor = trie.cursor();
@@ -135,7 +135,7 @@ public class BOM implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished(lookahead)) {
 				cursor.reset();
 				int j = lookahead;
@@ -145,13 +145,9 @@ public class BOM implements StringSearchAlgorithm {
 					j--;
 				}
 				if (success && j < 0) {
-					byte[] pattern = cursor.iterator().next();
 					long start = bytes.current();
-					long end = start + pattern.length;
-					StringMatch match = createMatch(start, end);
-
 					bytes.next();
-					return match;
+					return start;
 				}
 				if (j <= 0) {
 					bytes.next();
@@ -159,10 +155,14 @@ public class BOM implements StringSearchAlgorithm {
 					bytes.forward(j + 2);
 				}
 			}
-			return null;
+			return -1;
 		}
 
-		private StringMatch createMatch(long start, long end) {
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
 			ByteString s = bytes.slice(start, end);
 			return new StringMatch(start, end, s.getString());
 		}
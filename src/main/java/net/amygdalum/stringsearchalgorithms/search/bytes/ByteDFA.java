@@ -0,0 +1,281 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.util.Arrays.fill;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.amygdalum.util.text.ByteAutomaton;
+import net.amygdalum.util.text.ByteWordSet;
+
+/**
+ * a complete Aho-Corasick automaton (all fallback transitions resolved) over a set of byte patterns.
+ *
+ * Each state has a dense row of transitions, one per byte class (bytes not occurring in any pattern share one class),
+ * so each input byte costs two array lookups and never follows fallback links. The cursor of this automaton behaves
+ * like the cursor of the fallback trie: the attachments of a state are the indexes of the patterns ending in this state,
+ * the longest first, for duplicate patterns the first index.
+ */
+class ByteDFA implements ByteWordSet<Integer> {
+
+	private static final int ROOT = 0;
+	private static final int ENTRY_SIZE = 4;
+
+	private int[] classes;
+	private int width;
+	private int[] transitions;
+	private int[] depths;
+	private int[] terminals;
+	private Integer[][] attachments;
+
+	private ByteDFA(int[] classes, int width, int[] transitions, int[] depths, int[] terminals, Integer[][] attachments) {
+		this.classes = classes;
+		this.width = width;
+		this.transitions = transitions;
+		this.depths = depths;
+		this.terminals = terminals;
+		this.attachments = attachments;
+	}
+
+	/**
+	 * compiles the patterns to a complete automaton, if it fits into the given memory budget
+	 * @param patterns the patterns
+	 * @param budget the maximum number of bytes for the transition table of the automaton
+	 * @return the automaton or null if it would exceed the budget
+	 */
+	public static ByteDFA compile(List<byte[]> patterns, long budget) {
+		return compile(patterns, budget, ByteMapping.IDENTITY);
+	}
+
+	/**
+	 * compiles the (normalized) patterns to a complete automaton, if it fits into the given memory budget. Each byte
+	 * shares the transitions of its representative in the given mapping.
+	 * @param patterns the normalized patterns
+	 * @param budget the maximum number of bytes for the transition table of the automaton
+	 * @param mapping the mapping of bytes to their representatives
+	 * @return the automaton or null if it would exceed the budget
+	 */
+	public static ByteDFA compile(List<byte[]> patterns, long budget, ByteMapping mapping) {
+		int[] classes = computeClasses(patterns, mapping);
+		int width = 0;
+		for (int c : classes) {
+			width = Math.max(width, c + 1);
+		}
+		long states = countStates(patterns);
+		if (states * width * ENTRY_SIZE > budget || states * width > Integer.MAX_VALUE) {
+			return null;
+		}
+		int[] transitions = new int[(int) states * width];
+		int[] depths = new int[(int) states];
+		int[] terminals = new int[(int) states];
+		fill(terminals, -1);
+
+		int next = ROOT + 1;
+		for (int i = 0; i < patterns.size(); i++) {
+			int state = ROOT;
+			for (byte b : patterns.get(i)) {
+				int index = state * width + classes[b & 0xff];
+				if (transitions[index] == ROOT) {
+					transitions[index] = next;
+					depths[next] = depths[state] + 1;
+					next++;
+				}
+				state = transitions[index];
+			}
+			if (terminals[state] < 0) {
+				terminals[state] = i;
+			}
+		}
+
+		Integer[][] attachments = new Integer[(int) states][];
+		int[] fallbacks = new int[(int) states];
+		int[] queue = new int[(int) states];
+		int head = 0;
+		int tail = 0;
+		attachments[ROOT] = attach(terminals[ROOT], new Integer[0]);
+		for (int c = 0; c < width; c++) {
+			int child = transitions[c];
+			if (child != ROOT) {
+				fallbacks[child] = ROOT;
+				queue[tail++] = child;
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int fallback = fallbacks[state];
+			attachments[state] = attach(terminals[state], attachments[fallback]);
+			for (int c = 0; c < width; c++) {
+				int index = state * width + c;
+				int child = transitions[index];
+				int fallbackChild = transitions[fallback * width + c];
+				if (child != ROOT) {
+					fallbacks[child] = fallbackChild;
+					queue[tail++] = child;
+				} else {
+					transitions[index] = fallbackChild;
+				}
+			}
+		}
+		return new ByteDFA(classes, width, transitions, depths, terminals, attachments);
+	}
+
+	private static int[] computeClasses(List<byte[]> patterns, ByteMapping mapping) {
+		int[] classes = new int[256];
+		int next = 1;
+		for (byte[] pattern : patterns) {
+			for (byte b : pattern) {
+				if (classes[b & 0xff] == 0) {
+					classes[b & 0xff] = next;
+					next++;
+				}
+			}
+		}
+		if (mapping != ByteMapping.IDENTITY) {
+			for (int i = 0; i < classes.length; i++) {
+				classes[i] = classes[mapping.normalized((byte) i) & 0xff];
+			}
+		}
+		return classes;
+	}
+
+	private static long countStates(List<byte[]> patterns) {
+		byte[][] sorted = patterns.toArray(new byte[0][]);
+		Arrays.sort(sorted, new Comparator<byte[]>() {
+
+			@Override
+			public int compare(byte[] b1, byte[] b2) {
+				int length = Math.min(b1.length, b2.length);
+				for (int i = 0; i < length; i++) {
+					int compare = Integer.compare(b1[i] & 0xff, b2[i] & 0xff);
+					if (compare != 0) {
+						return compare;
+					}
+				}
+				return Integer.compare(b1.length, b2.length);
+			}
+		});
+		long states = 1;
+		byte[] last = new byte[0];
+		for (byte[] pattern : sorted) {
+			int common = 0;
+			while (common < last.length && common < pattern.length && last[common] == pattern[common]) {
+				common++;
+			}
+			states += pattern.length - common;
+			last = pattern;
+		}
+		return states;
+	}
+
+	private static Integer[] attach(int terminal, Integer[] fallbackAttachments) {
+		if (terminal < 0) {
+			return fallbackAttachments;
+		}
+		Integer[] attachments = new Integer[fallbackAttachments.length + 1];
+		attachments[0] = terminal;
+		System.arraycopy(fallbackAttachments, 0, attachments, 1, fallbackAttachments.length);
+		return attachments;
+	}
+
+	/**
+	 * @return the number of states of this automaton
+	 */
+	public int size() {
+		return depths.length;
+	}
+
+	@Override
+	public ByteAutomaton<Integer> cursor() {
+		return new Cursor();
+	}
+
+	@Override
+	public boolean contains(byte[] bytes) {
+		return find(bytes) != null;
+	}
+
+	@Override
+	public Integer find(byte[] bytes) {
+		int state = ROOT;
+		for (byte b : bytes) {
+			int next = transitions[state * width + classes[b & 0xff]];
+			if (depths[next] != depths[state] + 1) {
+				return null;
+			}
+			state = next;
+		}
+		if (terminals[state] < 0) {
+			return null;
+		}
+		return terminals[state];
+	}
+
+	private class Cursor implements ByteAutomaton<Integer> {
+
+		private int state;
+		private AttachmentIterator iterator;
+
+		public Cursor() {
+			this.state = ROOT;
+			this.iterator = new AttachmentIterator();
+		}
+
+		@Override
+		public Iterator<Integer> iterator() {
+			iterator.init(attachments[state]);
+			return iterator;
+		}
+
+		@Override
+		public void reset() {
+			state = ROOT;
+		}
+
+		@Override
+		public boolean lookahead(byte b) {
+			int next = transitions[state * width + classes[b & 0xff]];
+			return next != ROOT && depths[next] == depths[state] + 1;
+		}
+
+		@Override
+		public boolean accept(byte b) {
+			state = transitions[state * width + classes[b & 0xff]];
+			return state != ROOT;
+		}
+
+		@Override
+		public boolean hasAttachments() {
+			return attachments[state].length > 0;
+		}
+
+	}
+
+	private static class AttachmentIterator implements Iterator<Integer> {
+
+		private Integer[] attachments;
+		private int next;
+
+		public void init(Integer[] attachments) {
+			this.attachments = attachments;
+			this.next = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < attachments.length;
+		}
+
+		@Override
+		public Integer next() {
+			if (next >= attachments.length) {
+				throw new NoSuchElementException();
+			}
+			return attachments[next++];
+		}
+
+	}
+
+}
@@ -0,0 +1,77 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * maps bytes to classes of equivalent bytes (the byte counterpart of CharMapping).
+ * 
+ * Each class has a representative (the normalized byte). Algorithms supporting byte classes (see SupportsByteClasses)
+ * compile the normalized patterns and extend their tables (shift tables, bit masks, transition tables) to all bytes
+ * of a class, such that the document bytes need not be normalized while searching.
+ */
+public interface ByteMapping {
+
+	public static final ByteMapping IDENTITY = new ByteMapping() {
+
+		@Override
+		public byte[] map(byte b) {
+			return new byte[] { b };
+		}
+
+		@Override
+		public byte normalized(byte b) {
+			return b;
+		}
+
+		@Override
+		public byte[] normalized(byte[] bytes) {
+			return bytes;
+		}
+
+		@Override
+		public List<byte[]> normalized(List<byte[]> patterns) {
+			return patterns;
+		}
+	};
+
+	/**
+	 * @param b the byte
+	 * @return all bytes equivalent to b (including b)
+	 */
+	byte[] map(byte b);
+
+	/**
+	 * @param b the byte
+	 * @return the representative of the class of b
+	 */
+	byte normalized(byte b);
+
+	default byte[] normalized(byte[] bytes) {
+		byte[] normalized = new byte[bytes.length];
+		for (int i = 0; i < normalized.length; i++) {
+			normalized[i] = normalized(bytes[i]);
+		}
+		return normalized;
+	}
+
+	default List<byte[]> normalized(List<byte[]> patterns) {
+		List<byte[]> normalized = new ArrayList<>(patterns.size());
+		for (byte[] pattern : patterns) {
+			normalized.add(normalized(pattern));
+		}
+		return normalized;
+	}
+
+	/**
+	 * @return the representatives of all bytes (indexed by the unsigned byte value)
+	 */
+	default byte[] table() {
+		byte[] table = new byte[256];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = normalized((byte) i);
+		}
+		return table;
+	}
+
+}
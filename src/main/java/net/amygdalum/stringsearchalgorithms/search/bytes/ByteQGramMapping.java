@@ -0,0 +1,76 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import net.amygdalum.util.text.MappingException;
+
+/**
+ * maps q-grams of bytes to int codes (the q-gram counterpart of QGramMapping for bytes).
+ *
+ * Each byte of a q-gram contributes its lowest bits to the code, so q * bits must not exceed 31. Different q-grams
+ * may share a code (which is safe for filtering algorithms that verify their candidates).
+ */
+public class ByteQGramMapping {
+
+	private int q;
+	private int bits;
+	private int mask;
+
+	public ByteQGramMapping(int q, int bits) {
+		if (bits < 1 || bits > 8 || q < 1 || q * bits > 31) {
+			throw new IllegalArgumentException("q-grams of " + q + " bytes with " + bits + " bits per byte cannot be mapped to int");
+		}
+		this.q = q;
+		this.bits = bits;
+		this.mask = (1 << bits) - 1;
+	}
+
+	public int getQ() {
+		return q;
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	/**
+	 * @param code the code of the preceding bytes of a q-gram
+	 * @param b the next byte of the q-gram
+	 * @return the code of the q-gram extended by b
+	 */
+	public int next(int code, byte b) {
+		return code << bits | b & mask;
+	}
+
+	public int map(byte[] bytes) {
+		if (bytes.length != q) {
+			throw new MappingException();
+		}
+		return map(bytes, 0);
+	}
+
+	public int map(byte[] bytes, int pos) {
+		if (pos + q > bytes.length) {
+			throw new MappingException();
+		}
+		int code = 0;
+		for (int i = pos; i < pos + q; i++) {
+			code = next(code, bytes[i]);
+		}
+		return code;
+	}
+
+	/**
+	 * @param bytes the bytes
+	 * @return the codes of all q-grams of bytes (in the order of their positions)
+	 */
+	public int[] iterate(byte[] bytes) {
+		if (bytes.length < q) {
+			throw new MappingException();
+		}
+		int[] qgrams = new int[bytes.length - q + 1];
+		for (int i = 0; i < qgrams.length; i++) {
+			qgrams[i] = map(bytes, i);
+		}
+		return qgrams;
+	}
+
+}
@@ -0,0 +1,83 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import java.nio.ByteBuffer;
+
+import net.amygdalum.stringsearchalgorithms.io.DirectByteProvider;
+import net.amygdalum.stringsearchalgorithms.search.FrequencyModel;
+
+/**
+ * scans a DirectByteProvider for a single byte, reading 8 bytes at once (SWAR: SIMD within a register).
+ *
+ * Single pattern algorithms use this scan to locate candidates for the rarest byte of the pattern (estimated by
+ * FrequencyModel.DEFAULT) and verify the pattern only at these candidates.
+ */
+final class ByteScan {
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+
+	private ByteScan() {
+	}
+
+	/**
+	 * @param pattern the pattern
+	 * @return the index of the byte of the pattern that is (estimated) least frequent in documents
+	 */
+	public static int rarest(byte[] pattern) {
+		if (pattern.length == 0) {
+			return 0;
+		}
+		return FrequencyModel.DEFAULT.rarest(pattern)[0];
+	}
+
+	/**
+	 * @param pattern the (normalized) pattern
+	 * @param mapping the byte classes of the pattern
+	 * @return the index of the least frequent byte of the pattern that has no equivalent bytes or -1 if there is none
+	 */
+	public static int rarest(byte[] pattern, ByteMapping mapping) {
+		if (mapping == ByteMapping.IDENTITY) {
+			return rarest(pattern);
+		}
+		for (int i : FrequencyModel.DEFAULT.rarest(pattern)) {
+			if (mapping.map(pattern[i]).length == 1) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param bytes the document
+	 * @param b the byte to search
+	 * @param from the first position to search (inclusive)
+	 * @param to the last position to search (exclusive, must not be beyond the size of the document)
+	 * @return the first position of b in [from, to) or -1 if b does not occur
+	 */
+	public static long indexOf(DirectByteProvider bytes, byte b, long from, long to) {
+		long pattern = (b & 0xffL) * ONES;
+		while (from < to) {
+			ByteBuffer buffer = bytes.buffer(from);
+			long start = bytes.bufferStart(from);
+			int i = (int) (from - start);
+			int limit = (int) Math.min(to - start, buffer.limit());
+			while (i + 8 <= limit) {
+				long word = buffer.getLong(i) ^ pattern;
+				long found = (word - ONES) & ~word & HIGHS;
+				if (found != 0) {
+					return start + i + (Long.numberOfTrailingZeros(found) >>> 3);
+				}
+				i += 8;
+			}
+			while (i < limit) {
+				if (buffer.get(i) == b) {
+					return start + i;
+				}
+				i++;
+			}
+			from = start + limit;
+		}
+		return -1;
+	}
+
+}
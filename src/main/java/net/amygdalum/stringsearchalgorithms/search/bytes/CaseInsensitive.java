@@ -0,0 +1,275 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.util.io.ByteProvider;
+import net.amygdalum.util.text.ByteString;
+
+/**
+ * case insensitive search on bytes.
+ * 
+ * Bytes are folded by ASCII case, which is exact for UTF-8 (multi byte sequences never contain ASCII bytes) and for
+ * single byte charsets extending ASCII. Non ASCII letters are matched case sensitively. Other charsets (e.g. UTF-16) are
+ * rejected, because their bytes cannot be folded independently of their position.
+ * 
+ * Algorithms supporting byte classes (see SupportsByteClasses) fold their tables, all others are wrapped such that the
+ * document is folded while searching.
+ */
+public class CaseInsensitive implements StringSearchAlgorithm {
+
+	public static final ByteMapping ASCII = new ByteMapping() {
+
+		@Override
+		public byte[] map(byte b) {
+			if (b >= 'a' && b <= 'z') {
+				return new byte[] { b, (byte) (b - 'a' + 'A') };
+			} else if (b >= 'A' && b <= 'Z') {
+				return new byte[] { (byte) (b - 'A' + 'a'), b };
+			} else {
+				return new byte[] { b };
+			}
+		}
+
+		@Override
+		public byte normalized(byte b) {
+			if (b >= 'A' && b <= 'Z') {
+				return (byte) (b - 'A' + 'a');
+			}
+			return b;
+		}
+
+	};
+
+	private StringSearchAlgorithm algorithm;
+	private byte[] table;
+
+	private CaseInsensitive(StringSearchAlgorithm algorithm, ByteMapping mapping) {
+		this.algorithm = algorithm;
+		this.table = mapping.table();
+	}
+
+	public StringSearchAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * @param charset the charset of patterns and documents
+	 * @return the case folding mapping for this charset
+	 * @throws IllegalArgumentException if the bytes of this charset cannot be folded
+	 */
+	public static ByteMapping mapping(Charset charset) {
+		if (!isAsciiCompatible(charset)) {
+			throw new IllegalArgumentException("bytes of charset " + charset + " cannot be folded by case");
+		}
+		return ASCII;
+	}
+
+	private static boolean isAsciiCompatible(Charset charset) {
+		if (charset.equals(UTF_8) || charset.equals(US_ASCII)) {
+			return true;
+		}
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() > 1) {
+			return false;
+		}
+		byte[] ascii = new byte[128];
+		for (int i = 0; i < ascii.length; i++) {
+			ascii[i] = (byte) i;
+		}
+		return new String(ascii, charset).equals(new String(ascii, US_ASCII));
+	}
+
+	public static StringSearchAlgorithmFactory caseInsensitive(StringSearchAlgorithmFactory factory, Charset charset) {
+		ByteMapping mapping = mapping(charset);
+		if (factory instanceof SupportsByteClasses) {
+			((SupportsByteClasses) factory).enableByteClasses(mapping);
+			return factory;
+		} else {
+			return new Factory(factory, mapping);
+		}
+	}
+
+	public static MultiStringSearchAlgorithmFactory caseInsensitive(MultiStringSearchAlgorithmFactory factory, Charset charset) {
+		ByteMapping mapping = mapping(charset);
+		if (factory instanceof SupportsByteClasses) {
+			((SupportsByteClasses) factory).enableByteClasses(mapping);
+			return factory;
+		} else {
+			return new MultiFactory(factory, mapping);
+		}
+	}
+
+	private static String lowerAscii(String pattern) {
+		char[] chars = pattern.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			char c = chars[i];
+			if (c >= 'A' && c <= 'Z') {
+				chars[i] = (char) (c - 'A' + 'a');
+			}
+		}
+		return new String(chars);
+	}
+
+	@Override
+	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
+		return algorithm.createFinder(new NormalizingByteProvider(bytes, table), options);
+	}
+
+	@Override
+	public int getPatternLength() {
+		return algorithm.getPatternLength();
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory {
+
+		private StringSearchAlgorithmFactory factory;
+		private ByteMapping mapping;
+
+		private Factory(StringSearchAlgorithmFactory factory, ByteMapping mapping) {
+			this.factory = factory;
+			this.mapping = mapping;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new CaseInsensitive(factory.of(lowerAscii(pattern)), mapping);
+		}
+
+	}
+
+	public static class MultiFactory implements MultiStringSearchAlgorithmFactory {
+
+		private MultiStringSearchAlgorithmFactory factory;
+		private ByteMapping mapping;
+
+		private MultiFactory(MultiStringSearchAlgorithmFactory factory, ByteMapping mapping) {
+			this.factory = factory;
+			this.mapping = mapping;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(Collection<String> patterns) {
+			List<String> lc = new ArrayList<>(patterns.size());
+			for (String pattern : patterns) {
+				lc.add(lowerAscii(pattern));
+			}
+			return new CaseInsensitive(factory.of(lc), mapping);
+		}
+
+	}
+
+	private static class NormalizingByteProvider implements ByteProvider {
+
+		private ByteProvider bytes;
+		private byte[] table;
+
+		public NormalizingByteProvider(ByteProvider bytes, byte[] table) {
+			this.bytes = bytes;
+			this.table = table;
+		}
+
+		@Override
+		public byte next() {
+			return table[bytes.next() & 0xff];
+		}
+
+		@Override
+		public byte lookahead() {
+			return table[bytes.lookahead() & 0xff];
+		}
+
+		@Override
+		public byte lookahead(int i) {
+			return table[bytes.lookahead(i) & 0xff];
+		}
+
+		@Override
+		public byte prev() {
+			return table[bytes.prev() & 0xff];
+		}
+
+		@Override
+		public byte lookbehind() {
+			return table[bytes.lookbehind() & 0xff];
+		}
+
+		@Override
+		public byte lookbehind(int i) {
+			return table[bytes.lookbehind(i) & 0xff];
+		}
+
+		@Override
+		public long current() {
+			return bytes.current();
+		}
+
+		@Override
+		public void move(long i) {
+			bytes.move(i);
+		}
+
+		@Override
+		public byte[] between(long start, long end) {
+			byte[] between = bytes.between(start, end);
+			byte[] normalized = new byte[between.length];
+			for (int i = 0; i < normalized.length; i++) {
+				normalized[i] = table[between[i] & 0xff];
+			}
+			return normalized;
+		}
+
+		@Override
+		public ByteString slice(long start, long end) {
+			return bytes.slice(start, end);
+		}
+
+		@Override
+		public void forward(int i) {
+			bytes.forward(i);
+		}
+
+		@Override
+		public void finish() {
+			bytes.finish();
+		}
+
+		@Override
+		public boolean finished() {
+			return bytes.finished();
+		}
+
+		@Override
+		public boolean finished(int i) {
+			return bytes.finished(i);
+		}
+
+		@Override
+		public byte at(long i) {
+			return table[bytes.at(i) & 0xff];
+		}
+
+		@Override
+		public void mark() {
+			bytes.mark();
+		}
+
+		@Override
+		public boolean changed() {
+			return bytes.changed();
+		}
+
+		@Override
+		public String toString() {
+			return bytes.toString();
+		}
+
+	}
+
+}
@@ -5,7 +5,7 @@ import static net.amygdalum.util.text.ByteEncoding.encode;
 
 import java.nio.charset.Charset;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -65,13 +65,13 @@ public class KnuthMorrisPratt implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private class Finder extends AbstractStringFinder {
+	private class Finder extends SingleStringFinder {
 
 		private ByteProvider bytes;
 		private int patternPointer;
 
 		public Finder(ByteProvider bytes, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.bytes = bytes;
 			this.patternPointer = 0;
 		}
@@ -85,7 +85,7 @@ public class KnuthMorrisPratt implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished()) {
 				byte nextByte = bytes.next();
 				while (patternPointer > -1 && pattern[patternPointer] != nextByte) {
@@ -93,17 +93,19 @@ public class KnuthMorrisPratt implements StringSearchAlgorithm {
 				}
 				patternPointer++;
 				if (patternPointer >= patternLength) {
-					StringMatch match = createMatch();
+					long start = bytes.current() - patternPointer;
 					patternPointer = next[patternPointer];
-					return match;
+					return start;
 				}
 			}
-			return null;
+			return -1;
 		}
 
-		private StringMatch createMatch() {
-			long end = bytes.current();
-			long start = end - patternPointer;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
 			ByteString s = bytes.slice(start, end);
 			return new StringMatch(start, end, s.getString());
 		}
@@ -0,0 +1,36 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.ByteProvider;
+
+/**
+ * a string match that slices and decodes its text from the document only on demand (i.e. on the first call to text()).
+ * 
+ * Such matches are created by finders configured with MatchOption.LAZY_TEXT. The text has to be requested while the document is still accessible at the match position.
+ */
+public class LazyStringMatch extends StringMatch {
+
+	private ByteProvider bytes;
+	private String text;
+
+	/**
+	 * @param bytes the document containing the match
+	 * @param start the start of the match
+	 * @param end the end of the match
+	 * @param pattern the index of the matched pattern
+	 */
+	public LazyStringMatch(ByteProvider bytes, long start, long end, int pattern) {
+		super(start, end, pattern);
+		this.bytes = bytes;
+	}
+
+	@Override
+	public String text() {
+		if (text == null) {
+			text = bytes.slice(start(), end()).getString();
+			bytes = null;
+		}
+		return text;
+	}
+
+}
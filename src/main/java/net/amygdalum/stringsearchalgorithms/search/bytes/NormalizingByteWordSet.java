@@ -0,0 +1,90 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import java.util.Iterator;
+
+import net.amygdalum.util.text.ByteAutomaton;
+import net.amygdalum.util.text.ByteWordSet;
+
+/**
+ * a word set of normalized words (see ByteMapping), accepting all words with the same normalization.
+ * 
+ * Tries cannot share nodes between the bytes of a class, so their cursors normalize each byte before the transition.
+ */
+class NormalizingByteWordSet<T> implements ByteWordSet<T> {
+
+	private ByteWordSet<T> words;
+	private byte[] table;
+
+	private NormalizingByteWordSet(ByteWordSet<T> words, byte[] table) {
+		this.words = words;
+		this.table = table;
+	}
+
+	public static <T> ByteWordSet<T> of(ByteWordSet<T> words, ByteMapping mapping) {
+		if (words == null || mapping == ByteMapping.IDENTITY) {
+			return words;
+		}
+		return new NormalizingByteWordSet<>(words, mapping.table());
+	}
+
+	@Override
+	public ByteAutomaton<T> cursor() {
+		return new Cursor<>(words.cursor(), table);
+	}
+
+	@Override
+	public boolean contains(byte[] bytes) {
+		return words.contains(normalized(bytes));
+	}
+
+	@Override
+	public T find(byte[] bytes) {
+		return words.find(normalized(bytes));
+	}
+
+	private byte[] normalized(byte[] bytes) {
+		byte[] normalized = new byte[bytes.length];
+		for (int i = 0; i < normalized.length; i++) {
+			normalized[i] = table[bytes[i] & 0xff];
+		}
+		return normalized;
+	}
+
+	private static class Cursor<T> implements ByteAutomaton<T> {
+
+		private ByteAutomaton<T> cursor;
+		private byte[] table;
+
+		public Cursor(ByteAutomaton<T> cursor, byte[] table) {
+			this.cursor = cursor;
+			this.table = table;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return cursor.iterator();
+		}
+
+		@Override
+		public void reset() {
+			cursor.reset();
+		}
+
+		@Override
+		public boolean lookahead(byte b) {
+			return cursor.lookahead(table[b & 0xff]);
+		}
+
+		@Override
+		public boolean accept(byte b) {
+			return cursor.accept(table[b & 0xff]);
+		}
+
+		@Override
+		public boolean hasAttachments() {
+			return cursor.hasAttachments();
+		}
+
+	}
+
+}
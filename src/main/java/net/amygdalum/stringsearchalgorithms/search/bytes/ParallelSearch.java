@@ -0,0 +1,108 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ForkJoinPool;
+
+import net.amygdalum.stringsearchalgorithms.io.ByteArrayProvider;
+import net.amygdalum.stringsearchalgorithms.io.MappedByteProvider;
+import net.amygdalum.stringsearchalgorithms.search.AbstractParallelSearch;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.util.io.ByteProvider;
+import net.amygdalum.util.io.IORuntimeException;
+
+/**
+ * searches a large document in parallel chunks with a given algorithm (see AbstractParallelSearch for the merge semantics).
+ */
+public class ParallelSearch extends AbstractParallelSearch<ParallelSearch.Source> {
+
+	private StringSearchAlgorithm algorithm;
+
+	/**
+	 * @param algorithm the algorithm to search with
+	 * @param maxPatternLength the length (in bytes) of the longest pattern of the algorithm
+	 */
+	public ParallelSearch(StringSearchAlgorithm algorithm, int maxPatternLength) {
+		this(algorithm, maxPatternLength, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	public ParallelSearch(StringSearchAlgorithm algorithm, int maxPatternLength, int chunkSize, ForkJoinPool pool) {
+		super(maxPatternLength, chunkSize, pool);
+		this.algorithm = algorithm;
+	}
+
+	public static Source source(final byte[] bytes, final Charset charset) {
+		return new Source() {
+
+			@Override
+			public long length() {
+				return bytes.length;
+			}
+
+			@Override
+			public ByteProvider provider(long start, long end) {
+				return new ByteArrayProvider(bytes, (int) start, (int) end, charset);
+			}
+		};
+	}
+
+	public static Source source(final FileChannel channel, final Charset charset) {
+		return new Source() {
+
+			@Override
+			public long length() {
+				try {
+					return channel.size();
+				} catch (IOException e) {
+					throw new IORuntimeException(e);
+				}
+			}
+
+			@Override
+			public ByteProvider provider(long start, long end) {
+				return new MappedByteProvider(channel, start, end, charset, MappedByteProvider.DEFAULT_SEGMENT_SIZE);
+			}
+		};
+	}
+
+	@Override
+	protected long length(Source source) {
+		return source.length();
+	}
+
+	@Override
+	protected Chunk createChunk(Source source, long start, long end) {
+		final ByteProvider bytes = source.provider(start, end);
+		return new Chunk() {
+
+			@Override
+			public void search(MatchSink sink, StringFinderOption... options) {
+				algorithm.search(bytes, sink, options);
+			}
+
+			@Override
+			public String text(long start, long end) {
+				return bytes.slice(start, end).getString();
+			}
+		};
+	}
+
+	/**
+	 * a document that can be split into independent chunks
+	 */
+	public interface Source {
+
+		long length();
+
+		/**
+		 * @param start the start of the chunk (inclusive)
+		 * @param end the end of the chunk (exclusive)
+		 * @return a new provider for the chunk, positions of the provider are relative to start
+		 */
+		ByteProvider provider(long start, long end);
+
+	}
+
+}
@@ -0,0 +1,721 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.util.Arrays.fill;
+import static net.amygdalum.util.text.ByteUtils.maxLength;
+import static net.amygdalum.util.text.ByteUtils.minLength;
+
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
+import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.ByteProvider;
+import net.amygdalum.util.text.ByteAutomaton;
+import net.amygdalum.util.text.ByteString;
+import net.amygdalum.util.text.ByteTrie;
+import net.amygdalum.util.text.ByteWordSet;
+import net.amygdalum.util.text.ByteWordSetBuilder;
+import net.amygdalum.util.text.StringUtils;
+import net.amygdalum.util.text.doublearraytrie.DoubleArrayByteCompactTrieCompiler;
+
+/**
+ * An implementation of the String Search Algorithm Shift-Or (or Baeza-Yates–Gonnet) on q-grams.
+ * 
+ * This algorithm takes a set of string patterns as input and generates a finder which can find any of these patterns in documents.
+ * The bytes of the document are mapped to q-grams (see {@link ByteQGramMapping}), which are the input to a (relaxed) shift-or automaton.
+ * Matches of this automaton are only candidates, which are verified with a trie.
+ */
+public class QGramShiftOr implements StringSearchAlgorithm {
+
+	private int minLength;
+	private int maxLength;
+	private int[] lengths;
+	private ByteQGramMapping qmapping;
+	private ByteWordSet<Integer> patterns;
+	private BitMapStates states;
+
+	public QGramShiftOr(Collection<String> patterns, Charset charset) {
+		this(patterns, charset, bestMapping(patterns, charset));
+	}
+
+	public QGramShiftOr(Collection<String> patterns, Charset charset, ByteQGramMapping qmapping) {
+		List<byte[]> bytepatterns = StringUtils.toByteArray(patterns, charset);
+		this.minLength = minLength(bytepatterns);
+		this.maxLength = maxLength(bytepatterns);
+		this.lengths = lengths(bytepatterns);
+		this.qmapping = qmapping;
+		this.patterns = computePatterns(bytepatterns);
+		this.states = computeStates(bytepatterns, qmapping, maxLength);
+	}
+
+	private static ByteWordSet<Integer> computePatterns(List<byte[]> bytepatterns) {
+		ByteWordSetBuilder<Integer, ByteTrie<Integer>> builder = new ByteWordSetBuilder<>(new DoubleArrayByteCompactTrieCompiler<Integer>(), new FirstPatternIndex());
+
+		for (int i = 0; i < bytepatterns.size(); i++) {
+			builder.extend(bytepatterns.get(i), i);
+		}
+
+		return builder.build();
+	}
+
+	private static int[] lengths(List<byte[]> patterns) {
+		TreeSet<Integer> lengths = new TreeSet<>();
+		for (byte[] pattern : patterns) {
+			lengths.add(pattern.length);
+		}
+		int[] lengthsArray = new int[lengths.size()];
+		int i = lengthsArray.length - 1;
+		for (int length : lengths) {
+			lengthsArray[i] = length;
+			i--;
+		}
+		return lengthsArray;
+	}
+
+	public static ByteQGramMapping bestMapping(Collection<String> patterns, Charset charset) {
+		List<byte[]> bytepatterns = StringUtils.toByteArray(patterns, charset);
+		int minByte = 0xff;
+		int maxByte = 0;
+		for (byte[] pattern : bytepatterns) {
+			for (byte b : pattern) {
+				minByte = Math.min(minByte, b & 0xff);
+				maxByte = Math.max(maxByte, b & 0xff);
+			}
+		}
+		int range = maxByte - minByte + 1;
+
+		int bits = 1;
+		for (int i = range; i > 0; i >>= 2) {
+			bits++;
+		}
+		if (bits > 8) {
+			bits = 8;
+		}
+
+		int q = minLength(bytepatterns);
+		if (q > 3) {
+			q = 3;
+		}
+
+		return new ByteQGramMapping(q, bits);
+	}
+
+	private static BitMapStates computeStates(List<byte[]> patterns, ByteQGramMapping qmapping, int maxLength) {
+		if (maxLength > 64) {
+			return new RelaxedMultiLongStates(patterns, qmapping, maxLength);
+		} else {
+			return new RelaxedSingleLongStates(patterns, qmapping);
+		}
+	}
+
+	@Override
+	public int getPatternLength() {
+		return minLength;
+	}
+
+	@Override
+	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
+		if (states.supportsSingle()) {
+			if (MatchOption.LONGEST_MATCH.in(options)) {
+				return new LongLongestFinder(bytes, options);
+			} else {
+				return new LongNextFinder(bytes, options);
+			}
+		} else {
+			if (MatchOption.LONGEST_MATCH.in(options)) {
+				return new MultiLongLongestFinder(bytes, options);
+			} else {
+				return new MultiLongNextFinder(bytes, options);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private abstract class Finder extends BufferedStringFinder {
+
+		protected int q;
+		protected int q1;
+		protected ByteProvider bytes;
+		protected ByteAutomaton<Integer> cursor;
+
+		public Finder(ByteProvider bytes, StringFinderOption... options) {
+			super(options);
+			this.q = qmapping.getQ();
+			this.q1 = qmapping.getQ() - 1;
+			this.bytes = bytes;
+			this.cursor = patterns.cursor();
+		}
+
+		protected int nextQGram() {
+			int code = 0;
+			for (int i = 0; i < q; i++) {
+				code = qmapping.next(code, bytes.lookahead(i));
+			}
+			bytes.next();
+			return code;
+		}
+
+		/**
+		 * @return the index of the pattern found at the given position or -1 if there is no such pattern
+		 */
+		protected int patternAt(long start, int len) {
+			cursor.reset();
+			for (int i = 0; i < len; i++) {
+				if (!cursor.accept(bytes.at(start + i))) {
+					return -1;
+				}
+			}
+			if (!cursor.hasAttachments()) {
+				return -1;
+			}
+			return cursor.iterator().next();
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, pattern);
+			}
+			ByteString slice = bytes.slice(start, end);
+			return new StringMatch(start, end, slice.getString(), pattern);
+		}
+
+		protected boolean firstMatchOutOfSubsumptionRange() {
+			long lastStart = lastStartFromBuffer();
+			return bytes.current() > lastStart + maxLength;
+		}
+
+	}
+
+	private abstract class LongFinder extends Finder {
+
+		protected final long finalstate;
+		protected long state;
+
+		public LongFinder(ByteProvider bytes, StringFinderOption... options) {
+			super(bytes, options);
+			this.finalstate = computeFinalState();
+			this.state = BitMapStates.ALLBITS;
+		}
+
+		private long computeFinalState() {
+			long finalstate = BitMapStates.ALLBITS;
+			for (int len : lengths) {
+				int lenQ = len - q;
+				finalstate &= ~(1l << lenQ);
+			}
+			return finalstate;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			long last = removeMatchesBefore(pos);
+			if (last > bytes.current()) {
+				bytes.move(last);
+				state = BitMapStates.ALLBITS;
+			} else {
+				long diff = bytes.current() - pos;
+				if (diff < maxLength) {
+					state |= BitMapStates.ALLBITS << diff;
+				}
+			}
+		}
+
+		protected final void pushMatches() {
+			for (int len : lengths) {
+				int lenQ = len - q;
+				if ((state | ~(1l << lenQ)) != BitMapStates.ALLBITS) {
+					long end = bytes.current() + q1;
+					long start = end - len;
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						push(start, end, pattern);
+					}
+				}
+			}
+		}
+
+		protected final boolean reportMatches(MatchSink sink) {
+			for (int len : lengths) {
+				int lenQ = len - q;
+				if ((state | ~(1l << lenQ)) != BitMapStates.ALLBITS) {
+					long end = bytes.current() + q1;
+					long start = end - len;
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						if (!sink.onMatch(start, end, pattern)) {
+							return false;
+						}
+						if (nonOverlap) {
+							skipTo(end);
+							break;
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		protected boolean isFinalState() {
+			return (state | finalstate) != BitMapStates.ALLBITS;
+		}
+
+		protected boolean isZeroState() {
+			return state == BitMapStates.ALLBITS;
+		}
+
+	}
+
+	private class LongNextFinder extends LongFinder {
+
+		public LongNextFinder(ByteProvider bytes, StringFinderOption... options) {
+			super(bytes, options);
+		}
+
+		@Override
+		protected boolean takeNext() {
+			if (!isBufferEmpty()) {
+				return takeLeftMost();
+			}
+			while (!bytes.finished(q1)) {
+				int nextQGram = nextQGram();
+				long bits = states.single(nextQGram);
+
+				state = (state << 1) | bits;
+
+				if (isFinalState()) {
+					pushMatches();
+					if (!isBufferEmpty()) {
+						return takeLeftMost();
+					}
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			while (!bytes.finished(q1)) {
+				int nextQGram = nextQGram();
+				long bits = states.single(nextQGram);
+
+				state = (state << 1) | bits;
+
+				if (isFinalState() && !reportMatches(sink)) {
+					return;
+				}
+			}
+		}
+
+	}
+
+	private class LongLongestFinder extends LongFinder {
+
+		public LongLongestFinder(ByteProvider bytes, StringFinderOption... options) {
+			super(bytes, options);
+		}
+
+		@Override
+		protected boolean takeNext() {
+			while (!bytes.finished(q1)) {
+				int nextQGram = nextQGram();
+				long bits = states.single(nextQGram);
+
+				state = (state << 1) | bits;
+
+				if (isFinalState()) {
+					pushMatches();
+				}
+				if (!isBufferEmpty()) {
+					if (isZeroState()) {
+						break;
+					} else if (firstMatchOutOfSubsumptionRange()) {
+						break;
+					}
+				}
+			}
+			return takeLongestLeftMost();
+		}
+
+	}
+
+	private abstract class MultiLongFinder extends Finder {
+
+		protected final long[] finalstate;
+		protected long[] state;
+
+		public MultiLongFinder(ByteProvider bytes, StringFinderOption... options) {
+			super(bytes, options);
+			this.finalstate = computeFinalState();
+			this.state = MultiLongBitMapStates.computeZero(maxLength);
+		}
+
+		private long[] computeFinalState() {
+			long[] finalstate = MultiLongBitMapStates.computeZero(maxLength);
+			for (int len : lengths) {
+				int lenQ = len - q;
+				int slot = ((maxLength - 1) / 64) - lenQ / 64;
+				int offset = lenQ % 64;
+				finalstate[slot] &= ~(1l << offset);
+			}
+			return finalstate;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			long last = removeMatchesBefore(pos);
+			if (last > bytes.current()) {
+				bytes.move(last);
+				fill(state, BitMapStates.ALLBITS);
+			} else {
+				long diff = bytes.current() - pos;
+				if (diff < maxLength) {
+					for (int i = state.length - 1; i >= 0; i--) {
+						if (diff <= 0) {
+							state[i] = BitMapStates.ALLBITS;
+						} else if (diff < 64) {
+							state[i] |= BitMapStates.ALLBITS << diff;
+						}
+						diff -= 64;
+					}
+				}
+			}
+		}
+
+		protected final void pushMatches() {
+			for (int len : lengths) {
+				int lenQ = len - q;
+				int lastElement = maxLength - 1;
+				int allslots = lastElement / 64;
+				int slotsFromBeginning = lenQ / 64;
+				int slot = allslots - slotsFromBeginning;
+				int offset = lenQ % 64;
+				if ((state[slot] | ~(1l << offset)) != BitMapStates.ALLBITS) {
+					long end = bytes.current() + q1;
+					long start = end - len;
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						push(start, end, pattern);
+					}
+				}
+			}
+		}
+
+		protected final boolean reportMatches(MatchSink sink) {
+			for (int len : lengths) {
+				int lenQ = len - q;
+				int lastElement = maxLength - 1;
+				int allslots = lastElement / 64;
+				int slotsFromBeginning = lenQ / 64;
+				int slot = allslots - slotsFromBeginning;
+				int offset = lenQ % 64;
+				if ((state[slot] | ~(1l << offset)) != BitMapStates.ALLBITS) {
+					long end = bytes.current() + q1;
+					long start = end - len;
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						if (!sink.onMatch(start, end, pattern)) {
+							return false;
+						}
+						if (nonOverlap) {
+							skipTo(end);
+							break;
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		protected long[] next(long[] state, long[] bits) {
+			for (int i = 0; i < state.length; i++) {
+				int j = i + 1;
+				long leastBit = j < state.length ? state[j] >>> 63 : 0l;
+				state[i] = (state[i] << 1 | leastBit) | bits[i];
+			}
+			return state;
+		}
+
+		protected boolean isFinalState() {
+			for (int i = 0; i < state.length; i++) {
+				if ((state[i] | finalstate[i]) != BitMapStates.ALLBITS) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		protected boolean isZeroState() {
+			for (int i = 0; i < state.length; i++) {
+				if (state[i] != BitMapStates.ALLBITS) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	private class MultiLongNextFinder extends MultiLongFinder {
+
+		public MultiLongNextFinder(ByteProvider bytes, StringFinderOption... options) {
+			super(bytes, options);
+		}
+
+		@Override
+		protected boolean takeNext() {
+			if (!isBufferEmpty()) {
+				return takeLeftMost();
+			}
+			while (!bytes.finished(q1)) {
+				int nextQGram = nextQGram();
+				long[] bits = states.all(nextQGram);
+
+				state = next(state, bits);
+
+				if (isFinalState()) {
+					pushMatches();
+					if (!isBufferEmpty()) {
+						return takeLeftMost();
+					}
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			while (!bytes.finished(q1)) {
+				int nextQGram = nextQGram();
+				long[] bits = states.all(nextQGram);
+
+				state = next(state, bits);
+
+				if (isFinalState() && !reportMatches(sink)) {
+					return;
+				}
+			}
+		}
+
+	}
+
+	private class MultiLongLongestFinder extends MultiLongFinder {
+
+		public MultiLongLongestFinder(ByteProvider bytes, StringFinderOption... options) {
+			super(bytes, options);
+		}
+
+		@Override
+		protected boolean takeNext() {
+			while (!bytes.finished(q1)) {
+				int nextQGram = nextQGram();
+				long[] bits = states.all(nextQGram);
+
+				state = next(state, bits);
+
+				if (isFinalState()) {
+					pushMatches();
+				}
+				if (!isBufferEmpty()) {
+					if (isZeroState()) {
+						break;
+					} else if (firstMatchOutOfSubsumptionRange()) {
+						break;
+					}
+				}
+
+			}
+			return takeLongestLeftMost();
+		}
+
+	}
+
+	private static int[][] qgrams(List<byte[]> patterns, ByteQGramMapping qmapping) {
+		int[][] qgrams = new int[patterns.size()][];
+		for (int i = 0; i < qgrams.length; i++) {
+			qgrams[i] = qmapping.iterate(patterns.get(i));
+		}
+		return qgrams;
+	}
+
+	private static int minQGram(int[][] qgrams) {
+		int min = Integer.MAX_VALUE;
+		for (int[] patternqgrams : qgrams) {
+			for (int qgram : patternqgrams) {
+				min = Math.min(min, qgram);
+			}
+		}
+		return min;
+	}
+
+	private static int maxQGram(int[][] qgrams) {
+		int max = Integer.MIN_VALUE;
+		for (int[] patternqgrams : qgrams) {
+			for (int qgram : patternqgrams) {
+				max = Math.max(max, qgram);
+			}
+		}
+		return max;
+	}
+
+	public static class Factory implements MultiStringSearchAlgorithmFactory {
+
+		private Charset charset;
+
+		public Factory() {
+			this(UTF_16LE);
+		}
+
+		public Factory(Charset charset) {
+			this.charset = charset;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(Collection<String> patterns) {
+			return new QGramShiftOr(patterns, charset);
+		}
+
+	}
+
+	public interface BitMapStates {
+
+		public static final long ALLBITS = ~0l;
+
+		boolean supportsSingle();
+
+		long single(int qc);
+
+		long[] all(int qc);
+
+	}
+
+	private abstract static class SingleLongBitMapStates implements BitMapStates {
+
+		@Override
+		public boolean supportsSingle() {
+			return true;
+		}
+
+		@Override
+		public long[] all(int qc) {
+			return new long[] { single(qc) };
+		}
+
+	}
+
+	private static class RelaxedSingleLongStates extends SingleLongBitMapStates {
+
+		private int minQGram;
+		private int maxQGram;
+		private long[] characters;
+
+		public RelaxedSingleLongStates(List<byte[]> patterns, ByteQGramMapping qmapping) {
+			int[][] qgrams = qgrams(patterns, qmapping);
+			this.minQGram = minQGram(qgrams);
+			this.maxQGram = maxQGram(qgrams);
+			this.characters = computeStates(qgrams, minQGram, maxQGram);
+		}
+
+		private static long[] computeStates(int[][] qgrams, int min, int max) {
+			long[] characters = new long[max - min + 1];
+			fill(characters, ALLBITS);
+			for (int[] patternqgrams : qgrams) {
+				for (int i = 0; i < patternqgrams.length; i++) {
+					characters[patternqgrams[i] - min] &= ~(1l << i);
+				}
+			}
+			return characters;
+		}
+
+		@Override
+		public long single(int c) {
+			if (c < minQGram || c > maxQGram) {
+				return ALLBITS;
+			}
+			return characters[c - minQGram];
+		}
+
+	}
+
+	private abstract static class MultiLongBitMapStates implements BitMapStates {
+
+		public static long[] computeZero(int length) {
+			long[] zero = new long[((length - 1) / 64) + 1];
+			fill(zero, ALLBITS);
+			return zero;
+		}
+
+		@Override
+		public boolean supportsSingle() {
+			return false;
+		}
+
+		@Override
+		public long single(int c) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	private static class RelaxedMultiLongStates extends MultiLongBitMapStates {
+
+		private int minQGram;
+		private int maxQGram;
+		private long[][] characters;
+		private long[] zero;
+
+		public RelaxedMultiLongStates(List<byte[]> patterns, ByteQGramMapping qmapping, int maxLength) {
+			int[][] qgrams = qgrams(patterns, qmapping);
+			this.minQGram = minQGram(qgrams);
+			this.maxQGram = maxQGram(qgrams);
+			this.characters = computeStates(qgrams, minQGram, maxQGram, maxLength);
+			this.zero = computeZero(maxLength);
+		}
+
+		private static long[][] computeStates(int[][] qgrams, int min, int max, int maxLength) {
+			long[][] characters = new long[max - min + 1][];
+			for (int c = min; c <= max; c++) {
+				characters[c - min] = computeZero(maxLength);
+			}
+			for (int[] patternqgrams : qgrams) {
+				for (int i = 0; i < patternqgrams.length; i++) {
+					int lastElement = maxLength - 1;
+					int neededSlots = lastElement / 64;
+					int slotsFromBeginning = i / 64;
+					int slot = neededSlots - slotsFromBeginning;
+					int offset = i % 64;
+					characters[patternqgrams[i] - min][slot] &= ~(1l << offset);
+				}
+			}
+			return characters;
+		}
+
+		@Override
+		public long[] all(int qc) {
+			if (qc < minQGram || qc > maxQGram) {
+				return zero;
+			}
+			return characters[qc - minQGram];
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.util.Arrays.fill;
+import static net.amygdalum.util.text.ByteEncoding.encode;
+
+import java.nio.charset.Charset;
+
+import net.amygdalum.stringsearchalgorithms.search.FrequencyModel;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.ByteProvider;
+import net.amygdalum.util.text.ByteString;
+
+/**
+ * An implementation of a String Search Algorithm anchored at the rarest byte of the pattern.
+ * 
+ * This algorithm takes a single pattern as input and generates a finder which can find this pattern in documents.
+ * Unlike Horspool (which always compares and shifts on the last byte of the pattern) the anchor is the position of the
+ * pattern with the rarest byte (according to a FrequencyModel of the documents). Each window is tested at the anchor
+ * first, then verified in order of ascending byte frequency, and shifted by the bad character rule for the anchor.
+ */
+public class RareAnchor implements StringSearchAlgorithm {
+
+	private byte[] pattern;
+	private int patternLength;
+	private int[] order;
+	private int anchor;
+	private ByteShift anchorShift;
+
+	public RareAnchor(String pattern, Charset charset) {
+		this(pattern, charset, FrequencyModel.DEFAULT);
+	}
+
+	public RareAnchor(String pattern, Charset charset, FrequencyModel model) {
+		this.pattern = encode(pattern, charset);
+		this.patternLength = this.pattern.length;
+		this.order = model.rarest(this.pattern);
+		this.anchor = order.length > 0 ? order[0] : 0;
+		this.anchorShift = new AnchorShift(this.pattern, anchor);
+	}
+
+	@Override
+	public int getPatternLength() {
+		return patternLength;
+	}
+
+	@Override
+	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
+		return new Finder(bytes, options);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private class Finder extends SingleStringFinder {
+
+		private ByteProvider bytes;
+
+		public Finder(ByteProvider bytes, StringFinderOption... options) {
+			super(patternLength, options);
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			if (pos > bytes.current()) {
+				bytes.move(pos);
+			}
+		}
+
+		@Override
+		protected long findNextStart() {
+			final int lookahead = patternLength - 1;
+			while (!bytes.finished(lookahead)) {
+				byte anchorByte = bytes.lookahead(anchor);
+				if (pattern[anchor] == anchorByte && verify()) {
+					long start = bytes.current();
+					bytes.forward(anchorShift.getShift(anchorByte));
+					return start;
+				}
+				bytes.forward(anchorShift.getShift(anchorByte));
+			}
+			return -1;
+		}
+
+		private boolean verify() {
+			for (int i = 1; i < order.length; i++) {
+				int position = order[i];
+				if (pattern[position] != bytes.lookahead(position)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
+			ByteString s = bytes.slice(start, end);
+			return new StringMatch(start, end, s.getString());
+		}
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory {
+
+		private Charset charset;
+		private FrequencyModel model;
+
+		public Factory() {
+			this(UTF_16LE);
+		}
+
+		public Factory(Charset charset) {
+			this(charset, FrequencyModel.DEFAULT);
+		}
+
+		public Factory(Charset charset, FrequencyModel model) {
+			this.charset = charset;
+			this.model = model;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new RareAnchor(pattern, charset, model);
+		}
+
+	}
+
+	private static class AnchorShift implements ByteShift {
+
+		private int[] byteShift;
+
+		public AnchorShift(byte[] pattern, int anchor) {
+			this.byteShift = new int[256];
+			fill(byteShift, anchor + 1);
+			for (int i = 0; i < anchor; i++) {
+				byteShift[pattern[i] & 0xff] = anchor - i;
+			}
+		}
+
+		@Override
+		public int getShift(byte b) {
+			return byteShift[b & 0xff];
+		}
+
+	}
+
+}
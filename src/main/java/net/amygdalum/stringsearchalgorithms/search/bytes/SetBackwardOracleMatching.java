@@ -3,6 +3,7 @@ package net.amygdalum.stringsearchalgorithms.search.bytes;
 import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.copyOfRange;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
 import static net.amygdalum.util.text.ByteUtils.minLength;
 import static net.amygdalum.util.text.ByteUtils.revert;
 import static net.amygdalum.util.text.StringUtils.toByteArray;
@@ -12,12 +13,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.IdentityHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -40,7 +40,7 @@ import net.amygdalum.util.text.linkeddawg.LinkedByteDawgCompiler;
  */
 public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 
-	private ByteWordSet<byte[][]> trie;
+	private ByteWordSet<Patterns> trie;
 	private int minLength;
 
 	public SetBackwardOracleMatching(Collection<String> patterns, Charset charset) {
@@ -49,14 +49,15 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		this.trie = computeTrie(bytepatterns, minLength);
 	}
 
-	private static ByteWordSet<byte[][]> computeTrie(byte[][] bytepatterns, int length) {
-		ByteWordSetBuilder<byte[][], ByteDawg<byte[][]>> builder = new ByteWordSetBuilder<>(new LinkedByteDawgCompiler<byte[][]>(), new MergePatterns());
+	private static ByteWordSet<Patterns> computeTrie(byte[][] bytepatterns, int length) {
+		ByteWordSetBuilder<Patterns, ByteDawg<Patterns>> builder = new ByteWordSetBuilder<>(new LinkedByteDawgCompiler<Patterns>(), new MergePatterns());
 
-		for (byte[] pattern : bytepatterns) {
+		for (int i = 0; i < bytepatterns.length; i++) {
+			byte[] pattern = bytepatterns[i];
 			byte[] prefix = copyOfRange(pattern, 0, length);
 			byte[] reversePrefix = revert(prefix);
 			byte[] suffix = copyOfRange(pattern, length, pattern.length);
-			builder.extend(reversePrefix, new byte[][] {prefix, suffix});
+			builder.extend(reversePrefix, new Patterns(prefix, suffix, i));
 		}
 		builder.work(new BuildOracle());
 
@@ -78,53 +79,86 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	public static class MergePatterns implements JoinStrategy<byte[][]> {
+	/**
+	 * the patterns sharing a common prefix (of minimal pattern length), the suffixes are ordered by descending length, ids contains the pattern index of each suffix (the first index if a pattern occurs more than once)
+	 */
+	public static class Patterns {
+
+		public final byte[] prefix;
+		public final byte[][] suffixes;
+		public final int[] ids;
+
+		public Patterns(byte[] prefix, byte[] suffix, int id) {
+			this(prefix, new byte[][] {suffix}, new int[] {id});
+		}
+
+		private Patterns(byte[] prefix, byte[][] suffixes, int[] ids) {
+			this.prefix = prefix;
+			this.suffixes = suffixes;
+			this.ids = ids;
+		}
+
+		public Patterns with(byte[] suffix, int id) {
+			for (byte[] existing : suffixes) {
+				if (Arrays.equals(existing, suffix)) {
+					return this;
+				}
+			}
+			byte[][] resultSuffixes = new byte[suffixes.length + 1][];
+			int[] resultIds = new int[ids.length + 1];
+			int i = 0;
+			while (i < suffixes.length && suffixes[i].length > suffix.length) {
+				i++;
+			}
+			System.arraycopy(suffixes, 0, resultSuffixes, 0, i);
+			System.arraycopy(ids, 0, resultIds, 0, i);
+			resultSuffixes[i] = suffix;
+			resultIds[i] = id;
+			if (i < suffixes.length) {
+				System.arraycopy(suffixes, i, resultSuffixes, i + 1, suffixes.length - i);
+				System.arraycopy(ids, i, resultIds, i + 1, ids.length - i);
+			}
+			return new Patterns(prefix, resultSuffixes, resultIds);
+		}
+
+	}
+
+	public static class MergePatterns implements JoinStrategy<Patterns> {
 
 		@Override
-		public byte[][] join(byte[][] existing, byte[][] next) {
+		public Patterns join(Patterns existing, Patterns next) {
 			if (existing == null) {
 				return next;
 			} else {
-				byte[][] result = new byte[existing.length + 1][];
-				byte[] insert = next[1];
-				int i = 1;
-				while (i < existing.length && existing[i].length > insert.length) {
-					i++;
-				}
-				System.arraycopy(existing, 0, result, 0, i);
-				result[i] = insert;
-				if (i < existing.length) {
-					System.arraycopy(existing, i, result, i + 1, existing.length - i);
-				}
-				return result;
+				return existing.with(next.suffixes[0], next.ids[0]);
 			}
 		}
 
 	}
 
-	public static class BuildOracle implements ByteTask<byte[][]> {
-		private Map<ByteNode<byte[][]>, ByteNode<byte[][]>> oracle;
-		private ByteNode<byte[][]> init;
+	public static class BuildOracle implements ByteTask<Patterns> {
+		private Map<ByteNode<Patterns>, ByteNode<Patterns>> oracle;
+		private ByteNode<Patterns> init;
 
 		public BuildOracle() {
 			oracle = new IdentityHashMap<>();
 		}
 
 		@Override
-		public List<ByteNode<byte[][]>> init(ByteNode<byte[][]> root) {
+		public List<ByteNode<Patterns>> init(ByteNode<Patterns> root) {
 			this.init = root;
 			return asList(root);
 		}
 
 		@Override
-		public List<ByteNode<byte[][]>> process(ByteNode<byte[][]> node) {
-			List<ByteNode<byte[][]>> nexts = new ArrayList<>();
+		public List<ByteNode<Patterns>> process(ByteNode<Patterns> node) {
+			List<ByteNode<Patterns>> nexts = new ArrayList<>();
 			for (byte b : node.getAlternatives()) {
-				ByteNode<byte[][]> current = node.nextNode(b);
+				ByteNode<Patterns> current = node.nextNode(b);
 
-				ByteNode<byte[][]> down = oracle.get(node);
+				ByteNode<Patterns> down = oracle.get(node);
 				while (down != null) {
-					ByteNode<byte[][]> next = down.nextNode(b);
+					ByteNode<Patterns> next = down.nextNode(b);
 					if (next != null) {
 						oracle.put(current, next);
 						break;
@@ -142,26 +176,26 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		}
 
 		@SuppressWarnings("unchecked")
-		private void addNextNode(ByteNode<byte[][]> node, byte b, ByteNode<byte[][]> next) {
-			((ByteConnectionAdaptor<byte[][]>) node).addNextNode(b, next);
+		private void addNextNode(ByteNode<Patterns> node, byte b, ByteNode<Patterns> next) {
+			((ByteConnectionAdaptor<Patterns>) node).addNextNode(b, next);
 		}
 	}
 
-	private static class Finder extends AbstractStringFinder {
+	private static class Finder extends BufferedStringFinder {
 
 		private final int minLength;
 		private final int lookahead;
+		private boolean longestMatch;
 		private ByteProvider bytes;
-		private ByteAutomaton<byte[][]> cursor;
-		private Queue<StringMatch> buffer;
+		private ByteAutomaton<Patterns> cursor;
 
-		public Finder(ByteWordSet<byte[][]> trie, int minLength, ByteProvider bytes, StringFinderOption... options) {
+		public Finder(ByteWordSet<Patterns> trie, int minLength, ByteProvider bytes, StringFinderOption... options) {
 			super(options);
+			this.longestMatch = LONGEST_MATCH.in(options);
 			this.minLength = minLength;
 			this.lookahead = minLength - 1;
 			this.bytes = bytes;
 			this.cursor = trie.cursor();
-			this.buffer = new LinkedList<>();
 		}
 
 		@Override
@@ -169,13 +203,13 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 			if (pos > bytes.current()) {
 				bytes.move(pos);
 			}
-			buffer.clear();
+			clear();
 		}
 
 		@Override
-		public StringMatch findNext() {
-			if (!buffer.isEmpty()) {
-				return buffer.remove();
+		protected boolean takeNext() {
+			if (!isBufferEmpty()) {
+				return nextFromBuffer();
 			}
 			next: while (!bytes.finished(lookahead)) {
 				cursor.reset();
@@ -190,24 +224,23 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 				long currentWindowEnd = currentWindowStart + minLength;
 				byte[] matchedPrefix = bytes.between(currentPos, currentWindowEnd);
 				if (success && j < 0) {
-					byte[][] patterns = cursor.iterator().next();
-					byte[] prefix = patterns[0];
-					if (Arrays.equals(prefix, matchedPrefix)) {
-						for (int i = 1; i < patterns.length; i++) {
-							byte[] suffix = patterns[i];
+					Patterns patterns = cursor.iterator().next();
+					if (Arrays.equals(patterns.prefix, matchedPrefix)) {
+						for (int i = 0; i < patterns.suffixes.length; i++) {
+							byte[] suffix = patterns.suffixes[i];
 							long currentWordEnd = currentWindowEnd + suffix.length;
 							if (!bytes.finished((int) (currentWordEnd - currentWindowStart - 1))) {
 								byte[] matchedSuffix = bytes.between(currentWindowEnd, currentWordEnd);
 								if (Arrays.equals(suffix, matchedSuffix)) {
-									buffer.add(createMatch(currentWindowStart, currentWordEnd));
+									push(currentWindowStart, currentWordEnd, patterns.ids[i]);
 								}
 							}
 						}
 						bytes.next();
-						if (buffer.isEmpty()) {
+						if (isBufferEmpty()) {
 							continue next;
 						} else {
-							return buffer.remove();
+							return nextFromBuffer();
 						}
 					}
 
@@ -218,12 +251,79 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 					bytes.forward(j + 1);
 				}
 			}
-			return null;
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (longestMatch) {
+				super.findAll(sink);
+				return;
+			}
+			if (!flush(sink)) {
+				return;
+			}
+			while (!bytes.finished(lookahead)) {
+				cursor.reset();
+				int j = lookahead;
+				boolean success = true;
+				while (j >= 0 && success) {
+					success = cursor.accept(bytes.lookahead(j));
+					j--;
+				}
+				if (success && j < 0) {
+					long currentWindowStart = bytes.current();
+					long currentWindowEnd = currentWindowStart + minLength;
+					Patterns patterns = cursor.iterator().next();
+					byte[] matchedPrefix = bytes.between(currentWindowStart, currentWindowEnd);
+					if (Arrays.equals(patterns.prefix, matchedPrefix)) {
+						long skip = -1;
+						for (int i = patterns.suffixes.length - 1; i >= 0; i--) {
+							byte[] suffix = patterns.suffixes[i];
+							long currentWordEnd = currentWindowEnd + suffix.length;
+							if (!bytes.finished((int) (currentWordEnd - currentWindowStart - 1))) {
+								byte[] matchedSuffix = bytes.between(currentWindowEnd, currentWordEnd);
+								if (Arrays.equals(suffix, matchedSuffix)) {
+									if (!sink.onMatch(currentWindowStart, currentWordEnd, patterns.ids[i])) {
+										return;
+									}
+									if (nonOverlap) {
+										skip = currentWordEnd;
+										break;
+									}
+								}
+							}
+						}
+						bytes.next();
+						if (skip >= 0) {
+							skipTo(skip);
+						}
+						continue;
+					}
+				}
+				if (j <= 0) {
+					bytes.next();
+				} else {
+					bytes.forward(j + 1);
+				}
+			}
 		}
 
-		private StringMatch createMatch(long start, long end) {
+		private boolean nextFromBuffer() {
+			if (longestMatch) {
+				return takeLongestLeftMost();
+			} else {
+				return takeLeftMost();
+			}
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, pattern);
+			}
 			ByteString s = bytes.slice(start, end);
-			return new StringMatch(start, end, s.getString());
+			return new StringMatch(start, end, s.getString(), pattern);
 		}
 
 	}
@@ -12,6 +12,8 @@ import java.util.Collection;
 import java.util.List;
 
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -32,28 +34,32 @@ import net.amygdalum.util.text.doublearraytrie.DoubleArrayByteCompactTrieCompile
  */
 public class SetHorspool implements StringSearchAlgorithm {
 
-	private ByteWordSet<ByteString> trie;
+	private ByteWordSet<Integer> trie;
 	private int minLength;
 	private int maxLength;
 	private ByteShift byteShift;
 
 	public SetHorspool(Collection<String> patterns, Charset charset) {
-		List<byte[]> bytepatterns = StringUtils.toByteArray(patterns, charset);
-		this.trie = computeTrie(bytepatterns, charset);
+		this(patterns, charset, ByteMapping.IDENTITY);
+	}
+
+	public SetHorspool(Collection<String> patterns, Charset charset, ByteMapping mapping) {
+		List<byte[]> bytepatterns = mapping.normalized(StringUtils.toByteArray(patterns, charset));
+		this.trie = NormalizingByteWordSet.of(computeTrie(bytepatterns), mapping);
 		this.minLength = minLength(bytepatterns);
 		this.maxLength = maxLength(bytepatterns);
-		this.byteShift = computeByteShift(bytepatterns, minLength);
+		this.byteShift = computeByteShift(bytepatterns, minLength, mapping);
 	}
 
-	private ByteShift computeByteShift(List<byte[]> bytepatterns, int minLength) {
-		return new QuickShift(bytepatterns, minLength);
+	private ByteShift computeByteShift(List<byte[]> bytepatterns, int minLength, ByteMapping mapping) {
+		return new QuickShift(bytepatterns, minLength, mapping);
 	}
 
-	private static ByteWordSet<ByteString> computeTrie(List<byte[]> bytepatterns, Charset charset) {
-		ByteWordSetBuilder<ByteString, ByteTrie<ByteString>> builder = new ByteWordSetBuilder<>(new DoubleArrayByteCompactTrieCompiler<ByteString>());
+	private static ByteWordSet<Integer> computeTrie(List<byte[]> bytepatterns) {
+		ByteWordSetBuilder<Integer, ByteTrie<Integer>> builder = new ByteWordSetBuilder<>(new DoubleArrayByteCompactTrieCompiler<Integer>(), new FirstPatternIndex());
 
-		for (byte[] pattern : bytepatterns) {
-			builder.extend(revert(pattern), new ByteString(pattern, charset));
+		for (int i = 0; i < bytepatterns.size(); i++) {
+			builder.extend(revert(bytepatterns.get(i)), i);
 		}
 
 		return builder.build();
@@ -84,9 +90,10 @@ public class SetHorspool implements StringSearchAlgorithm {
 		protected final int maxLength;
 		protected final ByteShift byteShift;
 		protected ByteProvider bytes;
-		protected ByteAutomaton<ByteString> cursor;
+		protected long border;
+		protected ByteAutomaton<Integer> cursor;
 
-		public Finder(ByteWordSet<ByteString> trie, int minLength, int maxLength, ByteShift byteShift, ByteProvider bytes, StringFinderOption... options) {
+		public Finder(ByteWordSet<Integer> trie, int minLength, int maxLength, ByteShift byteShift, ByteProvider bytes, StringFinderOption... options) {
 			super(options);
 			this.minLength = minLength;
 			this.maxLength = maxLength;
@@ -97,28 +104,67 @@ public class SetHorspool implements StringSearchAlgorithm {
 
 		@Override
 		public void skipTo(long pos) {
+			if (pos > border) {
+				border = pos;
+			}
 			long last = removeMatchesBefore(pos);
 			if (last > bytes.current()) {
 				bytes.move(last);
 			}
 		}
 
-		protected StringMatch createMatch(long start, long end) {
+		@Override
+		protected void push(long start, long end, int pattern) {
+			if (start < border) {
+				return;
+			}
+			super.push(start, end, pattern);
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, pattern);
+			}
 			ByteString slice = bytes.slice(start, end);
-			return new StringMatch(start, end, slice.getString());
+			return new StringMatch(start, end, slice.getString(), pattern);
+		}
+
+		/**
+		 * reports the matches of one window (all ending at pos + minLength) in the order of their starts
+		 */
+		protected boolean report(MatchSink sink, long pos, int[] pointers, int[] patterns, int found) {
+			long end = pos + minLength;
+			for (int i = found - 1; i >= 0; i--) {
+				long start = pos + pointers[i];
+				if (start < border) {
+					continue;
+				}
+				if (!sink.onMatch(start, end, patterns[i])) {
+					return false;
+				}
+				if (nonOverlap) {
+					border = end;
+					if (end > bytes.current()) {
+						bytes.move(end);
+					}
+					break;
+				}
+			}
+			return true;
 		}
 	}
 
 	private static class NextMatchFinder extends Finder {
 
-		public NextMatchFinder(ByteWordSet<ByteString> trie, int minLength, int maxLength, ByteShift byteShift, ByteProvider bytes, StringFinderOption... options) {
+		public NextMatchFinder(ByteWordSet<Integer> trie, int minLength, int maxLength, ByteShift byteShift, ByteProvider bytes, StringFinderOption... options) {
 			super(trie, minLength, maxLength, byteShift, bytes, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
 			}
 			int lookahead = minLength - 1;
 			while (!bytes.finished(lookahead)) {
@@ -130,10 +176,10 @@ public class SetHorspool implements StringSearchAlgorithm {
 				boolean success = cursor.accept(current);
 				while (success) {
 					if (cursor.hasAttachments()) {
-						ByteString match = cursor.iterator().next();
+						int pattern = cursor.iterator().next();
 						long start = bytes.current() + patternPointer;
-						long end = bytes.current() + patternPointer + match.length();
-						push(createMatch(start, end));
+						long end = bytes.current() + minLength;
+						push(start, end, pattern);
 					}
 					patternPointer--;
 					if (pos + patternPointer < 0) {
@@ -143,22 +189,57 @@ public class SetHorspool implements StringSearchAlgorithm {
 				}
 				bytes.forward(byteShift.getShift(current));
 				if (!isBufferEmpty()) {
-					return leftMost();
+					return takeLeftMost();
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			int[] pointers = new int[maxLength];
+			int[] patterns = new int[maxLength];
+			int lookahead = minLength - 1;
+			while (!bytes.finished(lookahead)) {
+				int patternPointer = lookahead;
+				long pos = bytes.current();
+				byte current = bytes.lookahead(patternPointer);
+
+				int found = 0;
+				cursor.reset();
+				boolean success = cursor.accept(current);
+				while (success) {
+					if (cursor.hasAttachments()) {
+						pointers[found] = patternPointer;
+						patterns[found] = cursor.iterator().next();
+						found++;
+					}
+					patternPointer--;
+					if (pos + patternPointer < 0) {
+						break;
+					}
+					success = cursor.accept(bytes.lookahead(patternPointer));
+				}
+				bytes.forward(byteShift.getShift(current));
+				if (!report(sink, pos, pointers, patterns, found)) {
+					return;
 				}
 			}
-			return null;
 		}
 
 	}
 
 	private static class LongestMatchFinder extends Finder {
 
-		public LongestMatchFinder(ByteWordSet<ByteString> trie, int minLength, int maxLength, ByteShift byteShift, ByteProvider bytes, StringFinderOption... options) {
+		public LongestMatchFinder(ByteWordSet<Integer> trie, int minLength, int maxLength, ByteShift byteShift, ByteProvider bytes, StringFinderOption... options) {
 			super(trie, minLength, maxLength, byteShift, bytes, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			long lastStart = lastStartFromBuffer();
 			int lookahead = minLength - 1;
 			while (!bytes.finished(lookahead)) {
@@ -170,14 +251,13 @@ public class SetHorspool implements StringSearchAlgorithm {
 				boolean success = cursor.accept(current);
 				while (success) {
 					if (cursor.hasAttachments()) {
-						ByteString match = cursor.iterator().next();
+						int pattern = cursor.iterator().next();
 						long start = bytes.current() + patternPointer;
-						long end = bytes.current() + patternPointer + match.length();
-						StringMatch stringMatch = createMatch(start, end);
+						long end = bytes.current() + minLength;
 						if (lastStart < 0) {
 							lastStart = start;
 						}
-						push(stringMatch);
+						push(start, end, pattern);
 					}
 					patternPointer--;
 					if (pos + patternPointer < 0) {
@@ -190,19 +270,20 @@ public class SetHorspool implements StringSearchAlgorithm {
 					break;
 				}
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 		public boolean bufferContainsLongestMatch(long lastStart) {
 			return !isBufferEmpty()
-				&& bytes.current() - lastStart > maxLength;
+				&& bytes.current() - lastStart > maxLength - minLength;
 		}
 
 	}
 
-	public static class Factory implements MultiStringSearchAlgorithmFactory {
+	public static class Factory implements MultiStringSearchAlgorithmFactory, SupportsByteClasses {
 
 		private Charset charset;
+		private ByteMapping mapping;
 
 		public Factory() {
 			this(UTF_16LE);
@@ -210,11 +291,22 @@ public class SetHorspool implements StringSearchAlgorithm {
 
 		public Factory(Charset charset) {
 			this.charset = charset;
+			this.mapping = ByteMapping.IDENTITY;
+		}
+
+		@Override
+		public void enableByteClasses(ByteMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		@Override
+		public ByteMapping getByteClasses() {
+			return mapping;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
-			return new SetHorspool(patterns, charset);
+			return new SetHorspool(patterns, charset, mapping);
 		}
 
 	}
@@ -223,18 +315,20 @@ public class SetHorspool implements StringSearchAlgorithm {
 
 		private int[] byteShift;
 
-		public QuickShift(List<byte[]> bytepatterns, int minLength) {
-			this.byteShift = computeByteShift(bytepatterns, minLength);
+		public QuickShift(List<byte[]> bytepatterns, int minLength, ByteMapping mapping) {
+			this.byteShift = computeByteShift(bytepatterns, minLength, mapping);
 		}
 
-		private static int[] computeByteShift(List<byte[]> patterns, int minLength) {
+		private static int[] computeByteShift(List<byte[]> patterns, int minLength, ByteMapping mapping) {
 			int[] bytes = new int[256];
 			for (int i = 0; i < bytes.length; i++) {
 				bytes[i] = minLength;
 			}
 			for (byte[] pattern : patterns) {
 				for (int i = 0; i < pattern.length - 1; i++) {
-					bytes[pattern[i] & 0xff] = min(bytes[pattern[i] & 0xff], pattern.length - i - 1);
+					for (byte b : mapping.map(pattern[i])) {
+						bytes[b & 0xff] = min(bytes[b & 0xff], pattern.length - i - 1);
+					}
 				}
 			}
 			return bytes;
@@ -6,7 +6,7 @@ import static net.amygdalum.util.text.ByteEncoding.encode;
 
 import java.nio.charset.Charset;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -24,16 +24,20 @@ public class ShiftAnd implements StringSearchAlgorithm {
 	private BitMapStates states;
 
 	public ShiftAnd(String pattern, Charset charset) {
+		this(pattern, charset, ByteMapping.IDENTITY);
+	}
+
+	public ShiftAnd(String pattern, Charset charset, ByteMapping mapping) {
 		byte[] encoded = encode(pattern, charset);
 		this.patternLength = encoded.length;
-		this.states = computeStates(encoded);
+		this.states = computeStates(encoded, mapping);
 	}
 
-	private static BitMapStates computeStates(byte[] pattern) {
+	private static BitMapStates computeStates(byte[] pattern, ByteMapping mapping) {
 		if (pattern.length > 64) {
-			return new QuickMultiLongStates(pattern);
+			return new QuickMultiLongStates(pattern, mapping);
 		} else {
-			return new QuickSingleLongStates(pattern);
+			return new QuickSingleLongStates(pattern, mapping);
 		}
 	}
 
@@ -56,20 +60,22 @@ public class ShiftAnd implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private abstract class Finder extends AbstractStringFinder {
+	private abstract class Finder extends SingleStringFinder {
 
 		protected final long finalstate;
 		protected ByteProvider bytes;
 
 		public Finder(ByteProvider bytes, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.finalstate = 1l << ((patternLength - 1) % 64);
 			this.bytes = bytes;
 		}
 
-		protected StringMatch createMatch() {
-			long end = bytes.current();
-			long start = end - patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
 			ByteString s = bytes.slice(start, end);
 			return new StringMatch(start, end, s.getString());
 		}
@@ -94,7 +100,7 @@ public class ShiftAnd implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished()) {
 				byte nextByte = bytes.next();
 				long bits = states.single(nextByte);
@@ -102,10 +108,10 @@ public class ShiftAnd implements StringSearchAlgorithm {
 				state = (state << 1 | 1l) & bits;
 
 				if ((state & finalstate) != 0l) {
-					return createMatch();
+					return bytes.current() - patternLength;
 				}
 			}
-			return null;
+			return -1;
 		}
 
 	}
@@ -128,7 +134,7 @@ public class ShiftAnd implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished()) {
 				byte nextByte = bytes.next();
 				long[] bits = states.all(nextByte);
@@ -136,10 +142,10 @@ public class ShiftAnd implements StringSearchAlgorithm {
 				state = next(state, bits);
 
 				if ((state[0] & finalstate) != 0l) {
-					return createMatch();
+					return bytes.current() - patternLength;
 				}
 			}
-			return null;
+			return -1;
 		}
 
 		private long[] next(long[] state, long[] bits) {
@@ -153,9 +159,10 @@ public class ShiftAnd implements StringSearchAlgorithm {
 
 	}
 
-	public static class Factory implements StringSearchAlgorithmFactory {
+	public static class Factory implements StringSearchAlgorithmFactory, SupportsByteClasses {
 
 		private Charset charset;
+		private ByteMapping mapping;
 
 		public Factory() {
 			this(UTF_16LE);
@@ -163,11 +170,22 @@ public class ShiftAnd implements StringSearchAlgorithm {
 
 		public Factory(Charset charset) {
 			this.charset = charset;
+			this.mapping = ByteMapping.IDENTITY;
+		}
+
+		@Override
+		public void enableByteClasses(ByteMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		@Override
+		public ByteMapping getByteClasses() {
+			return mapping;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new ShiftAnd(pattern, charset);
+			return new ShiftAnd(pattern, charset, mapping);
 		}
 
 	}
@@ -200,15 +218,16 @@ public class ShiftAnd implements StringSearchAlgorithm {
 
 		private long[] bytes;
 
-		public QuickSingleLongStates(byte[] pattern) {
-			this.bytes = computeStates(pattern);
+		public QuickSingleLongStates(byte[] pattern, ByteMapping mapping) {
+			this.bytes = computeStates(pattern, mapping);
 		}
 
-		private static long[] computeStates(byte[] pattern) {
+		private static long[] computeStates(byte[] pattern, ByteMapping mapping) {
 			long[] bytes = new long[256];
 			for (int i = 0; i < pattern.length; i++) {
-				byte b = pattern[i];
-				bytes[b & 0xff] |= 1l << i;
+				for (byte b : mapping.map(pattern[i])) {
+					bytes[b & 0xff] |= 1l << i;
+				}
 			}
 			return bytes;
 		}
@@ -242,20 +261,21 @@ public class ShiftAnd implements StringSearchAlgorithm {
 
 		private long[][] bytes;
 
-		public QuickMultiLongStates(byte[] pattern) {
-			this.bytes = computeStates(pattern);
+		public QuickMultiLongStates(byte[] pattern, ByteMapping mapping) {
+			this.bytes = computeStates(pattern, mapping);
 		}
 
-		private static long[][] computeStates(byte[] pattern) {
+		private static long[][] computeStates(byte[] pattern, ByteMapping mapping) {
 			long[][] bytes = new long[256][];
 			for (int i = 0; i < bytes.length; i++) {
 				bytes[i] = computeZero(pattern.length);
 			}
 			for (int i = 0; i < pattern.length; i++) {
-				byte b = pattern[i];
 				int slot = ((pattern.length - 1) / 64) - i / 64;
 				int offset = i % 64;
-				bytes[b & 0xff][slot] |= 1l << offset;
+				for (byte b : mapping.map(pattern[i])) {
+					bytes[b & 0xff][slot] |= 1l << offset;
+				}
 			}
 			return bytes;
 		}
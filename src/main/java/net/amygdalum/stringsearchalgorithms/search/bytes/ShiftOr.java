@@ -6,7 +6,7 @@ import static net.amygdalum.util.text.ByteEncoding.encode;
 
 import java.nio.charset.Charset;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -24,16 +24,20 @@ public class ShiftOr implements StringSearchAlgorithm {
 	private BitMapStates states;
 
 	public ShiftOr(String pattern, Charset charset) {
+		this(pattern, charset, ByteMapping.IDENTITY);
+	}
+
+	public ShiftOr(String pattern, Charset charset, ByteMapping mapping) {
 		byte[] encoded = encode(pattern, charset);
 		this.patternLength = encoded.length;
-		this.states = computeStates(encoded);
+		this.states = computeStates(encoded, mapping);
 	}
 
-	private static BitMapStates computeStates(byte[] pattern) {
+	private static BitMapStates computeStates(byte[] pattern, ByteMapping mapping) {
 		if (pattern.length > 64) {
-			return new QuickMultiLongStates(pattern);
+			return new QuickMultiLongStates(pattern, mapping);
 		} else {
-			return new QuickSingleLongStates(pattern);
+			return new QuickSingleLongStates(pattern, mapping);
 		}
 	}
 
@@ -56,20 +60,22 @@ public class ShiftOr implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private abstract class Finder extends AbstractStringFinder {
+	private abstract class Finder extends SingleStringFinder {
 
 		protected final long finalstate;
 		protected ByteProvider bytes;
 
 		public Finder(ByteProvider bytes, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.finalstate = ~(1l << ((patternLength - 1) % 64));
 			this.bytes = bytes;
 		}
 
-		protected StringMatch createMatch() {
-			long end = bytes.current();
-			long start = end - patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
 			ByteString s = bytes.slice(start, end);
 			return new StringMatch(start, end, s.getString());
 		}
@@ -94,7 +100,7 @@ public class ShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished()) {
 				byte nextByte = bytes.next();
 				long bits = states.single(nextByte);
@@ -102,10 +108,10 @@ public class ShiftOr implements StringSearchAlgorithm {
 				state = (state << 1) | bits;
 
 				if ((state | finalstate) != BitMapStates.ALLBITS) {
-					return createMatch();
+					return bytes.current() - patternLength;
 				}
 			}
-			return null;
+			return -1;
 		}
 
 	}
@@ -129,7 +135,7 @@ public class ShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!bytes.finished()) {
 				byte nextByte = bytes.next();
 				long[] bits = states.all(nextByte);
@@ -137,10 +143,10 @@ public class ShiftOr implements StringSearchAlgorithm {
 				state = next(state, bits);
 
 				if ((state[0] | finalstate) != BitMapStates.ALLBITS) {
-					return createMatch();
+					return bytes.current() - patternLength;
 				}
 			}
-			return null;
+			return -1;
 		}
 
 		private long[] next(long[] state, long[] bits) {
@@ -154,9 +160,10 @@ public class ShiftOr implements StringSearchAlgorithm {
 
 	}
 
-	public static class Factory implements StringSearchAlgorithmFactory {
+	public static class Factory implements StringSearchAlgorithmFactory, SupportsByteClasses {
 
 		private Charset charset;
+		private ByteMapping mapping;
 
 		public Factory() {
 			this(UTF_16LE);
@@ -164,11 +171,22 @@ public class ShiftOr implements StringSearchAlgorithm {
 
 		public Factory(Charset charset) {
 			this.charset = charset;
+			this.mapping = ByteMapping.IDENTITY;
+		}
+
+		@Override
+		public void enableByteClasses(ByteMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		@Override
+		public ByteMapping getByteClasses() {
+			return mapping;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new ShiftOr(pattern, charset);
+			return new ShiftOr(pattern, charset, mapping);
 		}
 
 	}
@@ -203,16 +221,17 @@ public class ShiftOr implements StringSearchAlgorithm {
 
 		private long[] bytes;
 
-		public QuickSingleLongStates(byte[] pattern) {
-			this.bytes = computeStates(pattern);
+		public QuickSingleLongStates(byte[] pattern, ByteMapping mapping) {
+			this.bytes = computeStates(pattern, mapping);
 		}
 
-		private static long[] computeStates(byte[] pattern) {
+		private static long[] computeStates(byte[] pattern, ByteMapping mapping) {
 			long[] bytes = new long[256];
 			fill(bytes, ALLBITS);
 			for (int i = 0; i < pattern.length; i++) {
-				byte b = pattern[i];
-				bytes[b & 0xff] &= ~(1l << i);
+				for (byte b : mapping.map(pattern[i])) {
+					bytes[b & 0xff] &= ~(1l << i);
+				}
 			}
 			return bytes;
 		}
@@ -248,20 +267,21 @@ public class ShiftOr implements StringSearchAlgorithm {
 
 		private long[][] bytes;
 
-		public QuickMultiLongStates(byte[] pattern) {
-			this.bytes = computeStates(pattern);
+		public QuickMultiLongStates(byte[] pattern, ByteMapping mapping) {
+			this.bytes = computeStates(pattern, mapping);
 		}
 
-		private static long[][] computeStates(byte[] pattern) {
+		private static long[][] computeStates(byte[] pattern, ByteMapping mapping) {
 			long[][] bytes = new long[256][];
 			for (int i = 0; i < bytes.length; i++) {
 				bytes[i] = computeZero(pattern.length);
 			}
 			for (int i = 0; i < pattern.length; i++) {
-				byte b = pattern[i];
 				int slot = ((pattern.length - 1) / 64) - i / 64;
 				int offset = i % 64;
-				bytes[b & 0xff][slot] &= ~(1l << offset);
+				for (byte b : mapping.map(pattern[i])) {
+					bytes[b & 0xff][slot] &= ~(1l << offset);
+				}
 			}
 			return bytes;
 		}
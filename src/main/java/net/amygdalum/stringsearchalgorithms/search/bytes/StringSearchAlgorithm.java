@@ -1,5 +1,11 @@
 package net.amygdalum.stringsearchalgorithms.search.bytes;
 
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+
+import net.amygdalum.stringsearchalgorithms.search.MatchCounter;
+import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.util.io.ByteProvider;
@@ -19,6 +25,55 @@ public interface StringSearchAlgorithm {
 	 */
 	StringFinder createFinder(ByteProvider bytes, StringFinderOption... options);
 
+	/**
+	 * searches the pattern (given by the current instance) in the given document and reports each match to the given sink.
+	 * @param bytes the given document wrapped into a ByteProvider
+	 * @param sink the sink to report the matches to
+	 * @param options the configuration options for the string finder
+	 */
+	default void search(ByteProvider bytes, MatchSink sink, StringFinderOption... options) {
+		createFinder(bytes, options).findAll(sink);
+	}
+
+	/**
+	 * counts the matches of the pattern (given by the current instance) in the given document, no match objects are created.
+	 * LONGEST_MATCH and NON_OVERLAP are respected, since they change which (and how many) matches of multiple patterns are counted.
+	 * @param bytes the given document wrapped into a ByteProvider
+	 * @param options the configuration options for the string finder
+	 * @return the number of matches
+	 */
+	default long count(ByteProvider bytes, StringFinderOption... options) {
+		MatchCounter counter = new MatchCounter();
+		search(bytes, counter, options);
+		return counter.count();
+	}
+
+	/**
+	 * counts the matches of the patterns (given by the current instance) in the given document, per pattern and in total.
+	 * @param bytes the given document wrapped into a ByteProvider
+	 * @param histogram the array to add the matches per pattern index to (must provide a slot for each pattern)
+	 * @param options the configuration options for the string finder
+	 * @return the number of matches
+	 */
+	default long count(ByteProvider bytes, int[] histogram, StringFinderOption... options) {
+		MatchCounter counter = new MatchCounter(histogram);
+		search(bytes, counter, options);
+		return counter.count();
+	}
+
+	/**
+	 * checks whether the pattern (given by the current instance) occurs in the given document, the search stops at the first match.
+	 * LONGEST_MATCH and NON_OVERLAP do not change whether there is a match, so they are ignored (the first match needs not be extended).
+	 * @param bytes the given document wrapped into a ByteProvider
+	 * @param options the configuration options for the string finder
+	 * @return true if there is a match, false otherwise
+	 */
+	default boolean contains(ByteProvider bytes, StringFinderOption... options) {
+		MatchCounter counter = new MatchCounter(1);
+		search(bytes, counter, MatchOption.without(options, LONGEST_MATCH, NON_OVERLAP));
+		return counter.count() > 0;
+	}
+
 	/**
 	 * @return the length of the given pattern (min length in case of a multi string algorithm)
 	 */
@@ -5,7 +5,8 @@ import static net.amygdalum.util.text.ByteEncoding.encode;
 
 import java.nio.charset.Charset;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.io.DirectByteProvider;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -15,22 +16,32 @@ import net.amygdalum.util.text.ByteString;
 /**
  * An implementation of the String Search Algorithm of Sunday.
  * 
- * This algorithm takes a single pattern as input and generates a finder which can find this pattern in documents
+ * This algorithm takes a single pattern as input and generates a finder which can find this pattern in documents.
+ * Documents given as DirectByteProvider are scanned for the rarest byte of the pattern (8 bytes at once) and the pattern
+ * is only verified at these candidates (bytes with equivalent bytes in the given mapping are not used as anchor).
  */
 public class Sunday implements StringSearchAlgorithm {
 
 	private byte[] pattern;
 	private int patternLength;
+	private byte[] table;
 	private ByteShift byteShift;
+	private int anchor;
 
 	public Sunday(String pattern, Charset charset) {
-		this.pattern = encode(pattern, charset);
+		this(pattern, charset, ByteMapping.IDENTITY);
+	}
+
+	public Sunday(String pattern, Charset charset, ByteMapping mapping) {
+		this.pattern = mapping.normalized(encode(pattern, charset));
 		this.patternLength = this.pattern.length;
-		this.byteShift = computeShift(this.pattern);
+		this.table = mapping == ByteMapping.IDENTITY ? null : mapping.table();
+		this.byteShift = computeShift(this.pattern, mapping);
+		this.anchor = ByteScan.rarest(this.pattern, mapping);
 	}
 
-	private static ByteShift computeShift(byte[] pattern) {
-		return new QuickShift(pattern);
+	private static ByteShift computeShift(byte[] pattern, ByteMapping mapping) {
+		return new QuickShift(pattern, mapping);
 	}
 
 	@Override
@@ -48,13 +59,17 @@ public class Sunday implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private class Finder extends AbstractStringFinder {
+	private class Finder extends SingleStringFinder {
 
 		private ByteProvider bytes;
+		private DirectByteProvider direct;
 
 		public Finder(ByteProvider bytes, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.bytes = bytes;
+			if (bytes instanceof DirectByteProvider && patternLength > 0 && anchor >= 0) {
+				this.direct = (DirectByteProvider) bytes;
+			}
 		}
 
 		@Override
@@ -65,7 +80,13 @@ public class Sunday implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
+			if (direct != null) {
+				return findNextStartDirect();
+			}
+			if (table != null) {
+				return findNextStartMapped();
+			}
 			final int lookahead = patternLength - 1;
 			next: while (!bytes.finished(lookahead)) {
 				int patternPointer = lookahead;
@@ -84,14 +105,54 @@ public class Sunday implements StringSearchAlgorithm {
 						}
 					}
 					if (patternPointer == 0) {
-						StringMatch match = createMatch();
+						long start = bytes.current();
+						if (!bytes.finished(patternPointer + 1)) {
+							byte afterNextByte = bytes.lookahead(patternPointer + 1);
+							bytes.forward(byteShift.getShift(afterNextByte));
+						} else {
+							bytes.finish();
+						}
+						return start;
+					}
+				} else {
+					if (!bytes.finished(patternPointer + 1)) {
+						byte afterNextByte = bytes.lookahead(patternPointer + 1);
+						bytes.forward(byteShift.getShift(afterNextByte));
+					} else {
+						bytes.finish();
+					}
+				}
+			}
+			return -1;
+		}
+
+		private long findNextStartMapped() {
+			final int lookahead = patternLength - 1;
+			next: while (!bytes.finished(lookahead)) {
+				int patternPointer = lookahead;
+				byte nextByte = bytes.lookahead(patternPointer);
+				if (pattern[patternPointer] == table[nextByte & 0xff]) {
+					while (patternPointer > 0) {
+						patternPointer--;
+						if (pattern[patternPointer] != table[bytes.lookahead(patternPointer) & 0xff]) {
+							if (!bytes.finished(patternPointer + 1)) {
+								byte afterNextByte = bytes.lookahead(patternPointer + 1);
+								bytes.forward(byteShift.getShift(afterNextByte));
+							} else {
+								bytes.finish();
+							}
+							continue next;
+						}
+					}
+					if (patternPointer == 0) {
+						long start = bytes.current();
 						if (!bytes.finished(patternPointer + 1)) {
 							byte afterNextByte = bytes.lookahead(patternPointer + 1);
 							bytes.forward(byteShift.getShift(afterNextByte));
 						} else {
 							bytes.finish();
 						}
-						return match;
+						return start;
 					}
 				} else {
 					if (!bytes.finished(patternPointer + 1)) {
@@ -102,20 +163,59 @@ public class Sunday implements StringSearchAlgorithm {
 					}
 				}
 			}
-			return null;
+			return -1;
+		}
+
+		private long findNextStartDirect() {
+			long size = direct.size();
+			long pos = direct.current();
+			while (pos + patternLength <= size) {
+				long found = ByteScan.indexOf(direct, pattern[anchor], pos + anchor, size - patternLength + anchor + 1);
+				if (found < 0) {
+					break;
+				}
+				long start = found - anchor;
+				if (matchesAt(start)) {
+					direct.move(start + 1);
+					return start;
+				}
+				pos = start + 1;
+			}
+			direct.finish();
+			return -1;
+		}
+
+		private boolean matchesAt(long start) {
+			if (table == null) {
+				for (int i = 0; i < patternLength; i++) {
+					if (pattern[i] != direct.at(start + i)) {
+						return false;
+					}
+				}
+			} else {
+				for (int i = 0; i < patternLength; i++) {
+					if (pattern[i] != table[direct.at(start + i) & 0xff]) {
+						return false;
+					}
+				}
+			}
+			return true;
 		}
 
-		private StringMatch createMatch() {
-			long start = bytes.current();
-			long end = start + patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
 			ByteString s = bytes.slice(start, end);
 			return new StringMatch(start, end, s.getString());
 		}
 	}
 
-	public static class Factory implements StringSearchAlgorithmFactory {
+	public static class Factory implements StringSearchAlgorithmFactory, SupportsByteClasses {
 
 		private Charset charset;
+		private ByteMapping mapping;
 
 		public Factory() {
 			this(UTF_16LE);
@@ -123,11 +223,22 @@ public class Sunday implements StringSearchAlgorithm {
 
 		public Factory(Charset charset) {
 			this.charset = charset;
+			this.mapping = ByteMapping.IDENTITY;
+		}
+
+		@Override
+		public void enableByteClasses(ByteMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		@Override
+		public ByteMapping getByteClasses() {
+			return mapping;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new Sunday(pattern, charset);
+			return new Sunday(pattern, charset, mapping);
 		}
 
 	}
@@ -136,17 +247,19 @@ public class Sunday implements StringSearchAlgorithm {
 
 		private int[] byteShift;
 
-		public QuickShift(byte[] pattern) {
-			this.byteShift = computeByteShift(pattern);
+		public QuickShift(byte[] pattern, ByteMapping mapping) {
+			this.byteShift = computeByteShift(pattern, mapping);
 		}
 
-		private static int[] computeByteShift(byte[] pattern) {
+		private static int[] computeByteShift(byte[] pattern, ByteMapping mapping) {
 			int[] bytes = new int[256];
 			for (int i = 0; i < bytes.length; i++) {
 				bytes[i] = pattern.length + 1;
 			}
 			for (int i = 0; i < pattern.length; i++) {
-				bytes[pattern[i] & 0xff] = pattern.length - i;
+				for (byte b : mapping.map(pattern[i])) {
+					bytes[b & 0xff] = pattern.length - i;
+				}
 			}
 			return bytes;
 		}
@@ -0,0 +1,11 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+public interface SupportsByteClasses {
+
+	void enableByteClasses(ByteMapping mapping);
+
+	/**
+	 * @return the mapping of the enabled byte classes, ByteMapping.IDENTITY if byte classes are not enabled
+	 */
+	ByteMapping getByteClasses();
+}
@@ -0,0 +1,289 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.util.text.ByteUtils.minLength;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.ByteProvider;
+import net.amygdalum.util.text.ByteString;
+import net.amygdalum.util.text.StringUtils;
+
+/**
+ * An implementation of a Teddy-like packed fingerprint matcher.
+ *
+ * This algorithm takes a (small) set of string patterns as input and generates a finder which can find any of these
+ * patterns in documents. It is designed for sets of 2-64 short patterns, where shift based algorithms suffer from the
+ * short minimal length.
+ *
+ * The patterns are distributed to 8 buckets (patterns with common prefixes share a bucket). The fingerprint of a pattern
+ * are its first 1-3 bytes. All buckets and all fingerprint offsets are packed into one long (one byte lane per offset,
+ * one bit per bucket) such that each byte of the document costs one table lookup, a shift and an and to compute the
+ * buckets of all candidates ending at this byte. Only the patterns of candidate buckets are verified.
+ */
+public class Teddy implements StringSearchAlgorithm {
+
+	private static final int BUCKETS = 8;
+	private static final int MAX_FINGERPRINT = 3;
+	private static final long LANE = 0xffL;
+
+	private byte[][] patterns;
+	private int[][] buckets;
+	private long[] masks;
+	private int fingerprint;
+	private int minLength;
+
+	public Teddy(Collection<String> patterns, Charset charset) {
+		List<byte[]> bytepatterns = StringUtils.toByteArray(patterns, charset);
+		this.patterns = bytepatterns.toArray(new byte[0][]);
+		this.minLength = minLength(bytepatterns);
+		this.fingerprint = Math.max(1, Math.min(MAX_FINGERPRINT, minLength));
+		this.buckets = computeBuckets(this.patterns);
+		this.masks = computeMasks(this.patterns, buckets, fingerprint);
+	}
+
+	private static int[][] computeBuckets(final byte[][] patterns) {
+		Integer[] order = new Integer[patterns.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				int compare = compareBytes(patterns[i1], patterns[i2]);
+				if (compare == 0) {
+					compare = Integer.compare(i1, i2);
+				}
+				return compare;
+			}
+		});
+		List<List<Integer>> distinct = new ArrayList<>();
+		for (int i = 0; i < order.length; i++) {
+			if (i == 0 || compareBytes(patterns[order[i - 1]], patterns[order[i]]) != 0) {
+				distinct.add(new ArrayList<Integer>());
+			}
+			distinct.get(distinct.size() - 1).add(order[i]);
+		}
+		int count = Math.min(BUCKETS, Math.max(1, distinct.size()));
+		List<List<Integer>> bucketList = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			bucketList.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < distinct.size(); i++) {
+			bucketList.get(i * count / distinct.size()).add(distinct.get(i).get(0));
+		}
+		int[][] buckets = new int[count][];
+		for (int i = 0; i < count; i++) {
+			List<Integer> bucket = bucketList.get(i);
+			buckets[i] = new int[bucket.size()];
+			for (int j = 0; j < buckets[i].length; j++) {
+				buckets[i][j] = bucket.get(j);
+			}
+		}
+		return buckets;
+	}
+
+	private static int compareBytes(byte[] b1, byte[] b2) {
+		int length = Math.min(b1.length, b2.length);
+		for (int i = 0; i < length; i++) {
+			int compare = Integer.compare(b1[i] & 0xff, b2[i] & 0xff);
+			if (compare != 0) {
+				return compare;
+			}
+		}
+		return Integer.compare(b1.length, b2.length);
+	}
+
+	private static long[] computeMasks(byte[][] patterns, int[][] buckets, int fingerprint) {
+		long[] masks = new long[256];
+		for (int bucket = 0; bucket < buckets.length; bucket++) {
+			for (int pattern : buckets[bucket]) {
+				byte[] bytes = patterns[pattern];
+				for (int k = 0; k < fingerprint && k < bytes.length; k++) {
+					masks[bytes[k] & 0xff] |= 1L << (k * 8 + bucket);
+				}
+			}
+		}
+		return masks;
+	}
+
+	@Override
+	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
+		return new Finder(patterns, buckets, masks, fingerprint, bytes, options);
+	}
+
+	@Override
+	public int getPatternLength() {
+		return minLength;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private static class Finder extends BufferedStringFinder {
+
+		private final boolean longestMatch;
+		private final byte[][] patterns;
+		private final int[][] buckets;
+		private final long[] masks;
+		private final int fingerprint;
+		private final int candidateLane;
+		private ByteProvider bytes;
+		private long state;
+		private long border;
+		private long lastEnd;
+
+		public Finder(byte[][] patterns, int[][] buckets, long[] masks, int fingerprint, ByteProvider bytes, StringFinderOption... options) {
+			super(options);
+			this.longestMatch = LONGEST_MATCH.in(options);
+			this.patterns = patterns;
+			this.buckets = buckets;
+			this.masks = masks;
+			this.fingerprint = fingerprint;
+			this.candidateLane = (fingerprint - 1) * 8;
+			this.lastEnd = -1;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			if (pos > border) {
+				border = pos;
+			}
+			removeMatchesBefore(pos);
+			if (pos > bytes.current()) {
+				bytes.move(pos);
+				state = 0;
+			}
+		}
+
+		@Override
+		protected boolean takeNext() {
+			if (!isBufferEmpty()) {
+				return nextFromBuffer();
+			}
+			if (findCandidates()) {
+				return nextFromBuffer();
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (longestMatch) {
+				super.findAll(sink);
+				return;
+			}
+			if (!flush(sink)) {
+				return;
+			}
+			while (findCandidates()) {
+				if (!flush(sink)) {
+					return;
+				}
+			}
+		}
+
+		private boolean nextFromBuffer() {
+			if (longestMatch) {
+				boolean found = takeLongestLeftMost();
+				lastEnd = lastMatchEnd();
+				return found;
+			} else {
+				return takeLeftMost();
+			}
+		}
+
+		private boolean findCandidates() {
+			long state = this.state;
+			while (!bytes.finished()) {
+				state = ((state << 8) | LANE) & masks[bytes.next() & 0xff];
+				int candidates = (int) ((state >>> candidateLane) & LANE);
+				if (candidates != 0) {
+					long start = bytes.current() - fingerprint;
+					if (start >= border && verify(start, candidates)) {
+						this.state = state;
+						return true;
+					}
+				}
+			}
+			this.state = state;
+			return false;
+		}
+
+		private boolean verify(long start, int candidates) {
+			boolean found = false;
+			while (candidates != 0) {
+				int bucket = Integer.numberOfTrailingZeros(candidates);
+				candidates &= candidates - 1;
+				for (int pattern : buckets[bucket]) {
+					long end = start + patterns[pattern].length;
+					if (longestMatch && end <= lastEnd) {
+						continue;
+					}
+					if (matches(start, patterns[pattern])) {
+						push(start, end, pattern);
+						found = true;
+					}
+				}
+			}
+			return found;
+		}
+
+		private boolean matches(long start, byte[] pattern) {
+			if (bytes.finished((int) (start + pattern.length - 1 - bytes.current()))) {
+				return false;
+			}
+			for (int i = 0; i < pattern.length; i++) {
+				if (bytes.at(start + i) != pattern[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, pattern);
+			}
+			ByteString slice = bytes.slice(start, end);
+			return new StringMatch(start, end, slice.getString(), pattern);
+		}
+
+	}
+
+	public static class Factory implements MultiStringSearchAlgorithmFactory {
+
+		private Charset charset;
+
+		public Factory() {
+			this(UTF_16LE);
+		}
+
+		public Factory(Charset charset) {
+			this.charset = charset;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(Collection<String> patterns) {
+			return new Teddy(patterns, charset);
+		}
+
+	}
+
+}
@@ -0,0 +1,211 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static net.amygdalum.util.text.ByteEncoding.encode;
+
+import java.nio.charset.Charset;
+
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.ByteProvider;
+import net.amygdalum.util.text.ByteString;
+
+/**
+ * An implementation of the Two-Way String Search Algorithm of Crochemore and Perrin.
+ * 
+ * This algorithm takes a single pattern as input and generates a finder which can find this pattern in documents.
+ * The pattern is split at a critical factorization, the right part is compared left to right, the left part right to
+ * left. This guarantees linear time in the worst case with constant extra memory (no tables depending on the pattern
+ * length). Windows are additionally skipped by a (constant size) bad character shift on the last byte of the window,
+ * which makes the search sublinear on average.
+ */
+public class TwoWay implements StringSearchAlgorithm {
+
+	private byte[] pattern;
+	private int patternLength;
+	private int suffix;
+	private int period;
+	private boolean periodic;
+	private ByteShift byteShift;
+
+	public TwoWay(String pattern, Charset charset) {
+		this.pattern = encode(pattern, charset);
+		this.patternLength = this.pattern.length;
+		int[] maxSuffix = maxSuffix(this.pattern, false);
+		int[] maxSuffixReverse = maxSuffix(this.pattern, true);
+		int[] factorization = maxSuffix[0] > maxSuffixReverse[0] ? maxSuffix : maxSuffixReverse;
+		this.suffix = factorization[0] + 1;
+		this.periodic = isPeriodic(this.pattern, suffix, factorization[1]);
+		this.period = periodic ? factorization[1] : Math.max(suffix, patternLength - suffix) + 1;
+		this.byteShift = new LastByteShift(this.pattern);
+	}
+
+	private static int[] maxSuffix(byte[] pattern, boolean reverse) {
+		int maxSuffix = -1;
+		int j = 0;
+		int k = 1;
+		int period = 1;
+		while (j + k < pattern.length) {
+			int a = pattern[j + k] & 0xff;
+			int b = pattern[maxSuffix + k] & 0xff;
+			if (reverse ? a > b : a < b) {
+				j += k;
+				k = 1;
+				period = j - maxSuffix;
+			} else if (a == b) {
+				if (k != period) {
+					k++;
+				} else {
+					j += period;
+					k = 1;
+				}
+			} else {
+				maxSuffix = j;
+				j = maxSuffix + 1;
+				k = 1;
+				period = 1;
+			}
+		}
+		return new int[] { maxSuffix, period };
+	}
+
+	private static boolean isPeriodic(byte[] pattern, int suffix, int period) {
+		if (suffix + period > pattern.length) {
+			return false;
+		}
+		for (int i = 0; i < suffix; i++) {
+			if (pattern[i] != pattern[i + period]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int getPatternLength() {
+		return patternLength;
+	}
+
+	@Override
+	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
+		return new Finder(bytes, options);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private class Finder extends SingleStringFinder {
+
+		private ByteProvider bytes;
+		private int memory;
+
+		public Finder(ByteProvider bytes, StringFinderOption... options) {
+			super(patternLength, options);
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			if (pos > bytes.current()) {
+				bytes.move(pos);
+				memory = 0;
+			}
+		}
+
+		@Override
+		protected long findNextStart() {
+			final int last = patternLength - 1;
+			while (!bytes.finished(last)) {
+				int shift = byteShift.getShift(bytes.lookahead(last));
+				if (shift > 0) {
+					if (memory > 0 && shift < period) {
+						shift = patternLength - period;
+					}
+					memory = 0;
+					bytes.forward(shift);
+					continue;
+				}
+				int i = Math.max(suffix, memory);
+				while (i < patternLength && pattern[i] == bytes.lookahead(i)) {
+					i++;
+				}
+				if (i < patternLength) {
+					bytes.forward(i - suffix + 1);
+					memory = 0;
+					continue;
+				}
+				i = suffix - 1;
+				while (i >= memory && pattern[i] == bytes.lookahead(i)) {
+					i--;
+				}
+				long start = bytes.current();
+				bytes.forward(period);
+				boolean match = i < memory;
+				memory = periodic ? patternLength - period : 0;
+				if (match) {
+					return start;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, 0);
+			}
+			ByteString s = bytes.slice(start, end);
+			return new StringMatch(start, end, s.getString());
+		}
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory {
+
+		private Charset charset;
+
+		public Factory() {
+			this(UTF_16LE);
+		}
+
+		public Factory(Charset charset) {
+			this.charset = charset;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new TwoWay(pattern, charset);
+		}
+
+	}
+
+	private static class LastByteShift implements ByteShift {
+
+		private int[] byteShift;
+
+		public LastByteShift(byte[] pattern) {
+			this.byteShift = computeByteShift(pattern);
+		}
+
+		private static int[] computeByteShift(byte[] pattern) {
+			int[] bytes = new int[256];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = pattern.length;
+			}
+			for (int i = 0; i < pattern.length; i++) {
+				bytes[pattern[i] & 0xff] = pattern.length - i - 1;
+			}
+			return bytes;
+		}
+
+		@Override
+		public int getShift(byte b) {
+			return byteShift[b & 0xff];
+		}
+
+	}
+
+}
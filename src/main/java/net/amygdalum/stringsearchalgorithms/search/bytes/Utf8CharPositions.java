@@ -0,0 +1,264 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.ByteProvider;
+
+/**
+ * a wrapper for byte algorithms searching UTF-8 encoded documents, reporting matches with char positions (as a search
+ * on the decoded document would).
+ *
+ * The wrapped algorithm must be compiled with the charset UTF-8 (e.g. new Horspool(pattern, UTF_8) or new
+ * AhoCorasick.Factory(UTF_8)). The document is not decoded, the bytes are scanned by the wrapped algorithm and only the
+ * bytes up to reported matches are counted to translate byte positions to char positions (in UTF-16 units, i.e. a
+ * supplementary character counts as 2 chars). Char positions are counted from byte position 0 of the document.
+ *
+ * Case insensitive algorithms (see CaseInsensitive) fold ASCII bytes only. For patterns consisting of ASCII chars this
+ * equals case insensitive char search with char classes (char algorithms wrapped by chars.CaseInsensitive additionally
+ * fold the few non ASCII chars lower casing to ASCII letters, e.g. the KELVIN SIGN), so the factories accept case
+ * insensitive algorithms for ASCII patterns and reject them for other patterns. Regex algorithms exist only for chars
+ * (the patternsearch.chars package), they cannot be wrapped.
+ *
+ * With MatchOption.LAZY_TEXT the text of the reported matches is decoded from the document only on demand.
+ */
+public class Utf8CharPositions implements StringSearchAlgorithm {
+
+	private StringSearchAlgorithm algorithm;
+
+	/**
+	 * @param algorithm the algorithm to wrap
+	 * @throws IllegalArgumentException if the algorithm does not match its patterns exactly (case insensitive algorithms are only accepted by the factories, which know the patterns)
+	 */
+	public Utf8CharPositions(StringSearchAlgorithm algorithm) {
+		this(algorithm, algorithm instanceof CaseInsensitive, null);
+	}
+
+	private Utf8CharPositions(StringSearchAlgorithm algorithm, boolean caseInsensitive, Collection<String> patterns) {
+		if (caseInsensitive && (patterns == null || !isAscii(patterns))) {
+			throw new IllegalArgumentException("case insensitive algorithms can only report char positions for ASCII patterns: " + algorithm);
+		}
+		this.algorithm = algorithm;
+	}
+
+	public StringSearchAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * @param factory the factory of the algorithms to wrap
+	 * @return a factory wrapping each algorithm of the given factory (case insensitive algorithms are rejected for non ASCII patterns)
+	 */
+	public static StringSearchAlgorithmFactory charPositions(StringSearchAlgorithmFactory factory) {
+		return new Factory(factory);
+	}
+
+	/**
+	 * @param factory the factory of the algorithms to wrap
+	 * @return a factory wrapping each algorithm of the given factory (case insensitive algorithms are rejected for non ASCII patterns)
+	 */
+	public static MultiStringSearchAlgorithmFactory charPositions(MultiStringSearchAlgorithmFactory factory) {
+		return new MultiFactory(factory);
+	}
+
+	private static boolean isCaseInsensitive(Object factory) {
+		return factory instanceof CaseInsensitive.Factory
+			|| factory instanceof CaseInsensitive.MultiFactory
+			|| factory instanceof SupportsByteClasses && ((SupportsByteClasses) factory).getByteClasses() != ByteMapping.IDENTITY;
+	}
+
+	private static boolean isAscii(Collection<String> patterns) {
+		for (String pattern : patterns) {
+			for (int i = 0; i < pattern.length(); i++) {
+				if (pattern.charAt(i) >= 0x80) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
+		return new Finder(algorithm.createFinder(bytes, options), bytes, options);
+	}
+
+	/**
+	 * @return the length of the given pattern in bytes (min length in case of a multi string algorithm)
+	 */
+	@Override
+	public int getPatternLength() {
+		return algorithm.getPatternLength();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + algorithm + "]";
+	}
+
+	private static int chars(byte b) {
+		if ((b & 0xC0) == 0x80) {
+			return 0;
+		} else if ((b & 0xF8) == 0xF0) {
+			return 2;
+		} else {
+			return 1;
+		}
+	}
+
+	private static class Finder extends AbstractStringFinder {
+
+		private StringFinder finder;
+		private ByteProvider bytes;
+		private long bytePos;
+		private long charPos;
+
+		public Finder(StringFinder finder, ByteProvider bytes, StringFinderOption... options) {
+			super(options);
+			this.finder = finder;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			finder.skipTo(bytePosition(pos));
+		}
+
+		@Override
+		public StringMatch findNext() {
+			StringMatch match = finder.findNext();
+			if (match == null) {
+				return null;
+			}
+			return translate(match);
+		}
+
+		@Override
+		public List<StringMatch> findAll() {
+			List<StringMatch> matches = finder.findAll();
+			List<StringMatch> translated = new ArrayList<>(matches.size());
+			for (StringMatch match : matches) {
+				translated.add(translate(match));
+			}
+			return translated;
+		}
+
+		@Override
+		public void findAll(final MatchSink sink) {
+			finder.findAll(new MatchSink() {
+
+				@Override
+				public boolean onMatch(long start, long end, int pattern) {
+					long charStart = charPosition(start);
+					long charEnd = charPosition(end);
+					return sink.onMatch(charStart, charEnd, pattern);
+				}
+			});
+		}
+
+		private StringMatch translate(StringMatch match) {
+			long start = charPosition(match.start());
+			long end = charPosition(match.end());
+			if (lazyText) {
+				return new LazyCharPositionMatch(bytes, match.start(), match.end(), start, end, match.pattern());
+			}
+			return new StringMatch(start, end, match.text(), match.pattern());
+		}
+
+		private long charPosition(long pos) {
+			while (bytePos < pos) {
+				charPos += chars(bytes.at(bytePos));
+				bytePos++;
+			}
+			while (bytePos > pos) {
+				bytePos--;
+				charPos -= chars(bytes.at(bytePos));
+			}
+			return charPos;
+		}
+
+		private long bytePosition(long pos) {
+			while (!bytes.finished((int) (bytePos - bytes.current()))) {
+				int chars = chars(bytes.at(bytePos));
+				if (chars > 0 && charPos >= pos) {
+					break;
+				}
+				charPos += chars;
+				bytePos++;
+			}
+			while (charPos > pos) {
+				bytePos--;
+				charPos -= chars(bytes.at(bytePos));
+			}
+			return bytePos;
+		}
+
+	}
+
+	/**
+	 * a match with char positions decoding its text from the byte positions in the document only on demand.
+	 */
+	private static class LazyCharPositionMatch extends StringMatch {
+
+		private ByteProvider bytes;
+		private long byteStart;
+		private long byteEnd;
+		private String text;
+
+		public LazyCharPositionMatch(ByteProvider bytes, long byteStart, long byteEnd, long start, long end, int pattern) {
+			super(start, end, pattern);
+			this.bytes = bytes;
+			this.byteStart = byteStart;
+			this.byteEnd = byteEnd;
+		}
+
+		@Override
+		public String text() {
+			if (text == null) {
+				text = bytes.slice(byteStart, byteEnd).getString();
+				bytes = null;
+			}
+			return text;
+		}
+
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory {
+
+		private StringSearchAlgorithmFactory factory;
+
+		private Factory(StringSearchAlgorithmFactory factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new Utf8CharPositions(factory.of(pattern), isCaseInsensitive(factory), asList(pattern));
+		}
+
+	}
+
+	public static class MultiFactory implements MultiStringSearchAlgorithmFactory {
+
+		private MultiStringSearchAlgorithmFactory factory;
+
+		private MultiFactory(MultiStringSearchAlgorithmFactory factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(Collection<String> patterns) {
+			return new Utf8CharPositions(factory.of(patterns), isCaseInsensitive(factory), patterns);
+		}
+
+	}
+
+}
@@ -2,20 +2,18 @@ package net.amygdalum.stringsearchalgorithms.search.bytes;
 
 import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
-import static net.amygdalum.util.text.ByteUtils.lastIndexOf;
 import static net.amygdalum.util.text.ByteUtils.maxLength;
 import static net.amygdalum.util.text.ByteUtils.minLength;
 import static net.amygdalum.util.text.ByteUtils.revert;
 
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -33,27 +31,62 @@ import net.amygdalum.util.text.doublearraytrie.DoubleArrayByteCompactTrieCompile
  * 
  * This algorithm takes a multiple string patterns as input and generates a
  * finder which can find any of these patterns in documents.
+ * 
+ * The shift and hash tables are sized (as powers of two) by the number of
+ * pattern blocks and patterns, the block hashes are computed directly from
+ * the provider (without copying the block). Block size and table sizes may
+ * also be given explicitly for tuning.
  */
 public class WuManber implements StringSearchAlgorithm {
 
-	private static final int SHIFT_SEED = 17;
-	private static final int HASH_SEED = 23;
-	private static final int SHIFT_SIZE = 255;
-	private static final int HASH_SIZE = 127;
+	public static final int AUTO = 0;
+
+	private static final int BLOCK_SEED = 31;
+	private static final int SHIFT_SEED = 0x9e3779b9;
+	private static final int HASH_SEED = 0x85ebca6b;
+	private static final int MIN_SHIFT_SIZE = 256;
+	private static final int MAX_SHIFT_SIZE = 1 << 20;
+	private static final int MIN_HASH_SIZE = 16;
+	private static final int MAX_HASH_SIZE = 1 << 14;
 
 	private int minLength;
 	private int maxLength;
 	private int block;
 	private int[] shift;
-	private ByteWordSet<ByteString>[] hash;
+	private ByteWordSet<Integer>[] hash;
+	private byte[] table;
 
 	public WuManber(Collection<String> patterns, Charset charset) {
-		List<byte[]> bytepatterns = StringUtils.toByteArray(patterns, charset);
+		this(patterns, charset, AUTO, AUTO, AUTO);
+	}
+
+	/**
+	 * @param patterns the patterns
+	 * @param charset the charset of the patterns
+	 * @param block the block size (AUTO to compute the block size from the patterns, otherwise limited to the minimum pattern length)
+	 * @param shiftSize the size of the shift table (AUTO to size the table by the number of pattern blocks, otherwise rounded up to a power of two)
+	 * @param hashSize the size of the hash table (AUTO to size the table by the number of patterns, otherwise rounded up to a power of two)
+	 */
+	public WuManber(Collection<String> patterns, Charset charset, int block, int shiftSize, int hashSize) {
+		this(patterns, charset, block, shiftSize, hashSize, ByteMapping.IDENTITY);
+	}
+
+	/**
+	 * @param patterns the patterns
+	 * @param charset the charset of the patterns
+	 * @param block the block size (AUTO to compute the block size from the patterns, otherwise limited to the minimum pattern length)
+	 * @param shiftSize the size of the shift table (AUTO to size the table by the number of pattern blocks, otherwise rounded up to a power of two)
+	 * @param hashSize the size of the hash table (AUTO to size the table by the number of patterns, otherwise rounded up to a power of two)
+	 * @param mapping the byte classes (blocks are hashed by the representatives of their bytes)
+	 */
+	public WuManber(Collection<String> patterns, Charset charset, int block, int shiftSize, int hashSize, ByteMapping mapping) {
+		List<byte[]> bytepatterns = mapping.normalized(StringUtils.toByteArray(patterns, charset));
 		this.minLength = minLength(bytepatterns);
 		this.maxLength = maxLength(bytepatterns);
-		this.block = blockSize(minLength, bytepatterns.size());
-		this.shift = computeShift(bytepatterns, block, minLength);
-		this.hash = computeHash(bytepatterns, block, charset);
+		this.block = block == AUTO ? blockSize(minLength, bytepatterns.size()) : Math.max(1, Math.min(block, minLength));
+		this.shift = computeShift(bytepatterns, this.block, minLength, shiftBits(bytepatterns, this.block, shiftSize));
+		this.hash = computeHash(bytepatterns, this.block, hashBits(bytepatterns, hashSize), mapping);
+		this.table = mapping.table();
 	}
 
 	private static int blockSize(int minLength, int patterns) {
@@ -67,86 +100,113 @@ public class WuManber implements StringSearchAlgorithm {
 		}
 	}
 
-	private static int[] computeShift(List<byte[]> patterns, int block, int minLength) {
-		int[] shift = new int[SHIFT_SIZE];
-		for (int i = 0; i < shift.length; i++) {
-			shift[i] = minLength - block + 1;
-		}
-		List<byte[]> patternStrings = new ArrayList<>();
-		Set<byte[]> blocks = new HashSet<>();
-		for (byte[] pattern : patterns) {
-			patternStrings.add(pattern);
-			for (int i = 0; i < pattern.length + 1 - block; i++) {
-				blocks.add(Arrays.copyOfRange(pattern, i, i + block));
+	private static int shiftBits(List<byte[]> patterns, int block, int shiftSize) {
+		if (shiftSize == AUTO) {
+			long blocks = 0;
+			for (byte[] pattern : patterns) {
+				blocks += Math.max(0, pattern.length - block + 1);
 			}
+			shiftSize = (int) Math.max(MIN_SHIFT_SIZE, Math.min(MAX_SHIFT_SIZE, 2 * blocks));
 		}
-		for (byte[] currentBlock : blocks) {
-			int shiftKey = shiftHash(currentBlock);
-			int shiftBy = shift[shiftKey];
-			for (byte[] pattern : patternStrings) {
-				int rightMost = pattern.length - lastIndexOf(pattern, currentBlock) - block;
-				if (rightMost >= 0 && rightMost < shiftBy) {
-					shiftBy = rightMost;
-				}
-			}
-			shift[shiftKey] = shiftBy;
+		return tableBits(shiftSize);
+	}
+
+	private static int hashBits(List<byte[]> patterns, int hashSize) {
+		if (hashSize == AUTO) {
+			hashSize = (int) Math.max(MIN_HASH_SIZE, Math.min(MAX_HASH_SIZE, 2L * patterns.size()));
 		}
-		return shift;
+		return tableBits(hashSize);
 	}
 
-	public static int shiftHash(byte[] block) {
-		int result = 1;
-		for (byte b : block) {
-			result = SHIFT_SEED * result + b;
+	private static int tableBits(int size) {
+		int bits = 1;
+		while (bits < 30 && 1 << bits < size) {
+			bits++;
 		}
-		int hash = result % SHIFT_SIZE;
-		if (hash < 0) {
-			hash += SHIFT_SIZE;
+		return bits;
+	}
+
+	private static int[] computeShift(List<byte[]> patterns, int block, int minLength, int shiftBits) {
+		int[] shift = new int[1 << shiftBits];
+		Arrays.fill(shift, minLength - block + 1);
+		for (byte[] pattern : patterns) {
+			for (int end = block; end <= pattern.length; end++) {
+				int shiftKey = shiftKey(blockHash(pattern, end, block), shiftBits);
+				int rightMost = pattern.length - end;
+				if (rightMost < shift[shiftKey]) {
+					shift[shiftKey] = rightMost;
+				}
+			}
 		}
-		return hash;
+		return shift;
 	}
 
-	private static ByteWordSet<ByteString>[] computeHash(List<byte[]> bytepatterns, int block, Charset charset) {
+	private static ByteWordSet<Integer>[] computeHash(List<byte[]> bytepatterns, int block, int hashBits, ByteMapping mapping) {
 		@SuppressWarnings("unchecked")
-		ByteWordSetBuilder<ByteString, ByteTrie<ByteString>>[] builders = new ByteWordSetBuilder[HASH_SIZE];
-		for (byte[] pattern : bytepatterns) {
-			byte[] lastBlock = Arrays.copyOfRange(pattern, pattern.length - block, pattern.length);
-			int hashKey = hashHash(lastBlock);
-			ByteWordSetBuilder<ByteString, ByteTrie<ByteString>> builder = builders[hashKey];
+		ByteWordSetBuilder<Integer, ByteTrie<Integer>>[] builders = new ByteWordSetBuilder[1 << hashBits];
+		for (int i = 0; i < bytepatterns.size(); i++) {
+			byte[] pattern = bytepatterns.get(i);
+			int hashKey = hashKey(blockHash(pattern, pattern.length, block), hashBits);
+			ByteWordSetBuilder<Integer, ByteTrie<Integer>> builder = builders[hashKey];
 			if (builder == null) {
-				builder = new ByteWordSetBuilder<>(new DoubleArrayByteCompactTrieCompiler<ByteString>());
-				
+				builder = new ByteWordSetBuilder<>(new DoubleArrayByteCompactTrieCompiler<Integer>(), new FirstPatternIndex());
+
 				builders[hashKey] = builder;
 			}
-			builder.extend(revert(pattern), new ByteString(pattern, charset));
+			builder.extend(revert(pattern), i);
 		}
 
 		@SuppressWarnings("unchecked")
-		ByteWordSet<ByteString>[] hash = new ByteWordSet[builders.length];
+		ByteWordSet<Integer>[] hash = new ByteWordSet[builders.length];
 		for (int i = 0; i < hash.length; i++) {
-			hash[i] = builders[i] == null ? null : builders[i].build();
+			hash[i] = builders[i] == null ? null : NormalizingByteWordSet.of(builders[i].build(), mapping);
 		}
 		return hash;
 	}
 
-	public static int hashHash(byte[] block) {
+	private static int blockHash(byte[] pattern, int end, int block) {
 		int result = 1;
-		for (byte b : block) {
-			result = HASH_SEED * result + b;
+		for (int i = end - block; i < end; i++) {
+			result = BLOCK_SEED * result + pattern[i];
 		}
-		int hash = result % HASH_SIZE;
-		if (hash < 0) {
-			hash += HASH_SIZE;
-		}
-		return hash;
+		return result;
+	}
+
+	private static int shiftKey(int blockHash, int shiftBits) {
+		return (blockHash * SHIFT_SEED) >>> (32 - shiftBits);
+	}
+
+	private static int hashKey(int blockHash, int hashBits) {
+		return (blockHash * HASH_SEED) >>> (32 - hashBits);
+	}
+
+	/**
+	 * @return the size of the blocks used to compute shifts and hashes
+	 */
+	public int getBlockSize() {
+		return block;
+	}
+
+	/**
+	 * @return the size of the shift table
+	 */
+	public int getShiftSize() {
+		return shift.length;
+	}
+
+	/**
+	 * @return the size of the hash table
+	 */
+	public int getHashSize() {
+		return hash.length;
 	}
 
 	@Override
 	public StringFinder createFinder(ByteProvider bytes, StringFinderOption... options) {
 		if (LONGEST_MATCH.in(options)) {
-			return new LongestMatchFinder(minLength, maxLength, block, shift, hash, bytes, options);
+			return new LongestMatchFinder(minLength, maxLength, block, shift, hash, table, bytes, options);
 		} else {
-			return new NextMatchFinder(minLength, maxLength, block, shift, hash, bytes, options);
+			return new NextMatchFinder(minLength, maxLength, block, shift, hash, table, bytes, options);
 		}
 	}
 
@@ -167,73 +227,129 @@ public class WuManber implements StringSearchAlgorithm {
 		protected final int maxLength;
 		protected final int block;
 		protected final int[] shift;
+		protected final int shiftBits;
+		protected final int hashBits;
 		protected ByteProvider bytes;
-		protected ByteAutomaton<ByteString>[] hash;
+		protected long border;
+		protected ByteAutomaton<Integer>[] hash;
+		protected final byte[] table;
 
-		public Finder(int minLength, int maxLength, int block, int[] shift, ByteWordSet<ByteString>[] hash, ByteProvider bytes, StringFinderOption... options) {
+		public Finder(int minLength, int maxLength, int block, int[] shift, ByteWordSet<Integer>[] hash, byte[] table, ByteProvider bytes, StringFinderOption... options) {
 			super(options);
 			this.minLength = minLength;
 			this.lookahead = minLength - 1;
 			this.maxLength = maxLength;
 			this.block = block;
 			this.shift = shift;
+			this.shiftBits = Integer.numberOfTrailingZeros(shift.length);
+			this.hashBits = Integer.numberOfTrailingZeros(hash.length);
 			this.hash = cursor(hash);
+			this.table = table;
 			this.bytes = bytes;
 		}
 
 		@SuppressWarnings("unchecked")
-		private static ByteAutomaton<ByteString>[] cursor(ByteWordSet<ByteString>[] hash) {
-			ByteAutomaton<ByteString>[] cursors = new ByteAutomaton[hash.length];
+		private static ByteAutomaton<Integer>[] cursor(ByteWordSet<Integer>[] hash) {
+			ByteAutomaton<Integer>[] cursors = new ByteAutomaton[hash.length];
 			for (int i = 0; i < hash.length; i++) {
-				ByteWordSet<ByteString> node = hash[i];
+				ByteWordSet<Integer> node = hash[i];
 				cursors[i] = node == null ? ByteAutomaton.NULL : node.cursor();
 			}
 			return cursors;
 		}
 
+		/**
+		 * computes the hash of the last block of the current window (without copying the block, but normalizing its bytes)
+		 */
+		protected int blockHash() {
+			int result = 1;
+			for (int i = minLength - block; i < minLength; i++) {
+				result = BLOCK_SEED * result + table[bytes.lookahead(i) & 0xff];
+			}
+			return result;
+		}
+
 		@Override
 		public void skipTo(long pos) {
+			if (pos > border) {
+				border = pos;
+			}
 			long last = removeMatchesBefore(pos);
 			if (last > bytes.current()) {
 				bytes.move(last);
 			}
 		}
 
-		protected StringMatch createMatch(long start, long end) {
+		@Override
+		protected void push(long start, long end, int pattern) {
+			if (start < border) {
+				return;
+			}
+			super.push(start, end, pattern);
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(bytes, start, end, pattern);
+			}
 			ByteString slice = bytes.slice(start, end);
-			return new StringMatch(start, end, slice.getString());
+			return new StringMatch(start, end, slice.getString(), pattern);
+		}
+
+		/**
+		 * reports the matches of one window (all ending at pos + minLength) in the order of their starts
+		 */
+		protected boolean report(MatchSink sink, long pos, int[] pointers, int[] patterns, int found) {
+			long end = pos + minLength;
+			for (int i = found - 1; i >= 0; i--) {
+				long start = pos + pointers[i];
+				if (start < border) {
+					continue;
+				}
+				if (!sink.onMatch(start, end, patterns[i])) {
+					return false;
+				}
+				if (nonOverlap) {
+					border = end;
+					if (end > bytes.current()) {
+						bytes.move(end);
+					}
+					break;
+				}
+			}
+			return true;
 		}
 
 	}
 
 	private static class NextMatchFinder extends Finder {
 
-		public NextMatchFinder(int minLength, int maxLength, int block, int[] shift, ByteWordSet<ByteString>[] hash, ByteProvider bytes, StringFinderOption... options) {
-			super(minLength, maxLength, block, shift, hash, bytes, options);
+		public NextMatchFinder(int minLength, int maxLength, int block, int[] shift, ByteWordSet<Integer>[] hash, byte[] table, ByteProvider bytes, StringFinderOption... options) {
+			super(minLength, maxLength, block, shift, hash, table, bytes, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
 			}
 			while (!bytes.finished(lookahead)) {
 				long pos = bytes.current();
-				byte[] lastBlock = bytes.between(pos + minLength - block, pos + minLength);
-				int shiftKey = shiftHash(lastBlock);
-				int shiftBy = shift[shiftKey];
+				int blockHash = blockHash();
+				int shiftBy = shift[shiftKey(blockHash, shiftBits)];
 				if (shiftBy == 0) {
-					int hashkey = hashHash(lastBlock);
-					ByteAutomaton<ByteString> cursor = hash[hashkey];
+					int hashkey = hashKey(blockHash, hashBits);
+					ByteAutomaton<Integer> cursor = hash[hashkey];
 					cursor.reset();
 					int patternPointer = lookahead;
 					boolean success = cursor.accept(bytes.lookahead(patternPointer));
 					while (success) {
 						if (cursor.hasAttachments()) {
-							ByteString match = cursor.iterator().next();
+							int pattern = cursor.iterator().next();
 							long start = bytes.current() + patternPointer;
-							long end = bytes.current() + patternPointer + match.length();
-							push(createMatch(start, end));
+							long end = bytes.current() + minLength;
+							push(start, end, pattern);
 						}
 						patternPointer--;
 						if (pos + patternPointer < 0) {
@@ -243,47 +359,85 @@ public class WuManber implements StringSearchAlgorithm {
 					}
 					bytes.next();
 					if (!isBufferEmpty()) {
-						return leftMost();
+						return takeLeftMost();
+					}
+				} else {
+					bytes.forward(shiftBy);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			int[] pointers = new int[maxLength];
+			int[] patterns = new int[maxLength];
+			while (!bytes.finished(lookahead)) {
+				long pos = bytes.current();
+				int blockHash = blockHash();
+				int shiftBy = shift[shiftKey(blockHash, shiftBits)];
+				if (shiftBy == 0) {
+					int hashkey = hashKey(blockHash, hashBits);
+					ByteAutomaton<Integer> cursor = hash[hashkey];
+					cursor.reset();
+					int found = 0;
+					int patternPointer = lookahead;
+					boolean success = cursor.accept(bytes.lookahead(patternPointer));
+					while (success) {
+						if (cursor.hasAttachments()) {
+							pointers[found] = patternPointer;
+							patterns[found] = cursor.iterator().next();
+							found++;
+						}
+						patternPointer--;
+						if (pos + patternPointer < 0) {
+							break;
+						}
+						success = cursor.accept(bytes.lookahead(patternPointer));
+					}
+					bytes.next();
+					if (!report(sink, pos, pointers, patterns, found)) {
+						return;
 					}
 				} else {
 					bytes.forward(shiftBy);
 				}
 			}
-			return null;
 		}
 
 	}
 
 	private static class LongestMatchFinder extends Finder {
 
-		public LongestMatchFinder(int minLength, int maxLength, int block, int[] shift, ByteWordSet<ByteString>[] hash, ByteProvider bytes, StringFinderOption... options) {
-			super(minLength, maxLength, block, shift, hash, bytes, options);
+		public LongestMatchFinder(int minLength, int maxLength, int block, int[] shift, ByteWordSet<Integer>[] hash, byte[] table, ByteProvider bytes, StringFinderOption... options) {
+			super(minLength, maxLength, block, shift, hash, table, bytes, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			long lastStart = lastStartFromBuffer();
 			while (!bytes.finished(lookahead)) {
 				long pos = bytes.current();
-				byte[] lastBlock = bytes.between(pos + minLength - block, pos + minLength);
-				int shiftKey = shiftHash(lastBlock);
-				int shiftBy = shift[shiftKey];
+				int blockHash = blockHash();
+				int shiftBy = shift[shiftKey(blockHash, shiftBits)];
 				if (shiftBy == 0) {
-					int hashkey = hashHash(lastBlock);
-					ByteAutomaton<ByteString> cursor = hash[hashkey];
+					int hashkey = hashKey(blockHash, hashBits);
+					ByteAutomaton<Integer> cursor = hash[hashkey];
 					cursor.reset();
 					int patternPointer = lookahead;
 					boolean success = cursor.accept(bytes.lookahead(patternPointer));
 					while (success) {
 						if (cursor.hasAttachments()) {
-							ByteString match = cursor.iterator().next();
+							int pattern = cursor.iterator().next();
 							long start = bytes.current() + patternPointer;
-							long end = bytes.current() + patternPointer + match.length();
-							StringMatch stringMatch = createMatch(start, end);
+							long end = bytes.current() + minLength;
 							if (lastStart < 0) {
 								lastStart = start;
 							}
-							push(stringMatch);
+							push(start, end, pattern);
 						}
 						patternPointer--;
 						if (pos + patternPointer < 0) {
@@ -292,14 +446,14 @@ public class WuManber implements StringSearchAlgorithm {
 						success = cursor.accept(bytes.lookahead(patternPointer));
 					}
 					bytes.next();
-					if (bufferContainsLongestMatch(lastStart)) {
-						break;
-					}
 				} else {
 					bytes.forward(shiftBy);
 				}
+				if (bufferContainsLongestMatch(lastStart)) {
+					break;
+				}
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 		public boolean bufferContainsLongestMatch(long lastStart) {
@@ -309,21 +463,43 @@ public class WuManber implements StringSearchAlgorithm {
 
 	}
 
-	public static class Factory implements MultiStringSearchAlgorithmFactory {
+	public static class Factory implements MultiStringSearchAlgorithmFactory, SupportsByteClasses {
 
 		private Charset charset;
+		private int block;
+		private int shiftSize;
+		private int hashSize;
+		private ByteMapping mapping;
 
 		public Factory() {
 			this(UTF_16LE);
 		}
 
 		public Factory(Charset charset) {
+			this(charset, AUTO, AUTO, AUTO);
+		}
+
+		public Factory(Charset charset, int block, int shiftSize, int hashSize) {
 			this.charset = charset;
+			this.block = block;
+			this.shiftSize = shiftSize;
+			this.hashSize = hashSize;
+			this.mapping = ByteMapping.IDENTITY;
+		}
+
+		@Override
+		public void enableByteClasses(ByteMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		@Override
+		public ByteMapping getByteClasses() {
+			return mapping;
 		}
 
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
-			return new WuManber(patterns, charset);
+			return new WuManber(patterns, charset, block, shiftSize, hashSize, mapping);
 		}
 
 	}
@@ -13,52 +13,122 @@ import java.util.Collection;
 import java.util.List;
 
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.CharProvider;
 import net.amygdalum.util.text.CharAutomaton;
+import net.amygdalum.util.text.CharDawg;
+import net.amygdalum.util.text.CharMapping;
 import net.amygdalum.util.text.CharNode;
 import net.amygdalum.util.text.CharTask;
 import net.amygdalum.util.text.CharTrie;
 import net.amygdalum.util.text.CharWordSet;
 import net.amygdalum.util.text.CharWordSetBuilder;
 import net.amygdalum.util.text.doublearraytrie.DoubleArrayCharFallbackTrieCompiler;
+import net.amygdalum.util.text.linkeddawg.LinkedCharFallbackDawgCompiler;
 
 /**
  * An implementation of the Aho-Corasick Algorithm.
  * 
  * This algorithm takes a multiple string patterns as input and generates a finder which can find any of these patterns in documents. 
+ * 
+ * Given a memory budget (in bytes) the patterns are compiled to a complete automaton over the char classes of the
+ * patterns (one lookup per char, no fallback links to follow). If this automaton would exceed the budget, the fallback
+ * trie is used.
  */
 public class AhoCorasick implements StringSearchAlgorithm {
 
-	private CharWordSet<String> trie;
+	public static final long NO_DFA = 0;
+
+	private CharWordSet<Integer> trie;
+	private int[] lengths;
 	private int minLength;
 
 	public AhoCorasick(Collection<String> patterns) {
-		List<char[]> charpatterns = toCharArray(patterns);
-		this.trie = computeTrie(charpatterns);
-		this.minLength = minLength(charpatterns);
+		this(patterns, NO_DFA);
+	}
+
+	public AhoCorasick(Collection<String> patterns, long dfaBudget) {
+		this(patterns, dfaBudget, CharMapping.IDENTITY);
 	}
 
-	private static CharWordSet<String> computeTrie(List<char[]> charpatterns) {
-		CharWordSetBuilder<String, CharTrie<String>> builder = new CharWordSetBuilder<>(new DoubleArrayCharFallbackTrieCompiler<String>());
+	/**
+	 * @param patterns the patterns
+	 * @param dfaBudget the memory budget of the complete automaton (NO_DFA to use the fallback trie)
+	 * @param mapping the mapping of chars to equivalent chars (e.g. for case insensitive search), folded into the transitions of the automaton
+	 */
+	public AhoCorasick(Collection<String> patterns, long dfaBudget, CharMapping mapping) {
+		List<char[]> charpatterns = normalized(toCharArray(patterns), mapping);
+		this.trie = computeAutomaton(charpatterns, dfaBudget, mapping);
+		this.lengths = computeLengths(charpatterns);
+		this.minLength = minLength(charpatterns);
+	}
 
+	private static List<char[]> normalized(List<char[]> charpatterns, CharMapping mapping) {
+		if (mapping == CharMapping.IDENTITY) {
+			return charpatterns;
+		}
+		List<char[]> normalized = new ArrayList<>(charpatterns.size());
 		for (char[] pattern : charpatterns) {
-			builder.extend(pattern, new String(pattern));
+			normalized.add(mapping.normalized(pattern));
+		}
+		return normalized;
+	}
+
+	private static CharWordSet<Integer> computeAutomaton(List<char[]> charpatterns, long dfaBudget, CharMapping mapping) {
+		CharDFA<Integer> dfa = CharDFA.compile(charpatterns, dfaBudget, mapping);
+		if (dfa != null) {
+			return dfa;
+		}
+		if (mapping == CharMapping.IDENTITY) {
+			return computeTrie(charpatterns);
+		} else {
+			return computeDawg(charpatterns, mapping);
+		}
+	}
+
+	private static CharWordSet<Integer> computeTrie(List<char[]> charpatterns) {
+		CharWordSetBuilder<Integer, CharTrie<Integer>> builder = new CharWordSetBuilder<>(new DoubleArrayCharFallbackTrieCompiler<Integer>(), new FirstPatternIndex());
+
+		for (int i = 0; i < charpatterns.size(); i++) {
+			builder.extend(charpatterns.get(i), i);
+		}
+
+		return builder
+			.work(new FallbackLinks(true))
+			.build();
+	}
+
+	private static CharWordSet<Integer> computeDawg(List<char[]> charpatterns, CharMapping mapping) {
+		CharWordSetBuilder<Integer, CharDawg<Integer>> builder = new CharWordSetBuilder<>(new LinkedCharFallbackDawgCompiler<Integer>(), new FirstPatternIndex());
+
+		for (int i = 0; i < charpatterns.size(); i++) {
+			builder.extend(charpatterns.get(i), i);
 		}
 
 		return builder
-			.work(new FallbackLinks())
+			.work(new FallbackLinks(false))
+			.work(new CharClassTransitions<Integer>(mapping))
 			.build();
 	}
 
+	private static int[] computeLengths(List<char[]> charpatterns) {
+		int[] lengths = new int[charpatterns.size()];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = charpatterns.get(i).length;
+		}
+		return lengths;
+	}
+
 	@Override
 	public StringFinder createFinder(CharProvider chars, StringFinderOption... options) {
 		if (LONGEST_MATCH.in(options)) {
-			return new LongestMatchFinder(trie, chars, options);
+			return new LongestMatchFinder(trie, lengths, chars, options);
 		} else {
-			return new NextMatchFinder(trie, chars, options);
+			return new NextMatchFinder(trie, lengths, chars, options);
 		}
 	}
 
@@ -72,29 +142,39 @@ public class AhoCorasick implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private static class FallbackLinks implements CharTask<String> {
+	/**
+	 * links each node to the node of its longest proper suffix. The double array trie only checks the current node for
+	 * attachments (so inherited attachments are copied to the nodes), the linked dawg follows the fallback links when
+	 * checking and iterating attachments (copied attachments would be reported twice).
+	 */
+	private static class FallbackLinks implements CharTask<Integer> {
+
+		private boolean inheritAttachments;
+		private CharNode<Integer> root;
 
-		private CharNode<String> root;
+		public FallbackLinks(boolean inheritAttachments) {
+			this.inheritAttachments = inheritAttachments;
+		}
 
 		@Override
-		public List<CharNode<String>> init(CharNode<String> root) {
+		public List<CharNode<Integer>> init(CharNode<Integer> root) {
 			this.root = root;
 			setFallback(root, null);
 			return asList(root);
 		}
 
 		@Override
-		public List<CharNode<String>> process(CharNode<String> node) {
-			List<CharNode<String>> nexts = new ArrayList<>();
+		public List<CharNode<Integer>> process(CharNode<Integer> node) {
+			List<CharNode<Integer>> nexts = new ArrayList<>();
 			for (char c : node.getAlternatives()) {
-				CharNode<String> next = node.nextNode(c);
-				CharNode<String> down = getFallback(node);
+				CharNode<Integer> next = node.nextNode(c);
+				CharNode<Integer> down = getFallback(node);
 				nextdown: while (down != null) {
-					CharNode<String> nextNode = down.nextNode(c);
+					CharNode<Integer> nextNode = down.nextNode(c);
 					if (nextNode != null) {
 						setFallback(next, nextNode);
-						if (next.getAttached() == null) {
-							String attachment = nextNode.getAttached();
+						if (inheritAttachments && next.getAttached() == null) {
+							Integer attachment = nextNode.getAttached();
 							if (attachment != null) {
 								attach(next, attachment);
 							}
@@ -115,11 +195,13 @@ public class AhoCorasick implements StringSearchAlgorithm {
 
 	private static abstract class Finder extends BufferedStringFinder {
 
+		protected int[] lengths;
 		protected CharProvider chars;
-		protected CharAutomaton<String> cursor;
+		protected CharAutomaton<Integer> cursor;
 
-		public Finder(CharWordSet<String> trie, CharProvider chars, StringFinderOption... options) {
+		public Finder(CharWordSet<Integer> trie, int[] lengths, CharProvider chars, StringFinderOption... options) {
 			super(options);
+			this.lengths = lengths;
 			this.chars = chars;
 			this.cursor = trie.cursor();
 		}
@@ -133,35 +215,33 @@ public class AhoCorasick implements StringSearchAlgorithm {
 			clear();
 		}
 
-		protected List<StringMatch> createMatches(long end) {
-			List<StringMatch> matches = new ArrayList<>();
-			for (String currentMatch : cursor) {
-				long start = end - currentMatch.length();
-				StringMatch nextMatch = createMatch(start, end);
-				if (!matches.contains(nextMatch)) {
-					matches.add(nextMatch);
-				}
+		protected void pushMatches(long end) {
+			for (Integer pattern : cursor) {
+				push(end - lengths[pattern], end, pattern);
 			}
-			return matches;
 		}
 
-		private StringMatch createMatch(long start, long end) {
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
 			String s = chars.slice(start, end);
-			return new StringMatch(start, end, s);
+			return new StringMatch(start, end, s, pattern);
 		}
 
 	}
 
 	private static class NextMatchFinder extends Finder {
 
-		public NextMatchFinder(CharWordSet<String> trie, CharProvider chars, StringFinderOption... options) {
-			super(trie, chars, options);
+		public NextMatchFinder(CharWordSet<Integer> trie, int[] lengths, CharProvider chars, StringFinderOption... options) {
+			super(trie, lengths, chars, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
 			}
 			while (!chars.finished()) {
 				char c = chars.next();
@@ -170,22 +250,56 @@ public class AhoCorasick implements StringSearchAlgorithm {
 					cursor.reset();
 				}
 				if (cursor.hasAttachments()) {
-					push(createMatches(chars.current()));
-					return leftMost();
+					pushMatches(chars.current());
+					return takeLeftMost();
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			while (!chars.finished()) {
+				char c = chars.next();
+				boolean success = cursor.accept(c);
+				if (!success) {
+					cursor.reset();
+				}
+				if (cursor.hasAttachments()) {
+					long end = chars.current();
+					for (Integer pattern : cursor) {
+						long start = end - lengths[pattern];
+						if (!sink.onMatch(start, end, pattern)) {
+							return;
+						}
+						if (nonOverlap) {
+							cursor.reset();
+							break;
+						}
+					}
 				}
 			}
-			return null;
 		}
 	}
 
 	private static class LongestMatchFinder extends Finder {
 
-		public LongestMatchFinder(CharWordSet<String> trie, CharProvider chars, StringFinderOption... options) {
-			super(trie, chars, options);
+		public LongestMatchFinder(CharWordSet<Integer> trie, int[] lengths, CharProvider chars, StringFinderOption... options) {
+			super(trie, lengths, chars, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		public void skipTo(long pos) {
+			chars.move(pos);
+			cursor.reset();
+			clear();
+		}
+
+		@Override
+		protected boolean takeNext() {
 			while (!chars.finished()) {
 				char c = chars.next();
 				boolean success = cursor.lookahead(c);
@@ -198,19 +312,39 @@ public class AhoCorasick implements StringSearchAlgorithm {
 					cursor.reset();
 				}
 				if (cursor.hasAttachments()) {
-					push(createMatches(chars.current()));
+					pushMatches(chars.current());
 				}
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 	}
 
-	public static class Factory implements MultiStringSearchAlgorithmFactory {
+	public static class Factory implements MultiStringSearchAlgorithmFactory, SupportsCharClasses {
+
+		private CharMapping mapping;
+		private long dfaBudget;
+
+		public Factory() {
+			this(NO_DFA);
+		}
+
+		public Factory(long dfaBudget) {
+			this.dfaBudget = dfaBudget;
+		}
+
+		@Override
+		public void enableCharClasses(CharMapping mapping) {
+			this.mapping = mapping;
+		}
 
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
-			return new AhoCorasick(patterns);
+			if (mapping == null) {
+				return new AhoCorasick(patterns, dfaBudget);
+			} else {
+				return new AhoCorasick(patterns, dfaBudget, mapping);
+			}
 		}
 
 	}
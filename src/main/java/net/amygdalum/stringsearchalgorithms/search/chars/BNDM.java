@@ -5,7 +5,7 @@ import static java.util.Arrays.fill;
 
 import java.util.Arrays;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -70,18 +70,20 @@ public class BNDM implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private abstract class Finder extends AbstractStringFinder {
+	private abstract class Finder extends SingleStringFinder {
 
 		protected CharProvider chars;
 
 		public Finder(CharProvider chars, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.chars = chars;
 		}
 
-		protected StringMatch createMatch() {
-			long start = chars.current();
-			long end = start + patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
 			String s = chars.slice(start, end);
 			return new StringMatch(start, end, s);
 		}
@@ -111,7 +113,7 @@ public class BNDM implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!chars.finished(patternLength - 1)) {
 				state = activeStates;
 				int j = patternLength - 1;
@@ -124,9 +126,9 @@ public class BNDM implements StringSearchAlgorithm {
 						if (j > 0) {
 							last = j;
 						} else {
-							StringMatch createMatch = createMatch();
+							long start = chars.current();
 							chars.forward(last);
-							return createMatch;
+							return start;
 						}
 					}
 					j--;
@@ -134,7 +136,7 @@ public class BNDM implements StringSearchAlgorithm {
 				}
 				chars.forward(last);
 			}
-			return null;
+			return -1;
 		}
 
 	}
@@ -192,7 +194,7 @@ public class BNDM implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!chars.finished(patternLength - 1)) {
 				segment = 0;
 				state = activeStates[segment];
@@ -207,9 +209,9 @@ public class BNDM implements StringSearchAlgorithm {
 						if (j > 0) {
 							last[segment] = j;
 						} else if (segment == patternLengths.length - 1) {
-							StringMatch createMatch = createMatch();
+							long start = chars.current();
 							chars.forward(max(last, segment));
-							return createMatch;
+							return start;
 						} else {
 							segment++;
 							state = activeStates[segment];
@@ -222,7 +224,7 @@ public class BNDM implements StringSearchAlgorithm {
 				}
 				chars.forward(max(last, segment));
 			}
-			return null;
+			return -1;
 		}
 
 		private int max(int[] values, int last) {
@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -32,9 +32,15 @@ import net.amygdalum.util.text.linkeddawg.LinkedCharDawgCompiler;
  * 
  * This algorithm takes a single pattern as input and generates a finder which
  * can find this pattern in documents
+ * 
+ * Given a memory budget (in bytes) the oracle is compiled to an automaton with
+ * dense transitions over the char classes of the oracle. If this automaton would
+ * exceed the budget, the linked oracle is used.
  */
 public class BOM implements StringSearchAlgorithm {
 
+	public static final long NO_DFA = 0;
+
 	private CharWordSet<char[]> trie;
 	private int patternLength;
 
@@ -43,11 +49,15 @@ public class BOM implements StringSearchAlgorithm {
 	}
 
 	public BOM(String pattern, CharMapping mapping) {
+		this(pattern, mapping, NO_DFA);
+	}
+
+	public BOM(String pattern, CharMapping mapping, long dfaBudget) {
 		this.patternLength = pattern.length();
-		this.trie = computeTrie(pattern.toCharArray(), mapping);
+		this.trie = computeTrie(pattern.toCharArray(), mapping, dfaBudget);
 	}
 
-	private static CharWordSet<char[]> computeTrie(char[] pattern, CharMapping mapping) {
+	private static CharWordSet<char[]> computeTrie(char[] pattern, CharMapping mapping, long dfaBudget) {
 		if (mapping != CharMapping.IDENTITY) {
 			pattern = mapping.normalized(pattern);
 		}
@@ -58,6 +68,13 @@ public class BOM implements StringSearchAlgorithm {
 		builder.work(new BuildOracle());
 		builder.work(new UseCharClasses(mapping));
 
+		if (dfaBudget != NO_DFA) {
+			CharDFA.Compile<char[]> dfa = new CharDFA.Compile<>(dfaBudget);
+			builder.work(dfa);
+			if (dfa.getAutomaton() != null) {
+				return dfa.getAutomaton();
+			}
+		}
 		return builder.build();
 	}
 
@@ -164,14 +181,14 @@ public class BOM implements StringSearchAlgorithm {
 
 	}
 
-	private static class Finder extends AbstractStringFinder {
+	private static class Finder extends SingleStringFinder {
 
 		private final int lookahead;
 		private CharProvider chars;
 		private CharAutomaton<char[]> cursor;
 
 		public Finder(CharWordSet<char[]> trie, int patternLength, CharProvider chars, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.lookahead = patternLength - 1;
 			this.chars = chars;
 			this.cursor = trie.cursor();
@@ -185,7 +202,7 @@ public class BOM implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!chars.finished(lookahead)) {
 				cursor.reset();
 				int j = lookahead;
@@ -195,13 +212,9 @@ public class BOM implements StringSearchAlgorithm {
 					j--;
 				}
 				if (success && j < 0) {
-					char[] pattern = cursor.iterator().next();
 					long start = chars.current();
-					long end = start + pattern.length;
-					StringMatch match = createMatch(start, end);
-
 					chars.next();
-					return match;
+					return start;
 				}
 				if (j <= 0) {
 					chars.next();
@@ -209,10 +222,14 @@ public class BOM implements StringSearchAlgorithm {
 					chars.forward(j + 2);
 				}
 			}
-			return null;
+			return -1;
 		}
 
-		private StringMatch createMatch(long start, long end) {
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
 			String s = chars.slice(start, end);
 			return new StringMatch(start, end, s);
 		}
@@ -222,6 +239,15 @@ public class BOM implements StringSearchAlgorithm {
 	public static class Factory implements StringSearchAlgorithmFactory, SupportsCharClasses {
 
 		private CharMapping mapping;
+		private long dfaBudget;
+
+		public Factory() {
+			this(NO_DFA);
+		}
+
+		public Factory(long dfaBudget) {
+			this.dfaBudget = dfaBudget;
+		}
 
 		@Override
 		public void enableCharClasses(CharMapping mapping) {
@@ -231,9 +257,9 @@ public class BOM implements StringSearchAlgorithm {
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
 			if (mapping == null) {
-				return new BOM(pattern);
+				return new BOM(pattern, CharMapping.IDENTITY, dfaBudget);
 			} else {
-				return new BOM(pattern, mapping);
+				return new BOM(pattern, mapping, dfaBudget);
 			}
 		}
 
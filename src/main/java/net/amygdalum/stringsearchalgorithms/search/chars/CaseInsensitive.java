@@ -3,9 +3,9 @@ package net.amygdalum.stringsearchalgorithms.search.chars;
 import static java.lang.Character.toLowerCase;
 import static java.lang.Character.toUpperCase;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.List;
 
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
@@ -102,7 +102,7 @@ public class CaseInsensitive implements StringSearchAlgorithm, StringSearchAlgor
 
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
-			Set<String> lc = new LinkedHashSet<>();
+			List<String> lc = new ArrayList<>(patterns.size());
 			for (String pattern : patterns) {
 				lc.add(pattern.toLowerCase());
 			}
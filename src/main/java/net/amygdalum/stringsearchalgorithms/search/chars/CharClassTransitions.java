@@ -0,0 +1,58 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.amygdalum.util.text.CharConnectionAdaptor;
+import net.amygdalum.util.text.CharMapping;
+import net.amygdalum.util.text.CharNode;
+import net.amygdalum.util.text.CharTask;
+
+/**
+ * adds the transitions of all equivalent chars (by a mapping) to a word graph of normalized words, such that the graph accepts the words in any mapped variant.
+ *
+ * The resulting graph is not a tree any more, so it should be compiled with a compiler supporting dawgs (e.g. the linked dawg compilers).
+ */
+public class CharClassTransitions<T> implements CharTask<T> {
+
+	private CharMapping mapping;
+	private Set<CharNode<T>> done;
+
+	public CharClassTransitions(CharMapping mapping) {
+		this.mapping = mapping;
+		this.done = new HashSet<>();
+	}
+
+	@Override
+	public List<CharNode<T>> init(CharNode<T> root) {
+		if (mapping == CharMapping.IDENTITY) {
+			return Collections.emptyList();
+		}
+		return asList(root);
+	}
+
+	@Override
+	public List<CharNode<T>> process(CharNode<T> node) {
+		List<CharNode<T>> nexts = new ArrayList<>();
+
+		for (char c : node.getAlternatives()) {
+			CharNode<T> next = node.nextNode(c);
+			for (char cc : mapping.map(c)) {
+				if (node.nextNode(cc) == null) {
+					CharConnectionAdaptor.addNextNode(node, cc, next);
+				}
+			}
+			if (done.add(next)) {
+				nexts.add(next);
+			}
+		}
+
+		return nexts;
+	}
+
+}
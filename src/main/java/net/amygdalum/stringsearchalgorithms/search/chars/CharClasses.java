@@ -0,0 +1,80 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import net.amygdalum.util.text.CharMapping;
+
+/**
+ * computes the char classes of the positions of a normalized pattern, i.e. the pattern char together with all chars
+ * equivalent to it (by a mapping). Shift tables built over the char classes allow searching with char classes without
+ * normalizing the text.
+ */
+final class CharClasses {
+
+	private CharClasses() {
+	}
+
+	/**
+	 * @param pattern the pattern (normalized by mapping)
+	 * @param mapping the mapping of chars to equivalent chars
+	 * @return an array containing the char class of each pattern position (the pattern char being the first element)
+	 */
+	public static char[][] of(char[] pattern, CharMapping mapping) {
+		char[][] classes = new char[pattern.length][];
+		for (int i = 0; i < pattern.length; i++) {
+			classes[i] = of(pattern[i], mapping);
+		}
+		return classes;
+	}
+
+	private static char[] of(char c, CharMapping mapping) {
+		if (mapping == CharMapping.IDENTITY) {
+			return new char[] { c };
+		}
+		char[] mapped = mapping.map(c);
+		char[] charClass = new char[mapped.length + 1];
+		charClass[0] = c;
+		int length = 1;
+		for (char cc : mapped) {
+			if (!contains(charClass, length, cc)) {
+				charClass[length] = cc;
+				length++;
+			}
+		}
+		if (length < charClass.length) {
+			char[] shortened = new char[length];
+			System.arraycopy(charClass, 0, shortened, 0, length);
+			return shortened;
+		}
+		return charClass;
+	}
+
+	/**
+	 * @param classes the char classes
+	 * @return all chars of all char classes
+	 */
+	public static char[] chars(char[][] classes) {
+		StringBuilder chars = new StringBuilder();
+		for (char[] charClass : classes) {
+			chars.append(charClass);
+		}
+		return chars.toString().toCharArray();
+	}
+
+	/**
+	 * @param charClass the char class
+	 * @param c the char
+	 * @return true if c is an element of charClass
+	 */
+	public static boolean contains(char[] charClass, char c) {
+		return contains(charClass, charClass.length, c);
+	}
+
+	private static boolean contains(char[] charClass, int length, char c) {
+		for (int i = 0; i < length; i++) {
+			if (charClass[i] == c) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
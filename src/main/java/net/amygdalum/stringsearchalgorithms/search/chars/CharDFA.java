@@ -0,0 +1,453 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static java.util.Arrays.fill;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import net.amygdalum.util.io.BitMaskCharClassMapper;
+import net.amygdalum.util.io.CharClassMapper;
+import net.amygdalum.util.io.SmallRangeCharClassMapper;
+import net.amygdalum.util.text.CharAutomaton;
+import net.amygdalum.util.text.CharMapping;
+import net.amygdalum.util.text.CharNode;
+import net.amygdalum.util.text.CharRange;
+import net.amygdalum.util.text.CharRangeAccumulator;
+import net.amygdalum.util.text.CharTask;
+import net.amygdalum.util.text.CharWordSet;
+
+/**
+ * a deterministic automaton over a compact alphabet of char classes.
+ *
+ * Each char occurring in the automaton gets its own class, all other chars share one (dead) class. The classes are
+ * computed with a CharRangeAccumulator and mapped by a CharClassMapper (as in GlushkovAnalyzer), so each state has a
+ * dense row of transitions (one per class) and each input char costs two array lookups.
+ *
+ * There are two kinds of automata:
+ * <ul>
+ * <li>complete automata (compiled from patterns) resolve all fallback transitions of an Aho-Corasick trie. The cursor
+ * behaves like the cursor of the fallback trie: accept fails when returning to the root, the attachments of a state are
+ * the indexes of the patterns ending in this state, the longest first, for duplicate patterns the first index.</li>
+ * <li>partial automata (compiled from a word graph, e.g. a factor oracle) copy the transitions of the graph. Accept fails
+ * on missing transitions, the attachment of a state is the attachment of the corresponding node.</li>
+ * </ul>
+ */
+class CharDFA<T> implements CharWordSet<T> {
+
+	private static final int ROOT = 0;
+	private static final int ENTRY_SIZE = 4;
+
+	private CharClassMapper mapper;
+	private int width;
+	private int[] transitions;
+	private int fail;
+	private int[] depths;
+	private Object[] terminals;
+	private Object[][] attachments;
+
+	private CharDFA(CharClassMapper mapper, int[] transitions, int fail, int[] depths, Object[] terminals, Object[][] attachments) {
+		this.mapper = mapper;
+		this.width = mapper.indexCount();
+		this.transitions = transitions;
+		this.fail = fail;
+		this.depths = depths;
+		this.terminals = terminals;
+		this.attachments = attachments;
+	}
+
+	/**
+	 * compiles the patterns to a complete automaton, if it fits into the given memory budget
+	 * @param patterns the patterns
+	 * @param budget the maximum number of bytes for the transition table of the automaton
+	 * @return the automaton or null if it would exceed the budget
+	 */
+	public static CharDFA<Integer> compile(List<char[]> patterns, long budget) {
+		return compile(patterns, budget, CharMapping.IDENTITY);
+	}
+
+	/**
+	 * compiles the (normalized) patterns to a complete automaton, if it fits into the given memory budget. Each char
+	 * equivalent (by mapping) to a pattern char gets the transitions of this pattern char.
+	 * @param patterns the patterns (normalized by mapping)
+	 * @param budget the maximum number of bytes for the transition table of the automaton
+	 * @param mapping the mapping of pattern chars to their equivalent chars
+	 * @return the automaton or null if it would exceed the budget
+	 */
+	public static CharDFA<Integer> compile(List<char[]> patterns, long budget, CharMapping mapping) {
+		char[] patternChars = computeChars(patterns);
+		char[] chars = computeClassChars(patternChars, mapping);
+		long states = countStates(patterns);
+		if (exceeds(states, chars.length + 1, budget)) {
+			return null;
+		}
+		CharClassMapper mapper = computeMapper(chars);
+		int width = mapper.indexCount();
+		int[] transitions = new int[(int) states * width];
+		int[] depths = new int[(int) states];
+		Object[] terminals = new Object[(int) states];
+
+		int next = ROOT + 1;
+		for (int i = 0; i < patterns.size(); i++) {
+			int state = ROOT;
+			for (char c : patterns.get(i)) {
+				int index = state * width + mapper.getIndex(c);
+				if (transitions[index] == ROOT) {
+					transitions[index] = next;
+					depths[next] = depths[state] + 1;
+					next++;
+				}
+				state = transitions[index];
+			}
+			if (terminals[state] == null) {
+				terminals[state] = i;
+			}
+		}
+
+		Object[][] attachments = new Object[(int) states][];
+		int[] fallbacks = new int[(int) states];
+		int[] queue = new int[(int) states];
+		int head = 0;
+		int tail = 0;
+		attachments[ROOT] = attach(terminals[ROOT], new Object[0]);
+		for (int c = 0; c < width; c++) {
+			int child = transitions[c];
+			if (child != ROOT) {
+				fallbacks[child] = ROOT;
+				queue[tail++] = child;
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int fallback = fallbacks[state];
+			attachments[state] = attach(terminals[state], attachments[fallback]);
+			for (int c = 0; c < width; c++) {
+				int index = state * width + c;
+				int child = transitions[index];
+				int fallbackChild = transitions[fallback * width + c];
+				if (child != ROOT) {
+					fallbacks[child] = fallbackChild;
+					queue[tail++] = child;
+				} else {
+					transitions[index] = fallbackChild;
+				}
+			}
+		}
+		if (mapping != CharMapping.IDENTITY) {
+			for (char c : patternChars) {
+				int index = mapper.getIndex(c);
+				for (char cc : mapping.map(c)) {
+					int classIndex = mapper.getIndex(cc);
+					if (classIndex != index && Arrays.binarySearch(patternChars, cc) < 0) {
+						for (int state = 0; state < states; state++) {
+							transitions[state * width + classIndex] = transitions[state * width + index];
+						}
+					}
+				}
+			}
+		}
+		return new CharDFA<>(mapper, transitions, ROOT, depths, terminals, attachments);
+	}
+
+	/**
+	 * compiles the word graph starting at root to a partial automaton, if it fits into the given memory budget
+	 * @param root the root node of the graph
+	 * @param budget the maximum number of bytes for the transition table of the automaton
+	 * @return the automaton or null if it would exceed the budget
+	 */
+	public static <T> CharDFA<T> compile(CharNode<T> root, long budget) {
+		Map<CharNode<T>, Integer> states = new IdentityHashMap<>();
+		List<CharNode<T>> nodes = new ArrayList<>();
+		StringBuilder alternatives = new StringBuilder();
+		Queue<CharNode<T>> todo = new LinkedList<>();
+		states.put(root, nodes.size());
+		nodes.add(root);
+		todo.add(root);
+		while (!todo.isEmpty()) {
+			CharNode<T> node = todo.remove();
+			for (char c : node.getAlternatives()) {
+				alternatives.append(c);
+				CharNode<T> next = node.nextNode(c);
+				if (!states.containsKey(next)) {
+					states.put(next, nodes.size());
+					nodes.add(next);
+					todo.add(next);
+				}
+			}
+		}
+		char[] chars = distinct(alternatives.toString().toCharArray());
+		int dead = nodes.size();
+		if (exceeds(dead + 1, chars.length + 1, budget)) {
+			return null;
+		}
+		CharClassMapper mapper = computeMapper(chars);
+		int width = mapper.indexCount();
+		int[] transitions = new int[(dead + 1) * width];
+		fill(transitions, dead);
+		Object[] terminals = new Object[dead + 1];
+		Object[][] attachments = new Object[dead + 1][];
+		attachments[dead] = new Object[0];
+		for (int state = 0; state < dead; state++) {
+			CharNode<T> node = nodes.get(state);
+			for (char c : node.getAlternatives()) {
+				transitions[state * width + mapper.getIndex(c)] = states.get(node.nextNode(c));
+			}
+			terminals[state] = node.getAttached();
+			attachments[state] = attach(terminals[state], new Object[0]);
+		}
+		return new CharDFA<>(mapper, transitions, dead, null, terminals, attachments);
+	}
+
+	private static boolean exceeds(long states, long width, long budget) {
+		return states * width * ENTRY_SIZE > budget || states * width > Integer.MAX_VALUE;
+	}
+
+	private static char[] computeChars(List<char[]> patterns) {
+		StringBuilder chars = new StringBuilder();
+		for (char[] pattern : patterns) {
+			chars.append(pattern);
+		}
+		return distinct(chars.toString().toCharArray());
+	}
+
+	private static char[] computeClassChars(char[] chars, CharMapping mapping) {
+		if (mapping == CharMapping.IDENTITY) {
+			return chars;
+		}
+		StringBuilder classChars = new StringBuilder();
+		for (char c : chars) {
+			classChars.append(c);
+			classChars.append(mapping.map(c));
+		}
+		return distinct(classChars.toString().toCharArray());
+	}
+
+	private static char[] distinct(char[] chars) {
+		if (chars.length == 0) {
+			return chars;
+		}
+		Arrays.sort(chars);
+		int length = 1;
+		for (int i = 1; i < chars.length; i++) {
+			if (chars[i] != chars[length - 1]) {
+				chars[length] = chars[i];
+				length++;
+			}
+		}
+		return Arrays.copyOf(chars, length);
+	}
+
+	private static CharClassMapper computeMapper(char[] chars) {
+		CharRangeAccumulator acc = new CharRangeAccumulator();
+
+		for (char c : chars) {
+			acc.split(c, c);
+		}
+
+		List<CharRange> liveRanges = new ArrayList<>();
+		for (CharRange range : acc.getRanges()) {
+			if (Arrays.binarySearch(chars, range.from) >= 0) {
+				liveRanges.add(range);
+			}
+		}
+
+		if (liveRanges.isEmpty() || liveRanges.get(liveRanges.size() - 1).to - liveRanges.get(0).from <= 256) {
+			return new SmallRangeCharClassMapper(liveRanges);
+		} else {
+			return new BitMaskCharClassMapper(liveRanges);
+		}
+	}
+
+	private static long countStates(List<char[]> patterns) {
+		char[][] sorted = patterns.toArray(new char[0][]);
+		Arrays.sort(sorted, new Comparator<char[]>() {
+
+			@Override
+			public int compare(char[] c1, char[] c2) {
+				int length = Math.min(c1.length, c2.length);
+				for (int i = 0; i < length; i++) {
+					int compare = Character.compare(c1[i], c2[i]);
+					if (compare != 0) {
+						return compare;
+					}
+				}
+				return Integer.compare(c1.length, c2.length);
+			}
+		});
+		long states = 1;
+		char[] last = new char[0];
+		for (char[] pattern : sorted) {
+			int common = 0;
+			while (common < last.length && common < pattern.length && last[common] == pattern[common]) {
+				common++;
+			}
+			states += pattern.length - common;
+			last = pattern;
+		}
+		return states;
+	}
+
+	private static Object[] attach(Object terminal, Object[] fallbackAttachments) {
+		if (terminal == null) {
+			return fallbackAttachments;
+		}
+		Object[] attachments = new Object[fallbackAttachments.length + 1];
+		attachments[0] = terminal;
+		System.arraycopy(fallbackAttachments, 0, attachments, 1, fallbackAttachments.length);
+		return attachments;
+	}
+
+	/**
+	 * @return the number of states of this automaton
+	 */
+	public int size() {
+		return terminals.length;
+	}
+
+	/**
+	 * @return the number of char classes of this automaton (the width of a transition row)
+	 */
+	public int classes() {
+		return width;
+	}
+
+	private boolean isComplete() {
+		return depths != null;
+	}
+
+	@Override
+	public CharAutomaton<T> cursor() {
+		return new Cursor();
+	}
+
+	@Override
+	public boolean contains(char[] chars) {
+		return find(chars) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T find(char[] chars) {
+		int state = ROOT;
+		for (char c : chars) {
+			int next = transitions[state * width + mapper.getIndex(c)];
+			if (isComplete() ? depths[next] != depths[state] + 1 : next == fail) {
+				return null;
+			}
+			state = next;
+		}
+		return (T) terminals[state];
+	}
+
+	private class Cursor implements CharAutomaton<T> {
+
+		private int state;
+		private AttachmentIterator<T> iterator;
+
+		public Cursor() {
+			this.state = ROOT;
+			this.iterator = new AttachmentIterator<>();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			iterator.init(attachments[state]);
+			return iterator;
+		}
+
+		@Override
+		public void reset() {
+			state = ROOT;
+		}
+
+		@Override
+		public boolean lookahead(char c) {
+			int next = transitions[state * width + mapper.getIndex(c)];
+			if (isComplete()) {
+				return next != ROOT && depths[next] == depths[state] + 1;
+			} else {
+				return next != fail;
+			}
+		}
+
+		@Override
+		public boolean accept(char c) {
+			state = transitions[state * width + mapper.getIndex(c)];
+			return state != fail;
+		}
+
+		@Override
+		public boolean hasAttachments() {
+			return attachments[state].length > 0;
+		}
+
+	}
+
+	private static class AttachmentIterator<T> implements Iterator<T> {
+
+		private Object[] attachments;
+		private int next;
+
+		public void init(Object[] attachments) {
+			this.attachments = attachments;
+			this.next = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < attachments.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public T next() {
+			if (next >= attachments.length) {
+				throw new NoSuchElementException();
+			}
+			return (T) attachments[next++];
+		}
+
+	}
+
+	/**
+	 * a task compiling the word graph of a CharWordSetBuilder to a partial automaton (should be the last task of the
+	 * builder). The graph is not modified.
+	 */
+	public static class Compile<T> implements CharTask<T> {
+
+		private long budget;
+		private CharDFA<T> automaton;
+
+		public Compile(long budget) {
+			this.budget = budget;
+		}
+
+		/**
+		 * @return the compiled automaton or null if it would exceed the budget
+		 */
+		public CharDFA<T> getAutomaton() {
+			return automaton;
+		}
+
+		@Override
+		public List<CharNode<T>> init(CharNode<T> root) {
+			automaton = compile(root, budget);
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<CharNode<T>> process(CharNode<T> node) {
+			return Collections.emptyList();
+		}
+
+	}
+
+}
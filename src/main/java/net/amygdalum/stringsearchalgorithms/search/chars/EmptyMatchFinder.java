@@ -22,28 +22,37 @@ public class EmptyMatchFinder extends BufferedStringFinder {
 	}
 
 	@Override
-	public StringMatch findNext() {
+	protected boolean takeNext() {
 		if (isBufferEmpty()) {
 			long start = chars.current();
 			StringMatch next = finder.findNext();
 			if (next != null) {
 				push(next);
 				for (long pos = start; pos < next.start(); pos++) {
-					push(new StringMatch(pos, pos, ""));
+					push(pos, pos, 0);
 				}
 			} else {
 				for (long pos = start; pos < chars.current(); pos++) {
-					push(new StringMatch(pos, pos, ""));
+					push(pos, pos, 0);
 				}
 			}
 		}
 		if (longest) {
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		} else {
-			return leftMost();
+			return takeLeftMost();
 		}
 	}
 
+	@Override
+	protected StringMatch createMatch(long start, long end, int pattern) {
+		if (lazyText) {
+			return new LazyStringMatch(chars, start, end, pattern);
+		}
+		String s = chars.slice(start, end);
+		return new StringMatch(start, end, s, pattern);
+	}
+
 	@Override
 	public void skipTo(long pos) {
 		finder.skipTo(pos);
@@ -3,12 +3,13 @@ package net.amygdalum.stringsearchalgorithms.search.chars;
 import static net.amygdalum.util.text.CharUtils.computeMaxChar;
 import static net.amygdalum.util.text.CharUtils.computeMinChar;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.CharProvider;
 import net.amygdalum.util.map.CharIntMap;
+import net.amygdalum.util.text.CharMapping;
 
 /**
  * An implementation of the String Search Algorithm of Horspool.
@@ -18,6 +19,7 @@ import net.amygdalum.util.map.CharIntMap;
 public class Horspool implements StringSearchAlgorithm {
 
 	private char[] pattern;
+	private char[][] alternatives;
 	private int patternLength;
 	private CharShift charShift;
 
@@ -26,18 +28,29 @@ public class Horspool implements StringSearchAlgorithm {
 	}
 
 	public Horspool(String pattern, boolean relaxed) {
-		this.pattern = pattern.toCharArray();
+		this(pattern, relaxed, CharMapping.IDENTITY);
+	}
+
+	/**
+	 * @param pattern the pattern
+	 * @param relaxed true if the shift table may be relaxed (using less memory and providing shorter shifts)
+	 * @param mapping the mapping of chars to equivalent chars (e.g. for case insensitive search), folded into the shift table
+	 */
+	public Horspool(String pattern, boolean relaxed, CharMapping mapping) {
+		this.pattern = mapping.normalized(pattern.toCharArray());
 		this.patternLength = this.pattern.length;
-		this.charShift = computeShift(this.pattern, relaxed);
+		char[][] classes = CharClasses.of(this.pattern, mapping);
+		this.alternatives = mapping == CharMapping.IDENTITY ? null : classes;
+		this.charShift = computeShift(classes, relaxed);
 	}
 
-	private static CharShift computeShift(char[] pattern, boolean relaxed) {
-		if (isCompactRange(pattern)) {
-			return new QuickShift(pattern);
+	private static CharShift computeShift(char[][] classes, boolean relaxed) {
+		if (isCompactRange(CharClasses.chars(classes))) {
+			return new QuickShift(classes);
 		} else if (relaxed) {
-			return new RelaxedShift(pattern);
+			return new RelaxedShift(classes);
 		} else {
-			return new SmartShift(pattern);
+			return new SmartShift(classes);
 		}
 	}
 
@@ -47,6 +60,10 @@ public class Horspool implements StringSearchAlgorithm {
 		return maxChar - minChar < 256 || maxChar - minChar < pattern.length * 2;
 	}
 
+	private boolean matches(int i, char c) {
+		return pattern[i] == c || alternatives != null && CharClasses.contains(alternatives[i], c);
+	}
+
 	@Override
 	public int getPatternLength() {
 		return patternLength;
@@ -62,12 +79,12 @@ public class Horspool implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private class Finder extends AbstractStringFinder {
+	private class Finder extends SingleStringFinder {
 
 		private CharProvider chars;
 
 		public Finder(CharProvider chars, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.chars = chars;
 		}
 
@@ -79,41 +96,44 @@ public class Horspool implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			final int lookahead = patternLength - 1;
 			next: while (!chars.finished(lookahead)) {
 				int patternPointer = lookahead;
 				char nextChar = chars.lookahead(patternPointer);
-				if (pattern[patternPointer] == nextChar) {
+				if (matches(patternPointer, nextChar)) {
 					while (patternPointer > 0) {
 						patternPointer--;
-						if (pattern[patternPointer] != chars.lookahead(patternPointer)) {
+						if (!matches(patternPointer, chars.lookahead(patternPointer))) {
 							chars.forward(charShift.getShift(nextChar));
 							continue next;
 						}
 					}
 					if (patternPointer == 0) {
-						StringMatch match = createMatch();
+						long start = chars.current();
 						chars.forward(charShift.getShift(nextChar));
-						return match;
+						return start;
 					}
 				} else {
 					chars.forward(charShift.getShift(nextChar));
 				}
 			}
-			return null;
+			return -1;
 		}
 
-		private StringMatch createMatch() {
-			long start = chars.current();
-			long end = start + patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
 			String s = chars.slice(start, end);
 			return new StringMatch(start, end, s);
 		}
 	}
 
-	public static class Factory implements StringSearchAlgorithmFactory {
+	public static class Factory implements StringSearchAlgorithmFactory, SupportsCharClasses {
 
+		private CharMapping mapping;
 		private boolean relaxed;
 
 		public Factory() {
@@ -124,9 +144,18 @@ public class Horspool implements StringSearchAlgorithm {
 			this.relaxed = relaxed;
 		}
 
+		@Override
+		public void enableCharClasses(CharMapping mapping) {
+			this.mapping = mapping;
+		}
+
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new Horspool(pattern, relaxed);
+			if (mapping == null) {
+				return new Horspool(pattern, relaxed);
+			} else {
+				return new Horspool(pattern, relaxed, mapping);
+			}
 		}
 
 	}
@@ -138,20 +167,23 @@ public class Horspool implements StringSearchAlgorithm {
 		private int[] characterShift;
 		private int defaultShift;
 
-		public QuickShift(char[] pattern) {
-			this.minChar = computeMinChar(pattern);
-			this.maxChar = computeMaxChar(pattern);
-			this.characterShift = computeCharacterShift(pattern, this.minChar, this.maxChar);
-			this.defaultShift = pattern.length;
+		public QuickShift(char[][] classes) {
+			char[] chars = CharClasses.chars(classes);
+			this.minChar = computeMinChar(chars);
+			this.maxChar = computeMaxChar(chars);
+			this.characterShift = computeCharacterShift(classes, this.minChar, this.maxChar);
+			this.defaultShift = classes.length;
 		}
 
-		private static int[] computeCharacterShift(char[] pattern, char min, char max) {
+		private static int[] computeCharacterShift(char[][] classes, char min, char max) {
 			int[] characters = new int[max - min + 1];
 			for (int i = 0; i < characters.length; i++) {
-				characters[i] = pattern.length;
+				characters[i] = classes.length;
 			}
-			for (int i = 0; i < pattern.length - 1; i++) {
-				characters[pattern[i] - min] = pattern.length - i - 1;
+			for (int i = 0; i < classes.length - 1; i++) {
+				for (char c : classes[i]) {
+					characters[c - min] = classes.length - i - 1;
+				}
 			}
 			return characters;
 		}
@@ -170,20 +202,22 @@ public class Horspool implements StringSearchAlgorithm {
 
 		private int[] characterShift;
 
-		public RelaxedShift(char[] pattern) {
-			this.characterShift = computeCharacterShift(pattern);
+		public RelaxedShift(char[][] classes) {
+			this.characterShift = computeCharacterShift(classes);
 		}
 
-		private static int[] computeCharacterShift(char[] pattern) {
+		private static int[] computeCharacterShift(char[][] classes) {
 			int[] characters = new int[256];
 			for (int i = 0; i < characters.length; i++) {
-				characters[i] = pattern.length;
+				characters[i] = classes.length;
 			}
-			for (int i = 0; i < pattern.length - 1; i++) {
-				int index = pattern[i] % 256;
-				int newShift = pattern.length - i - 1;
-				if (newShift < characters[index]) {
-					characters[index] = newShift;
+			for (int i = 0; i < classes.length - 1; i++) {
+				int newShift = classes.length - i - 1;
+				for (char c : classes[i]) {
+					int index = c % 256;
+					if (newShift < characters[index]) {
+						characters[index] = newShift;
+					}
 				}
 			}
 			return characters;
@@ -200,14 +234,16 @@ public class Horspool implements StringSearchAlgorithm {
 
 		private CharIntMap characterShift;
 
-		public SmartShift(char[] pattern) {
-			this.characterShift = computeCharacterShift(pattern);
+		public SmartShift(char[][] classes) {
+			this.characterShift = computeCharacterShift(classes);
 		}
 
-		private static CharIntMap computeCharacterShift(char[] pattern) {
-			CharIntMap map = new CharIntMap(pattern.length);
-			for (int i = 0; i < pattern.length - 1; i++) {
-				map.put(pattern[i], pattern.length - i - 1);
+		private static CharIntMap computeCharacterShift(char[][] classes) {
+			CharIntMap map = new CharIntMap(classes.length);
+			for (int i = 0; i < classes.length - 1; i++) {
+				for (char c : classes[i]) {
+					map.put(c, classes.length - i - 1);
+				}
 			}
 			return map;
 		}
@@ -1,10 +1,11 @@
 package net.amygdalum.stringsearchalgorithms.search.chars;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.text.CharMapping;
 
 /**
  * An implementation of the String Search Algorithm of Knuth-Morris-Pratt.
@@ -14,11 +15,21 @@ import net.amygdalum.util.io.CharProvider;
 public class KnuthMorrisPratt implements StringSearchAlgorithm {
 
 	private char[] pattern;
+	private char[][] alternatives;
 	private int patternLength;
 	private int[] next;
 
 	public KnuthMorrisPratt(String pattern) {
-		this.pattern = pattern.toCharArray();
+		this(pattern, CharMapping.IDENTITY);
+	}
+
+	/**
+	 * @param pattern the pattern
+	 * @param mapping the mapping of chars to equivalent chars (e.g. for case insensitive search), the failure function is computed on the normalized pattern
+	 */
+	public KnuthMorrisPratt(String pattern, CharMapping mapping) {
+		this.pattern = mapping.normalized(pattern.toCharArray());
+		this.alternatives = mapping == CharMapping.IDENTITY ? null : CharClasses.of(this.pattern, mapping);
 		this.patternLength = this.pattern.length;
 		this.next = computeNext(this.pattern);
 	}
@@ -44,6 +55,10 @@ public class KnuthMorrisPratt implements StringSearchAlgorithm {
 		return next;
 	}
 
+	private boolean matches(int i, char c) {
+		return pattern[i] == c || alternatives != null && CharClasses.contains(alternatives[i], c);
+	}
+
 	@Override
 	public int getPatternLength() {
 		return patternLength;
@@ -59,13 +74,13 @@ public class KnuthMorrisPratt implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private class Finder extends AbstractStringFinder {
+	private class Finder extends SingleStringFinder {
 
 		private CharProvider chars;
 		private int patternPointer;
 
 		public Finder(CharProvider chars, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.chars = chars;
 			this.patternPointer = 0;
 		}
@@ -79,35 +94,48 @@ public class KnuthMorrisPratt implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!chars.finished()) {
 				char nextChar = chars.next();
-				while (patternPointer > -1 && pattern[patternPointer] != nextChar) {
+				while (patternPointer > -1 && !matches(patternPointer, nextChar)) {
 					patternPointer = next[patternPointer];
 				}
 				patternPointer++;
 				if (patternPointer >= patternLength) {
-					StringMatch match = createMatch();
+					long start = chars.current() - patternPointer;
 					patternPointer = next[patternPointer];
-					return match;
+					return start;
 				}
 			}
-			return null;
+			return -1;
 		}
 
-		private StringMatch createMatch() {
-			long end = chars.current();
-			long start = end - patternPointer;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
 			String s = chars.slice(start, end);
 			return new StringMatch(start, end, s);
 		}
 	}
 
-	public static class Factory implements StringSearchAlgorithmFactory {
+	public static class Factory implements StringSearchAlgorithmFactory, SupportsCharClasses {
+
+		private CharMapping mapping;
+
+		@Override
+		public void enableCharClasses(CharMapping mapping) {
+			this.mapping = mapping;
+		}
 
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new KnuthMorrisPratt(pattern);
+			if (mapping == null) {
+				return new KnuthMorrisPratt(pattern);
+			} else {
+				return new KnuthMorrisPratt(pattern, mapping);
+			}
 		}
 
 	}
@@ -0,0 +1,41 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * a string match that slices its text from the document only on demand (i.e. on the first call to text()).
+ * 
+ * Such matches are created by finders configured with MatchOption.LAZY_TEXT. The text has to be requested while the document is still accessible at the match position.
+ */
+public class LazyStringMatch extends StringMatch {
+
+	private CharProvider chars;
+	private String text;
+
+	/**
+	 * @param chars the document containing the match
+	 * @param start the start of the match
+	 * @param end the end of the match
+	 * @param pattern the index of the matched pattern
+	 */
+	public LazyStringMatch(CharProvider chars, long start, long end, int pattern) {
+		super(start, end, pattern);
+		this.chars = chars;
+	}
+
+	@Override
+	public String text() {
+		if (text == null) {
+			text = chars.slice(start(), end());
+			chars = null;
+		}
+		return text;
+	}
+
+	@Override
+	public int length() {
+		return (int) (end() - start());
+	}
+
+}
@@ -0,0 +1,90 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import net.amygdalum.stringsearchalgorithms.search.AbstractParallelSearch;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.io.StringCharProvider;
+
+/**
+ * searches a large document in parallel chunks with a given algorithm (see AbstractParallelSearch for the merge semantics).
+ */
+public class ParallelSearch extends AbstractParallelSearch<ParallelSearch.Source> {
+
+	private StringSearchAlgorithm algorithm;
+
+	/**
+	 * @param algorithm the algorithm to search with
+	 * @param maxPatternLength the length of the longest pattern of the algorithm
+	 */
+	public ParallelSearch(StringSearchAlgorithm algorithm, int maxPatternLength) {
+		this(algorithm, maxPatternLength, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	public ParallelSearch(StringSearchAlgorithm algorithm, int maxPatternLength, int chunkSize, ForkJoinPool pool) {
+		super(maxPatternLength, chunkSize, pool);
+		this.algorithm = algorithm;
+	}
+
+	public static Source source(final String text) {
+		return new Source() {
+
+			@Override
+			public long length() {
+				return text.length();
+			}
+
+			@Override
+			public CharProvider provider(long start, long end) {
+				return new StringCharProvider(text.substring((int) start, (int) end), 0);
+			}
+		};
+	}
+
+	public List<StringMatch> findAll(String text, StringFinderOption... options) {
+		return findAll(source(text), options);
+	}
+
+	@Override
+	protected long length(Source source) {
+		return source.length();
+	}
+
+	@Override
+	protected Chunk createChunk(Source source, long start, long end) {
+		final CharProvider chars = source.provider(start, end);
+		return new Chunk() {
+
+			@Override
+			public void search(MatchSink sink, StringFinderOption... options) {
+				algorithm.search(chars, sink, options);
+			}
+
+			@Override
+			public String text(long start, long end) {
+				return chars.slice(start, end);
+			}
+		};
+	}
+
+	/**
+	 * a document that can be split into independent chunks
+	 */
+	public interface Source {
+
+		long length();
+
+		/**
+		 * @param start the start of the chunk (inclusive)
+		 * @param end the end of the chunk (exclusive)
+		 * @return a new provider for the chunk, positions of the provider are relative to start
+		 */
+		CharProvider provider(long start, long end);
+
+	}
+
+}
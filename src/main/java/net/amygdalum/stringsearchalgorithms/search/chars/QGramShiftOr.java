@@ -3,24 +3,30 @@ package net.amygdalum.stringsearchalgorithms.search.chars;
 import static java.util.Arrays.fill;
 import static net.amygdalum.util.text.CharUtils.computeMaxChar;
 import static net.amygdalum.util.text.CharUtils.computeMinChar;
+import static net.amygdalum.util.text.CharUtils.lengths;
 import static net.amygdalum.util.text.CharUtils.maxLength;
 import static net.amygdalum.util.text.CharUtils.minLength;
 import static net.amygdalum.util.text.StringUtils.toCharArray;
 
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
 import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.text.CharAutomaton;
 import net.amygdalum.util.text.CharMapping;
+import net.amygdalum.util.text.CharTrie;
+import net.amygdalum.util.text.CharWordSet;
+import net.amygdalum.util.text.CharWordSetBuilder;
 import net.amygdalum.util.text.QGramAlphabet;
 import net.amygdalum.util.text.QGramMapping;
-import net.amygdalum.util.text.StringSet;
+import net.amygdalum.util.text.doublearraytrie.DoubleArrayCharCompactTrieCompiler;
 
 /**
  * An implementation of the String Search Algorithm Shift-Or (or Baeza-Yates–Gonnet).
@@ -31,8 +37,9 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 
 	private int minLength;
 	private int maxLength;
+	private int[] lengths;
 	private QGramMapping qmapping;
-	private StringSet patterns;
+	private CharWordSet<Integer> patterns;
 	private BitMapStates states;
 
 	public QGramShiftOr(Collection<String> patterns) {
@@ -47,11 +54,22 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 		List<char[]> charpatterns = toCharArray(patterns);
 		this.minLength = minLength(charpatterns);
 		this.maxLength = maxLength(charpatterns);
+		this.lengths = lengths(charpatterns);
 		this.qmapping = qmapping;
-		this.patterns = new StringSet(charpatterns);
+		this.patterns = computePatterns(charpatterns);
 		this.states = computeStates(charpatterns, qmapping, mapping, maxLength);
 	}
 
+	private static CharWordSet<Integer> computePatterns(List<char[]> charpatterns) {
+		CharWordSetBuilder<Integer, CharTrie<Integer>> builder = new CharWordSetBuilder<>(new DoubleArrayCharCompactTrieCompiler<Integer>(), new FirstPatternIndex());
+
+		for (int i = 0; i < charpatterns.size(); i++) {
+			builder.extend(charpatterns.get(i), i);
+		}
+
+		return builder.build();
+	}
+
 	public static QGramMapping bestMapping(Collection<String> patterns) {
 		List<char[]> charpatterns = toCharArray(patterns);
 		char minChar = computeMinChar(charpatterns);
@@ -112,12 +130,14 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 		protected int q;
 		protected int q1;
 		protected CharProvider chars;
+		protected CharAutomaton<Integer> cursor;
 
 		public Finder(CharProvider chars, StringFinderOption... options) {
 			super(options);
 			this.q = qmapping.getQ();
 			this.q1 = qmapping.getQ() - 1;
 			this.chars = chars;
+			this.cursor = patterns.cursor();
 		}
 
 		protected int nextQGram(char[] qgram) {
@@ -128,9 +148,29 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 			return qmapping.map(qgram);
 		}
 
-		protected StringMatch createMatch(long start, long end) {
+		/**
+		 * @return the index of the pattern found at the given position or -1 if there is no such pattern
+		 */
+		protected int patternAt(long start, int len) {
+			cursor.reset();
+			for (int i = 0; i < len; i++) {
+				if (!cursor.accept(chars.at(start + i))) {
+					return -1;
+				}
+			}
+			if (!cursor.hasAttachments()) {
+				return -1;
+			}
+			return cursor.iterator().next();
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
 			String s = chars.slice(start, end);
-			return new StringMatch(start, end, s);
+			return new StringMatch(start, end, s, pattern);
 		}
 
 		protected boolean firstMatchOutOfSubsumptionRange() {
@@ -153,7 +193,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 
 		private long computeFinalState() {
 			long finalstate = BitMapStates.ALLBITS;
-			for (int len : patterns.containedLengths()) {
+			for (int len : lengths) {
 				int lenQ = len - q;
 				finalstate &= ~(1l << lenQ);
 			}
@@ -174,20 +214,39 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 			}
 		}
 
-		protected final List<StringMatch> verifyMatches() {
-			List<StringMatch> matches = new LinkedList<>();
-			for (int len : patterns.containedLengths()) {
+		protected final void pushMatches() {
+			for (int len : lengths) {
+				int lenQ = len - q;
+				if ((state | ~(1l << lenQ)) != BitMapStates.ALLBITS) {
+					long end = chars.current() + q1;
+					long start = end - len;
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						push(start, end, pattern);
+					}
+				}
+			}
+		}
+
+		protected final boolean reportMatches(MatchSink sink) {
+			for (int len : lengths) {
 				int lenQ = len - q;
 				if ((state | ~(1l << lenQ)) != BitMapStates.ALLBITS) {
 					long end = chars.current() + q1;
 					long start = end - len;
-					char[] found = chars.between(start, end);
-					if (patterns.contains(found)) {
-						matches.add(0, createMatch(start, end));
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						if (!sink.onMatch(start, end, pattern)) {
+							return false;
+						}
+						if (nonOverlap) {
+							skipTo(end);
+							break;
+						}
 					}
 				}
 			}
-			return matches;
+			return true;
 		}
 
 		protected boolean isFinalState() {
@@ -207,9 +266,9 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
 			}
 			char[] qgram = qmapping.newQGram();
 			while (!chars.finished(q1)) {
@@ -219,13 +278,31 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 				state = (state << 1) | bits;
 
 				if (isFinalState()) {
-					push(verifyMatches());
+					pushMatches();
 					if (!isBufferEmpty()) {
-						return leftMost();
+						return takeLeftMost();
 					}
 				}
 			}
-			return null;
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			char[] qgram = qmapping.newQGram();
+			while (!chars.finished(q1)) {
+				int nextQGram = nextQGram(qgram);
+				long bits = states.single(nextQGram);
+
+				state = (state << 1) | bits;
+
+				if (isFinalState() && !reportMatches(sink)) {
+					return;
+				}
+			}
 		}
 
 	}
@@ -237,7 +314,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			char[] qgram = qmapping.newQGram();
 			while (!chars.finished(q1)) {
 				int nextQGram = nextQGram(qgram);
@@ -246,7 +323,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 				state = (state << 1) | bits;
 
 				if (isFinalState()) {
-					push(verifyMatches());
+					pushMatches();
 				}
 				if (!isBufferEmpty()) {
 					if (isZeroState()) {
@@ -256,7 +333,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 					}
 				}
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 	}
@@ -274,7 +351,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 
 		private long[] computeFinalState() {
 			long[] finalstate = MultiLongBitMapStates.computeZero(maxLength);
-			for (int len : patterns.containedLengths()) {
+			for (int len : lengths) {
 				int lenQ = len - q;
 				int slot = ((maxLength - 1) / 64) - lenQ / 64;
 				int offset = lenQ % 64;
@@ -292,11 +369,11 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 			} else {
 				long diff = chars.current() - pos;
 				if (diff < maxLength) {
-					for (int i = state.length - 1; i >= 0 && diff > 0; i--) {
-						if (diff < 64) {
-							state[i] |= BitMapStates.ALLBITS << diff;
-						} else {
+					for (int i = state.length - 1; i >= 0; i--) {
+						if (diff <= 0) {
 							state[i] = BitMapStates.ALLBITS;
+						} else if (diff < 64) {
+							state[i] |= BitMapStates.ALLBITS << diff;
 						}
 						diff -= 64;
 					}
@@ -304,9 +381,8 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 			}
 		}
 
-		protected final List<StringMatch> verifyMatches() {
-			List<StringMatch> matches = new LinkedList<>();
-			for (int len : patterns.containedLengths()) {
+		protected final void pushMatches() {
+			for (int len : lengths) {
 				int lenQ = len - q;
 				int lastElement = maxLength - 1;
 				int allslots = lastElement / 64;
@@ -316,13 +392,38 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 				if ((state[slot] | ~(1l << offset)) != BitMapStates.ALLBITS) {
 					long end = chars.current() + q1;
 					long start = end - len;
-					char[] found = chars.between(start, end);
-					if (patterns.contains(found)) {
-						matches.add(0, createMatch(start, end));
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						push(start, end, pattern);
 					}
 				}
 			}
-			return matches;
+		}
+
+		protected final boolean reportMatches(MatchSink sink) {
+			for (int len : lengths) {
+				int lenQ = len - q;
+				int lastElement = maxLength - 1;
+				int allslots = lastElement / 64;
+				int slotsFromBeginning = lenQ / 64;
+				int slot = allslots - slotsFromBeginning;
+				int offset = lenQ % 64;
+				if ((state[slot] | ~(1l << offset)) != BitMapStates.ALLBITS) {
+					long end = chars.current() + q1;
+					long start = end - len;
+					int pattern = patternAt(start, len);
+					if (pattern >= 0) {
+						if (!sink.onMatch(start, end, pattern)) {
+							return false;
+						}
+						if (nonOverlap) {
+							skipTo(end);
+							break;
+						}
+					}
+				}
+			}
+			return true;
 		}
 
 		protected long[] next(long[] state, long[] bits) {
@@ -361,9 +462,9 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
 			}
 			char[] qgram = qmapping.newQGram();
 			while (!chars.finished(q1)) {
@@ -373,13 +474,31 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 				state = next(state, bits);
 
 				if (isFinalState()) {
-					push(verifyMatches());
+					pushMatches();
 					if (!isBufferEmpty()) {
-						return leftMost();
+						return takeLeftMost();
 					}
 				}
 			}
-			return null;
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			char[] qgram = qmapping.newQGram();
+			while (!chars.finished(q1)) {
+				int nextQGram = nextQGram(qgram);
+				long[] bits = states.all(nextQGram);
+
+				state = next(state, bits);
+
+				if (isFinalState() && !reportMatches(sink)) {
+					return;
+				}
+			}
 		}
 
 	}
@@ -391,7 +510,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			char[] qgram = qmapping.newQGram();
 			while (!chars.finished(q1)) {
 				int nextQGram = nextQGram(qgram);
@@ -400,7 +519,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 				state = next(state, bits);
 
 				if (isFinalState()) {
-					push(verifyMatches());
+					pushMatches();
 				}
 				if (!isBufferEmpty()) {
 					if (isZeroState()) {
@@ -411,7 +530,7 @@ public class QGramShiftOr implements StringSearchAlgorithm {
 				}
 
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 	}
@@ -0,0 +1,155 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static java.util.Arrays.fill;
+
+import net.amygdalum.stringsearchalgorithms.search.FrequencyModel;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.map.CharIntMap;
+
+/**
+ * An implementation of a String Search Algorithm anchored at the rarest char of the pattern.
+ * 
+ * This algorithm takes a single pattern as input and generates a finder which can find this pattern in documents.
+ * Unlike Horspool (which always compares and shifts on the last char of the pattern) the anchor is the position of the
+ * pattern with the rarest char (according to a FrequencyModel of the documents). Each window is tested at the anchor
+ * first, then verified in order of ascending char frequency, and shifted by the bad character rule for the anchor.
+ */
+public class RareAnchor implements StringSearchAlgorithm {
+
+	private char[] pattern;
+	private int patternLength;
+	private int[] order;
+	private int anchor;
+	private CharShift anchorShift;
+
+	public RareAnchor(String pattern) {
+		this(pattern, FrequencyModel.DEFAULT);
+	}
+
+	public RareAnchor(String pattern, FrequencyModel model) {
+		this.pattern = pattern.toCharArray();
+		this.patternLength = this.pattern.length;
+		this.order = model.rarest(this.pattern);
+		this.anchor = order.length > 0 ? order[0] : 0;
+		this.anchorShift = new AnchorShift(this.pattern, anchor);
+	}
+
+	@Override
+	public int getPatternLength() {
+		return patternLength;
+	}
+
+	@Override
+	public StringFinder createFinder(CharProvider chars, StringFinderOption... options) {
+		return new Finder(chars, options);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private class Finder extends SingleStringFinder {
+
+		private CharProvider chars;
+
+		public Finder(CharProvider chars, StringFinderOption... options) {
+			super(patternLength, options);
+			this.chars = chars;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			if (pos > chars.current()) {
+				chars.move(pos);
+			}
+		}
+
+		@Override
+		protected long findNextStart() {
+			final int lookahead = patternLength - 1;
+			while (!chars.finished(lookahead)) {
+				char anchorChar = chars.lookahead(anchor);
+				if (pattern[anchor] == anchorChar && verify()) {
+					long start = chars.current();
+					chars.forward(anchorShift.getShift(anchorChar));
+					return start;
+				}
+				chars.forward(anchorShift.getShift(anchorChar));
+			}
+			return -1;
+		}
+
+		private boolean verify() {
+			for (int i = 1; i < order.length; i++) {
+				int position = order[i];
+				if (pattern[position] != chars.lookahead(position)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
+			String s = chars.slice(start, end);
+			return new StringMatch(start, end, s);
+		}
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory {
+
+		private FrequencyModel model;
+
+		public Factory() {
+			this(FrequencyModel.DEFAULT);
+		}
+
+		public Factory(FrequencyModel model) {
+			this.model = model;
+		}
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new RareAnchor(pattern, model);
+		}
+
+	}
+
+	private static class AnchorShift implements CharShift {
+
+		private int[] lowShift;
+		private CharIntMap highShift;
+
+		public AnchorShift(char[] pattern, int anchor) {
+			this.lowShift = new int[256];
+			this.highShift = new CharIntMap(anchor + 1);
+			fill(lowShift, anchor + 1);
+			for (int i = 0; i < anchor; i++) {
+				char c = pattern[i];
+				if (c < 256) {
+					lowShift[c] = anchor - i;
+				} else {
+					highShift.put(c, anchor - i);
+				}
+			}
+		}
+
+		@Override
+		public int getShift(char c) {
+			if (c < 256) {
+				return lowShift[c];
+			}
+			return highShift.get(c);
+		}
+
+	}
+
+}
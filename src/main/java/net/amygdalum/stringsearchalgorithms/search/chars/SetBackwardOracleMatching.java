@@ -2,6 +2,7 @@ package net.amygdalum.stringsearchalgorithms.search.chars;
 
 import static java.util.Arrays.asList;
 import static java.util.Arrays.copyOfRange;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
 import static net.amygdalum.util.text.CharUtils.minLength;
 import static net.amygdalum.util.text.CharUtils.revert;
 import static net.amygdalum.util.text.StringUtils.toCharArray;
@@ -12,13 +13,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -39,11 +39,17 @@ import net.amygdalum.util.text.linkeddawg.LinkedCharDawgCompiler;
  * 
  * This algorithm takes a multiple string patterns as input and generates a
  * finder which can find any of these patterns in documents.
+ * 
+ * Given a memory budget (in bytes) the oracle is compiled to an automaton with
+ * dense transitions over the char classes of the oracle. If this automaton would
+ * exceed the budget, the linked oracle is used.
  */
 public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 
+	public static final long NO_DFA = 0;
+
 	private CharMapping mapping;
-	private CharWordSet<char[][]> trie;
+	private CharWordSet<Patterns> trie;
 	private int minLength;
 
 	public SetBackwardOracleMatching(Collection<String> patterns) {
@@ -51,10 +57,14 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 	}
 
 	public SetBackwardOracleMatching(Collection<String> patterns, CharMapping mapping) {
+		this(patterns, mapping, NO_DFA);
+	}
+
+	public SetBackwardOracleMatching(Collection<String> patterns, CharMapping mapping, long dfaBudget) {
 		List<char[]> charpatterns = toCharArray(patterns);
 		this.mapping = mapping;
 		this.minLength = minLength(charpatterns);
-		this.trie = computeTrie(normalized(mapping, charpatterns), minLength, mapping);
+		this.trie = computeTrie(normalized(mapping, charpatterns), minLength, mapping, dfaBudget);
 	}
 
 	private char[][] normalized(CharMapping mapping, List<char[]> charpatterns) {
@@ -65,18 +75,26 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		return normalized.toArray(new char[0][]);
 	}
 
-	private static CharWordSet<char[][]> computeTrie(char[][] charpatterns, int length, CharMapping mapping) {
-		CharWordSetBuilder<char[][], CharDawg<char[][]>> builder = new CharWordSetBuilder<>(new LinkedCharDawgCompiler<char[][]>(), new MergePatterns());
+	private static CharWordSet<Patterns> computeTrie(char[][] charpatterns, int length, CharMapping mapping, long dfaBudget) {
+		CharWordSetBuilder<Patterns, CharDawg<Patterns>> builder = new CharWordSetBuilder<>(new LinkedCharDawgCompiler<Patterns>(), new MergePatterns());
 
-		for (char[] pattern : charpatterns) {
+		for (int i = 0; i < charpatterns.length; i++) {
+			char[] pattern = charpatterns[i];
 			char[] prefix = copyOfRange(pattern, 0, length);
 			char[] reversePrefix = revert(prefix);
 			char[] suffix = copyOfRange(pattern, length, pattern.length);
-			builder.extend(reversePrefix, new char[][] {prefix, suffix});
+			builder.extend(reversePrefix, new Patterns(prefix, suffix, i));
 		}
 		builder.work(new BuildOracle());
 		builder.work(new UseCharClasses(mapping));
 
+		if (dfaBudget != NO_DFA) {
+			CharDFA.Compile<Patterns> dfa = new CharDFA.Compile<>(dfaBudget);
+			builder.work(dfa);
+			if (dfa.getAutomaton() != null) {
+				return dfa.getAutomaton();
+			}
+		}
 		return builder.build();
 	}
 
@@ -95,53 +113,86 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	public static class MergePatterns implements JoinStrategy<char[][]> {
+	/**
+	 * the patterns sharing a common prefix (of minimal pattern length), the suffixes are ordered by descending length, ids contains the pattern index of each suffix (the first index if a pattern occurs more than once)
+	 */
+	public static class Patterns {
+
+		public final char[] prefix;
+		public final char[][] suffixes;
+		public final int[] ids;
+
+		public Patterns(char[] prefix, char[] suffix, int id) {
+			this(prefix, new char[][] {suffix}, new int[] {id});
+		}
+
+		private Patterns(char[] prefix, char[][] suffixes, int[] ids) {
+			this.prefix = prefix;
+			this.suffixes = suffixes;
+			this.ids = ids;
+		}
+
+		public Patterns with(char[] suffix, int id) {
+			for (char[] existing : suffixes) {
+				if (Arrays.equals(existing, suffix)) {
+					return this;
+				}
+			}
+			char[][] resultSuffixes = new char[suffixes.length + 1][];
+			int[] resultIds = new int[ids.length + 1];
+			int i = 0;
+			while (i < suffixes.length && suffixes[i].length > suffix.length) {
+				i++;
+			}
+			System.arraycopy(suffixes, 0, resultSuffixes, 0, i);
+			System.arraycopy(ids, 0, resultIds, 0, i);
+			resultSuffixes[i] = suffix;
+			resultIds[i] = id;
+			if (i < suffixes.length) {
+				System.arraycopy(suffixes, i, resultSuffixes, i + 1, suffixes.length - i);
+				System.arraycopy(ids, i, resultIds, i + 1, ids.length - i);
+			}
+			return new Patterns(prefix, resultSuffixes, resultIds);
+		}
+
+	}
+
+	public static class MergePatterns implements JoinStrategy<Patterns> {
 
 		@Override
-		public char[][] join(char[][] existing, char[][] next) {
+		public Patterns join(Patterns existing, Patterns next) {
 			if (existing == null) {
 				return next;
 			} else {
-				char[][] result = new char[existing.length + 1][];
-				char[] insert = next[1];
-				int i = 1;
-				while (i < existing.length && existing[i].length > insert.length) {
-					i++;
-				}
-				System.arraycopy(existing, 0, result, 0, i);
-				result[i] = insert;
-				if (i < existing.length) {
-					System.arraycopy(existing, i, result, i + 1, existing.length - i);
-				}
-				return result;
+				return existing.with(next.suffixes[0], next.ids[0]);
 			}
 		}
 
 	}
 
-	public static class BuildOracle implements CharTask<char[][]> {
-		private Map<CharNode<char[][]>, CharNode<char[][]>> oracle;
-		private CharNode<char[][]> init;
+	public static class BuildOracle implements CharTask<Patterns> {
+		private Map<CharNode<Patterns>, CharNode<Patterns>> oracle;
+		private CharNode<Patterns> init;
 
 		public BuildOracle() {
 			oracle = new IdentityHashMap<>();
 		}
 
 		@Override
-		public List<CharNode<char[][]>> init(CharNode<char[][]> root) {
+		public List<CharNode<Patterns>> init(CharNode<Patterns> root) {
 			this.init = root;
 			return asList(root);
 		}
 
 		@Override
-		public List<CharNode<char[][]>> process(CharNode<char[][]> node) {
-			List<CharNode<char[][]>> nexts = new ArrayList<>();
+		public List<CharNode<Patterns>> process(CharNode<Patterns> node) {
+			List<CharNode<Patterns>> nexts = new ArrayList<>();
 			for (char c : node.getAlternatives()) {
-				CharNode<char[][]> current = node.nextNode(c);
+				CharNode<Patterns> current = node.nextNode(c);
 
-				CharNode<char[][]> down = oracle.get(node);
+				CharNode<Patterns> down = oracle.get(node);
 				while (down != null) {
-					CharNode<char[][]> next = down.nextNode(c);
+					CharNode<Patterns> next = down.nextNode(c);
 					if (next != null) {
 						oracle.put(current, next);
 						break;
@@ -159,15 +210,15 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		}
 
 		@SuppressWarnings("unchecked")
-		private void addNextNode(CharNode<char[][]> node, char c, CharNode<char[][]> next) {
-			((CharConnectionAdaptor<char[][]>) node).addNextNode(c, next);
+		private void addNextNode(CharNode<Patterns> node, char c, CharNode<Patterns> next) {
+			((CharConnectionAdaptor<Patterns>) node).addNextNode(c, next);
 		}
 	}
 
-	public static class UseCharClasses implements CharTask<char[][]> {
+	public static class UseCharClasses implements CharTask<Patterns> {
 
 		private CharMapping mapping;
-		private Set<CharNode<char[][]>> done;
+		private Set<CharNode<Patterns>> done;
 
 		public UseCharClasses(CharMapping mapping) {
 			this.mapping = mapping;
@@ -175,7 +226,7 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public List<CharNode<char[][]>> init(CharNode<char[][]> root) {
+		public List<CharNode<Patterns>> init(CharNode<Patterns> root) {
 			if (mapping == CharMapping.IDENTITY) {
 				return Collections.emptyList();
 			}
@@ -183,11 +234,11 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public List<CharNode<char[][]>> process(CharNode<char[][]> node) {
-			List<CharNode<char[][]>> nexts = new ArrayList<>();
+		public List<CharNode<Patterns>> process(CharNode<Patterns> node) {
+			List<CharNode<Patterns>> nexts = new ArrayList<>();
 
 			for (char c : node.getAlternatives()) {
-				CharNode<char[][]> next = node.nextNode(c);
+				CharNode<Patterns> next = node.nextNode(c);
 				for (char cc : mapping.map(c)) {
 					addNextNode(node, cc, next);
 				}
@@ -200,28 +251,28 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		}
 
 		@SuppressWarnings("unchecked")
-		private void addNextNode(CharNode<char[][]> node, char c, CharNode<char[][]> next) {
-			((CharConnectionAdaptor<char[][]>) node).addNextNode(c, next);
+		private void addNextNode(CharNode<Patterns> node, char c, CharNode<Patterns> next) {
+			((CharConnectionAdaptor<Patterns>) node).addNextNode(c, next);
 		}
 	}
 
-	private static class Finder extends AbstractStringFinder {
+	private static class Finder extends BufferedStringFinder {
 
 		private final int minLength;
 		private final int lookahead;
+		private boolean longestMatch;
 		private final CharMapping mapping;
 		private CharProvider chars;
-		private CharAutomaton<char[][]> cursor;
-		private Queue<StringMatch> buffer;
+		private CharAutomaton<Patterns> cursor;
 
-		public Finder(CharWordSet<char[][]> trie, int minLength, CharMapping mapping, CharProvider chars, StringFinderOption... options) {
+		public Finder(CharWordSet<Patterns> trie, int minLength, CharMapping mapping, CharProvider chars, StringFinderOption... options) {
 			super(options);
+			this.longestMatch = LONGEST_MATCH.in(options);
 			this.minLength = minLength;
 			this.lookahead = minLength - 1;
 			this.mapping = mapping;
 			this.chars = chars;
 			this.cursor = trie.cursor();
-			this.buffer = new LinkedList<>();
 		}
 
 		@Override
@@ -229,13 +280,13 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 			if (pos > chars.current()) {
 				chars.move(pos);
 			}
-			buffer.clear();
+			clear();
 		}
 
 		@Override
-		public StringMatch findNext() {
-			if (!buffer.isEmpty()) {
-				return buffer.remove();
+		protected boolean takeNext() {
+			if (!isBufferEmpty()) {
+				return nextFromBuffer();
 			}
 			next: while (!chars.finished(lookahead)) {
 				cursor.reset();
@@ -250,24 +301,23 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 				long currentWindowEnd = currentWindowStart + minLength;
 				char[] matchedPrefix = chars.between(currentPos, currentWindowEnd);
 				if (success && j < 0) {
-					char[][] patterns = cursor.iterator().next();
-					char[] prefix = patterns[0];
-					if (Arrays.equals(prefix, mapping.normalized(matchedPrefix))) {
-						for (int i = 1; i < patterns.length; i++) {
-							char[] suffix = patterns[i];
+					Patterns patterns = cursor.iterator().next();
+					if (Arrays.equals(patterns.prefix, mapping.normalized(matchedPrefix))) {
+						for (int i = 0; i < patterns.suffixes.length; i++) {
+							char[] suffix = patterns.suffixes[i];
 							long currentWordEnd = currentWindowEnd + suffix.length;
 							if (!chars.finished((int) (currentWordEnd - currentWindowStart - 1))) {
 								char[] matchedSuffix = chars.between(currentWindowEnd, currentWordEnd);
 								if (Arrays.equals(suffix, mapping.normalized(matchedSuffix))) {
-									buffer.add(createMatch(currentWindowStart, currentWordEnd));
+									push(currentWindowStart, currentWordEnd, patterns.ids[i]);
 								}
 							}
 						}
 						chars.next();
-						if (buffer.isEmpty()) {
+						if (isBufferEmpty()) {
 							continue next;
 						} else {
-							return buffer.remove();
+							return nextFromBuffer();
 						}
 					}
 
@@ -278,12 +328,79 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 					chars.forward(j + 2);
 				}
 			}
-			return null;
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (longestMatch) {
+				super.findAll(sink);
+				return;
+			}
+			if (!flush(sink)) {
+				return;
+			}
+			while (!chars.finished(lookahead)) {
+				cursor.reset();
+				int j = lookahead;
+				boolean success = true;
+				while (j >= 0 && success) {
+					success = cursor.accept(chars.lookahead(j));
+					j--;
+				}
+				if (success && j < 0) {
+					long currentWindowStart = chars.current();
+					long currentWindowEnd = currentWindowStart + minLength;
+					Patterns patterns = cursor.iterator().next();
+					char[] matchedPrefix = chars.between(currentWindowStart, currentWindowEnd);
+					if (Arrays.equals(patterns.prefix, mapping.normalized(matchedPrefix))) {
+						long skip = -1;
+						for (int i = patterns.suffixes.length - 1; i >= 0; i--) {
+							char[] suffix = patterns.suffixes[i];
+							long currentWordEnd = currentWindowEnd + suffix.length;
+							if (!chars.finished((int) (currentWordEnd - currentWindowStart - 1))) {
+								char[] matchedSuffix = chars.between(currentWindowEnd, currentWordEnd);
+								if (Arrays.equals(suffix, mapping.normalized(matchedSuffix))) {
+									if (!sink.onMatch(currentWindowStart, currentWordEnd, patterns.ids[i])) {
+										return;
+									}
+									if (nonOverlap) {
+										skip = currentWordEnd;
+										break;
+									}
+								}
+							}
+						}
+						chars.next();
+						if (skip >= 0) {
+							skipTo(skip);
+						}
+						continue;
+					}
+				}
+				if (j <= 0) {
+					chars.next();
+				} else {
+					chars.forward(j + 2);
+				}
+			}
 		}
 
-		private StringMatch createMatch(long start, long end) {
+		private boolean nextFromBuffer() {
+			if (longestMatch) {
+				return takeLongestLeftMost();
+			} else {
+				return takeLeftMost();
+			}
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
 			String s = chars.slice(start, end);
-			return new StringMatch(start, end, s);
+			return new StringMatch(start, end, s, pattern);
 		}
 
 	}
@@ -291,6 +408,15 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 	public static class Factory implements MultiStringSearchAlgorithmFactory, SupportsCharClasses {
 
 		private CharMapping mapping;
+		private long dfaBudget;
+
+		public Factory() {
+			this(NO_DFA);
+		}
+
+		public Factory(long dfaBudget) {
+			this.dfaBudget = dfaBudget;
+		}
 
 		@Override
 		public void enableCharClasses(CharMapping mapping) {
@@ -300,9 +426,9 @@ public class SetBackwardOracleMatching implements StringSearchAlgorithm {
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
 			if (mapping == null) {
-				return new SetBackwardOracleMatching(patterns);
+				return new SetBackwardOracleMatching(patterns, CharMapping.IDENTITY, dfaBudget);
 			} else {
-				return new SetBackwardOracleMatching(patterns, mapping);
+				return new SetBackwardOracleMatching(patterns, mapping, dfaBudget);
 			}
 		}
 
@@ -9,20 +9,26 @@ import static net.amygdalum.util.text.CharUtils.minLength;
 import static net.amygdalum.util.text.CharUtils.revert;
 import static net.amygdalum.util.text.StringUtils.toCharArray;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.CharProvider;
 import net.amygdalum.util.map.CharIntMap;
 import net.amygdalum.util.text.CharAutomaton;
+import net.amygdalum.util.text.CharDawg;
+import net.amygdalum.util.text.CharMapping;
 import net.amygdalum.util.text.CharTrie;
 import net.amygdalum.util.text.CharWordSet;
 import net.amygdalum.util.text.CharWordSetBuilder;
 import net.amygdalum.util.text.doublearraytrie.DoubleArrayCharCompactTrieCompiler;
+import net.amygdalum.util.text.linkeddawg.LinkedCharDawgCompiler;
 
 /**
  * An implementation of the Set Horspool Algorithm.
@@ -32,7 +38,7 @@ import net.amygdalum.util.text.doublearraytrie.DoubleArrayCharCompactTrieCompile
  */
 public class SetHorspool implements StringSearchAlgorithm {
 
-	private CharWordSet<String> trie;
+	private CharWordSet<Integer> trie;
 	private int minLength;
 	private int maxLength;
 	private CharShift charShift;
@@ -42,21 +48,57 @@ public class SetHorspool implements StringSearchAlgorithm {
 	}
 
 	public SetHorspool(Collection<String> patterns, boolean relaxed) {
-		List<char[]> charpatterns = toCharArray(patterns);
-		this.trie = computeTrie(charpatterns);
+		this(patterns, relaxed, CharMapping.IDENTITY);
+	}
+
+	/**
+	 * @param patterns the patterns
+	 * @param relaxed true if the shift table may be relaxed (using less memory and providing shorter shifts)
+	 * @param mapping the mapping of chars to equivalent chars (e.g. for case insensitive search), folded into the shift table and the trie transitions
+	 */
+	public SetHorspool(Collection<String> patterns, boolean relaxed, CharMapping mapping) {
+		List<char[]> charpatterns = normalized(toCharArray(patterns), mapping);
+		this.trie = computeTrie(charpatterns, mapping);
 		this.minLength = minLength(charpatterns);
 		this.maxLength = maxLength(charpatterns);
-		this.charShift = computeCharacterShift(charpatterns, minLength, relaxed);
+		this.charShift = computeCharacterShift(classes(charpatterns, mapping), minLength, relaxed);
 	}
 
-	private CharShift computeCharacterShift(List<char[]> charpatterns, int minLength, boolean relaxed) {
-		if (isCompactRange(charpatterns, minLength)) {
-			return new QuickShift(charpatterns, minLength);
+	private static List<char[]> normalized(List<char[]> charpatterns, CharMapping mapping) {
+		if (mapping == CharMapping.IDENTITY) {
+			return charpatterns;
+		}
+		List<char[]> normalized = new ArrayList<>(charpatterns.size());
+		for (char[] pattern : charpatterns) {
+			normalized.add(mapping.normalized(pattern));
+		}
+		return normalized;
+	}
+
+	private static List<char[][]> classes(List<char[]> charpatterns, CharMapping mapping) {
+		List<char[][]> classes = new ArrayList<>(charpatterns.size());
+		for (char[] pattern : charpatterns) {
+			classes.add(CharClasses.of(pattern, mapping));
+		}
+		return classes;
+	}
+
+	private CharShift computeCharacterShift(List<char[][]> classes, int minLength, boolean relaxed) {
+		if (isCompactRange(chars(classes), minLength)) {
+			return new QuickShift(classes, minLength);
 		} else if (relaxed) {
-			return new RelaxedShift(charpatterns, minLength);
+			return new RelaxedShift(classes, minLength);
 		} else {
-			return new SmartShift(charpatterns, minLength);
+			return new SmartShift(classes, minLength);
+		}
+	}
+
+	private static List<char[]> chars(List<char[][]> classes) {
+		List<char[]> chars = new ArrayList<>(classes.size());
+		for (char[][] patternClasses : classes) {
+			chars.add(CharClasses.chars(patternClasses));
 		}
+		return chars;
 	}
 
 	public boolean isCompactRange(List<char[]> charpatterns, int minLength) {
@@ -65,16 +107,31 @@ public class SetHorspool implements StringSearchAlgorithm {
 		return maxChar - minChar < 256 || maxChar - minChar < minLength * 2;
 	}
 
-	private static CharWordSet<String> computeTrie(List<char[]> charpatterns) {
-		CharWordSetBuilder<String, CharTrie<String>> builder = new CharWordSetBuilder<>(new DoubleArrayCharCompactTrieCompiler<String>());
+	private static CharWordSet<Integer> computeTrie(List<char[]> charpatterns, CharMapping mapping) {
+		if (mapping != CharMapping.IDENTITY) {
+			return computeDawg(charpatterns, mapping);
+		}
+		CharWordSetBuilder<Integer, CharTrie<Integer>> builder = new CharWordSetBuilder<>(new DoubleArrayCharCompactTrieCompiler<Integer>(), new FirstPatternIndex());
 
-		for (char[] pattern : charpatterns) {
-			builder.extend(revert(pattern), new String(pattern));
+		for (int i = 0; i < charpatterns.size(); i++) {
+			builder.extend(revert(charpatterns.get(i)), i);
 		}
 
 		return builder.build();
 	}
 
+	private static CharWordSet<Integer> computeDawg(List<char[]> charpatterns, CharMapping mapping) {
+		CharWordSetBuilder<Integer, CharDawg<Integer>> builder = new CharWordSetBuilder<>(new LinkedCharDawgCompiler<Integer>(), new FirstPatternIndex());
+
+		for (int i = 0; i < charpatterns.size(); i++) {
+			builder.extend(revert(charpatterns.get(i)), i);
+		}
+
+		return builder
+			.work(new CharClassTransitions<Integer>(mapping))
+			.build();
+	}
+
 	@Override
 	public StringFinder createFinder(CharProvider chars, StringFinderOption... options) {
 		if (LONGEST_MATCH.in(options)) {
@@ -100,9 +157,10 @@ public class SetHorspool implements StringSearchAlgorithm {
 		protected final int maxLength;
 		protected final CharShift charShift;
 		protected CharProvider chars;
-		protected CharAutomaton<String> cursor;
+		protected long border;
+		protected CharAutomaton<Integer> cursor;
 
-		public Finder(CharWordSet<String> trie, int minLength, int maxLength, CharShift charShift, CharProvider chars, StringFinderOption... options) {
+		public Finder(CharWordSet<Integer> trie, int minLength, int maxLength, CharShift charShift, CharProvider chars, StringFinderOption... options) {
 			super(options);
 			this.minLength = minLength;
 			this.maxLength = maxLength;
@@ -113,28 +171,67 @@ public class SetHorspool implements StringSearchAlgorithm {
 
 		@Override
 		public void skipTo(long pos) {
+			if (pos > border) {
+				border = pos;
+			}
 			long last = removeMatchesBefore(pos);
 			if (last > chars.current()) {
 				chars.move(last);
 			}
 		}
 
-		protected StringMatch createMatch(long start, long end) {
+		@Override
+		protected void push(long start, long end, int pattern) {
+			if (start < border) {
+				return;
+			}
+			super.push(start, end, pattern);
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
 			String s = chars.slice(start, end);
-			return new StringMatch(start, end, s);
+			return new StringMatch(start, end, s, pattern);
+		}
+
+		/**
+		 * reports the matches of one window (all ending at pos + minLength) in the order of their starts
+		 */
+		protected boolean report(MatchSink sink, long pos, int[] pointers, int[] patterns, int found) {
+			long end = pos + minLength;
+			for (int i = found - 1; i >= 0; i--) {
+				long start = pos + pointers[i];
+				if (start < border) {
+					continue;
+				}
+				if (!sink.onMatch(start, end, patterns[i])) {
+					return false;
+				}
+				if (nonOverlap) {
+					border = end;
+					if (end > chars.current()) {
+						chars.move(end);
+					}
+					break;
+				}
+			}
+			return true;
 		}
 	}
 
 	private static class NextMatchFinder extends Finder {
 
-		public NextMatchFinder(CharWordSet<String> trie, int minLength, int maxLength, CharShift charShift, CharProvider chars, StringFinderOption... options) {
+		public NextMatchFinder(CharWordSet<Integer> trie, int minLength, int maxLength, CharShift charShift, CharProvider chars, StringFinderOption... options) {
 			super(trie, minLength, maxLength, charShift, chars, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
 			}
 			int lookahead = minLength - 1;
 			while (!chars.finished(lookahead)) {
@@ -146,10 +243,10 @@ public class SetHorspool implements StringSearchAlgorithm {
 				boolean success = cursor.accept(current);
 				while (success) {
 					if (cursor.hasAttachments()) {
-						String match = cursor.iterator().next();
+						int pattern = cursor.iterator().next();
 						long start = chars.current() + patternPointer;
-						long end = chars.current() + patternPointer + match.length();
-						push(createMatch(start, end));
+						long end = chars.current() + minLength;
+						push(start, end, pattern);
 					}
 					patternPointer--;
 					if (pos + patternPointer < 0) {
@@ -159,22 +256,57 @@ public class SetHorspool implements StringSearchAlgorithm {
 				}
 				chars.forward(charShift.getShift(current));
 				if (!isBufferEmpty()) {
-					return leftMost();
+					return takeLeftMost();
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			int[] pointers = new int[maxLength];
+			int[] patterns = new int[maxLength];
+			int lookahead = minLength - 1;
+			while (!chars.finished(lookahead)) {
+				int patternPointer = lookahead;
+				long pos = chars.current();
+				char current = chars.lookahead(patternPointer);
+
+				int found = 0;
+				cursor.reset();
+				boolean success = cursor.accept(current);
+				while (success) {
+					if (cursor.hasAttachments()) {
+						pointers[found] = patternPointer;
+						patterns[found] = cursor.iterator().next();
+						found++;
+					}
+					patternPointer--;
+					if (pos + patternPointer < 0) {
+						break;
+					}
+					success = cursor.accept(chars.lookahead(patternPointer));
+				}
+				chars.forward(charShift.getShift(current));
+				if (!report(sink, pos, pointers, patterns, found)) {
+					return;
 				}
 			}
-			return null;
 		}
 
 	}
 
 	private static class LongestMatchFinder extends Finder {
 
-		public LongestMatchFinder(CharWordSet<String> trie, int minLength, int maxLength, CharShift charShift, CharProvider chars, StringFinderOption... options) {
+		public LongestMatchFinder(CharWordSet<Integer> trie, int minLength, int maxLength, CharShift charShift, CharProvider chars, StringFinderOption... options) {
 			super(trie, minLength, maxLength, charShift, chars, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			long lastStart = lastStartFromBuffer();
 			int lookahead = minLength - 1;
 			while (!chars.finished(lookahead)) {
@@ -186,14 +318,13 @@ public class SetHorspool implements StringSearchAlgorithm {
 				boolean success = cursor.accept(current);
 				while (success) {
 					if (cursor.hasAttachments()) {
-						String match = cursor.iterator().next();
+						int pattern = cursor.iterator().next();
 						long start = chars.current() + patternPointer;
-						long end = chars.current() + patternPointer + match.length();
-						StringMatch stringMatch = createMatch(start, end);
+						long end = chars.current() + minLength;
 						if (lastStart < 0) {
 							lastStart = start;
 						}
-						push(stringMatch);
+						push(start, end, pattern);
 					}
 					patternPointer--;
 					if (pos + patternPointer < 0) {
@@ -206,18 +337,19 @@ public class SetHorspool implements StringSearchAlgorithm {
 					break;
 				}
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 		public boolean bufferContainsLongestMatch(long lastStart) {
 			return !isBufferEmpty()
-				&& chars.current() - lastStart > maxLength;
+				&& chars.current() - lastStart > maxLength - minLength;
 		}
 
 	}
 
-	public static class Factory implements MultiStringSearchAlgorithmFactory {
+	public static class Factory implements MultiStringSearchAlgorithmFactory, SupportsCharClasses {
 
+		private CharMapping mapping;
 		private boolean relaxed;
 
 		public Factory() {
@@ -228,9 +360,18 @@ public class SetHorspool implements StringSearchAlgorithm {
 			this.relaxed = relaxed;
 		}
 
+		@Override
+		public void enableCharClasses(CharMapping mapping) {
+			this.mapping = mapping;
+		}
+
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
-			return new SetHorspool(patterns, relaxed);
+			if (mapping == null) {
+				return new SetHorspool(patterns, relaxed);
+			} else {
+				return new SetHorspool(patterns, relaxed, mapping);
+			}
 		}
 
 	}
@@ -242,21 +383,24 @@ public class SetHorspool implements StringSearchAlgorithm {
 		private int[] characterShift;
 		private int defaultShift;
 
-		public QuickShift(List<char[]> charpatterns, int minLength) {
-			this.minChar = computeMinChar(charpatterns);
-			this.maxChar = computeMaxChar(charpatterns);
-			this.characterShift = computeCharacterShift(charpatterns, minLength, computeMinChar(charpatterns), computeMaxChar(charpatterns));
+		public QuickShift(List<char[][]> classes, int minLength) {
+			List<char[]> chars = chars(classes);
+			this.minChar = computeMinChar(chars);
+			this.maxChar = computeMaxChar(chars);
+			this.characterShift = computeCharacterShift(classes, minLength, minChar, maxChar);
 			this.defaultShift = minLength;
 		}
 
-		private static int[] computeCharacterShift(List<char[]> patterns, int minLength, char min, char max) {
+		private static int[] computeCharacterShift(List<char[][]> patterns, int minLength, char min, char max) {
 			int[] characters = new int[max - min + 1];
 			for (int i = 0; i < characters.length; i++) {
 				characters[i] = minLength;
 			}
-			for (char[] pattern : patterns) {
+			for (char[][] pattern : patterns) {
 				for (int i = 0; i < pattern.length - 1; i++) {
-					characters[pattern[i] - min] = min(characters[pattern[i] - min], pattern.length - i - 1);
+					for (char c : pattern[i]) {
+						characters[c - min] = min(characters[c - min], pattern.length - i - 1);
+					}
 				}
 			}
 			return characters;
@@ -276,21 +420,23 @@ public class SetHorspool implements StringSearchAlgorithm {
 
 		private int[] characterShift;
 
-		public RelaxedShift(List<char[]> charpatterns, int minLength) {
-			this.characterShift = computeCharacterShift(charpatterns, minLength);
+		public RelaxedShift(List<char[][]> classes, int minLength) {
+			this.characterShift = computeCharacterShift(classes, minLength);
 		}
 
-		private static int[] computeCharacterShift(List<char[]> patterns, int minLength) {
+		private static int[] computeCharacterShift(List<char[][]> patterns, int minLength) {
 			int[] characters = new int[256];
 			for (int i = 0; i < characters.length; i++) {
 				characters[i] = minLength;
 			}
-			for (char[] pattern : patterns) {
+			for (char[][] pattern : patterns) {
 				for (int i = 0; i < pattern.length - 1; i++) {
-					int index = pattern[i] % 256;
 					int newShift = pattern.length - i - 1;
-					if (newShift < characters[index]) {
-						characters[index] = newShift;
+					for (char c : pattern[i]) {
+						int index = c % 256;
+						if (newShift < characters[index]) {
+							characters[index] = newShift;
+						}
 					}
 				}
 			}
@@ -308,16 +454,18 @@ public class SetHorspool implements StringSearchAlgorithm {
 
 		private CharIntMap characterShift;
 
-		public SmartShift(List<char[]> charpatterns, int minLength) {
-			this.characterShift = computeCharacterShift(charpatterns, minLength);
+		public SmartShift(List<char[][]> classes, int minLength) {
+			this.characterShift = computeCharacterShift(classes, minLength);
 		}
 
-		private static CharIntMap computeCharacterShift(List<char[]> patterns, int minLength) {
+		private static CharIntMap computeCharacterShift(List<char[][]> patterns, int minLength) {
 			CharIntMap map = new CharIntMap(minLength);
-			for (char[] pattern : patterns) {
+			for (char[][] pattern : patterns) {
 				for (int i = 0; i < pattern.length - 1; i++) {
-					int value = map.get(pattern[i]);
-					map.put(pattern[i], min(value, pattern.length - i - 1));
+					for (char c : pattern[i]) {
+						int value = map.get(c);
+						map.put(c, min(value, pattern.length - i - 1));
+					}
 				}
 			}
 			return map;
@@ -3,7 +3,7 @@ package net.amygdalum.stringsearchalgorithms.search.chars;
 import static java.lang.Math.max;
 import static java.util.Arrays.fill;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
@@ -69,20 +69,22 @@ public class ShiftOr implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private abstract class Finder extends AbstractStringFinder {
+	private abstract class Finder extends SingleStringFinder {
 		
 		protected final long finalstate;
 		protected CharProvider chars;
 
 		public Finder(CharProvider chars, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.finalstate = ~(1l << ((patternLength - 1) % 64));
 			this.chars = chars;
 		}
 
-		protected StringMatch createMatch() {
-			long end = chars.current();
-			long start = end - patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
 			String s = chars.slice(start, end);
 			return new StringMatch(start, end, s);
 		}
@@ -107,7 +109,7 @@ public class ShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!chars.finished()) {
 				char nextChar = chars.next();
 				long bits = states.single(nextChar);
@@ -115,10 +117,10 @@ public class ShiftOr implements StringSearchAlgorithm {
 				state = (state << 1) | bits;
 
 				if ((state | finalstate) != BitMapStates.ALLBITS) {
-					return createMatch();
+					return chars.current() - patternLength;
 				}
 			}
-			return null;
+			return -1;
 		}
 
 	}
@@ -142,7 +144,7 @@ public class ShiftOr implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			while (!chars.finished()) {
 				char nextChar = chars.next();
 				long[] bits = states.all(nextChar);
@@ -150,10 +152,10 @@ public class ShiftOr implements StringSearchAlgorithm {
 				state = next(state, bits);
 
 				if ((state[0] | finalstate) != BitMapStates.ALLBITS) {
-					return createMatch();
+					return chars.current() - patternLength;
 				}
 			}
-			return null;
+			return -1;
 		}
 
 		private long[] next(long[] state, long[] bits) {
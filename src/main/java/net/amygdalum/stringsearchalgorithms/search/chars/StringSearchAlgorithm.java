@@ -1,5 +1,11 @@
 package net.amygdalum.stringsearchalgorithms.search.chars;
 
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+
+import net.amygdalum.stringsearchalgorithms.search.MatchCounter;
+import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.util.io.CharProvider;
@@ -19,6 +25,55 @@ public interface StringSearchAlgorithm {
 	 */
 	StringFinder createFinder(CharProvider chars, StringFinderOption... options);
 
+	/**
+	 * searches the pattern (given by the current instance) in the given document and reports each match to the given sink.
+	 * @param chars the given document wrapped into a CharProvider
+	 * @param sink the sink to report the matches to
+	 * @param options the configuration options for the string finder
+	 */
+	default void search(CharProvider chars, MatchSink sink, StringFinderOption... options) {
+		createFinder(chars, options).findAll(sink);
+	}
+
+	/**
+	 * counts the matches of the pattern (given by the current instance) in the given document, no match objects are created.
+	 * LONGEST_MATCH and NON_OVERLAP are respected, since they change which (and how many) matches of multiple patterns are counted.
+	 * @param chars the given document wrapped into a CharProvider
+	 * @param options the configuration options for the string finder
+	 * @return the number of matches
+	 */
+	default long count(CharProvider chars, StringFinderOption... options) {
+		MatchCounter counter = new MatchCounter();
+		search(chars, counter, options);
+		return counter.count();
+	}
+
+	/**
+	 * counts the matches of the patterns (given by the current instance) in the given document, per pattern and in total.
+	 * @param chars the given document wrapped into a CharProvider
+	 * @param histogram the array to add the matches per pattern index to (must provide a slot for each pattern)
+	 * @param options the configuration options for the string finder
+	 * @return the number of matches
+	 */
+	default long count(CharProvider chars, int[] histogram, StringFinderOption... options) {
+		MatchCounter counter = new MatchCounter(histogram);
+		search(chars, counter, options);
+		return counter.count();
+	}
+
+	/**
+	 * checks whether the pattern (given by the current instance) occurs in the given document, the search stops at the first match.
+	 * LONGEST_MATCH and NON_OVERLAP do not change whether there is a match, so they are ignored (the first match needs not be extended).
+	 * @param chars the given document wrapped into a CharProvider
+	 * @param options the configuration options for the string finder
+	 * @return true if there is a match, false otherwise
+	 */
+	default boolean contains(CharProvider chars, StringFinderOption... options) {
+		MatchCounter counter = new MatchCounter(1);
+		search(chars, counter, MatchOption.without(options, LONGEST_MATCH, NON_OVERLAP));
+		return counter.count() > 0;
+	}
+
 	/**
 	 * @return the length of the given pattern (min length in case of a multi string algorithm)
 	 */
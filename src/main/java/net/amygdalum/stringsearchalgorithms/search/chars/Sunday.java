@@ -3,12 +3,13 @@ package net.amygdalum.stringsearchalgorithms.search.chars;
 import static net.amygdalum.util.text.CharUtils.computeMaxChar;
 import static net.amygdalum.util.text.CharUtils.computeMinChar;
 
-import net.amygdalum.stringsearchalgorithms.search.AbstractStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.CharProvider;
 import net.amygdalum.util.map.CharIntMap;
+import net.amygdalum.util.text.CharMapping;
 
 /**
  * An implementation of the String Search Algorithm of Sunday.
@@ -18,6 +19,7 @@ import net.amygdalum.util.map.CharIntMap;
 public class Sunday implements StringSearchAlgorithm {
 
 	private char[] pattern;
+	private char[][] alternatives;
 	private int patternLength;
 	private CharShift charShift;
 
@@ -26,18 +28,29 @@ public class Sunday implements StringSearchAlgorithm {
 	}
 
 	public Sunday(String pattern, boolean relaxed) {
-		this.pattern = pattern.toCharArray();
+		this(pattern, relaxed, CharMapping.IDENTITY);
+	}
+
+	/**
+	 * @param pattern the pattern
+	 * @param relaxed true if the shift table may be relaxed (using less memory and providing shorter shifts)
+	 * @param mapping the mapping of chars to equivalent chars (e.g. for case insensitive search), folded into the shift table
+	 */
+	public Sunday(String pattern, boolean relaxed, CharMapping mapping) {
+		this.pattern = mapping.normalized(pattern.toCharArray());
 		this.patternLength = this.pattern.length;
-		this.charShift = computeShift(this.pattern, relaxed);
+		char[][] classes = CharClasses.of(this.pattern, mapping);
+		this.alternatives = mapping == CharMapping.IDENTITY ? null : classes;
+		this.charShift = computeShift(classes, relaxed);
 	}
 
-	private static CharShift computeShift(char[] pattern, boolean relaxed) {
-		if (isCompactRange(pattern)) {
-			return new QuickShift(pattern);
+	private static CharShift computeShift(char[][] classes, boolean relaxed) {
+		if (isCompactRange(CharClasses.chars(classes))) {
+			return new QuickShift(classes);
 		} else if (relaxed) {
-			return new RelaxedShift(pattern);
+			return new RelaxedShift(classes);
 		} else {
-			return new SmartShift(pattern);
+			return new SmartShift(classes);
 		}
 	}
 
@@ -47,6 +60,10 @@ public class Sunday implements StringSearchAlgorithm {
 		return maxChar - minChar < 256 || maxChar - minChar < pattern.length * 2;
 	}
 
+	private boolean matches(int i, char c) {
+		return pattern[i] == c || alternatives != null && CharClasses.contains(alternatives[i], c);
+	}
+
 	@Override
 	public int getPatternLength() {
 		return patternLength;
@@ -62,12 +79,12 @@ public class Sunday implements StringSearchAlgorithm {
 		return getClass().getSimpleName();
 	}
 
-	private class Finder extends AbstractStringFinder {
+	private class Finder extends SingleStringFinder {
 
 		private CharProvider chars;
 
 		public Finder(CharProvider chars, StringFinderOption... options) {
-			super(options);
+			super(patternLength, options);
 			this.chars = chars;
 		}
 
@@ -79,15 +96,15 @@ public class Sunday implements StringSearchAlgorithm {
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected long findNextStart() {
 			final int lookahead = patternLength - 1;
 			next: while (!chars.finished(lookahead)) {
 				int patternPointer = lookahead;
 				char nextChar = chars.lookahead(patternPointer);
-				if (pattern[patternPointer] == nextChar) {
+				if (matches(patternPointer, nextChar)) {
 					while (patternPointer > 0) {
 						patternPointer--;
-						if (pattern[patternPointer] != chars.lookahead(patternPointer)) {
+						if (!matches(patternPointer, chars.lookahead(patternPointer))) {
 							if (!chars.finished(patternPointer + 1)) {
 								char afterNextChar = chars.lookahead(patternPointer + 1);
 								chars.forward(charShift.getShift(afterNextChar));
@@ -98,14 +115,14 @@ public class Sunday implements StringSearchAlgorithm {
 						}
 					}
 					if (patternPointer == 0) {
-						StringMatch match = createMatch();
+						long start = chars.current();
 						if (!chars.finished(patternPointer + 1)) {
 							char afterNextChar = chars.lookahead(patternPointer + 1);
 							chars.forward(charShift.getShift(afterNextChar));
 						} else {
 							chars.finish();
 						}
-						return match;
+						return start;
 					}
 				} else {
 					if (!chars.finished(patternPointer + 1)) {
@@ -116,19 +133,22 @@ public class Sunday implements StringSearchAlgorithm {
 					}
 				}
 			}
-			return null;
+			return -1;
 		}
 
-		private StringMatch createMatch() {
-			long start = chars.current();
-			long end = start + patternLength;
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
 			String s = chars.slice(start, end);
 			return new StringMatch(start, end, s);
 		}
 	}
 
-	public static class Factory implements StringSearchAlgorithmFactory {
+	public static class Factory implements StringSearchAlgorithmFactory, SupportsCharClasses {
 
+		private CharMapping mapping;
 		private boolean relaxed;
 
 		public Factory() {
@@ -139,9 +159,18 @@ public class Sunday implements StringSearchAlgorithm {
 			this.relaxed = relaxed;
 		}
 
+		@Override
+		public void enableCharClasses(CharMapping mapping) {
+			this.mapping = mapping;
+		}
+
 		@Override
 		public StringSearchAlgorithm of(String pattern) {
-			return new Sunday(pattern, relaxed);
+			if (mapping == null) {
+				return new Sunday(pattern, relaxed);
+			} else {
+				return new Sunday(pattern, relaxed, mapping);
+			}
 		}
 
 	}
@@ -153,20 +182,23 @@ public class Sunday implements StringSearchAlgorithm {
 		private int[] characterShift;
 		private int defaultShift;
 
-		public QuickShift(char[] pattern) {
-			this.minChar = computeMinChar(pattern);
-			this.maxChar = computeMaxChar(pattern);
-			this.characterShift = computeCharacterShift(pattern, this.minChar, this.maxChar);
-			this.defaultShift = pattern.length + 1;
+		public QuickShift(char[][] classes) {
+			char[] chars = CharClasses.chars(classes);
+			this.minChar = computeMinChar(chars);
+			this.maxChar = computeMaxChar(chars);
+			this.characterShift = computeCharacterShift(classes, this.minChar, this.maxChar);
+			this.defaultShift = classes.length + 1;
 		}
 
-		private static int[] computeCharacterShift(char[] pattern, char min, char max) {
+		private static int[] computeCharacterShift(char[][] classes, char min, char max) {
 			int[] characters = new int[max - min + 1];
 			for (int i = 0; i < characters.length; i++) {
-				characters[i] = pattern.length + 1;
+				characters[i] = classes.length + 1;
 			}
-			for (int i = 0; i < pattern.length; i++) {
-				characters[pattern[i] - min] = pattern.length - i;
+			for (int i = 0; i < classes.length; i++) {
+				for (char c : classes[i]) {
+					characters[c - min] = classes.length - i;
+				}
 			}
 			return characters;
 		}
@@ -185,20 +217,22 @@ public class Sunday implements StringSearchAlgorithm {
 
 		private int[] characterShift;
 
-		public RelaxedShift(char[] pattern) {
-			this.characterShift = computeCharacterShift(pattern);
+		public RelaxedShift(char[][] classes) {
+			this.characterShift = computeCharacterShift(classes);
 		}
 
-		private static int[] computeCharacterShift(char[] pattern) {
+		private static int[] computeCharacterShift(char[][] classes) {
 			int[] characters = new int[256];
 			for (int i = 0; i < characters.length; i++) {
-				characters[i] = pattern.length + 1;
+				characters[i] = classes.length + 1;
 			}
-			for (int i = 0; i < pattern.length; i++) {
-				int index = pattern[i] % 256;
-				int newShift = pattern.length - i;
-				if (newShift < characters[index]) {
-					characters[index] = newShift;
+			for (int i = 0; i < classes.length; i++) {
+				int newShift = classes.length - i;
+				for (char c : classes[i]) {
+					int index = c % 256;
+					if (newShift < characters[index]) {
+						characters[index] = newShift;
+					}
 				}
 			}
 			return characters;
@@ -215,14 +249,16 @@ public class Sunday implements StringSearchAlgorithm {
 
 		private CharIntMap characterShift;
 
-		public SmartShift(char[] pattern) {
-			this.characterShift = computeCharacterShift(pattern);
+		public SmartShift(char[][] classes) {
+			this.characterShift = computeCharacterShift(classes);
 		}
 
-		private static CharIntMap computeCharacterShift(char[] pattern) {
-			CharIntMap map = new CharIntMap(pattern.length);
-			for (int i = 0; i < pattern.length; i++) {
-				map.put(pattern[i], pattern.length - i);
+		private static CharIntMap computeCharacterShift(char[][] classes) {
+			CharIntMap map = new CharIntMap(classes.length);
+			for (int i = 0; i < classes.length; i++) {
+				for (char c : classes[i]) {
+					map.put(c, classes.length - i);
+				}
 			}
 			return map;
 		}
@@ -0,0 +1,279 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.util.text.CharUtils.minLength;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.CharProvider;
+import net.amygdalum.util.text.StringUtils;
+
+/**
+ * An implementation of a Teddy-like packed fingerprint matcher.
+ *
+ * This algorithm takes a (small) set of string patterns as input and generates a finder which can find any of these
+ * patterns in documents. It is designed for sets of 2-64 short patterns, where shift based algorithms suffer from the
+ * short minimal length.
+ *
+ * The patterns are distributed to 8 buckets (patterns with common prefixes share a bucket). The fingerprint of a pattern
+ * are its first 1-3 chars. All buckets and all fingerprint offsets are packed into one long (one byte lane per offset,
+ * one bit per bucket) such that each char of the document costs one table lookup, a shift and an and to compute the
+ * buckets of all candidates ending at this char. Only the patterns of candidate buckets are verified.
+ *
+ * The lookup table is indexed by the low byte of a char, so chars with equal low bytes share their fingerprint bits (this
+ * leads to more candidates, but never to missed matches).
+ */
+public class Teddy implements StringSearchAlgorithm {
+
+	private static final int BUCKETS = 8;
+	private static final int MAX_FINGERPRINT = 3;
+	private static final long LANE = 0xffL;
+
+	private char[][] patterns;
+	private int[][] buckets;
+	private long[] masks;
+	private int fingerprint;
+	private int minLength;
+
+	public Teddy(Collection<String> patterns) {
+		List<char[]> charpatterns = StringUtils.toCharArray(patterns);
+		this.patterns = charpatterns.toArray(new char[0][]);
+		this.minLength = minLength(charpatterns);
+		this.fingerprint = Math.max(1, Math.min(MAX_FINGERPRINT, minLength));
+		this.buckets = computeBuckets(this.patterns);
+		this.masks = computeMasks(this.patterns, buckets, fingerprint);
+	}
+
+	private static int[][] computeBuckets(final char[][] patterns) {
+		Integer[] order = new Integer[patterns.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				int compare = compareChars(patterns[i1], patterns[i2]);
+				if (compare == 0) {
+					compare = Integer.compare(i1, i2);
+				}
+				return compare;
+			}
+		});
+		List<List<Integer>> distinct = new ArrayList<>();
+		for (int i = 0; i < order.length; i++) {
+			if (i == 0 || compareChars(patterns[order[i - 1]], patterns[order[i]]) != 0) {
+				distinct.add(new ArrayList<Integer>());
+			}
+			distinct.get(distinct.size() - 1).add(order[i]);
+		}
+		int count = Math.min(BUCKETS, Math.max(1, distinct.size()));
+		List<List<Integer>> bucketList = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			bucketList.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < distinct.size(); i++) {
+			bucketList.get(i * count / distinct.size()).add(distinct.get(i).get(0));
+		}
+		int[][] buckets = new int[count][];
+		for (int i = 0; i < count; i++) {
+			List<Integer> bucket = bucketList.get(i);
+			buckets[i] = new int[bucket.size()];
+			for (int j = 0; j < buckets[i].length; j++) {
+				buckets[i][j] = bucket.get(j);
+			}
+		}
+		return buckets;
+	}
+
+	private static int compareChars(char[] c1, char[] c2) {
+		int length = Math.min(c1.length, c2.length);
+		for (int i = 0; i < length; i++) {
+			int compare = Character.compare(c1[i], c2[i]);
+			if (compare != 0) {
+				return compare;
+			}
+		}
+		return Integer.compare(c1.length, c2.length);
+	}
+
+	private static long[] computeMasks(char[][] patterns, int[][] buckets, int fingerprint) {
+		long[] masks = new long[256];
+		for (int bucket = 0; bucket < buckets.length; bucket++) {
+			for (int pattern : buckets[bucket]) {
+				char[] chars = patterns[pattern];
+				for (int k = 0; k < fingerprint && k < chars.length; k++) {
+					masks[chars[k] & 0xff] |= 1L << (k * 8 + bucket);
+				}
+			}
+		}
+		return masks;
+	}
+
+	@Override
+	public StringFinder createFinder(CharProvider chars, StringFinderOption... options) {
+		return new Finder(patterns, buckets, masks, fingerprint, chars, options);
+	}
+
+	@Override
+	public int getPatternLength() {
+		return minLength;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private static class Finder extends BufferedStringFinder {
+
+		private final boolean longestMatch;
+		private final char[][] patterns;
+		private final int[][] buckets;
+		private final long[] masks;
+		private final int fingerprint;
+		private final int candidateLane;
+		private CharProvider chars;
+		private long state;
+		private long border;
+		private long lastEnd;
+
+		public Finder(char[][] patterns, int[][] buckets, long[] masks, int fingerprint, CharProvider chars, StringFinderOption... options) {
+			super(options);
+			this.longestMatch = LONGEST_MATCH.in(options);
+			this.patterns = patterns;
+			this.buckets = buckets;
+			this.masks = masks;
+			this.fingerprint = fingerprint;
+			this.candidateLane = (fingerprint - 1) * 8;
+			this.lastEnd = -1;
+			this.chars = chars;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			if (pos > border) {
+				border = pos;
+			}
+			removeMatchesBefore(pos);
+			if (pos > chars.current()) {
+				chars.move(pos);
+				state = 0;
+			}
+		}
+
+		@Override
+		protected boolean takeNext() {
+			if (!isBufferEmpty()) {
+				return nextFromBuffer();
+			}
+			if (findCandidates()) {
+				return nextFromBuffer();
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (longestMatch) {
+				super.findAll(sink);
+				return;
+			}
+			if (!flush(sink)) {
+				return;
+			}
+			while (findCandidates()) {
+				if (!flush(sink)) {
+					return;
+				}
+			}
+		}
+
+		private boolean nextFromBuffer() {
+			if (longestMatch) {
+				boolean found = takeLongestLeftMost();
+				lastEnd = lastMatchEnd();
+				return found;
+			} else {
+				return takeLeftMost();
+			}
+		}
+
+		private boolean findCandidates() {
+			long state = this.state;
+			while (!chars.finished()) {
+				state = ((state << 8) | LANE) & masks[chars.next() & 0xff];
+				int candidates = (int) ((state >>> candidateLane) & LANE);
+				if (candidates != 0) {
+					long start = chars.current() - fingerprint;
+					if (start >= border && verify(start, candidates)) {
+						this.state = state;
+						return true;
+					}
+				}
+			}
+			this.state = state;
+			return false;
+		}
+
+		private boolean verify(long start, int candidates) {
+			boolean found = false;
+			while (candidates != 0) {
+				int bucket = Integer.numberOfTrailingZeros(candidates);
+				candidates &= candidates - 1;
+				for (int pattern : buckets[bucket]) {
+					long end = start + patterns[pattern].length;
+					if (longestMatch && end <= lastEnd) {
+						continue;
+					}
+					if (matches(start, patterns[pattern])) {
+						push(start, end, pattern);
+						found = true;
+					}
+				}
+			}
+			return found;
+		}
+
+		private boolean matches(long start, char[] pattern) {
+			if (chars.finished((int) (start + pattern.length - 1 - chars.current()))) {
+				return false;
+			}
+			for (int i = 0; i < pattern.length; i++) {
+				if (chars.at(start + i) != pattern[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
+			String s = chars.slice(start, end);
+			return new StringMatch(start, end, s, pattern);
+		}
+
+	}
+
+	public static class Factory implements MultiStringSearchAlgorithmFactory {
+
+		@Override
+		public StringSearchAlgorithm of(Collection<String> patterns) {
+			return new Teddy(patterns);
+		}
+
+	}
+
+}
@@ -0,0 +1,199 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import net.amygdalum.stringsearchalgorithms.search.SingleStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.CharProvider;
+
+/**
+ * An implementation of the Two-Way String Search Algorithm of Crochemore and Perrin.
+ * 
+ * This algorithm takes a single pattern as input and generates a finder which can find this pattern in documents.
+ * The pattern is split at a critical factorization, the right part is compared left to right, the left part right to
+ * left. This guarantees linear time in the worst case with constant extra memory (no tables depending on the pattern
+ * length). Windows are additionally skipped by a (constant size) bad character shift on the last char of the window,
+ * which makes the search sublinear on average.
+ */
+public class TwoWay implements StringSearchAlgorithm {
+
+	private char[] pattern;
+	private int patternLength;
+	private int suffix;
+	private int period;
+	private boolean periodic;
+	private CharShift charShift;
+
+	public TwoWay(String pattern) {
+		this.pattern = pattern.toCharArray();
+		this.patternLength = this.pattern.length;
+		int[] maxSuffix = maxSuffix(this.pattern, false);
+		int[] maxSuffixReverse = maxSuffix(this.pattern, true);
+		int[] factorization = maxSuffix[0] > maxSuffixReverse[0] ? maxSuffix : maxSuffixReverse;
+		this.suffix = factorization[0] + 1;
+		this.periodic = isPeriodic(this.pattern, suffix, factorization[1]);
+		this.period = periodic ? factorization[1] : Math.max(suffix, patternLength - suffix) + 1;
+		this.charShift = new LastCharShift(this.pattern);
+	}
+
+	private static int[] maxSuffix(char[] pattern, boolean reverse) {
+		int maxSuffix = -1;
+		int j = 0;
+		int k = 1;
+		int period = 1;
+		while (j + k < pattern.length) {
+			char a = pattern[j + k];
+			char b = pattern[maxSuffix + k];
+			if (reverse ? a > b : a < b) {
+				j += k;
+				k = 1;
+				period = j - maxSuffix;
+			} else if (a == b) {
+				if (k != period) {
+					k++;
+				} else {
+					j += period;
+					k = 1;
+				}
+			} else {
+				maxSuffix = j;
+				j = maxSuffix + 1;
+				k = 1;
+				period = 1;
+			}
+		}
+		return new int[] { maxSuffix, period };
+	}
+
+	private static boolean isPeriodic(char[] pattern, int suffix, int period) {
+		if (suffix + period > pattern.length) {
+			return false;
+		}
+		for (int i = 0; i < suffix; i++) {
+			if (pattern[i] != pattern[i + period]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int getPatternLength() {
+		return patternLength;
+	}
+
+	@Override
+	public StringFinder createFinder(CharProvider chars, StringFinderOption... options) {
+		return new Finder(chars, options);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	private class Finder extends SingleStringFinder {
+
+		private CharProvider chars;
+		private int memory;
+
+		public Finder(CharProvider chars, StringFinderOption... options) {
+			super(patternLength, options);
+			this.chars = chars;
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			if (pos > chars.current()) {
+				chars.move(pos);
+				memory = 0;
+			}
+		}
+
+		@Override
+		protected long findNextStart() {
+			final int last = patternLength - 1;
+			while (!chars.finished(last)) {
+				int shift = charShift.getShift(chars.lookahead(last));
+				if (shift > 0) {
+					if (memory > 0 && shift < period) {
+						shift = patternLength - period;
+					}
+					memory = 0;
+					chars.forward(shift);
+					continue;
+				}
+				int i = Math.max(suffix, memory);
+				while (i < patternLength && pattern[i] == chars.lookahead(i)) {
+					i++;
+				}
+				if (i < patternLength) {
+					chars.forward(i - suffix + 1);
+					memory = 0;
+					continue;
+				}
+				i = suffix - 1;
+				while (i >= memory && pattern[i] == chars.lookahead(i)) {
+					i--;
+				}
+				long start = chars.current();
+				chars.forward(period);
+				boolean match = i < memory;
+				memory = periodic ? patternLength - period : 0;
+				if (match) {
+					return start;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, 0);
+			}
+			String s = chars.slice(start, end);
+			return new StringMatch(start, end, s);
+		}
+	}
+
+	public static class Factory implements StringSearchAlgorithmFactory {
+
+		@Override
+		public StringSearchAlgorithm of(String pattern) {
+			return new TwoWay(pattern);
+		}
+
+	}
+
+	private static class LastCharShift implements CharShift {
+
+		private int[] characterShift;
+
+		public LastCharShift(char[] pattern) {
+			this.characterShift = computeCharacterShift(pattern);
+		}
+
+		private static int[] computeCharacterShift(char[] pattern) {
+			int[] characters = new int[256];
+			for (int i = 0; i < characters.length; i++) {
+				characters[i] = pattern.length;
+			}
+			for (int i = 0; i < pattern.length; i++) {
+				int index = pattern[i] % 256;
+				int newShift = pattern.length - i - 1;
+				if (newShift < characters[index]) {
+					characters[index] = newShift;
+				}
+			}
+			return characters;
+		}
+
+		@Override
+		public int getShift(char c) {
+			return characterShift[c % 256];
+		}
+
+	}
+
+}
@@ -3,7 +3,6 @@ package net.amygdalum.stringsearchalgorithms.search.chars;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
 import static net.amygdalum.util.text.CharUtils.computeMaxChar;
 import static net.amygdalum.util.text.CharUtils.computeMinChar;
-import static net.amygdalum.util.text.CharUtils.lastIndexOf;
 import static net.amygdalum.util.text.CharUtils.maxLength;
 import static net.amygdalum.util.text.CharUtils.minLength;
 import static net.amygdalum.util.text.CharUtils.revert;
@@ -12,47 +11,103 @@ import static net.amygdalum.util.text.StringUtils.toCharArray;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import net.amygdalum.stringsearchalgorithms.search.BufferedStringFinder;
+import net.amygdalum.stringsearchalgorithms.search.FirstPatternIndex;
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.CharProvider;
 import net.amygdalum.util.text.CharAutomaton;
+import net.amygdalum.util.text.CharDawg;
+import net.amygdalum.util.text.CharMapping;
 import net.amygdalum.util.text.CharTrie;
 import net.amygdalum.util.text.CharWordSet;
 import net.amygdalum.util.text.CharWordSetBuilder;
 import net.amygdalum.util.text.doublearraytrie.DoubleArrayCharCompactTrieCompiler;
+import net.amygdalum.util.text.linkeddawg.LinkedCharDawgCompiler;
 
 /**
  * An implementation of the Wu-Manber Algorithm.
  * 
  * This algorithm takes a multiple string patterns as input and generates a
  * finder which can find any of these patterns in documents.
+ * 
+ * The shift and hash tables are sized (as powers of two) by the number of
+ * pattern blocks and patterns, the block hashes are computed directly from
+ * the provider (without copying the block). Block size and table sizes may
+ * also be given explicitly for tuning. Each hash entry is a separate trie
+ * (reserving space for the whole char range), so the automatic hash table
+ * size is limited to 128 entries.
  */
 public class WuManber implements StringSearchAlgorithm {
 
-	private static final int SHIFT_SEED = 17;
-	private static final int HASH_SEED = 23;
-	private static final int SHIFT_SIZE = 255;
-	private static final int HASH_SIZE = 127;
+	public static final int AUTO = 0;
+
+	private static final int BLOCK_SEED = 31;
+	private static final int SHIFT_SEED = 0x9e3779b9;
+	private static final int HASH_SEED = 0x85ebca6b;
+	private static final int MIN_SHIFT_SIZE = 256;
+	private static final int MAX_SHIFT_SIZE = 1 << 20;
+	private static final int MIN_HASH_SIZE = 16;
+	private static final int MAX_HASH_SIZE = 1 << 7;
 
 	private int minLength;
 	private int maxLength;
 	private int block;
 	private int[] shift;
-	private CharWordSet<String>[] hash;
+	private CharWordSet<Integer>[] hash;
 
 	public WuManber(Collection<String> patterns) {
-		List<char[]> charpatterns = toCharArray(patterns);
+		this(patterns, AUTO, AUTO, AUTO);
+	}
+
+	/**
+	 * @param patterns the patterns
+	 * @param block the block size (AUTO to compute the block size from the patterns, otherwise limited to the minimum pattern length)
+	 * @param shiftSize the size of the shift table (AUTO to size the table by the number of pattern blocks, otherwise rounded up to a power of two)
+	 * @param hashSize the size of the hash table (AUTO to size the table by the number of patterns, otherwise rounded up to a power of two)
+	 */
+	public WuManber(Collection<String> patterns, int block, int shiftSize, int hashSize) {
+		this(patterns, block, shiftSize, hashSize, CharMapping.IDENTITY);
+	}
+
+	/**
+	 * @param patterns the patterns
+	 * @param block the block size (AUTO to compute the block size from the patterns, otherwise limited to the minimum pattern length)
+	 * @param shiftSize the size of the shift table (AUTO to size the table by the number of pattern blocks, otherwise rounded up to a power of two)
+	 * @param hashSize the size of the hash table (AUTO to size the table by the number of patterns, otherwise rounded up to a power of two)
+	 * @param mapping the mapping of chars to equivalent chars (e.g. for case insensitive search), each variant of a block is entered into the shift and hash tables
+	 */
+	public WuManber(Collection<String> patterns, int block, int shiftSize, int hashSize, CharMapping mapping) {
+		List<char[]> charpatterns = normalized(toCharArray(patterns), mapping);
 		this.minLength = minLength(charpatterns);
 		this.maxLength = maxLength(charpatterns);
-		this.block = blockSize(minLength, charpatterns);
-		this.shift = computeShift(charpatterns, block, minLength);
-		this.hash = computeHash(charpatterns, block);
+		this.block = block == AUTO ? blockSize(minLength, charpatterns) : Math.max(1, Math.min(block, minLength));
+		List<char[][]> classes = classes(charpatterns, mapping);
+		this.shift = computeShift(classes, this.block, minLength, shiftBits(charpatterns, this.block, shiftSize));
+		this.hash = computeHash(charpatterns, classes, this.block, hashBits(charpatterns, hashSize), mapping);
+	}
+
+	private static List<char[]> normalized(List<char[]> charpatterns, CharMapping mapping) {
+		if (mapping == CharMapping.IDENTITY) {
+			return charpatterns;
+		}
+		List<char[]> normalized = new ArrayList<>(charpatterns.size());
+		for (char[] pattern : charpatterns) {
+			normalized.add(mapping.normalized(pattern));
+		}
+		return normalized;
+	}
+
+	private static List<char[][]> classes(List<char[]> charpatterns, CharMapping mapping) {
+		List<char[][]> classes = new ArrayList<>(charpatterns.size());
+		for (char[] pattern : charpatterns) {
+			classes.add(CharClasses.of(pattern, mapping));
+		}
+		return classes;
 	}
 
 	private static int blockSize(int minLength, List<char[]> charpatterns) {
@@ -68,78 +123,131 @@ public class WuManber implements StringSearchAlgorithm {
 		}
 	}
 
-	private static int[] computeShift(List<char[]> patterns, int block, int minLength) {
-		int[] shift = new int[SHIFT_SIZE];
-		for (int i = 0; i < shift.length; i++) {
-			shift[i] = minLength - block + 1;
-		}
-		List<char[]> patternStrings = new ArrayList<>();
-		Set<char[]> blocks = new HashSet<>();
-		for (char[] pattern : patterns) {
-			patternStrings.add(pattern);
-			for (int i = 0; i < pattern.length + 1 - block; i++) {
-				blocks.add(Arrays.copyOfRange(pattern, i, i + block));
+	private static int shiftBits(List<char[]> patterns, int block, int shiftSize) {
+		if (shiftSize == AUTO) {
+			long blocks = 0;
+			for (char[] pattern : patterns) {
+				blocks += Math.max(0, pattern.length - block + 1);
 			}
+			shiftSize = (int) Math.max(MIN_SHIFT_SIZE, Math.min(MAX_SHIFT_SIZE, 2 * blocks));
 		}
-		for (char[] currentBlock : blocks) {
-			int shiftKey = shiftHash(currentBlock);
-			int shiftBy = shift[shiftKey];
-			for (char[] pattern : patternStrings) {
-				int rightMost = pattern.length - lastIndexOf(pattern, currentBlock) - block;
-				if (rightMost >= 0 && rightMost < shiftBy) {
-					shiftBy = rightMost;
-				}
-			}
-			shift[shiftKey] = shiftBy;
+		return tableBits(shiftSize);
+	}
+
+	private static int hashBits(List<char[]> patterns, int hashSize) {
+		if (hashSize == AUTO) {
+			hashSize = (int) Math.max(MIN_HASH_SIZE, Math.min(MAX_HASH_SIZE, 2L * patterns.size()));
 		}
-		return shift;
+		return tableBits(hashSize);
 	}
 
-	public static int shiftHash(char[] block) {
-		int result = 1;
-		for (char c : block) {
-			result = SHIFT_SEED * result + c;
+	private static int tableBits(int size) {
+		int bits = 1;
+		while (bits < 30 && 1 << bits < size) {
+			bits++;
 		}
-		int hash = result % SHIFT_SIZE;
-		if (hash < 0) {
-			hash += SHIFT_SIZE;
+		return bits;
+	}
+
+	private static int[] computeShift(List<char[][]> patterns, int block, int minLength, int shiftBits) {
+		int[] shift = new int[1 << shiftBits];
+		Arrays.fill(shift, minLength - block + 1);
+		for (char[][] pattern : patterns) {
+			for (int end = block; end <= pattern.length; end++) {
+				int rightMost = pattern.length - end;
+				for (int blockHash : blockHashes(pattern, end, block)) {
+					int shiftKey = shiftKey(blockHash, shiftBits);
+					if (rightMost < shift[shiftKey]) {
+						shift[shiftKey] = rightMost;
+					}
+				}
+			}
 		}
-		return hash;
+		return shift;
 	}
 
-	private static CharWordSet<String>[] computeHash(List<char[]> charpatterns, int block) {
+	private static CharWordSet<Integer>[] computeHash(List<char[]> charpatterns, List<char[][]> classes, int block, int hashBits, CharMapping mapping) {
 		@SuppressWarnings("unchecked")
-		CharWordSetBuilder<String, CharTrie<String>>[] builders = new CharWordSetBuilder[HASH_SIZE];
-		for (char[] pattern : charpatterns) {
-			char[] lastBlock = Arrays.copyOfRange(pattern, pattern.length - block, pattern.length);
-			int hashKey = hashHash(lastBlock);
-			CharWordSetBuilder<String, CharTrie<String>> builder = builders[hashKey];
-			if (builder == null) {
-				builder = new CharWordSetBuilder<>(new DoubleArrayCharCompactTrieCompiler<String>());
-
-				builders[hashKey] = builder;
+		CharWordSetBuilder<Integer, ? extends CharWordSet<Integer>>[] builders = new CharWordSetBuilder[1 << hashBits];
+		for (int i = 0; i < charpatterns.size(); i++) {
+			char[] pattern = charpatterns.get(i);
+			for (int blockHash : blockHashes(classes.get(i), pattern.length, block)) {
+				int hashKey = hashKey(blockHash, hashBits);
+				CharWordSetBuilder<Integer, ? extends CharWordSet<Integer>> builder = builders[hashKey];
+				if (builder == null) {
+					builder = createBuilder(mapping);
+
+					builders[hashKey] = builder;
+				}
+				builder.extend(revert(pattern), i);
 			}
-			builder.extend(revert(pattern), new String(pattern));
 		}
 
 		@SuppressWarnings("unchecked")
-		CharWordSet<String>[] hash = new CharWordSet[builders.length];
+		CharWordSet<Integer>[] hash = new CharWordSet[builders.length];
 		for (int i = 0; i < hash.length; i++) {
-			hash[i] = builders[i] == null ? null : builders[i].build();
+			hash[i] = builders[i] == null ? null : builders[i]
+				.work(new CharClassTransitions<Integer>(mapping))
+				.build();
 		}
 		return hash;
 	}
 
-	public static int hashHash(char[] block) {
-		int result = 1;
-		for (char c : block) {
-			result = HASH_SEED * result + c;
+	private static CharWordSetBuilder<Integer, ? extends CharWordSet<Integer>> createBuilder(CharMapping mapping) {
+		if (mapping == CharMapping.IDENTITY) {
+			return new CharWordSetBuilder<Integer, CharTrie<Integer>>(new DoubleArrayCharCompactTrieCompiler<Integer>(), new FirstPatternIndex());
+		} else {
+			return new CharWordSetBuilder<Integer, CharDawg<Integer>>(new LinkedCharDawgCompiler<Integer>(), new FirstPatternIndex());
 		}
-		int hash = result % HASH_SIZE;
-		if (hash < 0) {
-			hash += HASH_SIZE;
+	}
+
+	/**
+	 * computes the hashes of all variants of a block (each position of the block varying over its char class)
+	 */
+	private static int[] blockHashes(char[][] pattern, int end, int block) {
+		int[] hashes = new int[] { 1 };
+		for (int i = end - block; i < end; i++) {
+			char[] charClass = pattern[i];
+			int[] next = new int[hashes.length * charClass.length];
+			int k = 0;
+			for (int hash : hashes) {
+				for (char c : charClass) {
+					next[k] = BLOCK_SEED * hash + c;
+					k++;
+				}
+			}
+			hashes = next;
 		}
-		return hash;
+		return hashes;
+	}
+
+	private static int shiftKey(int blockHash, int shiftBits) {
+		return (blockHash * SHIFT_SEED) >>> (32 - shiftBits);
+	}
+
+	private static int hashKey(int blockHash, int hashBits) {
+		return (blockHash * HASH_SEED) >>> (32 - hashBits);
+	}
+
+	/**
+	 * @return the size of the blocks used to compute shifts and hashes
+	 */
+	public int getBlockSize() {
+		return block;
+	}
+
+	/**
+	 * @return the size of the shift table
+	 */
+	public int getShiftSize() {
+		return shift.length;
+	}
+
+	/**
+	 * @return the size of the hash table
+	 */
+	public int getHashSize() {
+		return hash.length;
 	}
 
 	@Override
@@ -168,73 +276,127 @@ public class WuManber implements StringSearchAlgorithm {
 		protected final int maxLength;
 		protected final int block;
 		protected final int[] shift;
+		protected final int shiftBits;
+		protected final int hashBits;
 		protected CharProvider chars;
-		protected CharAutomaton<String>[] hash;
+		protected long border;
+		protected CharAutomaton<Integer>[] hash;
 
-		public Finder(int minLength, int maxLength, int block, int[] shift, CharWordSet<String>[] hash, CharProvider chars, StringFinderOption... options) {
+		public Finder(int minLength, int maxLength, int block, int[] shift, CharWordSet<Integer>[] hash, CharProvider chars, StringFinderOption... options) {
 			super(options);
 			this.minLength = minLength;
 			this.lookahead = minLength - 1;
 			this.maxLength = maxLength;
 			this.block = block;
 			this.shift = shift;
+			this.shiftBits = Integer.numberOfTrailingZeros(shift.length);
+			this.hashBits = Integer.numberOfTrailingZeros(hash.length);
 			this.hash = cursor(hash);
 			this.chars = chars;
 		}
 
 		@SuppressWarnings("unchecked")
-		private static CharAutomaton<String>[] cursor(CharWordSet<String>[] hash) {
-			CharAutomaton<String>[] cursors = new CharAutomaton[hash.length];
+		private static CharAutomaton<Integer>[] cursor(CharWordSet<Integer>[] hash) {
+			CharAutomaton<Integer>[] cursors = new CharAutomaton[hash.length];
 			for (int i = 0; i < hash.length; i++) {
-				CharWordSet<String> node = hash[i];
+				CharWordSet<Integer> node = hash[i];
 				cursors[i] = node == null ? CharAutomaton.NULL : node.cursor();
 			}
 			return cursors;
 		}
 
+		/**
+		 * computes the hash of the last block of the current window (without copying the block)
+		 */
+		protected int blockHash() {
+			int result = 1;
+			for (int i = minLength - block; i < minLength; i++) {
+				result = BLOCK_SEED * result + chars.lookahead(i);
+			}
+			return result;
+		}
+
 		@Override
 		public void skipTo(long pos) {
+			if (pos > border) {
+				border = pos;
+			}
 			long last = removeMatchesBefore(pos);
 			if (last > chars.current()) {
 				chars.move(last);
 			}
 		}
 
-		protected StringMatch createMatch(long start, long end) {
+		@Override
+		protected void push(long start, long end, int pattern) {
+			if (start < border) {
+				return;
+			}
+			super.push(start, end, pattern);
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			if (lazyText) {
+				return new LazyStringMatch(chars, start, end, pattern);
+			}
 			String s = chars.slice(start, end);
-			return new StringMatch(start, end, s);
+			return new StringMatch(start, end, s, pattern);
+		}
+
+		/**
+		 * reports the matches of one window (all ending at pos + minLength) in the order of their starts
+		 */
+		protected boolean report(MatchSink sink, long pos, int[] pointers, int[] patterns, int found) {
+			long end = pos + minLength;
+			for (int i = found - 1; i >= 0; i--) {
+				long start = pos + pointers[i];
+				if (start < border) {
+					continue;
+				}
+				if (!sink.onMatch(start, end, patterns[i])) {
+					return false;
+				}
+				if (nonOverlap) {
+					border = end;
+					if (end > chars.current()) {
+						chars.move(end);
+					}
+					break;
+				}
+			}
+			return true;
 		}
 
 	}
 
 	private static class NextMatchFinder extends Finder {
 
-		public NextMatchFinder(int minLength, int maxLength, int block, int[] shift, CharWordSet<String>[] hash, CharProvider chars, StringFinderOption... options) {
+		public NextMatchFinder(int minLength, int maxLength, int block, int[] shift, CharWordSet<Integer>[] hash, CharProvider chars, StringFinderOption... options) {
 			super(minLength, maxLength, block, shift, hash, chars, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			if (!isBufferEmpty()) {
-				return leftMost();
+				return takeLeftMost();
 			}
 			while (!chars.finished(lookahead)) {
 				long pos = chars.current();
-				char[] lastBlock = chars.between(pos + minLength - block, pos + minLength);
-				int shiftKey = shiftHash(lastBlock);
-				int shiftBy = shift[shiftKey];
+				int blockHash = blockHash();
+				int shiftBy = shift[shiftKey(blockHash, shiftBits)];
 				if (shiftBy == 0) {
-					int hashkey = hashHash(lastBlock);
-					CharAutomaton<String> cursor = hash[hashkey];
+					int hashkey = hashKey(blockHash, hashBits);
+					CharAutomaton<Integer> cursor = hash[hashkey];
 					cursor.reset();
 					int patternPointer = lookahead;
 					boolean success = cursor.accept(chars.lookahead(patternPointer));
 					while (success) {
 						if (cursor.hasAttachments()) {
-							String match = cursor.iterator().next();
+							int pattern = cursor.iterator().next();
 							long start = chars.current() + patternPointer;
-							long end = chars.current() + patternPointer + match.length();
-							push(createMatch(start, end));
+							long end = chars.current() + minLength;
+							push(start, end, pattern);
 						}
 						patternPointer--;
 						if (pos + patternPointer < 0) {
@@ -244,47 +406,85 @@ public class WuManber implements StringSearchAlgorithm {
 					}
 					chars.next();
 					if (!isBufferEmpty()) {
-						return leftMost();
+						return takeLeftMost();
+					}
+				} else {
+					chars.forward(shiftBy);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void findAll(MatchSink sink) {
+			if (!flush(sink)) {
+				return;
+			}
+			int[] pointers = new int[maxLength];
+			int[] patterns = new int[maxLength];
+			while (!chars.finished(lookahead)) {
+				long pos = chars.current();
+				int blockHash = blockHash();
+				int shiftBy = shift[shiftKey(blockHash, shiftBits)];
+				if (shiftBy == 0) {
+					int hashkey = hashKey(blockHash, hashBits);
+					CharAutomaton<Integer> cursor = hash[hashkey];
+					cursor.reset();
+					int found = 0;
+					int patternPointer = lookahead;
+					boolean success = cursor.accept(chars.lookahead(patternPointer));
+					while (success) {
+						if (cursor.hasAttachments()) {
+							pointers[found] = patternPointer;
+							patterns[found] = cursor.iterator().next();
+							found++;
+						}
+						patternPointer--;
+						if (pos + patternPointer < 0) {
+							break;
+						}
+						success = cursor.accept(chars.lookahead(patternPointer));
+					}
+					chars.next();
+					if (!report(sink, pos, pointers, patterns, found)) {
+						return;
 					}
 				} else {
 					chars.forward(shiftBy);
 				}
 			}
-			return null;
 		}
 
 	}
 
 	private static class LongestMatchFinder extends Finder {
 
-		public LongestMatchFinder(int minLength, int maxLength, int block, int[] shift, CharWordSet<String>[] hash, CharProvider chars, StringFinderOption... options) {
+		public LongestMatchFinder(int minLength, int maxLength, int block, int[] shift, CharWordSet<Integer>[] hash, CharProvider chars, StringFinderOption... options) {
 			super(minLength, maxLength, block, shift, hash, chars, options);
 		}
 
 		@Override
-		public StringMatch findNext() {
+		protected boolean takeNext() {
 			long lastStart = lastStartFromBuffer();
 			while (!chars.finished(lookahead)) {
 				long pos = chars.current();
-				char[] lastBlock = chars.between(pos + minLength - block, pos + minLength);
-				int shiftKey = shiftHash(lastBlock);
-				int shiftBy = shift[shiftKey];
+				int blockHash = blockHash();
+				int shiftBy = shift[shiftKey(blockHash, shiftBits)];
 				if (shiftBy == 0) {
-					int hashkey = hashHash(lastBlock);
-					CharAutomaton<String> cursor = hash[hashkey];
+					int hashkey = hashKey(blockHash, hashBits);
+					CharAutomaton<Integer> cursor = hash[hashkey];
 					cursor.reset();
 					int patternPointer = lookahead;
 					boolean success = cursor.accept(chars.lookahead(patternPointer));
 					while (success) {
 						if (cursor.hasAttachments()) {
-							String match = cursor.iterator().next();
+							int pattern = cursor.iterator().next();
 							long start = chars.current() + patternPointer;
-							long end = chars.current() + patternPointer + match.length();
-							StringMatch stringMatch = createMatch(start, end);
+							long end = chars.current() + minLength;
 							if (lastStart < 0) {
 								lastStart = start;
 							}
-							push(stringMatch);
+							push(start, end, pattern);
 						}
 						patternPointer--;
 						if (pos + patternPointer < 0) {
@@ -293,14 +493,14 @@ public class WuManber implements StringSearchAlgorithm {
 						success = cursor.accept(chars.lookahead(patternPointer));
 					}
 					chars.next();
-					if (bufferContainsLongestMatch(lastStart)) {
-						break;
-					}
 				} else {
 					chars.forward(shiftBy);
 				}
+				if (bufferContainsLongestMatch(lastStart)) {
+					break;
+				}
 			}
-			return longestLeftMost();
+			return takeLongestLeftMost();
 		}
 
 		public boolean bufferContainsLongestMatch(long lastStart) {
@@ -310,11 +510,35 @@ public class WuManber implements StringSearchAlgorithm {
 
 	}
 
-	public static class Factory implements MultiStringSearchAlgorithmFactory {
+	public static class Factory implements MultiStringSearchAlgorithmFactory, SupportsCharClasses {
+
+		private CharMapping mapping;
+		private int block;
+		private int shiftSize;
+		private int hashSize;
+
+		public Factory() {
+			this(AUTO, AUTO, AUTO);
+		}
+
+		public Factory(int block, int shiftSize, int hashSize) {
+			this.block = block;
+			this.shiftSize = shiftSize;
+			this.hashSize = hashSize;
+		}
+
+		@Override
+		public void enableCharClasses(CharMapping mapping) {
+			this.mapping = mapping;
+		}
 
 		@Override
 		public StringSearchAlgorithm of(Collection<String> patterns) {
-			return new WuManber(patterns);
+			if (mapping == null) {
+				return new WuManber(patterns, block, shiftSize, hashSize);
+			} else {
+				return new WuManber(patterns, block, shiftSize, hashSize, mapping);
+			}
 		}
 
 	}
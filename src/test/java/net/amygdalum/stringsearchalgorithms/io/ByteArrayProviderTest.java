@@ -0,0 +1,89 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class ByteArrayProviderTest {
+
+	private static final byte[] TEXT = "abcdefghij".getBytes(UTF_8);
+
+	@Test
+	public void testNextAndPrev() throws Exception {
+		ByteArrayProvider bytes = new ByteArrayProvider(TEXT, 2, UTF_8);
+		assertThat(bytes.next(), equalTo((byte) 'c'));
+		assertThat(bytes.next(), equalTo((byte) 'd'));
+		assertThat(bytes.prev(), equalTo((byte) 'd'));
+		assertThat(bytes.current(), equalTo(3l));
+	}
+
+	@Test
+	public void testLookaround() throws Exception {
+		ByteArrayProvider bytes = new ByteArrayProvider(TEXT, 5, UTF_8);
+		assertThat(bytes.lookahead(), equalTo((byte) 'f'));
+		assertThat(bytes.lookahead(4), equalTo((byte) 'j'));
+		assertThat(bytes.lookbehind(), equalTo((byte) 'e'));
+		assertThat(bytes.lookbehind(3), equalTo((byte) 'b'));
+		assertThat(bytes.at(7), equalTo((byte) 'h'));
+	}
+
+	@Test
+	public void testFinished() throws Exception {
+		ByteArrayProvider bytes = new ByteArrayProvider(TEXT, 8, UTF_8);
+		assertThat(bytes.finished(), equalTo(false));
+		assertThat(bytes.finished(1), equalTo(false));
+		assertThat(bytes.finished(2), equalTo(true));
+		bytes.finish();
+		assertThat(bytes.finished(), equalTo(true));
+	}
+
+	@Test
+	public void testSliceAndToString() throws Exception {
+		ByteArrayProvider bytes = new ByteArrayProvider(TEXT, 3, UTF_8);
+		assertThat(bytes.slice(2, 5).getString(), equalTo("cde"));
+		assertThat(new String(bytes.between(0, 2), UTF_8), equalTo("ab"));
+		assertThat(bytes.toString(), equalTo("abc|defghij"));
+	}
+
+	@Test
+	public void testChanged() throws Exception {
+		ByteArrayProvider bytes = new ByteArrayProvider(TEXT, 0, UTF_8);
+		bytes.mark();
+		assertThat(bytes.changed(), equalTo(false));
+		bytes.mark();
+		bytes.forward(2);
+		assertThat(bytes.changed(), equalTo(true));
+	}
+
+	@Test
+	public void testBuffer() throws Exception {
+		ByteArrayProvider bytes = new ByteArrayProvider(TEXT, 0, UTF_8);
+		assertThat(bytes.size(), equalTo(10l));
+		assertThat(bytes.bufferStart(7), equalTo(0l));
+		assertThat(bytes.buffer(7).get(7), equalTo((byte) 'h'));
+		assertThat(bytes.buffer(7).order(), equalTo(ByteOrder.LITTLE_ENDIAN));
+	}
+
+	@Test
+	public void testRegion() throws Exception {
+		ByteArrayProvider bytes = new ByteArrayProvider(TEXT, 2, 7, UTF_8);
+		assertThat(bytes.size(), equalTo(5l));
+		assertThat(bytes.current(), equalTo(0l));
+		assertThat(bytes.next(), equalTo((byte) 'c'));
+		assertThat(bytes.lookahead(3), equalTo((byte) 'g'));
+		assertThat(bytes.at(4), equalTo((byte) 'g'));
+		assertThat(bytes.slice(1, 3).getString(), equalTo("de"));
+		assertThat(bytes.bufferStart(3), equalTo(0l));
+		assertThat(bytes.buffer(3).get(3), equalTo((byte) 'f'));
+		assertThat(bytes.buffer(3).limit(), equalTo(5));
+		assertThat(bytes.buffer(3).order(), equalTo(ByteOrder.LITTLE_ENDIAN));
+		bytes.forward(3);
+		assertThat(bytes.finished(1), equalTo(true));
+		assertThat(bytes.toString(), equalTo("cdef|g"));
+	}
+
+}
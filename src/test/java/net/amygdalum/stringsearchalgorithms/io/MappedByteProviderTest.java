@@ -0,0 +1,138 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.bytes.AhoCorasick;
+import net.amygdalum.stringsearchalgorithms.search.bytes.Horspool;
+import net.amygdalum.stringsearchalgorithms.search.bytes.SetBackwardOracleMatching;
+
+public class MappedByteProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileChannel channel;
+
+	@Before
+	public void before() throws Exception {
+		File file = folder.newFile("text");
+		Files.write(file.toPath(), "abcdefghijabcdefghij".getBytes(UTF_8));
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+	@After
+	public void after() throws Exception {
+		channel.close();
+	}
+
+	@Test
+	public void testNextCrossesSegments() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 0, UTF_8, 3);
+		StringBuilder read = new StringBuilder();
+		while (!bytes.finished()) {
+			read.append((char) bytes.next());
+		}
+		assertThat(read.toString(), equalTo("abcdefghijabcdefghij"));
+		assertThat(bytes.current(), equalTo(20l));
+	}
+
+	@Test
+	public void testPrevCrossesSegments() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 4, UTF_8, 3);
+		assertThat(bytes.prev(), equalTo((byte) 'd'));
+		assertThat(bytes.prev(), equalTo((byte) 'c'));
+		assertThat(bytes.prev(), equalTo((byte) 'b'));
+		assertThat(bytes.current(), equalTo(1l));
+	}
+
+	@Test
+	public void testLookaroundCrossesSegments() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 5, UTF_8, 3);
+		assertThat(bytes.lookahead(), equalTo((byte) 'f'));
+		assertThat(bytes.lookahead(4), equalTo((byte) 'j'));
+		assertThat(bytes.lookbehind(), equalTo((byte) 'e'));
+		assertThat(bytes.lookbehind(3), equalTo((byte) 'b'));
+		assertThat(bytes.at(17), equalTo((byte) 'h'));
+		assertThat(bytes.current(), equalTo(5l));
+	}
+
+	@Test
+	public void testBetweenAndSliceCrossSegments() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 0, UTF_8, 4);
+		assertThat(new String(bytes.between(2, 13), UTF_8), equalTo("cdefghijabc"));
+		assertThat(bytes.slice(7, 8).getString(), equalTo("h"));
+		assertThat(bytes.slice(4, 4).getString(), equalTo(""));
+	}
+
+	@Test
+	public void testFinished() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 18, UTF_8, 3);
+		assertThat(bytes.finished(), equalTo(false));
+		assertThat(bytes.finished(1), equalTo(false));
+		assertThat(bytes.finished(2), equalTo(true));
+		bytes.finish();
+		assertThat(bytes.finished(), equalTo(true));
+	}
+
+	@Test
+	public void testMoveAndChanged() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 0, UTF_8, 3);
+		bytes.mark();
+		assertThat(bytes.changed(), equalTo(false));
+		bytes.mark();
+		bytes.move(10);
+		assertThat(bytes.changed(), equalTo(true));
+		bytes.forward(3);
+		assertThat(bytes.next(), equalTo((byte) 'd'));
+	}
+
+	@Test
+	public void testToString() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 3, UTF_8, 3);
+		assertThat(bytes.toString(), equalTo("abc|defghijabcdefghij"));
+	}
+
+	@Test
+	public void testOpenFile() throws Exception {
+		File file = folder.newFile("file");
+		Files.write(file.toPath(), "xyz".getBytes(UTF_8));
+		try (MappedByteProvider bytes = new MappedByteProvider(file.toPath(), UTF_8)) {
+			assertThat(bytes.size(), equalTo(3l));
+			assertThat(bytes.slice(0, 3).getString(), equalTo("xyz"));
+		}
+	}
+
+	@Test
+	public void testSearchSinglePattern() throws Exception {
+		MappedByteProvider bytes = new MappedByteProvider(channel, 0, UTF_8, 3);
+		List<StringMatch> matches = new Horspool("hijab", UTF_8).createFinder(bytes).findAll();
+		assertThat(matches, contains(new StringMatch(7, 12, "hijab")));
+	}
+
+	@Test
+	public void testSearchMultiplePatterns() throws Exception {
+		List<String> patterns = asList("cde", "jab");
+		List<StringMatch> ac = new AhoCorasick(patterns, UTF_8).createFinder(new MappedByteProvider(channel, 0, UTF_8, 4)).findAll();
+		List<StringMatch> sbom = new SetBackwardOracleMatching(patterns, UTF_8).createFinder(new MappedByteProvider(channel, 0, UTF_8, 4)).findAll();
+		assertThat(ac, contains(new StringMatch(2, 5, "cde"), new StringMatch(9, 12, "jab"), new StringMatch(12, 15, "cde")));
+		assertThat(sbom, equalTo(ac));
+	}
+
+}
@@ -0,0 +1,159 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.bytes.AhoCorasick;
+import net.amygdalum.stringsearchalgorithms.search.bytes.Horspool;
+import net.amygdalum.stringsearchalgorithms.search.bytes.QGramShiftOr;
+import net.amygdalum.stringsearchalgorithms.search.bytes.SetBackwardOracleMatching;
+import net.amygdalum.stringsearchalgorithms.search.bytes.SetHorspool;
+import net.amygdalum.stringsearchalgorithms.search.bytes.StringSearchAlgorithm;
+import net.amygdalum.stringsearchalgorithms.search.bytes.WuManber;
+import net.amygdalum.util.io.OutOfBufferException;
+import net.amygdalum.util.io.StringByteProvider;
+
+public class StreamingByteProviderTest {
+
+	@Test
+	public void testNext() throws Exception {
+		StreamingByteProvider bytes = new StreamingByteProvider(stream("abcdefghij"), UTF_8, 2);
+		StringBuilder read = new StringBuilder();
+		while (!bytes.finished()) {
+			read.append((char) bytes.next());
+		}
+		assertThat(read.toString(), equalTo("abcdefghij"));
+		assertThat(bytes.current(), equalTo(10l));
+	}
+
+	@Test
+	public void testLookaround() throws Exception {
+		StreamingByteProvider bytes = new StreamingByteProvider(new ByteArrayInputStream("abcdefghij".getBytes(UTF_8)), UTF_8, 2);
+		bytes.forward(4);
+		assertThat(bytes.lookahead(), equalTo((byte) 'e'));
+		assertThat(bytes.lookahead(3), equalTo((byte) 'h'));
+		assertThat(bytes.lookbehind(), equalTo((byte) 'd'));
+		assertThat(bytes.lookbehind(1), equalTo((byte) 'c'));
+		assertThat(bytes.prev(), equalTo((byte) 'd'));
+		assertThat(bytes.current(), equalTo(3l));
+	}
+
+	@Test
+	public void testFinished() throws Exception {
+		StreamingByteProvider bytes = new StreamingByteProvider(stream("abcde"), UTF_8, 2);
+		bytes.move(3);
+		assertThat(bytes.finished(1), equalTo(false));
+		assertThat(bytes.finished(2), equalTo(true));
+		bytes.finish();
+		assertThat(bytes.finished(), equalTo(true));
+		assertThat(bytes.current(), equalTo(5l));
+	}
+
+	@Test
+	public void testSliceWithinWindow() throws Exception {
+		StreamingByteProvider bytes = new StreamingByteProvider(stream("abcdefghijklmnop"), UTF_8, 2, 3);
+		bytes.move(10);
+		bytes.lookahead(2);
+		assertThat(bytes.slice(8, 13).getString(), equalTo("ijklm"));
+	}
+
+	@Test(expected = OutOfBufferException.class)
+	public void testDiscardedData() throws Exception {
+		StreamingByteProvider bytes = new StreamingByteProvider(stream("abcdefghijklmnop"), UTF_8, 2, 3);
+		bytes.move(14);
+		bytes.lookahead();
+		bytes.at(0);
+	}
+
+	@Test
+	public void testSearchKeepsMemoryBounded() throws Exception {
+		List<String> patterns = asList("needle", "needles", "haystack", "st");
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			text.append("a haystack with needles and a needle in it ");
+		}
+		List<StringSearchAlgorithm> algorithms = asList(
+			new Horspool("needle", UTF_8),
+			new AhoCorasick(patterns, UTF_8),
+			new SetHorspool(patterns, UTF_8),
+			new WuManber(patterns, UTF_8),
+			new SetBackwardOracleMatching(patterns, UTF_8));
+		for (StringSearchAlgorithm algorithm : algorithms) {
+			List<StringMatch> expected = algorithm.createFinder(new StringByteProvider(text.toString(), 0, UTF_8)).findAll();
+			List<StringMatch> matches = algorithm.createFinder(new StreamingByteProvider(stream(text.toString()), UTF_8, 16, 64)).findAll();
+			assertThat(algorithm.toString(), matches, equalTo(expected));
+		}
+	}
+
+	@Test
+	public void testLongestMatchWithinTwiceMaxPatternLength() throws Exception {
+		String[][] patterns = { { "Bbb", "bb" }, { "aaaa", "aaab" }, { "b", "aaab" } };
+		String text = "bBbbbBbbbbbababbbbaaaababbaaabbabbababbbabababbaaabbbabbbaaaabaaababba";
+		List<StringFinderOption[]> options = asList(
+			new StringFinderOption[] { LONGEST_MATCH },
+			new StringFinderOption[] { LONGEST_MATCH, NON_OVERLAP });
+		for (String[] pattern : patterns) {
+			List<StringSearchAlgorithm> algorithms = asList(
+				new AhoCorasick(asList(pattern), UTF_8),
+				new SetHorspool(asList(pattern), UTF_8),
+				new WuManber(asList(pattern), UTF_8),
+				new SetBackwardOracleMatching(asList(pattern), UTF_8),
+				new QGramShiftOr(asList(pattern), UTF_8));
+			for (StringSearchAlgorithm algorithm : algorithms) {
+				for (StringFinderOption[] option : options) {
+					List<StringMatch> expected = algorithm.createFinder(new StringByteProvider(text, 0, UTF_8), option).findAll();
+					List<StringMatch> matches = algorithm.createFinder(new StreamingByteProvider(stream(text), UTF_8, 8, 1), option).findAll();
+					assertThat(algorithm + " " + asList(pattern) + " " + asList(option), matches, equalTo(expected));
+				}
+			}
+		}
+	}
+
+	private static TrickleChannel stream(String text) {
+		return new TrickleChannel(text.getBytes(UTF_8));
+	}
+
+	private static class TrickleChannel implements ReadableByteChannel {
+
+		private byte[] bytes;
+		private int pos;
+
+		public TrickleChannel(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) {
+			if (pos >= bytes.length) {
+				return -1;
+			}
+			int len = Math.min(Math.min(dst.remaining(), 5), bytes.length - pos);
+			dst.put(bytes, pos, len);
+			pos += len;
+			return len;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+}
@@ -0,0 +1,154 @@
+package net.amygdalum.stringsearchalgorithms.io;
+
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.AhoCorasick;
+import net.amygdalum.stringsearchalgorithms.search.chars.Horspool;
+import net.amygdalum.stringsearchalgorithms.search.chars.QGramShiftOr;
+import net.amygdalum.stringsearchalgorithms.search.chars.SetBackwardOracleMatching;
+import net.amygdalum.stringsearchalgorithms.search.chars.SetHorspool;
+import net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithm;
+import net.amygdalum.stringsearchalgorithms.search.chars.WuManber;
+import net.amygdalum.util.io.OutOfBufferException;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class StreamingCharProviderTest {
+
+	@Test
+	public void testNext() throws Exception {
+		StreamingCharProvider chars = new StreamingCharProvider(new TrickleReader("abcdefghij"), 2, 3);
+		StringBuilder read = new StringBuilder();
+		while (!chars.finished()) {
+			read.append(chars.next());
+		}
+		assertThat(read.toString(), equalTo("abcdefghij"));
+		assertThat(chars.current(), equalTo(10l));
+	}
+
+	@Test
+	public void testLookaround() throws Exception {
+		StreamingCharProvider chars = new StreamingCharProvider(new StringReader("abcdefghij"), 2, 3);
+		chars.forward(4);
+		assertThat(chars.lookahead(), equalTo('e'));
+		assertThat(chars.lookahead(3), equalTo('h'));
+		assertThat(chars.lookbehind(), equalTo('d'));
+		assertThat(chars.lookbehind(1), equalTo('c'));
+		assertThat(chars.prev(), equalTo('d'));
+		assertThat(chars.current(), equalTo(3l));
+	}
+
+	@Test
+	public void testFinished() throws Exception {
+		StreamingCharProvider chars = new StreamingCharProvider(new StringReader("abcde"), 2, 3);
+		chars.move(3);
+		assertThat(chars.finished(1), equalTo(false));
+		assertThat(chars.finished(2), equalTo(true));
+		chars.finish();
+		assertThat(chars.finished(), equalTo(true));
+		assertThat(chars.current(), equalTo(5l));
+	}
+
+	@Test
+	public void testSliceWithinWindow() throws Exception {
+		StreamingCharProvider chars = new StreamingCharProvider(new StringReader("abcdefghijklmnop"), 2, 3);
+		chars.move(10);
+		chars.lookahead(2);
+		assertThat(chars.slice(8, 13), equalTo("ijklm"));
+		assertThat(chars.between(8, 8).length, equalTo(0));
+	}
+
+	@Test(expected = OutOfBufferException.class)
+	public void testDiscardedData() throws Exception {
+		StreamingCharProvider chars = new StreamingCharProvider(new StringReader("abcdefghijklmnop"), 2, 3);
+		chars.move(14);
+		chars.lookahead();
+		chars.at(0);
+	}
+
+	@Test
+	public void testToString() throws Exception {
+		StreamingCharProvider chars = new StreamingCharProvider(new StringReader("abcdef"), 2, 3);
+		chars.move(2);
+		chars.finished();
+		assertThat(chars.toString(), equalTo("ab|cdef..."));
+	}
+
+	@Test
+	public void testSearchKeepsMemoryBounded() throws Exception {
+		List<String> patterns = asList("needle", "needles", "haystack", "st");
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			text.append("a haystack with needles and a needle in it ");
+		}
+		List<StringSearchAlgorithm> algorithms = asList(
+			new Horspool("needle"),
+			new AhoCorasick(patterns),
+			new SetHorspool(patterns),
+			new WuManber(patterns),
+			new SetBackwardOracleMatching(patterns));
+		for (StringSearchAlgorithm algorithm : algorithms) {
+			List<StringMatch> expected = algorithm.createFinder(new StringCharProvider(text.toString(), 0)).findAll();
+			List<StringMatch> matches = algorithm.createFinder(new StreamingCharProvider(new TrickleReader(text.toString()), 16, 64)).findAll();
+			assertThat(algorithm.toString(), matches, equalTo(expected));
+		}
+		assertThat(new AhoCorasick(patterns).createFinder(new StreamingCharProvider(new StringReader(text.toString()), 16, 64)).findAll(), hasSize(10000));
+	}
+
+	@Test
+	public void testLongestMatchWithinTwiceMaxPatternLength() throws Exception {
+		String[][] patterns = { { "Bbb", "bb" }, { "aaaa", "aaab" }, { "b", "aaab" } };
+		String text = "bBbbbBbbbbbababbbbaaaababbaaabbabbababbbabababbaaabbbabbbaaaabaaababba";
+		List<StringFinderOption[]> options = asList(
+			new StringFinderOption[] { LONGEST_MATCH },
+			new StringFinderOption[] { LONGEST_MATCH, NON_OVERLAP });
+		for (String[] pattern : patterns) {
+			List<StringSearchAlgorithm> algorithms = asList(
+				new AhoCorasick(asList(pattern)),
+				new SetHorspool(asList(pattern)),
+				new WuManber(asList(pattern)),
+				new SetBackwardOracleMatching(asList(pattern)),
+				new QGramShiftOr(asList(pattern)));
+			for (StringSearchAlgorithm algorithm : algorithms) {
+				for (StringFinderOption[] option : options) {
+					List<StringMatch> expected = algorithm.createFinder(new StringCharProvider(text, 0), option).findAll();
+					List<StringMatch> matches = algorithm.createFinder(new StreamingCharProvider(new StringReader(text), 8, 1), option).findAll();
+					assertThat(algorithm + " " + asList(pattern) + " " + asList(option), matches, equalTo(expected));
+				}
+			}
+		}
+	}
+
+	private static class TrickleReader extends Reader {
+
+		private StringReader reader;
+
+		public TrickleReader(String text) {
+			this.reader = new StringReader(text);
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return reader.read(cbuf, off, Math.min(len, 5));
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+
+	}
+}
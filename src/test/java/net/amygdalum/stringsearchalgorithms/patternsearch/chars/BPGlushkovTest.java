@@ -0,0 +1,43 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.stringsearchalgorithms.search.chars.AhoCorasick;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class BPGlushkovTest {
+
+	@Test
+	public void testPrefiltersBoundedPatternsWithRequiredFactors() throws Exception {
+		BPGlushkov algorithm = new BPGlushkov(new AhoCorasick.Factory(), "x[ab]{1,3}yz");
+
+		assertThat(algorithm.toString(), equalTo("BPGlushkov<AhoCorasick>"));
+		assertThat(algorithm.createFinder(new StringCharProvider("xayzxxabyzxabbbyz", 0)).findAll(), contains(
+			new StringMatch(0, 4, "xayz"),
+			new StringMatch(5, 10, "xabyz")));
+	}
+
+	@Test
+	public void testScansUnboundedPatternsCompletely() throws Exception {
+		BPGlushkov algorithm = new BPGlushkov(new AhoCorasick.Factory(), "x[ab]*yz");
+
+		assertThat(algorithm.toString(), equalTo("BPGlushkov"));
+		assertThat(algorithm.createFinder(new StringCharProvider("xayzxxabyzxabbbyz", 0)).findAll(), contains(
+			new StringMatch(0, 4, "xayz"),
+			new StringMatch(5, 10, "xabyz"),
+			new StringMatch(10, 17, "xabbbyz")));
+	}
+
+	@Test
+	public void testScansNullablePatternsCompletely() throws Exception {
+		BPGlushkov algorithm = new BPGlushkov(new AhoCorasick.Factory(), "(ab)?");
+
+		assertThat(algorithm.toString(), equalTo("BPGlushkov"));
+	}
+
+}
@@ -0,0 +1,61 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.GlushkovAnalyzerOption.FACTORS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+import net.amygdalum.regexparser.RegexNode;
+import net.amygdalum.regexparser.RegexParser;
+import net.amygdalum.util.bits.BitSet;
+
+public class FollowSetsTest {
+
+	@Test
+	public void testMemoizesUnionOfFollowSets() throws Exception {
+		BitSet[] follow = new BitSet[] { BitSet.bits(3, 1), BitSet.bits(3, 2), BitSet.empty(3) };
+		FollowSets followSets = new FollowSets(follow, BitSet.bits(3, 0), 2);
+
+		assertThat(followSets.get(BitSet.bits(3, 0, 1)), equalTo(BitSet.bits(3, 0, 1, 2)));
+		assertThat(followSets.get(BitSet.empty(3)), equalTo(BitSet.bits(3, 0)));
+		assertThat(followSets.size(), equalTo(2));
+		assertThat(followSets.get(BitSet.bits(3, 2)), equalTo(BitSet.bits(3, 0)));
+		assertThat(followSets.size(), equalTo(1));
+	}
+
+	@Test(timeout = 10000)
+	public void testExpandsOnlyVisitedStates() throws Exception {
+		GlushkovAnalyzer analyzer = analyze("(a|b)*a(a|b){70}").withStateBudget(64);
+		BitParallelAutomaton automaton = analyzer.buildAutomaton();
+		BitParallelAutomaton factors = analyzer.buildReverseAutomaton(FACTORS);
+
+		BitSet state = automaton.getInitial();
+		for (char c : ("ba" + repeat("ab", 35)).toCharArray()) {
+			state = automaton.next(state, c);
+		}
+		BitSet factorState = factors.getInitial();
+		for (char c : "babbbaaabbbaab".toCharArray()) {
+			factorState = factors.next(factorState, c);
+		}
+
+		assertThat(automaton.isFinal(state), equalTo(true));
+		assertThat(factorState.isEmpty(), equalTo(false));
+		assertThat(analyzer.minLength(), equalTo(71));
+	}
+
+	private static String repeat(String s, int times) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			buffer.append(s);
+		}
+		return buffer.toString();
+	}
+
+	private static GlushkovAnalyzer analyze(String pattern) {
+		RegexNode root = new RegexParser(pattern).parse();
+		root = root.accept(new GlushkovNormalizer());
+		return new GlushkovAnalyzer(root).analyze();
+	}
+
+}
@@ -0,0 +1,80 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.GlushkovAnalyzerOption.FACTORS;
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.GlushkovAnalyzerOption.SELF_LOOP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import org.junit.Test;
+
+import net.amygdalum.regexparser.RegexNode;
+import net.amygdalum.regexparser.RegexParser;
+import net.amygdalum.util.bits.BitSet;
+
+public class GlushkovAnalyzerTest {
+
+	@Test
+	public void testBuildsAutomatonBySize() throws Exception {
+		assertThat(analyze("a(b|c)*d").buildAutomaton(), instanceOf(Glushkov64Automaton.class));
+		assertThat(analyze("a(b|c)*d").buildReverseAutomaton(), instanceOf(Glushkov64Automaton.class));
+		assertThat(analyze("(a|b)*a(a|b){40}").buildAutomaton(), instanceOf(Glushkov128Automaton.class));
+		assertThat(analyze("(a|b)*a(a|b){40}").buildReverseAutomaton(), instanceOf(Glushkov128Automaton.class));
+		assertThat(analyze("(a|b)*a(a|b){70}").buildAutomaton(), instanceOf(GlushkovAutomaton.class));
+		assertThat(analyze("(a|b)*a(a|b){70}").buildReverseAutomaton(), instanceOf(DualGlushkovAutomaton.class));
+	}
+
+	@Test
+	public void testLongAutomataAgreeWithBitSetStates() throws Exception {
+		String text = "ab" + repeat("abbab", 20) + "xa" + repeat("ba", 40);
+		for (String pattern : new String[] { "(a|b)*a(a|b){20}", "(a|b)*a(a|b){40}", "(a|b)*a(a|b){70}" }) {
+			GlushkovAnalyzer analyzer = analyze(pattern);
+			assertAgrees(analyzer.buildAutomaton(SELF_LOOP), text);
+			assertAgrees(analyzer.buildReverseAutomaton(FACTORS), new StringBuilder(text).reverse().toString());
+		}
+	}
+
+	@Test
+	public void testLongAutomataMatchWideChars() throws Exception {
+		GlushkovAnalyzer analyzer = analyze("Ä(b|σ)*d");
+		BitParallelAutomaton automaton = analyzer.buildAutomaton();
+		BitParallelCursor cursor = automaton.cursor();
+		for (char c : "Äσbσd".toCharArray()) {
+			cursor.accept(c);
+		}
+
+		assertThat(cursor.isFinal(), equalTo(true));
+		cursor.reset();
+		assertThat(cursor.accept('Ą'), equalTo(false));
+		assertThat(analyzer.minLength(), equalTo(2));
+		assertThat(automaton.minLength(), equalTo(2));
+	}
+
+	private static void assertAgrees(BitParallelAutomaton automaton, String text) {
+		BitParallelCursor cursor = automaton.cursor();
+		BitSet state = automaton.getInitial();
+		for (char c : text.toCharArray()) {
+			state = automaton.next(state, c);
+			boolean nonEmpty = cursor.accept(c);
+
+			assertThat(cursor.getState(), equalTo(state));
+			assertThat(cursor.isFinal(), equalTo(automaton.isFinal(state)));
+			assertThat(nonEmpty, equalTo(!state.isEmpty()));
+		}
+	}
+
+	private static String repeat(String s, int times) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			buffer.append(s);
+		}
+		return buffer.toString();
+	}
+
+	private static GlushkovAnalyzer analyze(String pattern) {
+		RegexNode root = new RegexParser(pattern).parse();
+		root = root.accept(new GlushkovNormalizer());
+		return new GlushkovAnalyzer(root).analyze();
+	}
+
+}
@@ -0,0 +1,63 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static net.amygdalum.stringsearchalgorithms.patternsearch.chars.GlushkovAnalyzerOption.SELF_LOOP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import org.junit.Test;
+
+import net.amygdalum.regexparser.RegexNode;
+import net.amygdalum.regexparser.RegexParser;
+import net.amygdalum.util.bits.BitSet;
+
+public class LazyDFATest {
+
+	@Test
+	public void testCachesStatesAndTransitions() throws Exception {
+		GlushkovAnalyzer analyzer = analyze("a(b|c)*d");
+		LazyDFA dfa = new LazyDFA(analyzer.buildAutomaton(SELF_LOOP), analyzer.mapper());
+
+		int state = run(dfa, dfa.getInitial(), "xabcbd");
+		int size = dfa.size();
+
+		assertThat(dfa.isFinal(state), equalTo(true));
+		assertThat(run(dfa, dfa.getInitial(), "xabcbd"), equalTo(state));
+		assertThat(dfa.size(), equalTo(size));
+		assertThat(dfa.flushes(), equalTo(0));
+	}
+
+	@Test
+	public void testFlushesAtCapacityAndAgreesWithAutomaton() throws Exception {
+		GlushkovAnalyzer analyzer = analyze("(a|b)*a(a|b)(a|b)");
+		BitParallelAutomaton automaton = analyzer.buildAutomaton(SELF_LOOP);
+		LazyDFA dfa = new LazyDFA(automaton, analyzer.mapper(), 3);
+
+		String text = "abbabaabbbaaabxbaab";
+		BitSet expected = automaton.getInitial();
+		int state = dfa.getInitial();
+		for (char c : text.toCharArray()) {
+			expected = automaton.next(expected, analyzer.mapper().representative(c));
+			state = dfa.next(state, c);
+
+			assertThat(dfa.getState(state), equalTo(expected));
+			assertThat(dfa.isFinal(state), equalTo(automaton.isFinal(expected)));
+		}
+		assertThat(dfa.flushes(), greaterThan(0));
+		assertThat(dfa.isInitial(dfa.state(automaton.getInitial())), equalTo(true));
+	}
+
+	private static int run(LazyDFA dfa, int state, String text) {
+		for (char c : text.toCharArray()) {
+			state = dfa.next(state, c);
+		}
+		return state;
+	}
+
+	private static GlushkovAnalyzer analyze(String pattern) {
+		RegexNode root = new RegexParser(pattern).parse();
+		root = root.accept(new GlushkovNormalizer());
+		return new GlushkovAnalyzer(root).analyze();
+	}
+
+}
@@ -0,0 +1,91 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_EMPTY;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class MultiBPGlushkovTest {
+
+	@Test
+	public void testReportsPatternOfMatch() throws Exception {
+		MultiBPGlushkov algorithm = new MultiBPGlushkov(asList("a.*b", "c+", "bc"));
+		StringFinder finder = algorithm.createFinder(new StringCharProvider("xaxbxcxbcx", 0));
+
+		List<StringMatch> matches = finder.findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(1, 4, "axb"),
+			new StringMatch(1, 8, "axbxcxb"),
+			new StringMatch(5, 6, "c"),
+			new StringMatch(7, 9, "bc"),
+			new StringMatch(8, 9, "c")));
+		assertThat(matches.get(0).pattern(), equalTo(0));
+		assertThat(matches.get(1).pattern(), equalTo(0));
+		assertThat(matches.get(2).pattern(), equalTo(1));
+		assertThat(matches.get(3).pattern(), equalTo(2));
+		assertThat(matches.get(4).pattern(), equalTo(1));
+	}
+
+	@Test
+	public void testReportsPatternOfNullableMatch() throws Exception {
+		MultiBPGlushkov algorithm = new MultiBPGlushkov(asList("ab", "c*"));
+		StringFinder finder = algorithm.createFinder(new StringCharProvider("abcc", 0), NON_EMPTY);
+
+		List<StringMatch> matches = finder.findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(0, 2, "ab"),
+			new StringMatch(2, 3, "c"),
+			new StringMatch(2, 4, "cc"),
+			new StringMatch(3, 4, "c")));
+		assertThat(matches.get(0).pattern(), equalTo(0));
+		assertThat(matches.get(1).pattern(), equalTo(1));
+		assertThat(algorithm.getPatternLength(), equalTo(0));
+	}
+
+	@Test
+	public void testReportsAllPatternsOfEqualSpans() throws Exception {
+		MultiBPGlushkov algorithm = new MultiBPGlushkov(asList("x", "ab", "a(b|c)"));
+		StringFinder finder = algorithm.createFinder(new StringCharProvider("xabac", 0));
+
+		List<StringMatch> matches = finder.findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(0, 1, "x"),
+			new StringMatch(1, 3, "ab"),
+			new StringMatch(1, 3, "ab"),
+			new StringMatch(3, 5, "ac")));
+		assertThat(matches.get(1).pattern(), equalTo(1));
+		assertThat(matches.get(2).pattern(), equalTo(2));
+		assertThat(matches.get(3).pattern(), equalTo(2));
+	}
+
+	@Test
+	public void testReportsAllPatternsOfEqualEmptySpans() throws Exception {
+		MultiBPGlushkov algorithm = new MultiBPGlushkov(asList("bc", "(a)*", "((abab)*)?"));
+		StringFinder finder = algorithm.createFinder(new StringCharProvider("cb", 0));
+
+		List<StringMatch> matches = finder.findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(0, 0, ""),
+			new StringMatch(0, 0, ""),
+			new StringMatch(1, 1, ""),
+			new StringMatch(1, 1, ""),
+			new StringMatch(2, 2, ""),
+			new StringMatch(2, 2, "")));
+		assertThat(matches.get(0).pattern(), equalTo(1));
+		assertThat(matches.get(1).pattern(), equalTo(2));
+	}
+
+}
@@ -6,6 +6,9 @@ import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLA
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -19,7 +22,8 @@ public class MultiPatternTest {
 	@Rule
 	public MultiPatternSearchRule searcher = new MultiPatternSearchRule(
 		new MultiFactorRE.Factory(new AhoCorasick.Factory(), new GlushkovPrefixExtender.Factory(), 2),
-		new MultiFactorRE.Factory(new AhoCorasick.Factory(), new GlushkovFactorExtender.Factory(), 2)
+		new MultiFactorRE.Factory(new AhoCorasick.Factory(), new GlushkovFactorExtender.Factory(), 2),
+		new MultiBPGlushkov.Factory()
 		);
 
 	@Test
@@ -105,4 +109,23 @@ public class MultiPatternTest {
 			new StringMatch(51, 95, "atagacaacatagacatagacatagacatagacatagacataga")));
 	}
 
+	@Test
+	@SearchFor({ "x+", "a(b|c)", "c+", "d?e" })
+	public void testPatternIndexes() throws Exception {
+		StringFinder finder = searcher.createSearcher("abxxacccde", LONGEST_MATCH, NON_OVERLAP);
+		List<StringMatch> matches = finder.findAll();
+		List<Integer> patterns = new ArrayList<>();
+		for (StringMatch match : matches) {
+			patterns.add(match.pattern());
+		}
+
+		assertThat(matches, contains(
+			new StringMatch(0, 2, "ab"),
+			new StringMatch(2, 4, "xx"),
+			new StringMatch(4, 6, "ac"),
+			new StringMatch(6, 8, "cc"),
+			new StringMatch(8, 10, "de")));
+		assertThat(patterns, contains(1, 0, 1, 2, 3));
+	}
+
 }
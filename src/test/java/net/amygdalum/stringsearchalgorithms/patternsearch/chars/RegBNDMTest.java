@@ -0,0 +1,35 @@
+package net.amygdalum.stringsearchalgorithms.patternsearch.chars;
+
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class RegBNDMTest {
+
+	@Test
+	public void testFindsStructuredIds() throws Exception {
+		RegBNDM algorithm = new RegBNDM("[A-Z]{4}-[0-9]{8}-[A-Z0-9]{6}");
+		String text = "id ABCD-12345678-X1Y2Z3, no ABC-12345678-X1Y2Z3 or ABCD-1234567-X1Y2Z3, but WXYZ-00000000-000000.";
+
+		assertThat(algorithm.getPatternLength(), equalTo(20));
+		assertThat(algorithm.createFinder(new StringCharProvider(text, 0)).findAll(), contains(
+			new StringMatch(3, 23, "ABCD-12345678-X1Y2Z3"),
+			new StringMatch(76, 96, "WXYZ-00000000-000000")));
+	}
+
+	@Test
+	public void testVerifiesCandidatesForward() throws Exception {
+		RegBNDM algorithm = new RegBNDM("ab(c|d)+e?");
+
+		assertThat(algorithm.createFinder(new StringCharProvider("xxabcdcexabxabdd", 0), LONGEST_MATCH).findAll(), contains(
+			new StringMatch(2, 8, "abcdce"),
+			new StringMatch(12, 16, "abdd")));
+	}
+
+}
@@ -14,12 +14,17 @@ import net.amygdalum.stringsearchalgorithms.search.SearchFor;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.stringsearchalgorithms.search.chars.AhoCorasick;
+import net.amygdalum.stringsearchalgorithms.search.chars.SetHorspool;
 
 public class SinglePatternTest {
 
 	@Rule
 	public SinglePatternSearchRule searcher = new SinglePatternSearchRule(
 		new BPGlushkov.Factory(RegexParserOption.DOT_ALL),
+		new BPGlushkov.Factory(new AhoCorasick.Factory(), RegexParserOption.DOT_ALL),
+		new BPGlushkov.Factory(new SetHorspool.Factory(), RegexParserOption.DOT_ALL),
+		new RegBNDM.Factory(RegexParserOption.DOT_ALL),
+		new MultiBPGlushkov.Factory(RegexParserOption.DOT_ALL),
 		new MultiFactorRE.Factory(new AhoCorasick.Factory(), new GlushkovPrefixExtender.Factory(RegexParserOption.DOT_ALL), 4),
 		new MultiFactorRE.Factory(new AhoCorasick.Factory(), new GlushkovFactorExtender.Factory(RegexParserOption.DOT_ALL), 2));
 
@@ -0,0 +1,167 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BufferedStringFinderTest {
+
+	@Test
+	public void testLeftMostOrdersByStartAndEnd() throws Exception {
+		TestFinder finder = new TestFinder();
+		finder.push(4, 6, 0);
+		finder.push(0, 3, 1);
+		finder.push(0, 2, 2);
+		finder.push(2, 5, 3);
+
+		assertThat(finder.findNext(), equalTo(new StringMatch(0, 2, "", 2)));
+		assertThat(finder.findNext(), equalTo(new StringMatch(0, 3, "", 1)));
+		assertThat(finder.findNext(), equalTo(new StringMatch(2, 5, "", 3)));
+		assertThat(finder.findNext(), equalTo(new StringMatch(4, 6, "", 0)));
+		assertThat(finder.findNext(), nullValue());
+	}
+
+	@Test
+	public void testLeftMostSkipsDuplicates() throws Exception {
+		TestFinder finder = new TestFinder();
+		finder.push(0, 2, 0);
+		finder.push(0, 2, 0);
+		finder.push(1, 2, 0);
+
+		assertThat(finder.findNext(), equalTo(new StringMatch(0, 2, "", 0)));
+		assertThat(finder.findNext(), equalTo(new StringMatch(1, 2, "", 0)));
+		assertThat(finder.isBufferEmpty(), equalTo(true));
+	}
+
+	@Test
+	public void testLongestLeftMost() throws Exception {
+		TestFinder finder = new TestFinder(LONGEST_MATCH);
+		finder.push(0, 2, 0);
+		finder.push(0, 4, 1);
+		finder.push(1, 3, 2);
+		finder.push(2, 5, 3);
+
+		assertThat(finder.findNext(), equalTo(new StringMatch(0, 4, "", 1)));
+		assertThat(finder.lastMatchEnd(), equalTo(4l));
+		assertThat(finder.findNext(), equalTo(new StringMatch(2, 5, "", 3)));
+		assertThat(finder.findNext(), nullValue());
+	}
+
+	@Test
+	public void testRemoveMatchesBefore() throws Exception {
+		TestFinder finder = new TestFinder();
+		finder.push(0, 2, 0);
+		finder.push(1, 7, 1);
+		finder.push(3, 5, 2);
+
+		assertThat(finder.removeMatchesBefore(2), equalTo(5l));
+		assertThat(finder.lastStartFromBuffer(), equalTo(3l));
+		assertThat(finder.removeMatchesBefore(4), equalTo(4l));
+		assertThat(finder.lastStartFromBuffer(), equalTo(-1l));
+	}
+
+	@Test
+	public void testRemoveMatchesBeforeAfterRemovingLongestEnd() throws Exception {
+		TestFinder finder = new TestFinder();
+		finder.push(0, 7, 0);
+		finder.push(1, 3, 1);
+		finder.push(2, 5, 2);
+
+		assertThat(finder.removeMatchesBefore(1), equalTo(5l));
+		finder.push(3, 9, 3);
+		assertThat(finder.removeMatchesBefore(2), equalTo(9l));
+	}
+
+	@Test
+	public void testFindAllReportsTakenMatches() throws Exception {
+		TestFinder finder = new TestFinder(LONGEST_MATCH);
+		finder.push(0, 2, 0);
+		finder.push(0, 4, 1);
+		finder.push(5, 6, 2);
+		final List<Long> ends = new ArrayList<>();
+
+		finder.findAll(new MatchSink() {
+			@Override
+			public boolean onMatch(long start, long end, int pattern) {
+				ends.add(end);
+				return true;
+			}
+		});
+
+		assertThat(ends, contains(4l, 6l));
+	}
+
+	@Test
+	public void testGrowsBeyondInitialCapacity() throws Exception {
+		TestFinder finder = new TestFinder();
+		for (int i = 99; i >= 0; i--) {
+			finder.push(i, i + 1, i);
+		}
+
+		List<Long> starts = new ArrayList<>();
+		StringMatch match = finder.findNext();
+		while (match != null) {
+			starts.add(match.start());
+			match = finder.findNext();
+		}
+		assertThat(starts.size(), equalTo(100));
+		assertThat(starts.subList(0, 3), contains(0l, 1l, 2l));
+		assertThat(starts.get(99), equalTo(99l));
+	}
+
+	@Test
+	public void testFlush() throws Exception {
+		TestFinder finder = new TestFinder();
+		finder.push(2, 3, 1);
+		finder.push(0, 1, 0);
+		final List<Long> ends = new ArrayList<>();
+
+		boolean result = finder.flush(new MatchSink() {
+			@Override
+			public boolean onMatch(long start, long end, int pattern) {
+				ends.add(end);
+				return true;
+			}
+		});
+
+		assertThat(result, equalTo(true));
+		assertThat(ends, contains(1l, 3l));
+	}
+
+	private static class TestFinder extends BufferedStringFinder {
+
+		private boolean longest;
+
+		public TestFinder(StringFinderOption... options) {
+			super(options);
+			this.longest = LONGEST_MATCH.in(options);
+		}
+
+		@Override
+		protected boolean takeNext() {
+			if (longest) {
+				return takeLongestLeftMost();
+			} else {
+				return takeLeftMost();
+			}
+		}
+
+		@Override
+		public void skipTo(long pos) {
+			removeMatchesBefore(pos);
+		}
+
+		@Override
+		protected StringMatch createMatch(long start, long end, int pattern) {
+			return new StringMatch(start, end, "", pattern);
+		}
+
+	}
+}
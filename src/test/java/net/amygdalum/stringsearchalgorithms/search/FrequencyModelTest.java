@@ -0,0 +1,54 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+public class FrequencyModelTest {
+
+	@Test
+	public void testRarestEnglish() throws Exception {
+		assertThat(FrequencyModel.ENGLISH.rarest("the quiz ".toCharArray())[0], equalTo(7));
+		assertThat(FrequencyModel.ENGLISH.rarest("a e".toCharArray()), equalTo(new int[] { 0, 2, 1 }));
+	}
+
+	@Test
+	public void testRarestSourceCode() throws Exception {
+		assertThat(FrequencyModel.SOURCE_CODE.rarest("if (x) {".toCharArray())[0], equalTo(4));
+	}
+
+	@Test
+	public void testRarestDNA() throws Exception {
+		assertThat(FrequencyModel.DNA.rarest("ACGNT".toCharArray())[0], equalTo(3));
+	}
+
+	@Test
+	public void testRarestBinary() throws Exception {
+		assertThat(FrequencyModel.BINARY.rarest(new byte[] { 0, 0, (byte) 0x81, (byte) 0xff })[0], equalTo(2));
+	}
+
+	@Test
+	public void testRarestTiesRightToLeft() throws Exception {
+		assertThat(FrequencyModel.DNA.rarest("ACGT".toCharArray()), equalTo(new int[] { 3, 2, 1, 0 }));
+	}
+
+	@Test
+	public void testCharsOutOfModelAreRare() throws Exception {
+		assertThat(FrequencyModel.ENGLISH.frequency('€'), equalTo(0));
+		assertThat(FrequencyModel.ENGLISH.rarest("e€e".toCharArray())[0], equalTo(1));
+	}
+
+	@Test
+	public void testOfSample() throws Exception {
+		FrequencyModel model = FrequencyModel.of("aaaabbc");
+		assertThat(model.frequency('a'), equalTo(4));
+		assertThat(model.rarest("abc".toCharArray()), equalTo(new int[] { 2, 1, 0 }));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalTable() throws Exception {
+		new FrequencyModel(new int[10]);
+	}
+
+}
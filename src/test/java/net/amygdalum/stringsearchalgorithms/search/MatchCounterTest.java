@@ -0,0 +1,38 @@
+package net.amygdalum.stringsearchalgorithms.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+
+public class MatchCounterTest {
+
+	@Test
+	public void testCount() throws Exception {
+		MatchCounter counter = new MatchCounter();
+		assertThat(counter.onMatch(0, 1, 0), equalTo(true));
+		assertThat(counter.onMatch(1, 2, 0), equalTo(true));
+		assertThat(counter.count(), equalTo(2l));
+	}
+
+	@Test
+	public void testCountWithLimit() throws Exception {
+		MatchCounter counter = new MatchCounter(2);
+		assertThat(counter.onMatch(0, 1, 0), equalTo(true));
+		assertThat(counter.onMatch(1, 2, 0), equalTo(false));
+		assertThat(counter.count(), equalTo(2l));
+	}
+
+	@Test
+	public void testCountWithHistogram() throws Exception {
+		int[] histogram = new int[3];
+		MatchCounter counter = new MatchCounter(histogram);
+		counter.onMatch(0, 1, 0);
+		counter.onMatch(1, 2, 2);
+		counter.onMatch(2, 3, 2);
+		assertThat(counter.count(), equalTo(3l));
+		assertThat(histogram, equalTo(new int[] {1, 0, 2}));
+	}
+
+}
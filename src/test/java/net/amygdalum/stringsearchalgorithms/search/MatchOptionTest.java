@@ -1,9 +1,15 @@
 package net.amygdalum.stringsearchalgorithms.search;
 
 import static net.amygdalum.extensions.hamcrest.conventions.EnumMatcher.isEnum;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LAZY_TEXT;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_EMPTY;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 
 import org.junit.Test;
 
@@ -12,7 +18,7 @@ public class MatchOptionTest {
 
 	@Test
 	public void testMatchOption() throws Exception {
-		assertThat(MatchOption.class, isEnum().withElements(3));
+		assertThat(MatchOption.class, isEnum().withElements(4));
 	}
 	
 	@Test
@@ -22,4 +28,12 @@ public class MatchOptionTest {
 		assertThat(LONGEST_MATCH.in(new StringFinderOption[]{new StringFinderOption() {}}), is(false));
 	}
 
+	@Test
+	public void testWithout() throws Exception {
+		StringFinderOption[] options = new StringFinderOption[]{LONGEST_MATCH, NON_EMPTY, NON_OVERLAP};
+		assertThat(MatchOption.without(options, LONGEST_MATCH, NON_OVERLAP), arrayContaining((StringFinderOption) NON_EMPTY));
+		assertThat(MatchOption.without(options, LAZY_TEXT), sameInstance(options));
+		assertThat(MatchOption.without(new StringFinderOption[0], LONGEST_MATCH), emptyArray());
+	}
+
 }
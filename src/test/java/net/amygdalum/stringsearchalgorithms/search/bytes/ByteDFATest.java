@@ -0,0 +1,75 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static net.amygdalum.util.text.StringUtils.toByteArray;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.util.io.StringByteProvider;
+import net.amygdalum.util.text.ByteAutomaton;
+
+public class ByteDFATest {
+
+	@Test
+	public void testCompileCountsStates() throws Exception {
+		ByteDFA dfa = ByteDFA.compile(toByteArray(asList("abc", "abd", "b", "abc"), UTF_8), 1 << 10);
+
+		assertThat(dfa.size(), equalTo(6));
+	}
+
+	@Test
+	public void testCompileExceedingBudget() throws Exception {
+		List<byte[]> patterns = toByteArray(asList("abc", "abd", "b"), UTF_8);
+
+		assertThat(ByteDFA.compile(patterns, 6 * 5 * 4), notNullValue());
+		assertThat(ByteDFA.compile(patterns, 6 * 5 * 4 - 1), nullValue());
+	}
+
+	@Test
+	public void testFind() throws Exception {
+		ByteDFA dfa = ByteDFA.compile(toByteArray(asList("abc", "b", "abc"), UTF_8), 1 << 10);
+
+		assertThat(dfa.find("abc".getBytes(UTF_8)), equalTo(0));
+		assertThat(dfa.find("b".getBytes(UTF_8)), equalTo(1));
+		assertThat(dfa.find("ab".getBytes(UTF_8)), nullValue());
+		assertThat(dfa.contains("bc".getBytes(UTF_8)), equalTo(false));
+	}
+
+	@Test
+	public void testCursorReportsLongestFirst() throws Exception {
+		ByteDFA dfa = ByteDFA.compile(toByteArray(asList("c", "abc", "bc"), UTF_8), 1 << 10);
+		ByteAutomaton<Integer> cursor = dfa.cursor();
+
+		for (byte b : "xabc".getBytes(UTF_8)) {
+			cursor.accept(b);
+		}
+
+		assertThat(cursor.hasAttachments(), equalTo(true));
+		assertThat(cursor, contains(1, 2, 0));
+		assertThat(cursor.lookahead((byte) 'a'), equalTo(false));
+	}
+
+	@Test
+	public void testAgreesWithFallbackTrie() throws Exception {
+		List<String> patterns = asList("ab", "abc", "bc", "c", "bcd", "d", "abcd", "dab");
+		String text = "abcdabcbcdxabdcabcd";
+		AhoCorasick trie = new AhoCorasick(patterns, UTF_8);
+		AhoCorasick dfa = new AhoCorasick(patterns, UTF_8, 1 << 20);
+		for (StringFinderOption[] options : asList(new StringFinderOption[0], new StringFinderOption[] { NON_OVERLAP }, new StringFinderOption[] { LONGEST_MATCH, NON_OVERLAP })) {
+			assertThat(dfa.createFinder(new StringByteProvider(text, 0, UTF_8), options).findAll(),
+				equalTo(trie.createFinder(new StringByteProvider(text, 0, UTF_8), options).findAll()));
+		}
+	}
+
+}
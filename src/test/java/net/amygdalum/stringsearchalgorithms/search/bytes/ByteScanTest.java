@@ -0,0 +1,119 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.amygdalum.stringsearchalgorithms.io.ByteArrayProvider;
+import net.amygdalum.stringsearchalgorithms.io.DirectByteProvider;
+import net.amygdalum.stringsearchalgorithms.io.MappedByteProvider;
+import net.amygdalum.stringsearchalgorithms.search.MatchOption;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.util.io.StringByteProvider;
+
+public class ByteScanTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRarest() throws Exception {
+		assertThat(ByteScan.rarest("e x".getBytes(ISO_8859_1)), equalTo(2));
+		assertThat(ByteScan.rarest("the Quick".getBytes(ISO_8859_1)), equalTo(4));
+		assertThat(ByteScan.rarest("aäa".getBytes(ISO_8859_1)), equalTo(1));
+	}
+
+	@Test
+	public void testIndexOfAgreesWithByteLoop() throws Exception {
+		byte[] text = randomBytes(1000, 4);
+		ByteArrayProvider bytes = new ByteArrayProvider(text, 0);
+		for (byte b : new byte[] { 0, 1, 2, 3, (byte) 0x80, (byte) 0xff }) {
+			for (int from = 0; from < 40; from += 3) {
+				assertThat(ByteScan.indexOf(bytes, b, from, text.length), equalTo(indexOf(text, b, from, text.length)));
+				assertThat(ByteScan.indexOf(bytes, b, from, from + 9), equalTo(indexOf(text, b, from, from + 9)));
+			}
+		}
+	}
+
+	@Test
+	public void testIndexOfCrossesBuffers() throws Exception {
+		byte[] text = new byte[100];
+		text[37] = 42;
+		text[90] = 42;
+		File file = folder.newFile("text");
+		Files.write(file.toPath(), text);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteProvider bytes = new MappedByteProvider(channel, 0, ISO_8859_1, 13);
+
+			assertThat(ByteScan.indexOf(bytes, (byte) 42, 0, 100), equalTo(37l));
+			assertThat(ByteScan.indexOf(bytes, (byte) 42, 38, 100), equalTo(90l));
+			assertThat(ByteScan.indexOf(bytes, (byte) 42, 38, 90), equalTo(-1l));
+		}
+	}
+
+	@Test
+	public void testDirectSearchAgreesWithSearch() throws Exception {
+		byte[] text = randomBytes(2000, 3);
+		Random random = new Random(17);
+		for (int i = 0; i < 50; i++) {
+			int length = 1 + random.nextInt(6);
+			int start = random.nextInt(text.length - length);
+			String pattern = new String(text, start, length, ISO_8859_1);
+			for (StringSearchAlgorithm algorithm : new StringSearchAlgorithm[] { new Horspool(pattern, ISO_8859_1), new Sunday(pattern, ISO_8859_1) }) {
+				for (StringFinderOption[] options : new StringFinderOption[][] { {}, { MatchOption.NON_OVERLAP } }) {
+					DirectByteProvider direct = new ByteArrayProvider(text, 0, ISO_8859_1);
+					StringByteProvider indirect = new StringByteProvider(text, 0, ISO_8859_1);
+
+					assertThat(algorithm.createFinder(direct, options).findAll(), equalTo(algorithm.createFinder(indirect, options).findAll()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDirectSearchOnMappedFile() throws Exception {
+		byte[] text = randomBytes(500, 2);
+		File file = folder.newFile("text");
+		Files.write(file.toPath(), text);
+		String pattern = new String(text, 240, 5, ISO_8859_1);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			Horspool algorithm = new Horspool(pattern, ISO_8859_1);
+
+			assertThat(algorithm.createFinder(new MappedByteProvider(channel, 0, ISO_8859_1, 16)).findAll(),
+				equalTo(algorithm.createFinder(new StringByteProvider(text, 0, ISO_8859_1)).findAll()));
+		}
+	}
+
+	private static long indexOf(byte[] text, byte b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (text[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static byte[] randomBytes(int length, int alphabet) {
+		Random random = new Random(42);
+		byte[] values = { 0, 1, 2, 3, (byte) 0x80, (byte) 0xff };
+		byte[] text = new byte[length];
+		for (int i = 0; i < length; i++) {
+			text[i] = values[random.nextInt(Math.min(alphabet, values.length))];
+			if (random.nextInt(50) == 0) {
+				text[i] = values[random.nextInt(values.length)];
+			}
+		}
+		return text;
+	}
+
+}
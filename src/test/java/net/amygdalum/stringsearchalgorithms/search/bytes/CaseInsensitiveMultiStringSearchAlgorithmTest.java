@@ -0,0 +1,113 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static net.amygdalum.stringsearchalgorithms.search.bytes.CaseInsensitive.caseInsensitive;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.SearchFor;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
+
+public class CaseInsensitiveMultiStringSearchAlgorithmTest {
+
+	@Rule
+	public MultiStringSearchRule searcher = new MultiStringSearchRule(
+		caseInsensitive(new AhoCorasick.Factory(UTF_8), UTF_8),
+		caseInsensitive(new AhoCorasick.Factory(UTF_8, 1 << 20), UTF_8),
+		caseInsensitive(new SetHorspool.Factory(UTF_8), UTF_8),
+		caseInsensitive(new WuManber.Factory(UTF_8), UTF_8),
+		caseInsensitive(new WuManber.Factory(UTF_8, 1, 2, 2), UTF_8),
+		caseInsensitive(new SetBackwardOracleMatching.Factory(UTF_8), UTF_8),
+		caseInsensitive(new Teddy.Factory(UTF_8), UTF_8));
+
+	@Test
+	@SearchFor({ "a", "B" })
+	public void testPattern1() throws Exception {
+		assertThat(search("abAcacaB"), contains(
+			new StringMatch(0, 1, "a"),
+			new StringMatch(1, 2, "b"),
+			new StringMatch(2, 3, "A"),
+			new StringMatch(4, 5, "a"),
+			new StringMatch(6, 7, "a"),
+			new StringMatch(7, 8, "B")));
+	}
+
+	@Test
+	@SearchFor({ "ab", "Ac" })
+	public void testPattern2() throws Exception {
+		assertThat(search("aBAcacab"), contains(
+			new StringMatch(0, 2, "aB"),
+			new StringMatch(2, 4, "Ac"),
+			new StringMatch(4, 6, "ac"),
+			new StringMatch(6, 8, "ab")));
+	}
+
+	@Test
+	@SearchFor({ "abC", "Bcd" })
+	public void testPattern3() throws Exception {
+		List<StringMatch> matches = search("ABcacbcDacabcdaabc");
+		assertThat(matches, containsInAnyOrder(
+			new StringMatch(0, 3, "ABc"),
+			new StringMatch(5, 8, "bcD"),
+			new StringMatch(10, 13, "abc"),
+			new StringMatch(11, 14, "bcd"),
+			new StringMatch(15, 18, "abc")));
+	}
+
+	@Test
+	@SearchFor({ "äb", "ÄC" })
+	public void testNonAsciiIsCaseSensitive() throws Exception {
+		assertThat(search("äBÄbÄcäc"), contains(
+			new StringMatch(0, 3, "äB"),
+			new StringMatch(6, 9, "Äc")));
+	}
+
+	@Test
+	@SearchFor({ "aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa BBBB bbbb", "bbbb bbbb" })
+	public void testPatternLargeSize() throws Exception {
+		assertThat(search("xxx aaaa aaaa bbbb bbbb AAAA aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb xxx", LONGEST_MATCH, NON_OVERLAP), contains(
+			new StringMatch(4, 83, "aaaa aaaa bbbb bbbb AAAA aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb")));
+	}
+
+	@Test
+	@SearchFor({ "abc", "Bcab" })
+	public void testNonOverlappingPattern() throws Exception {
+		assertThat(search("ABCabcaBcab", LONGEST_MATCH, NON_OVERLAP), contains(
+			new StringMatch(0, 3, "ABC"),
+			new StringMatch(3, 6, "abc"),
+			new StringMatch(6, 9, "aBc")));
+	}
+
+	@Test
+	@SearchFor({ "{a", "[" })
+	public void testNonLettersAreNotFolded() throws Exception {
+		List<StringMatch> matches = search("[A{a{A[");
+		assertThat(matches, contains(
+			new StringMatch(0, 1, "["),
+			new StringMatch(2, 4, "{a"),
+			new StringMatch(4, 6, "{A"),
+			new StringMatch(6, 7, "[")));
+	}
+
+	@Test
+	@SearchFor({ "ab", "Abc" })
+	public void testPatternLength() throws Exception {
+		assertThat(searcher.getAlgorithm().getPatternLength(), equalTo(2));
+	}
+
+	private List<StringMatch> search(String text, StringFinderOption... options) {
+		return searcher.createSearcher(new StringByteProvider(text, 0, UTF_8), options).findAll();
+	}
+
+}
@@ -0,0 +1,126 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static net.amygdalum.stringsearchalgorithms.search.bytes.CaseInsensitive.caseInsensitive;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.io.ByteArrayProvider;
+import net.amygdalum.stringsearchalgorithms.search.SearchFor;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
+
+public class CaseInsensitiveStringSearchAlgorithmTest {
+
+	@Rule
+	public StringSearchRule searcher = new StringSearchRule(
+		caseInsensitive(new ShiftAnd.Factory(UTF_8), UTF_8),
+		caseInsensitive(new ShiftOr.Factory(UTF_8), UTF_8),
+		caseInsensitive(new Horspool.Factory(UTF_8), UTF_8),
+		caseInsensitive(new Sunday.Factory(UTF_8), UTF_8),
+		caseInsensitive(new BNDM.Factory(UTF_8), UTF_8),
+		caseInsensitive(new KnuthMorrisPratt.Factory(UTF_8), UTF_8),
+		caseInsensitive(new BOM.Factory(UTF_8), UTF_8));
+
+	@Test
+	@SearchFor("a")
+	public void testPattern1() throws Exception {
+		assertThat(search("aBAbAbaB"), contains(
+			new StringMatch(0, 1, "a"),
+			new StringMatch(2, 3, "A"),
+			new StringMatch(4, 5, "A"),
+			new StringMatch(6, 7, "a")));
+	}
+
+	@Test
+	@SearchFor("aBc")
+	public void testPattern2() throws Exception {
+		assertThat(search("AbcabaBCab"), contains(
+			new StringMatch(0, 3, "Abc"),
+			new StringMatch(5, 8, "aBC")));
+	}
+
+	@Test
+	@SearchFor("abcaB")
+	public void testPattern3() throws Exception {
+		assertThat(search("xxxabcabcAbcabxxx"), contains(
+			new StringMatch(3, 8, "abcab"),
+			new StringMatch(6, 11, "abcAb"),
+			new StringMatch(9, 14, "Abcab")));
+	}
+
+	@Test
+	@SearchFor("a-B")
+	public void testPatternWithAnchorInDirectProvider() throws Exception {
+		List<StringMatch> matches = searcher.createSearcher(new ByteArrayProvider("xa-bxxA-Bx-a-".getBytes(UTF_8), 0, UTF_8)).findAll();
+		assertThat(matches, contains(
+			new StringMatch(1, 4, "a-b"),
+			new StringMatch(6, 9, "A-B")));
+	}
+
+	@Test
+	@SearchFor("aB")
+	public void testPatternWithoutAnchorInDirectProvider() throws Exception {
+		List<StringMatch> matches = searcher.createSearcher(new ByteArrayProvider("xabxxABxAa".getBytes(UTF_8), 0, UTF_8)).findAll();
+		assertThat(matches, contains(
+			new StringMatch(1, 3, "ab"),
+			new StringMatch(5, 7, "AB")));
+	}
+
+	@Test
+	@SearchFor("äx")
+	public void testNonAsciiIsCaseSensitive() throws Exception {
+		assertThat(search("ÄxäX"), contains(
+			new StringMatch(3, 6, "äX")));
+	}
+
+	@Test
+	@SearchFor("aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa BBBB bbbb")
+	public void testPatternLargeSize() throws Exception {
+		assertThat(search("xxx aaaa aaaa bbbb bbbb AAAA aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb xxx"), contains(
+			new StringMatch(4, 83, "aaaa aaaa bbbb bbbb AAAA aaaa bbbb bbbb aaaa aaaa bbbb bbbb aaaa aaaa bbbb bbbb")));
+	}
+
+	@Test
+	@SearchFor("abc")
+	public void testNonOverlappingPattern1() throws Exception {
+		assertThat(search("ABCababcab", LONGEST_MATCH, NON_OVERLAP), contains(
+			new StringMatch(0, 3, "ABC"),
+			new StringMatch(5, 8, "abc")));
+	}
+
+	@Test
+	@SearchFor("Abcab")
+	public void testNonOverlappingPattern2() throws Exception {
+		assertThat(search("xxxaBcabcabcabxxx", LONGEST_MATCH, NON_OVERLAP), contains(
+			new StringMatch(3, 8, "aBcab"),
+			new StringMatch(9, 14, "abcab")));
+	}
+
+	@Test
+	@SearchFor("{[")
+	public void testNonLettersAreNotFolded() throws Exception {
+		assertThat(search("[{{[{"), contains(
+			new StringMatch(2, 4, "{[")));
+	}
+
+	@Test
+	@SearchFor("ab")
+	public void testPatternLength() throws Exception {
+		assertThat(searcher.getAlgorithm().getPatternLength(), equalTo(2));
+	}
+
+	private List<StringMatch> search(String text, StringFinderOption... options) {
+		return searcher.createSearcher(new StringByteProvider(text, 0, UTF_8), options).findAll();
+	}
+
+}
@@ -0,0 +1,57 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
+
+public class CaseInsensitiveTest {
+
+	@Test
+	public void testMap() throws Exception {
+		assertThat(CaseInsensitive.ASCII.map((byte) 'a'), equalTo(new byte[] { 'a', 'A' }));
+		assertThat(CaseInsensitive.ASCII.map((byte) 'Z'), equalTo(new byte[] { 'z', 'Z' }));
+		assertThat(CaseInsensitive.ASCII.map((byte) '@'), equalTo(new byte[] { '@' }));
+		assertThat(CaseInsensitive.ASCII.map((byte) 0xc4), equalTo(new byte[] { (byte) 0xc4 }));
+	}
+
+	@Test
+	public void testNormalized() throws Exception {
+		assertThat(CaseInsensitive.ASCII.normalized("aBc[".getBytes(UTF_8)), equalTo("abc[".getBytes(UTF_8)));
+		assertThat(CaseInsensitive.ASCII.table()['Q'], equalTo((byte) 'q'));
+	}
+
+	@Test
+	public void testMappingForSingleByteCharset() throws Exception {
+		ByteMapping mapping = CaseInsensitive.mapping(ISO_8859_1);
+
+		assertThat(new Horspool("AbÄ", ISO_8859_1, mapping).createFinder(new StringByteProvider("aBäaBÄ", 0, ISO_8859_1)).findAll(), contains(
+			new StringMatch(3, 6, "aBÄ")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMappingForUTF16() throws Exception {
+		CaseInsensitive.mapping(UTF_16LE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMappingForMultiByteCharset() throws Exception {
+		CaseInsensitive.mapping(Charset.forName("Shift_JIS"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCaseInsensitiveRejectsCharset() throws Exception {
+		CaseInsensitive.caseInsensitive(new AhoCorasick.Factory(), UTF_16LE).of(asList("a"));
+	}
+
+}
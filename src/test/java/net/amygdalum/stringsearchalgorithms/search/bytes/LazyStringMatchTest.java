@@ -0,0 +1,46 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
+
+public class LazyStringMatchTest {
+
+	@Test
+	public void testText() throws Exception {
+		StringByteProvider bytes = new StringByteProvider("xxäbxx", 0, UTF_8);
+		assertThat(new LazyStringMatch(bytes, 2, 5, 1).text(), equalTo("äb"));
+	}
+
+	@Test
+	public void testTextIsDecodedOnDemand() throws Exception {
+		StringByteProvider bytes = new StringByteProvider("xxäbxx", 0, UTF_8);
+		LazyStringMatch match = new LazyStringMatch(bytes, 2, 5, 1);
+		bytes.finish();
+		assertThat(match.text(), equalTo("äb"));
+		assertThat(bytes.current(), equalTo(7l));
+	}
+
+	@Test
+	public void testLength() throws Exception {
+		assertThat(new LazyStringMatch(new StringByteProvider("xxäbxx", 0, UTF_8), 2, 5, 1).length(), equalTo(2));
+	}
+
+	@Test
+	public void testPattern() throws Exception {
+		assertThat(new LazyStringMatch(new StringByteProvider("xxäbxx", 0, UTF_8), 2, 5, 1).pattern(), equalTo(1));
+	}
+
+	@Test
+	public void testEquals() throws Exception {
+		LazyStringMatch match = new LazyStringMatch(new StringByteProvider("xxäbxx", 0, UTF_8), 2, 5, 1);
+		assertThat(match, equalTo(new StringMatch(2, 5, "äb")));
+		assertThat(new StringMatch(2, 5, "äb"), equalTo((StringMatch) match));
+	}
+
+}
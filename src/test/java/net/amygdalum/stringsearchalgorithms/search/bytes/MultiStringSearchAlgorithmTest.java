@@ -1,5 +1,7 @@
 package net.amygdalum.stringsearchalgorithms.search.bytes;
 
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LAZY_TEXT;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
 import static net.amygdalum.stringsearchalgorithms.search.bytes.MultiStringSearchAlgorithmMatcher.isMultiStringSearchAlgorithm;
@@ -7,7 +9,10 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.instanceOf;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Rule;
@@ -15,15 +20,20 @@ import org.junit.Test;
 
 import net.amygdalum.stringsearchalgorithms.search.SearchFor;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
 
 public class MultiStringSearchAlgorithmTest {
 
 	@Rule
 	public MultiStringSearchRule searcher = new MultiStringSearchRule(
 		new AhoCorasick.Factory(),
+		new AhoCorasick.Factory(UTF_16LE, 1 << 20),
 		new SetHorspool.Factory(),
 		new WuManber.Factory(),
-		new SetBackwardOracleMatching.Factory());
+		new WuManber.Factory(UTF_16LE, 1, 2, 2),
+		new SetBackwardOracleMatching.Factory(),
+		new Teddy.Factory(),
+		new QGramShiftOr.Factory());
 
 	@Test
 	@SearchFor({"x"})
@@ -315,6 +325,95 @@ public class MultiStringSearchAlgorithmTest {
 			new StringMatch(18, 28, "a\u0262baa")));
 	}
 	
+	@Test
+	@SearchFor({"ab", "ac"})
+	public void testCount() throws Exception {
+		assertThat(searcher.getAlgorithm().count(new StringByteProvider("abacacab", 0)), equalTo(4l));
+		assertThat(searcher.getAlgorithm().count(new StringByteProvider("xxxxxxxx", 0)), equalTo(0l));
+	}
+
+	@Test
+	@SearchFor({"ab", "ac"})
+	public void testCountPerPattern() throws Exception {
+		int[] histogram = new int[2];
+		assertThat(searcher.getAlgorithm().count(new StringByteProvider("abacacab", 0), histogram), equalTo(4l));
+		assertThat(histogram, equalTo(new int[] {2, 2}));
+	}
+
+	@Test
+	@SearchFor({"ab", "ac"})
+	public void testContains() throws Exception {
+		assertThat(searcher.getAlgorithm().contains(new StringByteProvider("abacacab", 0)), equalTo(true));
+		assertThat(searcher.getAlgorithm().contains(new StringByteProvider("xxxxxxxx", 0)), equalTo(false));
+	}
+
+	@Test
+	@SearchFor({"a", "ab", "b"})
+	public void testContainsIgnoresLongestMatchAndNonOverlap() throws Exception {
+		assertThat(searcher.getAlgorithm().count(new StringByteProvider("xxab", 0), LONGEST_MATCH, NON_OVERLAP), equalTo(1l));
+		assertThat(searcher.getAlgorithm().count(new StringByteProvider("xxab", 0), NON_OVERLAP), equalTo(2l));
+		assertThat(searcher.getAlgorithm().contains(new StringByteProvider("xxab", 0), LONGEST_MATCH, NON_OVERLAP), equalTo(true));
+		assertThat(searcher.getAlgorithm().contains(new StringByteProvider("xxxx", 0), LONGEST_MATCH, NON_OVERLAP), equalTo(false));
+	}
+
+	@Test
+	@SearchFor({"abc", "cd", "defghi", "gh"})
+	public void testLazyText() throws Exception {
+		String text = "abcdghcdefcdefghiabcd";
+		List<StringMatch> matches = searcher.createSearcher(text, LAZY_TEXT).findAll();
+		assertThat(matches, everyItem(instanceOf(LazyStringMatch.class)));
+		assertThat(matches, equalTo(searcher.createSearcher(text).findAll()));
+	}
+
+	@Test
+	@SearchFor({"abc", "cd", "defghi", "gh"})
+	public void testSearch() throws Exception {
+		String text = "abcdghcdefcdefghiabcd";
+		List<StringMatch> matches = searcher.search(text);
+		assertThat(matches, equalTo(searcher.createSearcher(text).findAll()));
+		assertThat(patterns(matches), containsInAnyOrder(0, 0, 1, 1, 1, 1, 2, 3, 3));
+	}
+
+	@Test
+	@SearchFor({"aaa", "aa", "a"})
+	public void testSearchSubsumingPatterns() throws Exception {
+		List<StringMatch> matches = searcher.search("aaaa");
+		assertThat(matches, equalTo(searcher.createSearcher("aaaa").findAll()));
+	}
+
+	@Test
+	@SearchFor({"abc", "cd", "defghi", "gh"})
+	public void testSearchNonOverlapping() throws Exception {
+		String text = "abcdghcdefcdefghiabcd";
+		List<StringMatch> matches = searcher.search(text, NON_OVERLAP);
+		assertThat(matches, equalTo(searcher.createSearcher(text, NON_OVERLAP).findAll()));
+	}
+
+	@Test
+	@SearchFor({"abc", "cd", "defghi", "gh"})
+	public void testSearchLongestNonOverlapping() throws Exception {
+		String text = "abcdghcdefcdefghiabcd";
+		List<StringMatch> matches = searcher.search(text, LONGEST_MATCH, NON_OVERLAP);
+		assertThat(matches, equalTo(searcher.createSearcher(text, LONGEST_MATCH, NON_OVERLAP).findAll()));
+	}
+
+	@Test
+	@SearchFor({"ab", "cd", "ab"})
+	public void testDuplicatePatternsReportFirstIndex() throws Exception {
+		List<StringMatch> matches = searcher.search("abcdab");
+		assertThat(matches.size(), equalTo(3));
+		assertThat(patterns(matches), containsInAnyOrder(0, 1, 0));
+		assertThat(patterns(searcher.createSearcher("abcdab").findAll()), containsInAnyOrder(0, 1, 0));
+	}
+
+	@Test
+	@SearchFor({"ab", "ac"})
+	public void testSearchStopsIfSinkRejects() throws Exception {
+		List<StringMatch> matches = searcher.search("abacacab", 3);
+		assertThat(matches, equalTo(searcher.createSearcher("abacacab").findAll().subList(0, 3)));
+		assertThat(patterns(matches), contains(0, 1, 1));
+	}
+
 	@Test
 	@SearchFor("a")
 	public void testPatternLength1() throws Exception {
@@ -333,4 +432,12 @@ public class MultiStringSearchAlgorithmTest {
 		assertThat(searcher.getAlgorithm().getPatternLength(), equalTo(10));
 	}
 
+	private static List<Integer> patterns(List<StringMatch> matches) {
+		List<Integer> patterns = new ArrayList<>();
+		for (StringMatch match : matches) {
+			patterns.add(match.pattern());
+		}
+		return patterns;
+	}
+
 }
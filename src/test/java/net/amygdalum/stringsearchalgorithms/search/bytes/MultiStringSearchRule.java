@@ -11,9 +11,11 @@ import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
 import net.amygdalum.stringsearchalgorithms.search.SearchFor;
 import net.amygdalum.stringsearchalgorithms.search.StringFinder;
 import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 import net.amygdalum.util.io.ByteProvider;
 import net.amygdalum.util.io.StringByteProvider;
 
@@ -96,6 +98,24 @@ public class MultiStringSearchRule implements TestRule {
 		return algorithm.createFinder(bytes, options);
 	}
 	
+	public List<StringMatch> search(String chars, StringFinderOption... options) {
+		return search(chars, Integer.MAX_VALUE, options);
+	}
+
+	public List<StringMatch> search(String chars, final int limit, StringFinderOption... options) {
+		final ByteProvider provider = new StringByteProvider(chars, 0);
+		final List<StringMatch> matches = new ArrayList<>();
+		algorithm.search(provider, new MatchSink() {
+
+			@Override
+			public boolean onMatch(long start, long end, int pattern) {
+				matches.add(new StringMatch(start, end, provider.slice(start, end).getString(), pattern));
+				return matches.size() < limit;
+			}
+		}, options);
+		return matches;
+	}
+
 	public StringSearchAlgorithm getAlgorithm() {
 		return algorithm;
 	}
@@ -0,0 +1,104 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
+
+public class ParallelSearchTest {
+
+	private static final List<String> PATTERNS = asList("ab", "aba", "bab", "aaa", "b");
+
+	private static ForkJoinPool pool;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void beforeClass() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testBytesAgreeWithSequentialSearch() throws Exception {
+		List<StringSearchAlgorithm> algorithms = asList(
+			new Horspool("aba", UTF_8),
+			new AhoCorasick(PATTERNS, UTF_8),
+			new SetHorspool(PATTERNS, UTF_8),
+			new WuManber(PATTERNS, UTF_8),
+			new SetBackwardOracleMatching(PATTERNS, UTF_8));
+		byte[] text = randomText(400, 7).getBytes(UTF_8);
+		for (StringSearchAlgorithm algorithm : algorithms) {
+			for (StringFinderOption[] options : asList(new StringFinderOption[0], new StringFinderOption[] { LONGEST_MATCH, NON_OVERLAP })) {
+				List<StringMatch> expected = sequential(algorithm, text, options);
+				List<StringMatch> matches = new ParallelSearch(algorithm, 3, 11, pool).findAll(ParallelSearch.source(text, UTF_8), options);
+				assertThat(algorithm + " " + asList(options), matches, equalTo(expected));
+			}
+		}
+	}
+
+	@Test
+	public void testMappedFile() throws Exception {
+		String text = randomText(1000, 3);
+		File file = folder.newFile("text");
+		Files.write(file.toPath(), text.getBytes(UTF_8));
+		AhoCorasick algorithm = new AhoCorasick(PATTERNS, UTF_8);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			List<StringMatch> matches = new ParallelSearch(algorithm, 3, 64, pool).findAll(ParallelSearch.source(channel, UTF_8), NON_OVERLAP);
+			assertThat(matches, equalTo(sequential(algorithm, text.getBytes(UTF_8), NON_OVERLAP)));
+		}
+	}
+
+	private static List<StringMatch> sequential(StringSearchAlgorithm algorithm, byte[] text, StringFinderOption... options) {
+		List<StringMatch> matches = new ArrayList<>(algorithm.createFinder(new StringByteProvider(text, 0, UTF_8), options).findAll());
+		Collections.sort(matches, new Comparator<StringMatch>() {
+
+			@Override
+			public int compare(StringMatch m1, StringMatch m2) {
+				if (m1.start() != m2.start()) {
+					return Long.compare(m1.start(), m2.start());
+				}
+				return Long.compare(m1.end(), m2.end());
+			}
+		});
+		return matches;
+	}
+
+	private static String randomText(int length, long seed) {
+		Random random = new Random(seed);
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			buffer.append("abc".charAt(random.nextInt(3)));
+		}
+		return buffer.toString();
+	}
+
+}
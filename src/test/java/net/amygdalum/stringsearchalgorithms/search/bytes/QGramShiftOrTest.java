@@ -0,0 +1,74 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
+import net.amygdalum.util.text.MappingException;
+
+public class QGramShiftOrTest {
+
+	@Test
+	public void testByteQGramMapping() throws Exception {
+		ByteQGramMapping mapping = new ByteQGramMapping(2, 4);
+
+		assertThat(mapping.map(new byte[] { 0x12, 0x34 }), equalTo(0x24));
+		assertThat(mapping.map(new byte[] { (byte) 0xf2, 0x34 }), equalTo(0x24));
+		assertThat(mapping.iterate(new byte[] { 0x01, 0x02, 0x03 }), equalTo(new int[] { 0x12, 0x23 }));
+	}
+
+	@Test(expected = MappingException.class)
+	public void testByteQGramMappingWithWrongLength() throws Exception {
+		new ByteQGramMapping(2, 4).map(new byte[] { 0x12 });
+	}
+
+	@Test
+	public void testBestMapping() throws Exception {
+		ByteQGramMapping mapping = QGramShiftOr.bestMapping(asList("abcd", "ab"), UTF_8);
+
+		assertThat(mapping.getQ(), equalTo(2));
+		assertThat(mapping.getBits(), equalTo(3));
+	}
+
+	@Test
+	public void testPatternsLongerThan64Bytes() throws Exception {
+		String longPattern = repeat("abcdefgh", 10) + "x";
+		String text = "--" + longPattern + "--" + repeat("abcdefgh", 11) + "--";
+		QGramShiftOr qGramShiftOr = new QGramShiftOr(asList(longPattern, "abcdefgh"), UTF_8);
+
+		List<StringMatch> matches = qGramShiftOr.createFinder(new StringByteProvider(text, 0, UTF_8), LONGEST_MATCH, NON_OVERLAP).findAll();
+
+		assertThat(matches.get(0), equalTo(new StringMatch(2, 83, longPattern, 0)));
+		assertThat(matches.size(), equalTo(12));
+	}
+
+	@Test
+	public void testLongestMatch() throws Exception {
+		QGramShiftOr qGramShiftOr = new QGramShiftOr(asList("ab", "abcd", "bcd"), UTF_8);
+
+		List<StringMatch> matches = qGramShiftOr.createFinder(new StringByteProvider("xabcdxab", 0, UTF_8), LONGEST_MATCH, NON_OVERLAP).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(1, 5, "abcd", 1),
+			new StringMatch(6, 8, "ab", 0)));
+	}
+
+	private static String repeat(String s, int times) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			buffer.append(s);
+		}
+		return buffer.toString();
+	}
+
+}
@@ -1,12 +1,16 @@
 package net.amygdalum.stringsearchalgorithms.search.bytes;
 
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LAZY_TEXT;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
 import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
 import static net.amygdalum.stringsearchalgorithms.search.bytes.StringSearchAlgorithmMatcher.isByteStringSearchAlgorithm;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.instanceOf;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Rule;
@@ -14,6 +18,7 @@ import org.junit.Test;
 
 import net.amygdalum.stringsearchalgorithms.search.SearchFor;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
 
 
 public class StringSearchAlgorithmTest {
@@ -25,6 +30,8 @@ public class StringSearchAlgorithmTest {
 		new KnuthMorrisPratt.Factory(),
 		new Horspool.Factory(),
 		new Sunday.Factory(),
+		new RareAnchor.Factory(),
+		new TwoWay.Factory(),
 		new BNDM.Factory(),
 		new BOM.Factory());
 
@@ -181,6 +188,53 @@ public class StringSearchAlgorithmTest {
 			new StringMatch(16, 20, "ab")));
 	}
 	
+	@Test
+	@SearchFor("ab")
+	public void testCount() throws Exception {
+		assertThat(searcher.getAlgorithm().count(new StringByteProvider("abacacab", 0)), equalTo(2l));
+		assertThat(searcher.getAlgorithm().count(new StringByteProvider("xxxxxxxx", 0)), equalTo(0l));
+	}
+
+	@Test
+	@SearchFor("ab")
+	public void testContains() throws Exception {
+		assertThat(searcher.getAlgorithm().contains(new StringByteProvider("abacacab", 0)), equalTo(true));
+		assertThat(searcher.getAlgorithm().contains(new StringByteProvider("xxxxxxxx", 0)), equalTo(false));
+	}
+
+	@Test
+	@SearchFor("abcab")
+	public void testLazyText() throws Exception {
+		String text = "xxxabcabcabcabxxx";
+		List<StringMatch> matches = searcher.createSearcher(text, LAZY_TEXT).findAll();
+		assertThat(matches, everyItem(instanceOf(LazyStringMatch.class)));
+		assertThat(matches, equalTo(searcher.createSearcher(text).findAll()));
+	}
+
+	@Test
+	@SearchFor("abcab")
+	public void testSearch() throws Exception {
+		String text = "xxxabcabcabcabxxx";
+		List<StringMatch> matches = searcher.search(text);
+		assertThat(matches, equalTo(searcher.createSearcher(text).findAll()));
+		assertThat(patterns(matches), contains(0, 0, 0));
+	}
+
+	@Test
+	@SearchFor("abcab")
+	public void testSearchNonOverlapping() throws Exception {
+		String text = "xxxabcabcabcabxxx";
+		List<StringMatch> matches = searcher.search(text, LONGEST_MATCH, NON_OVERLAP);
+		assertThat(matches, equalTo(searcher.createSearcher(text, LONGEST_MATCH, NON_OVERLAP).findAll()));
+	}
+
+	@Test
+	@SearchFor("ab")
+	public void testSearchStopsIfSinkRejects() throws Exception {
+		List<StringMatch> matches = searcher.search("abababab", 2);
+		assertThat(matches, equalTo(searcher.createSearcher("abababab").findAll().subList(0, 2)));
+	}
+
 	@Test
 	@SearchFor("a")
 	public void testPatternLength1() throws Exception {
@@ -199,4 +253,12 @@ public class StringSearchAlgorithmTest {
 		assertThat(searcher.getAlgorithm().getPatternLength(), equalTo(10));
 	}
 
+	private static List<Integer> patterns(List<StringMatch> matches) {
+		List<Integer> patterns = new ArrayList<>();
+		for (StringMatch match : matches) {
+			patterns.add(match.pattern());
+		}
+		return patterns;
+	}
+
 }
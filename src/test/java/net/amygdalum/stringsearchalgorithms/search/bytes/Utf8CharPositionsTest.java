@@ -0,0 +1,210 @@
+package net.amygdalum.stringsearchalgorithms.search.bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LAZY_TEXT;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static net.amygdalum.stringsearchalgorithms.search.bytes.CaseInsensitive.caseInsensitive;
+import static net.amygdalum.stringsearchalgorithms.search.bytes.Utf8CharPositions.charPositions;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.MatchSink;
+import net.amygdalum.stringsearchalgorithms.search.StringFinder;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringByteProvider;
+import net.amygdalum.util.io.StringCharProvider;
+import net.amygdalum.util.text.ByteString;
+
+public class Utf8CharPositionsTest {
+
+	private static final String TEXT = "aäb€c😀äb€ aäb 😀ä";
+	private static final List<String> PATTERNS = asList("äb", "b€", "😀ä", "aäb€", " ");
+
+	@Test
+	public void testSinglePattern() throws Exception {
+		StringSearchAlgorithm algorithm = new Utf8CharPositions(new Horspool("äb€", UTF_8));
+
+		List<StringMatch> matches = algorithm.createFinder(bytes(TEXT)).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(1, 4, "äb€"),
+			new StringMatch(7, 10, "äb€")));
+	}
+
+	@Test
+	public void testSupplementaryCharacters() throws Exception {
+		StringSearchAlgorithm algorithm = new Utf8CharPositions(new KnuthMorrisPratt("😀ä", UTF_8));
+
+		List<StringMatch> matches = algorithm.createFinder(bytes(TEXT)).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(5, 8, "😀ä"),
+			new StringMatch(15, 18, "😀ä")));
+	}
+
+	@Test
+	public void testFindNextAgreesWithCharSearch() throws Exception {
+		StringFinder finder = charPositions(new SetHorspool.Factory(UTF_8)).of(PATTERNS).createFinder(bytes(TEXT));
+		List<StringMatch> matches = new ArrayList<>();
+		StringMatch match = finder.findNext();
+		while (match != null) {
+			matches.add(match);
+			match = finder.findNext();
+		}
+
+		assertThat(matches, equalTo(expected(TEXT)));
+	}
+
+	@Test
+	public void testMultiPatternsAgreeWithCharSearch() throws Exception {
+		List<MultiStringSearchAlgorithmFactory> factories = asList(
+			new AhoCorasick.Factory(UTF_8),
+			new SetHorspool.Factory(UTF_8),
+			new WuManber.Factory(UTF_8),
+			new SetBackwardOracleMatching.Factory(UTF_8));
+		List<net.amygdalum.stringsearchalgorithms.search.chars.MultiStringSearchAlgorithmFactory> charFactories = asList(
+			new net.amygdalum.stringsearchalgorithms.search.chars.AhoCorasick.Factory(),
+			new net.amygdalum.stringsearchalgorithms.search.chars.SetHorspool.Factory(),
+			new net.amygdalum.stringsearchalgorithms.search.chars.WuManber.Factory(),
+			new net.amygdalum.stringsearchalgorithms.search.chars.SetBackwardOracleMatching.Factory());
+		String text = TEXT + TEXT + "ääb€€";
+		for (int i = 0; i < factories.size(); i++) {
+			StringSearchAlgorithm algorithm = charPositions(factories.get(i)).of(PATTERNS);
+			net.amygdalum.stringsearchalgorithms.search.chars.StringSearchAlgorithm charAlgorithm = charFactories.get(i).of(PATTERNS);
+			for (StringFinderOption[] options : asList(new StringFinderOption[0], new StringFinderOption[] { NON_OVERLAP }, new StringFinderOption[] { LONGEST_MATCH, NON_OVERLAP })) {
+				List<StringMatch> matches = algorithm.createFinder(bytes(text), options).findAll();
+				List<StringMatch> expected = charAlgorithm.createFinder(new StringCharProvider(text, 0), options).findAll();
+
+				assertThat(algorithm.toString(), sorted(matches), equalTo(sorted(expected)));
+			}
+		}
+	}
+
+	@Test
+	public void testSinkReportsCharPositions() throws Exception {
+		StringSearchAlgorithm algorithm = charPositions(new AhoCorasick.Factory(UTF_8)).of(PATTERNS);
+		final List<StringMatch> matches = new ArrayList<>();
+
+		algorithm.search(bytes(TEXT), new MatchSink() {
+
+			@Override
+			public boolean onMatch(long start, long end, int pattern) {
+				matches.add(new StringMatch(start, end, TEXT.substring((int) start, (int) end), pattern));
+				return true;
+			}
+		}, NON_OVERLAP);
+
+		assertThat(matches, equalTo(expected(TEXT, NON_OVERLAP)));
+	}
+
+	@Test
+	public void testSkipTo() throws Exception {
+		StringFinder finder = new Utf8CharPositions(new Horspool("äb", UTF_8)).createFinder(bytes(TEXT));
+
+		finder.skipTo(6);
+
+		assertThat(finder.findNext(), equalTo(new StringMatch(7, 9, "äb")));
+		finder.skipTo(12);
+		assertThat(finder.findNext(), equalTo(new StringMatch(12, 14, "äb")));
+		assertThat(finder.findNext(), equalTo(null));
+	}
+
+	@Test
+	public void testLazyTextIsDecodedOnDemand() throws Exception {
+		final List<Long> slices = new ArrayList<>();
+		StringByteProvider bytes = new StringByteProvider(TEXT, 0, UTF_8) {
+
+			@Override
+			public ByteString slice(long start, long end) {
+				slices.add(start);
+				return super.slice(start, end);
+			}
+		};
+		StringFinder finder = charPositions(new AhoCorasick.Factory(UTF_8)).of(PATTERNS).createFinder(bytes, LAZY_TEXT);
+
+		List<StringMatch> matches = finder.findAll();
+
+		assertThat(slices.isEmpty(), equalTo(true));
+		assertThat(matches, equalTo(expected(TEXT)));
+		assertThat(slices.size(), equalTo(matches.size()));
+	}
+
+	@Test
+	public void testCaseInsensitiveAsciiPatterns() throws Exception {
+		String text = "äaB€C😀ab";
+		List<String> patterns = asList("ab", "C");
+
+		List<StringMatch> byteClasses = charPositions(caseInsensitive(new AhoCorasick.Factory(UTF_8), UTF_8)).of(patterns).createFinder(bytes(text)).findAll();
+		List<StringMatch> wrapped = charPositions(caseInsensitive(new Teddy.Factory(UTF_8), UTF_8)).of(patterns).createFinder(bytes(text)).findAll();
+
+		assertThat(byteClasses, contains(
+			new StringMatch(1, 3, "aB"),
+			new StringMatch(4, 5, "C"),
+			new StringMatch(7, 9, "ab")));
+		assertThat(wrapped, equalTo(byteClasses));
+		assertThat(wrapped, equalTo(net.amygdalum.stringsearchalgorithms.search.chars.CaseInsensitive.caseInsensitive(new net.amygdalum.stringsearchalgorithms.search.chars.AhoCorasick.Factory())
+			.of(patterns).createFinder(new StringCharProvider(text, 0)).findAll()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsCaseInsensitiveByteClassesForNonAsciiPatterns() throws Exception {
+		charPositions(caseInsensitive(new AhoCorasick.Factory(UTF_8), UTF_8)).of(PATTERNS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsCaseInsensitiveWrapperForNonAsciiPatterns() throws Exception {
+		charPositions(caseInsensitive(new Teddy.Factory(UTF_8), UTF_8)).of(PATTERNS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsCaseInsensitiveAlgorithm() throws Exception {
+		new Utf8CharPositions(caseInsensitive(new KnuthMorrisPratt.Factory(UTF_8), UTF_8).of("ab"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsByteClassesEnabledLater() throws Exception {
+		Horspool.Factory factory = new Horspool.Factory(UTF_8);
+		StringSearchAlgorithmFactory positions = charPositions(factory);
+		caseInsensitive(factory, UTF_8);
+
+		positions.of("äb");
+	}
+
+	private static List<StringMatch> expected(String text, StringFinderOption... options) {
+		return new net.amygdalum.stringsearchalgorithms.search.chars.AhoCorasick(PATTERNS)
+			.createFinder(new StringCharProvider(text, 0), options)
+			.findAll();
+	}
+
+	private static List<StringMatch> sorted(List<StringMatch> matches) {
+		List<StringMatch> sorted = new ArrayList<>(matches);
+		Collections.sort(sorted, new Comparator<StringMatch>() {
+
+			@Override
+			public int compare(StringMatch m1, StringMatch m2) {
+				int compare = Long.compare(m1.start(), m2.start());
+				if (compare == 0) {
+					compare = Long.compare(m1.end(), m2.end());
+				}
+				return compare;
+			}
+		});
+		return sorted;
+	}
+
+	private static StringByteProvider bytes(String text) {
+		return new StringByteProvider(text, 0, UTF_8);
+	}
+
+}
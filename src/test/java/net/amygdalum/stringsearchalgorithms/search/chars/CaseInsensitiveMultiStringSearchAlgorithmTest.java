@@ -8,11 +8,13 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
 
+import net.amygdalum.stringsearchalgorithms.search.MatchCounter;
 import net.amygdalum.stringsearchalgorithms.search.SearchFor;
 import net.amygdalum.stringsearchalgorithms.search.StringMatch;
 
@@ -21,9 +23,13 @@ public class CaseInsensitiveMultiStringSearchAlgorithmTest {
 	@Rule
 	public MultiStringSearchRule searcher = new MultiStringSearchRule(
 		caseInsensitive(new AhoCorasick.Factory()),
+		caseInsensitive(new AhoCorasick.Factory(1 << 20)),
 		caseInsensitive(new SetHorspool.Factory()),
+		caseInsensitive(new SetHorspool.Factory(true)),
 		caseInsensitive(new WuManber.Factory()),
-		caseInsensitive(new SetBackwardOracleMatching.Factory()));
+		caseInsensitive(new WuManber.Factory(2, 2, 2)),
+		caseInsensitive(new SetBackwardOracleMatching.Factory()),
+		caseInsensitive(new SetBackwardOracleMatching.Factory(1 << 20)));
 
 	@Test
 	@SearchFor({ "a", "B" })
@@ -125,6 +131,28 @@ public class CaseInsensitiveMultiStringSearchAlgorithmTest {
 			new StringMatch(3, 4, "A")));
 	}
 
+	@Test
+	@SearchFor({ "bbb", "B" })
+	public void testSubsumingPatternsToSink() throws Exception {
+		int[] histogram = new int[2];
+		MatchCounter counter = new MatchCounter(histogram);
+		searcher.createSearcher("bB").findAll(counter);
+		assertThat(counter.count(), equalTo(2l));
+		assertThat(histogram[0], equalTo(0));
+		assertThat(histogram[1], equalTo(2));
+		assertThat(searcher.createSearcher("bB").findAll().size(), equalTo(2));
+	}
+
+	@Test
+	@SearchFor({ "Äbσ", "BΣx" })
+	public void testPatternsWithWideCharRange() throws Exception {
+		List<StringMatch> matches = searcher.createSearcher("xäBΣXyÄbσ").findAll();
+		assertThat(matches, contains(
+			new StringMatch(1, 4, "äBΣ"),
+			new StringMatch(2, 5, "BΣX"),
+			new StringMatch(6, 9, "Äbσ")));
+	}
+
 	@Test
 	@SearchFor({ "a", "b" })
 	public void testOverlappingPattern1() throws Exception {
@@ -235,4 +263,15 @@ public class CaseInsensitiveMultiStringSearchAlgorithmTest {
 		assertThat(searcher.getAlgorithm().getPatternLength(), equalTo(5));
 	}
 
+	@Test
+	@SearchFor({ "x", "AB", "ab", "C" })
+	public void testPatternIndexes() throws Exception {
+		List<StringMatch> matches = searcher.createSearcher("aBc").findAll();
+		List<Integer> patterns = new ArrayList<>();
+		for (StringMatch match : matches) {
+			patterns.add(match.pattern());
+		}
+		assertThat(patterns, containsInAnyOrder(1, 3));
+	}
+
 }
@@ -22,9 +22,12 @@ public class CaseInsensitiveStringSearchAlgorithmTest {
 		caseInsensitive(new ShiftAnd.Factory()),
 		caseInsensitive(new KnuthMorrisPratt.Factory()),
 		caseInsensitive(new Horspool.Factory()),
+		caseInsensitive(new Horspool.Factory(true)),
 		caseInsensitive(new Sunday.Factory()),
+		caseInsensitive(new Sunday.Factory(true)),
 		caseInsensitive(new BNDM.Factory()),
-		caseInsensitive(new BOM.Factory()));
+		caseInsensitive(new BOM.Factory()),
+		caseInsensitive(new BOM.Factory(1 << 20)));
 
 	@Test
 	@SearchFor("a")
@@ -168,6 +171,15 @@ public class CaseInsensitiveStringSearchAlgorithmTest {
 		assertThat(searcher.getAlgorithm().getPatternLength(), equalTo(1));
 	}
 	
+	@Test
+	@SearchFor("Äbσ")
+	public void testPatternWithWideCharRange() throws Exception {
+		List<StringMatch> matches = searcher.createSearcher("xäBΣyÄbσäb").findAll();
+		assertThat(matches, contains(
+			new StringMatch(1, 4, "äBΣ"),
+			new StringMatch(5, 8, "Äbσ")));
+	}
+
 	@Test
 	@SearchFor("ab")
 	public void testPatternLength3() throws Exception {
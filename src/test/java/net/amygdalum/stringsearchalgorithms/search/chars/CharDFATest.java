@@ -0,0 +1,115 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static net.amygdalum.util.text.StringUtils.toCharArray;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.util.io.StringCharProvider;
+import net.amygdalum.util.text.CharAutomaton;
+import net.amygdalum.util.text.CharMapping;
+import net.amygdalum.util.text.CharWordSetBuilder;
+import net.amygdalum.util.text.linkeddawg.LinkedCharDawgCompiler;
+
+public class CharDFATest {
+
+	@Test
+	public void testCompileCountsStates() throws Exception {
+		CharDFA<Integer> dfa = CharDFA.compile(toCharArray(asList("abc", "abd", "b", "abc")), 1 << 10);
+
+		assertThat(dfa.size(), equalTo(6));
+		assertThat(dfa.classes(), equalTo(5));
+	}
+
+	@Test
+	public void testCompileCompressesWideAlphabets() throws Exception {
+		CharDFA<Integer> dfa = CharDFA.compile(toCharArray(asList("a一", "￮")), 1 << 10);
+
+		assertThat(dfa.classes(), equalTo(4));
+		assertThat(dfa.find("a一".toCharArray()), equalTo(0));
+		assertThat(dfa.find("￮".toCharArray()), equalTo(1));
+		assertThat(dfa.find("a丁".toCharArray()), nullValue());
+	}
+
+	@Test
+	public void testCompileExceedingBudget() throws Exception {
+		List<char[]> patterns = toCharArray(asList("abc", "abd", "b"));
+
+		assertThat(CharDFA.compile(patterns, 6 * 5 * 4), notNullValue());
+		assertThat(CharDFA.compile(patterns, 6 * 5 * 4 - 1), nullValue());
+	}
+
+	@Test
+	public void testFind() throws Exception {
+		CharDFA<Integer> dfa = CharDFA.compile(toCharArray(asList("abc", "b", "abc")), 1 << 10);
+
+		assertThat(dfa.find("abc".toCharArray()), equalTo(0));
+		assertThat(dfa.find("b".toCharArray()), equalTo(1));
+		assertThat(dfa.find("ab".toCharArray()), nullValue());
+		assertThat(dfa.contains("bc".toCharArray()), equalTo(false));
+	}
+
+	@Test
+	public void testCursorReportsLongestFirst() throws Exception {
+		CharDFA<Integer> dfa = CharDFA.compile(toCharArray(asList("c", "abc", "bc")), 1 << 10);
+		CharAutomaton<Integer> cursor = dfa.cursor();
+
+		for (char c : "xabc".toCharArray()) {
+			cursor.accept(c);
+		}
+
+		assertThat(cursor.hasAttachments(), equalTo(true));
+		assertThat(cursor, contains(1, 2, 0));
+		assertThat(cursor.lookahead('a'), equalTo(false));
+	}
+
+	@Test
+	public void testCompileGraph() throws Exception {
+		CharWordSetBuilder<String, ?> builder = new CharWordSetBuilder<>(new LinkedCharDawgCompiler<String>());
+		builder.extend("ab".toCharArray(), "ab");
+		builder.extend("ac".toCharArray(), "ac");
+		CharDFA.Compile<String> compile = new CharDFA.Compile<>(1 << 10);
+
+		builder.work(compile);
+
+		CharDFA<String> dfa = compile.getAutomaton();
+		assertThat(dfa.size(), equalTo(5));
+		assertThat(dfa.find("ab".toCharArray()), equalTo("ab"));
+		assertThat(dfa.find("a".toCharArray()), nullValue());
+		assertThat(dfa.find("b".toCharArray()), nullValue());
+		CharAutomaton<String> cursor = dfa.cursor();
+		assertThat(cursor.accept('a'), equalTo(true));
+		assertThat(cursor.lookahead('c'), equalTo(true));
+		assertThat(cursor.lookahead('a'), equalTo(false));
+		assertThat(cursor.accept('c'), equalTo(true));
+		assertThat(cursor, contains("ac"));
+		assertThat(cursor.accept('c'), equalTo(false));
+	}
+
+	@Test
+	public void testAgreesWithLinkedAutomata() throws Exception {
+		List<String> patterns = asList("ab", "abc", "bc", "c", "bcd", "d", "abcd", "dab");
+		String text = "abcdAabcbcdBabdcabcdab";
+		assertAgree(text, new AhoCorasick(patterns), new AhoCorasick(patterns, 1 << 20));
+		assertAgree(text, new SetBackwardOracleMatching(patterns), new SetBackwardOracleMatching(patterns, CharMapping.IDENTITY, 1 << 20));
+		assertAgree(text, new BOM("bcd"), new BOM("bcd", CharMapping.IDENTITY, 1 << 20));
+	}
+
+	private static void assertAgree(String text, StringSearchAlgorithm linked, StringSearchAlgorithm dense) {
+		for (StringFinderOption[] options : asList(new StringFinderOption[0], new StringFinderOption[] { NON_OVERLAP }, new StringFinderOption[] { LONGEST_MATCH, NON_OVERLAP })) {
+			assertThat(dense.createFinder(new StringCharProvider(text, 0), options).findAll(),
+				equalTo(linked.createFinder(new StringCharProvider(text, 0), options).findAll()));
+		}
+	}
+
+}
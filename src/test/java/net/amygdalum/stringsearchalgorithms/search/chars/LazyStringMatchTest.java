@@ -0,0 +1,51 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class LazyStringMatchTest {
+
+	@Test
+	public void testText() throws Exception {
+		StringCharProvider chars = new StringCharProvider("xxabxx", 0);
+		assertThat(new LazyStringMatch(chars, 2, 4, 1).text(), equalTo("ab"));
+	}
+
+	@Test
+	public void testTextIsSlicedOnDemand() throws Exception {
+		StringCharProvider chars = new StringCharProvider("xxabxx", 0);
+		LazyStringMatch match = new LazyStringMatch(chars, 2, 4, 1);
+		chars.finish();
+		assertThat(match.text(), equalTo("ab"));
+		assertThat(chars.current(), equalTo(6l));
+	}
+
+	@Test
+	public void testLength() throws Exception {
+		assertThat(new LazyStringMatch(new StringCharProvider("xxabxx", 0), 2, 4, 1).length(), equalTo(2));
+	}
+
+	@Test
+	public void testPattern() throws Exception {
+		assertThat(new LazyStringMatch(new StringCharProvider("xxabxx", 0), 2, 4, 1).pattern(), equalTo(1));
+	}
+
+	@Test
+	public void testEquals() throws Exception {
+		LazyStringMatch match = new LazyStringMatch(new StringCharProvider("xxabxx", 0), 2, 4, 1);
+		assertThat(match, equalTo(new StringMatch(2, 4, "ab")));
+		assertThat(new StringMatch(2, 4, "ab"), equalTo((StringMatch) match));
+		assertThat(match.hashCode(), equalTo(new StringMatch(2, 4, "ab").hashCode()));
+	}
+
+	@Test
+	public void testToString() throws Exception {
+		assertThat(new LazyStringMatch(new StringCharProvider("xxabxx", 0), 2, 4, 1).toString(), equalTo("2:4(ab)"));
+	}
+
+}
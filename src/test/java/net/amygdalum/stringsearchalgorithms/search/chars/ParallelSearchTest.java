@@ -0,0 +1,154 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.MatchCounter;
+import net.amygdalum.stringsearchalgorithms.search.StringFinderOption;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class ParallelSearchTest {
+
+	private static final List<String> PATTERNS = asList("ab", "aba", "bab", "aaa", "b");
+
+	private static ForkJoinPool pool;
+
+	@BeforeClass
+	public static void beforeClass() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSinglePattern() throws Exception {
+		String text = "abcabcabcabcabcabc";
+		ParallelSearch search = new ParallelSearch(new Horspool("cab"), 3, 4, pool);
+		assertThat(search.findAll(text), contains(
+			new StringMatch(2, 5, "cab"),
+			new StringMatch(5, 8, "cab"),
+			new StringMatch(8, 11, "cab"),
+			new StringMatch(11, 14, "cab"),
+			new StringMatch(14, 17, "cab")));
+	}
+
+	@Test
+	public void testNonOverlapResynchronizes() throws Exception {
+		String text = "aaaaaaaaaaaaaaaaaaaaaaaaa";
+		ParallelSearch search = new ParallelSearch(new Horspool("aa"), 2, 3, pool);
+		assertThat(search.findAll(text, NON_OVERLAP), equalTo(sequential(new Horspool("aa"), text, NON_OVERLAP)));
+		assertThat(search.findAll(text, NON_OVERLAP).size(), equalTo(12));
+	}
+
+	@Test
+	public void testEmptyDocument() throws Exception {
+		ParallelSearch search = new ParallelSearch(new Horspool("aa"), 2, 3, pool);
+		assertThat(search.findAll("").isEmpty(), equalTo(true));
+	}
+
+	@Test
+	public void testSearchToSink() throws Exception {
+		String text = randomText(200, 42);
+		ParallelSearch search = new ParallelSearch(new AhoCorasick(PATTERNS), 3, 7, pool);
+		MatchCounter counter = new MatchCounter();
+		search.search(ParallelSearch.source(text), counter);
+		assertThat(counter.count(), equalTo((long) sequential(new AhoCorasick(PATTERNS), text).size()));
+	}
+
+	@Test
+	public void testSearchToSinkStops() throws Exception {
+		String text = randomText(200, 42);
+		ParallelSearch search = new ParallelSearch(new AhoCorasick(PATTERNS), 3, 7, pool);
+		MatchCounter counter = new MatchCounter(5);
+		search.search(ParallelSearch.source(text), counter);
+		assertThat(counter.count(), equalTo(5l));
+	}
+
+	@Test
+	public void testMultiplePatternsAgreeWithSequentialSearch() throws Exception {
+		List<StringSearchAlgorithm> algorithms = asList(
+			new AhoCorasick(PATTERNS),
+			new SetHorspool(PATTERNS),
+			new WuManber(PATTERNS),
+			new SetBackwardOracleMatching(PATTERNS));
+		List<StringFinderOption[]> options = asList(
+			new StringFinderOption[0],
+			new StringFinderOption[] { LONGEST_MATCH },
+			new StringFinderOption[] { NON_OVERLAP },
+			new StringFinderOption[] { LONGEST_MATCH, NON_OVERLAP });
+		for (int seed = 0; seed < 10; seed++) {
+			String text = randomText(300, seed);
+			for (StringSearchAlgorithm algorithm : algorithms) {
+				for (StringFinderOption[] option : options) {
+					for (int chunkSize : new int[] { 1, 2, 5, 17, 1000 }) {
+						List<StringMatch> expected = sequential(algorithm, text, option);
+						List<StringMatch> matches = new ParallelSearch(algorithm, 3, chunkSize, pool).findAll(text, option);
+						assertThat(algorithm + " " + asList(option) + " " + chunkSize + " " + seed, matches, equalTo(expected));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLongestNonOverlapAgreesWithSequentialSearch() throws Exception {
+		assertAgrees(new AhoCorasick(asList("ab", "baa", "a")), 3, 4, "baababa");
+		assertAgrees(new SetHorspool(asList("bbb", "aa")), 3, 4, "aaaaaa");
+		assertAgrees(new WuManber(asList("bb", "aaab")), 4, 4, "bbbbbb");
+		assertAgrees(new SetHorspool(asList("baa", "baaa")), 4, 1, "abbbaaabaaa");
+		assertAgrees(new QGramShiftOr(asList("baa", "baaa")), 4, 1, "abbbaaabaaa");
+	}
+
+	private static void assertAgrees(StringSearchAlgorithm algorithm, int maxPatternLength, int chunkSize, String text) {
+		List<StringMatch> matches = new ParallelSearch(algorithm, maxPatternLength, chunkSize, pool).findAll(text, LONGEST_MATCH, NON_OVERLAP);
+		List<StringMatch> expected = sequential(algorithm, text, LONGEST_MATCH, NON_OVERLAP);
+		assertThat(algorithm + " " + text, matches, equalTo(expected));
+		for (int i = 0; i < matches.size(); i++) {
+			assertThat(matches.get(i).pattern(), equalTo(expected.get(i).pattern()));
+		}
+	}
+
+	private static List<StringMatch> sequential(StringSearchAlgorithm algorithm, String text, StringFinderOption... options) {
+		List<StringMatch> matches = new ArrayList<>(algorithm.createFinder(new StringCharProvider(text, 0), options).findAll());
+		Collections.sort(matches, new Comparator<StringMatch>() {
+
+			@Override
+			public int compare(StringMatch m1, StringMatch m2) {
+				if (m1.start() != m2.start()) {
+					return Long.compare(m1.start(), m2.start());
+				}
+				return Long.compare(m1.end(), m2.end());
+			}
+		});
+		return matches;
+	}
+
+	private static String randomText(int length, long seed) {
+		Random random = new Random(seed);
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			buffer.append("abc".charAt(random.nextInt(3)));
+		}
+		return buffer.toString();
+	}
+
+}
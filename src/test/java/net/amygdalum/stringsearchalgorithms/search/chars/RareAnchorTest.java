@@ -0,0 +1,39 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.FrequencyModel;
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class RareAnchorTest {
+
+	@Test
+	public void testAnchorInMiddleOfPattern() throws Exception {
+		RareAnchor algorithm = new RareAnchor("ease ", FrequencyModel.ENGLISH);
+
+		assertThat(algorithm.createFinder(new StringCharProvider("please ease  ease", 0)).findAll(), contains(
+			new StringMatch(2, 7, "ease "),
+			new StringMatch(7, 12, "ease ")));
+	}
+
+	@Test
+	public void testAllModelsFindSameMatches() throws Exception {
+		FrequencyModel[] models = { FrequencyModel.DEFAULT, FrequencyModel.ENGLISH, FrequencyModel.SOURCE_CODE, FrequencyModel.DNA, FrequencyModel.BINARY };
+		for (FrequencyModel model : models) {
+			assertThat(new RareAnchor("GATTA", model).createFinder(new StringCharProvider("GATTGATTACAGATTA", 0)).findAll(), contains(
+				new StringMatch(4, 9, "GATTA"),
+				new StringMatch(11, 16, "GATTA")));
+			assertThat(new RareAnchor("a(e)", model).createFinder(new StringCharProvider("xa(e)a(e)€a(e", 0)).findAll(), contains(
+				new StringMatch(1, 5, "a(e)"),
+				new StringMatch(5, 9, "a(e)")));
+			assertThat(new RareAnchor("€€a", model).createFinder(new StringCharProvider("€€€a€€a", 0)).findAll(), contains(
+				new StringMatch(1, 4, "€€a"),
+				new StringMatch(4, 7, "€€a")));
+		}
+	}
+
+}
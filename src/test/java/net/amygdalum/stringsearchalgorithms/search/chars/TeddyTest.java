@@ -0,0 +1,85 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static java.util.Arrays.asList;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.LONGEST_MATCH;
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class TeddyTest {
+
+	@Test
+	public void testManyPatternsShareBuckets() throws Exception {
+		List<String> patterns = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			patterns.add("p" + i);
+		}
+		Teddy teddy = new Teddy(patterns);
+
+		List<StringMatch> matches = teddy.createFinder(new StringCharProvider("xp7 p19 p2", 0)).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(1, 3, "p7"),
+			new StringMatch(4, 6, "p1"),
+			new StringMatch(4, 7, "p19"),
+			new StringMatch(8, 10, "p2")));
+	}
+
+	@Test
+	public void testCharsWithEqualLowBytes() throws Exception {
+		Teddy teddy = new Teddy(asList("šb", "ab"));
+
+		List<StringMatch> matches = teddy.createFinder(new StringCharProvider("ɡbšbabaŢ", 0)).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(2, 4, "šb"),
+			new StringMatch(4, 6, "ab")));
+	}
+
+	@Test
+	public void testOverlappingPatterns() throws Exception {
+		Teddy teddy = new Teddy(asList("abc", "bc", "b", "ca"));
+
+		List<StringMatch> matches = teddy.createFinder(new StringCharProvider("abcab", 0)).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(0, 3, "abc"),
+			new StringMatch(1, 2, "b"),
+			new StringMatch(1, 3, "bc"),
+			new StringMatch(2, 4, "ca"),
+			new StringMatch(4, 5, "b")));
+	}
+
+	@Test
+	public void testLongestMatchDropsCoveredSuffixes() throws Exception {
+		Teddy teddy = new Teddy(asList("a", "ab", "bc", "c"));
+
+		List<StringMatch> matches = teddy.createFinder(new StringCharProvider("abc", 0), LONGEST_MATCH).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(0, 2, "ab"),
+			new StringMatch(1, 3, "bc")));
+	}
+
+	@Test
+	public void testLongestMatchNonOverlap() throws Exception {
+		Teddy teddy = new Teddy(asList("a", "ab", "bc", "c"));
+
+		List<StringMatch> matches = teddy.createFinder(new StringCharProvider("abcabc", 0), LONGEST_MATCH, NON_OVERLAP).findAll();
+
+		assertThat(matches, contains(
+			new StringMatch(0, 2, "ab"),
+			new StringMatch(2, 3, "c"),
+			new StringMatch(3, 5, "ab"),
+			new StringMatch(5, 6, "c")));
+	}
+
+}
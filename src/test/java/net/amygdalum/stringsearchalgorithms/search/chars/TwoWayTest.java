@@ -0,0 +1,87 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static net.amygdalum.stringsearchalgorithms.search.MatchOption.NON_OVERLAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class TwoWayTest {
+
+	@Test
+	public void testPeriodicPattern() throws Exception {
+		TwoWay algorithm = new TwoWay("abab");
+
+		assertThat(algorithm.createFinder(new StringCharProvider("abababxabab", 0)).findAll(), contains(
+			new StringMatch(0, 4, "abab"),
+			new StringMatch(2, 6, "abab"),
+			new StringMatch(7, 11, "abab")));
+	}
+
+	@Test
+	public void testAdversarialInputIsLinear() throws Exception {
+		String text = repeat('a', 10000) + "b";
+		CountingCharProvider chars = new CountingCharProvider(text);
+
+		assertThat(new TwoWay(repeat('a', 100) + "b").createFinder(chars).findAll(), contains(
+			new StringMatch(9900, 10001, repeat('a', 100) + "b")));
+		assertThat(chars.reads, lessThanOrEqualTo(2 * text.length()));
+	}
+
+	@Test
+	public void testNonPeriodicPattern() throws Exception {
+		TwoWay algorithm = new TwoWay("abaab");
+
+		assertThat(algorithm.createFinder(new StringCharProvider("abaabaababaab", 0)).findAll(), contains(
+			new StringMatch(0, 5, "abaab"),
+			new StringMatch(3, 8, "abaab"),
+			new StringMatch(8, 13, "abaab")));
+	}
+
+	@Test
+	public void testNonOverlap() throws Exception {
+		TwoWay algorithm = new TwoWay("abab");
+
+		assertThat(algorithm.createFinder(new StringCharProvider("abababxabab", 0), NON_OVERLAP).findAll(), contains(
+			new StringMatch(0, 4, "abab"),
+			new StringMatch(7, 11, "abab")));
+	}
+
+	@Test
+	public void testNonAsciiPattern() throws Exception {
+		TwoWay algorithm = new TwoWay("a€b");
+
+		assertThat(algorithm.createFinder(new StringCharProvider("€a€ba€b", 0)).findAll(), contains(
+			new StringMatch(1, 4, "a€b"),
+			new StringMatch(4, 7, "a€b")));
+	}
+
+	private static String repeat(char c, int length) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			text.append(c);
+		}
+		return text.toString();
+	}
+
+	private static class CountingCharProvider extends StringCharProvider {
+
+		private int reads;
+
+		public CountingCharProvider(String input) {
+			super(input, 0);
+		}
+
+		@Override
+		public char lookahead(int i) {
+			reads++;
+			return super.lookahead(i);
+		}
+
+	}
+
+}
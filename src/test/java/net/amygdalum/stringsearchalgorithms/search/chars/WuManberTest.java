@@ -0,0 +1,57 @@
+package net.amygdalum.stringsearchalgorithms.search.chars;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.amygdalum.stringsearchalgorithms.search.StringMatch;
+import net.amygdalum.util.io.StringCharProvider;
+
+public class WuManberTest {
+
+	@Test
+	public void testTablesGrowWithPatterns() throws Exception {
+		List<String> patterns = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			patterns.add("pattern" + i);
+		}
+
+		WuManber wuManber = new WuManber(patterns);
+
+		assertThat(wuManber.getShiftSize(), greaterThanOrEqualTo(1 << 18));
+		assertThat(wuManber.getHashSize(), equalTo(128));
+		assertThat(wuManber.createFinder(new StringCharProvider("a pattern4711 b", 0)).findAll(), contains(
+			new StringMatch(2, 10, "pattern4"),
+			new StringMatch(2, 11, "pattern47"),
+			new StringMatch(2, 12, "pattern471"),
+			new StringMatch(2, 13, "pattern4711")));
+	}
+
+	@Test
+	public void testSmallPatternSetsUseMinimalTables() throws Exception {
+		WuManber wuManber = new WuManber(asList("abc", "bcd"));
+
+		assertThat(wuManber.getShiftSize(), equalTo(256));
+		assertThat(wuManber.getHashSize(), equalTo(16));
+	}
+
+	@Test
+	public void testExplicitParameters() throws Exception {
+		WuManber wuManber = new WuManber(asList("abc", "bcd"), 5, 1000, 3);
+
+		assertThat(wuManber.getBlockSize(), equalTo(3));
+		assertThat(wuManber.getShiftSize(), equalTo(1024));
+		assertThat(wuManber.getHashSize(), equalTo(4));
+		assertThat(wuManber.createFinder(new StringCharProvider("abcd", 0)).findAll(), contains(
+			new StringMatch(0, 3, "abc"),
+			new StringMatch(1, 4, "bcd")));
+	}
+
+}